@@ -41,6 +41,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -63,6 +64,9 @@ public abstract class AbstractFilterDao<T>
     private final static String SQL_EQUAL = " = ? ";
     private final static String SQL_LIKE = " LIKE ? ";
     private final static String SQL_AND = " AND ";
+    private final static String SQL_ASC = " ASC ";
+    private final static String SQL_DESC = " DESC ";
+    private final static String SHAPE_SEPARATOR = "|";
 
     // types only allowed for research
     protected final static String TYPE_DATE = "Date";
@@ -77,6 +81,9 @@ public abstract class AbstractFilterDao<T>
     private final Class<T> _clazz;
     protected Plugin _plugin;
 
+    // statements already built, by searched columns and order
+    private final QueryShapeCache<String> _queryCache = new QueryShapeCache<>( );
+
     @SuppressWarnings( "unchecked" )
     protected AbstractFilterDao( )
     {
@@ -108,15 +115,11 @@ public abstract class AbstractFilterDao<T>
 
     protected String prepareSelectStatement( String SQL_QUERY_SELECTALL_ID, Map<String, String> mapFilterCriteria, String strColumnToOrder, String strSortMode )
     {
+        List<String> listColumns = getSearchColumns( mapFilterCriteria );
+        String strOrderBy = addOrderByClause( strColumnToOrder, strSortMode );
+        String strShape = SQL_QUERY_SELECTALL_ID + SHAPE_SEPARATOR + String.join( SHAPE_SEPARATOR, listColumns ) + SHAPE_SEPARATOR + strOrderBy;
 
-        StringBuilder builder = new StringBuilder( );
-
-        builder.append( SQL_QUERY_SELECTALL_ID );
-        builder.append( addWhereClauses( mapFilterCriteria ) );
-        builder.append( addOrderByClause( strColumnToOrder, strSortMode ) );
-
-        return builder.toString( );
-
+        return _queryCache.getQuery( strShape, ( ) -> SQL_QUERY_SELECTALL_ID + addWhereClauses( listColumns ) + strOrderBy );
     }
 
     /**
@@ -129,36 +132,50 @@ public abstract class AbstractFilterDao<T>
 
     protected String addWhereClauses( Map<String, String> mapFilterCriteria )
     {
+        return addWhereClauses( getSearchColumns( mapFilterCriteria ) );
+    }
 
-        StringBuilder WhereClauses = new StringBuilder( );
-
-        if ( !mapFilterIsEmpty( mapFilterCriteria ) )
+    /**
+     * add Where clause to the filterStatement
+     * 
+     * @param listColumns
+     *            the searched columns
+     * @return the where part of the filterStatement
+     */
+    private String addWhereClauses( List<String> listColumns )
+    {
+        if ( listColumns.isEmpty( ) )
         {
+            return StringUtils.EMPTY;
+        }
 
-            WhereClauses.append( SQL_WHERE );
-
-            for ( Map.Entry<String, String> filter : mapFilterCriteria.entrySet( ) )
-            {
-
-                // Check if a value was passed for the search
-                if ( StringUtils.isNotBlank( filter.getValue( ) ) )
-                {
-
-                    // Check if the criteria name match with a BDD column name and if the type of this column is allowed for a search
-                    if ( _mapSql.containsKey( filter.getKey( ) ) && _listTypeAllowedForSearch.contains( _mapSql.get( filter.getKey( ) ) ) )
-                    {
-
-                        WhereClauses.append( SQL_AND );
-                        WhereClauses.append( filter.getKey( ) );
-                        WhereClauses.append( addWhereClauseOperator( filter.getKey( ) ) );
-                    }
-                }
-            }
+        StringBuilder whereClauses = new StringBuilder( SQL_WHERE );
 
+        for ( String strColumn : listColumns )
+        {
+            whereClauses.append( SQL_AND );
+            whereClauses.append( strColumn );
+            whereClauses.append( addWhereClauseOperator( strColumn ) );
         }
 
-        return WhereClauses.toString( );
-    };
+        return whereClauses.toString( );
+    }
+
+    /**
+     * Get the searched columns : the criteria with a value, matching a database column whose type is allowed for a search. The columns are sorted so that the
+     * same criteria always produce the same statement, and the values are bound in this order.
+     * 
+     * @param mapFilterCriteria
+     *            contains searchbar names/values inputs
+     * @return the sorted list of the searched columns
+     */
+    protected List<String> getSearchColumns( Map<String, String> mapFilterCriteria )
+    {
+        return mapFilterCriteria.entrySet( ).stream( )
+                .filter( filter -> StringUtils.isNotBlank( filter.getValue( ) ) && _mapSql.containsKey( filter.getKey( ) )
+                        && _listTypeAllowedForSearch.contains( _mapSql.get( filter.getKey( ) ) ) )
+                .map( Map.Entry::getKey ).sorted( ).collect( Collectors.toList( ) );
+    }
 
     /**
      * add OrderBy columns to the filterStatement
@@ -178,7 +195,7 @@ public abstract class AbstractFilterDao<T>
 
             orderByClauses.append( SQL_ORDER_BY );
             orderByClauses.append( strColumnToOrder );
-            orderByClauses.append( strSortMode );
+            orderByClauses.append( SQL_DESC.trim( ).equalsIgnoreCase( StringUtils.trim( strSortMode ) ) ? SQL_DESC : SQL_ASC );
 
             return orderByClauses.toString( );
         }
@@ -186,25 +203,6 @@ public abstract class AbstractFilterDao<T>
         return "";
     }
 
-    /**
-     * Check if _mapFilter is empty
-     * 
-     * @return boolean
-     */
-    private boolean mapFilterIsEmpty( Map<String, String> mapFilterCriteria )
-    {
-
-        for ( Map.Entry<String, String> entry : mapFilterCriteria.entrySet( ) )
-        {
-            if ( StringUtils.isNotBlank( entry.getValue( ) ) )
-            {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     /**
      * add where clause operator to the filterStatement
      * 
@@ -309,12 +307,9 @@ public abstract class AbstractFilterDao<T>
         try ( DAOUtil daoUtil = new DAOUtil( strSelectStatement, _plugin ) )
         {
             int nIndex = 1;
-            for ( Map.Entry<String, String> filter : mapFilterCriteria.entrySet( ) )
+            for ( String strColumn : getSearchColumns( mapFilterCriteria ) )
             {
-                if ( StringUtils.isNotBlank( filter.getValue( ) ) && _mapSql.containsKey( filter.getKey( ) ) )
-                {
-                    daoUtil.setString( nIndex++, filter.getValue( ) );
-                }
+                daoUtil.setString( nIndex++, mapFilterCriteria.get( strColumn ) );
             }
 
             daoUtil.executeQuery( );
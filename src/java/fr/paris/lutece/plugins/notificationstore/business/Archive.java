@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * This is the business class for the object Archive : the packed notifications and events of archived demands of a customer
+ */
+public class Archive
+{
+    // Variables declarations
+    private int _nId;
+    private String _strCustomerId;
+    private long _lArchiveDate;
+    private String _strFileKey;
+    private String _strFileStore;
+
+    /**
+     * Returns the Id
+     * 
+     * @return The Id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * Sets the Id
+     * 
+     * @param nId
+     *            The Id
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * Returns the customer id
+     * 
+     * @return the customer id
+     */
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * Sets the customer id
+     * 
+     * @param strCustomerId
+     *            the customer id
+     */
+    public void setCustomerId( String strCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+    }
+
+    /**
+     * Returns the archive date
+     * 
+     * @return the archive date
+     */
+    public long getArchiveDate( )
+    {
+        return _lArchiveDate;
+    }
+
+    /**
+     * Sets the archive date
+     * 
+     * @param lArchiveDate
+     *            the archive date
+     */
+    public void setArchiveDate( long lArchiveDate )
+    {
+        _lArchiveDate = lArchiveDate;
+    }
+
+    /**
+     * Returns the key of the archive file
+     * 
+     * @return the file key
+     */
+    public String getFileKey( )
+    {
+        return _strFileKey;
+    }
+
+    /**
+     * Sets the key of the archive file
+     * 
+     * @param strFileKey
+     *            the file key
+     */
+    public void setFileKey( String strFileKey )
+    {
+        _strFileKey = strFileKey;
+    }
+
+    /**
+     * Returns the file store of the archive file
+     * 
+     * @return the file store
+     */
+    public String getFileStore( )
+    {
+        return _strFileStore;
+    }
+
+    /**
+     * Sets the file store of the archive file
+     * 
+     * @param strFileStore
+     *            the file store
+     */
+    public void setFileStore( String strFileStore )
+    {
+        _strFileStore = strFileStore;
+    }
+}
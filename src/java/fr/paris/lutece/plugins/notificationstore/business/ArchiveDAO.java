@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for Archive objects
+ */
+public final class ArchiveDAO implements IArchiveDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_archive ( customer_id, archive_date, file_key, file_store ) VALUES ( ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_DELETE_BY_CUSTOMER_ID = "DELETE FROM notificationstore_archive WHERE customer_id = ? ";
+    private static final String SQL_QUERY_SELECT_BY_CUSTOMER_ID = "SELECT id_archive, customer_id, archive_date, file_key, file_store FROM notificationstore_archive WHERE customer_id = ? ORDER BY id_archive";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( Archive archive, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = 0;
+            daoUtil.setString( ++nIndex, archive.getCustomerId( ) );
+            daoUtil.setTimestamp( ++nIndex, new Timestamp( archive.getArchiveDate( ) ) );
+            daoUtil.setString( ++nIndex, archive.getFileKey( ) );
+            daoUtil.setString( ++nIndex, archive.getFileStore( ) );
+
+            daoUtil.executeUpdate( );
+            if ( daoUtil.nextGeneratedKey( ) )
+            {
+                archive.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void deleteByCustomerId( String strCustomerId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_CUSTOMER_ID, plugin ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Archive> selectArchivesByCustomerId( String strCustomerId, Plugin plugin )
+    {
+        List<Archive> listArchives = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_CUSTOMER_ID, plugin ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                int nIndex = 0;
+                Archive archive = new Archive( );
+                archive.setId( daoUtil.getInt( ++nIndex ) );
+                archive.setCustomerId( daoUtil.getString( ++nIndex ) );
+                archive.setArchiveDate( daoUtil.getTimestamp( ++nIndex ).getTime( ) );
+                archive.setFileKey( daoUtil.getString( ++nIndex ) );
+                archive.setFileStore( daoUtil.getString( ++nIndex ) );
+
+                listArchives.add( archive );
+            }
+        }
+
+        return listArchives;
+    }
+}
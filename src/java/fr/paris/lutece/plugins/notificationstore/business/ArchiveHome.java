@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for Archive objects
+ */
+
+public final class ArchiveHome
+{
+
+    // Static variable pointed at the DAO instance
+
+    private static IArchiveDAO _dao = (IArchiveDAO) SpringContextService.getBean( "notificationstore.archiveDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+
+    private ArchiveHome( )
+    {
+    }
+
+    /**
+     * Create an archive
+     * 
+     * @param archive
+     *            The instance of the Archive which contains the informations to store
+     * @param plugin
+     *            the Plugin of the shard of the customer
+     * @return The instance of archive which has been created with its primary key.
+     */
+    public static Archive create( Archive archive, Plugin plugin )
+    {
+        _dao.insert( archive, plugin );
+
+        return archive;
+    }
+
+    /**
+     * Remove the archives of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param plugin
+     *            the Plugin of the shard of the customer
+     */
+    public static void removeByCustomerId( String strCustomerId, Plugin plugin )
+    {
+        _dao.deleteByCustomerId( strCustomerId, plugin );
+    }
+
+    /**
+     * Get the archives of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the list of the archives, oldest first
+     */
+    public static List<Archive> getArchivesByCustomerId( String strCustomerId )
+    {
+        return _dao.selectArchivesByCustomerId( strCustomerId, NotificationStorePlugin.getPlugin( strCustomerId ) );
+    }
+}
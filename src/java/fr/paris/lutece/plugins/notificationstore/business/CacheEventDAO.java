@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for the change log of the local caches
+ */
+public final class CacheEventDAO implements ICacheEventDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_cache_event ( cache_name, event_date ) VALUES ( ?, ? ) ";
+    private static final String SQL_QUERY_SELECT_AFTER = "SELECT id, cache_name FROM notificationstore_cache_event WHERE id > ? ORDER BY id ";
+    private static final String SQL_QUERY_SELECT_LAST_ID = "SELECT MAX( id ) FROM notificationstore_cache_event ";
+    private static final String SQL_QUERY_DELETE_BEFORE = "DELETE FROM notificationstore_cache_event WHERE event_date < ? ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long insert( String strCacheName, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            daoUtil.setString( 1, strCacheName );
+            daoUtil.setTimestamp( 2, new Timestamp( System.currentTimeMillis( ) ) );
+            daoUtil.executeUpdate( );
+
+            return daoUtil.nextGeneratedKey( ) ? daoUtil.getGeneratedKeyLong( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CacheEvent> selectAfter( long lIdEvent, Plugin plugin )
+    {
+        List<CacheEvent> listCacheEvents = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_AFTER, plugin ) )
+        {
+            daoUtil.setLong( 1, lIdEvent );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                CacheEvent cacheEvent = new CacheEvent( );
+                cacheEvent.setId( daoUtil.getLong( 1 ) );
+                cacheEvent.setCacheName( daoUtil.getString( 2 ) );
+
+                listCacheEvents.add( cacheEvent );
+            }
+        }
+
+        return listCacheEvents;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long selectLastId( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_LAST_ID, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            // MAX( id ) is null, read as 0, when there is no event
+            return daoUtil.next( ) ? daoUtil.getLong( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int deleteBefore( long lDate, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BEFORE, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, new Timestamp( lDate ) );
+            return daoUtil.executeUpdate( );
+        }
+    }
+}
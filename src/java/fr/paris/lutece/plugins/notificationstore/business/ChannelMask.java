@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.Collection;
+
+import org.apache.commons.collections.CollectionUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+
+/**
+ * The bitmask of the channels of a notification, stored in the channel_mask columns of the notifications and of the demands. The bits are part of the
+ * stored data (see the upgrade script) : they must never be changed.
+ */
+public final class ChannelMask
+{
+    public static final int BIT_BACKOFFICE = 1;
+    public static final int BIT_SMS = 1 << 1;
+    public static final int BIT_CUSTOMER_EMAIL = 1 << 2;
+    public static final int BIT_MYDASHBOARD = 1 << 3;
+    public static final int BIT_BROADCAST_EMAIL = 1 << 4;
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private ChannelMask( )
+    {
+    }
+
+    /**
+     * Get the bit of a notification type
+     * 
+     * @param notificationType
+     *            the notification type
+     * @return the bit, or 0 for a type without content
+     */
+    public static int getBit( EnumNotificationType notificationType )
+    {
+        switch( notificationType )
+        {
+            case BACKOFFICE:
+                return BIT_BACKOFFICE;
+            case SMS:
+                return BIT_SMS;
+            case CUSTOMER_EMAIL:
+                return BIT_CUSTOMER_EMAIL;
+            case MYDASHBOARD:
+                return BIT_MYDASHBOARD;
+            case BROADCAST_EMAIL:
+                return BIT_BROADCAST_EMAIL;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get the bit of a notification type name
+     * 
+     * @param strNotificationType
+     *            the name of the notification type
+     * @return the bit, or 0 for an unknown type
+     */
+    public static int getBit( String strNotificationType )
+    {
+        for ( EnumNotificationType notificationType : EnumNotificationType.values( ) )
+        {
+            if ( notificationType.name( ).equals( strNotificationType ) )
+            {
+                return getBit( notificationType );
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Get the mask of notification type names
+     * 
+     * @param listNotificationTypes
+     *            the names of the notification types
+     * @return the mask
+     */
+    public static int getMask( Collection<String> listNotificationTypes )
+    {
+        int nMask = 0;
+        for ( String strNotificationType : listNotificationTypes )
+        {
+            nMask |= getBit( strNotificationType );
+        }
+
+        return nMask;
+    }
+
+    /**
+     * Get the mask of the channels of a notification
+     * 
+     * @param notification
+     *            the notification
+     * @return the mask
+     */
+    public static int getMask( Notification notification )
+    {
+        int nMask = 0;
+        if ( notification.getBackofficeNotification( ) != null )
+        {
+            nMask |= BIT_BACKOFFICE;
+        }
+        if ( notification.getSmsNotification( ) != null )
+        {
+            nMask |= BIT_SMS;
+        }
+        if ( notification.getEmailNotification( ) != null )
+        {
+            nMask |= BIT_CUSTOMER_EMAIL;
+        }
+        if ( notification.getMyDashboardNotification( ) != null )
+        {
+            nMask |= BIT_MYDASHBOARD;
+        }
+        if ( CollectionUtils.isNotEmpty( notification.getBroadcastEmail( ) ) )
+        {
+            nMask |= BIT_BROADCAST_EMAIL;
+        }
+
+        return nMask;
+    }
+}
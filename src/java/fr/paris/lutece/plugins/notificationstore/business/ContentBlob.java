@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * This is the business class for the object ContentBlob : a notification content file shared by the notification contents having the same payload
+ */
+public class ContentBlob
+{
+    // Variables declarations
+    private String _strContentHash;
+    private String _strFileKey;
+    private String _strFileStore;
+    private int _nRefCount;
+
+    /**
+     * Returns the content hash
+     * 
+     * @return the SHA-256 hash of the file content
+     */
+    public String getContentHash( )
+    {
+        return _strContentHash;
+    }
+
+    /**
+     * Sets the content hash
+     * 
+     * @param strContentHash
+     *            the SHA-256 hash of the file content
+     */
+    public void setContentHash( String strContentHash )
+    {
+        _strContentHash = strContentHash;
+    }
+
+    /**
+     * Returns the file key
+     * 
+     * @return the file key
+     */
+    public String getFileKey( )
+    {
+        return _strFileKey;
+    }
+
+    /**
+     * Sets the file key
+     * 
+     * @param strFileKey
+     *            the file key
+     */
+    public void setFileKey( String strFileKey )
+    {
+        _strFileKey = strFileKey;
+    }
+
+    /**
+     * Returns the file store
+     * 
+     * @return the file store
+     */
+    public String getFileStore( )
+    {
+        return _strFileStore;
+    }
+
+    /**
+     * Sets the file store
+     * 
+     * @param strFileStore
+     *            the file store
+     */
+    public void setFileStore( String strFileStore )
+    {
+        _strFileStore = strFileStore;
+    }
+
+    /**
+     * Returns the number of notification contents referencing the file
+     * 
+     * @return the reference count
+     */
+    public int getRefCount( )
+    {
+        return _nRefCount;
+    }
+
+    /**
+     * Sets the number of notification contents referencing the file
+     * 
+     * @param nRefCount
+     *            the reference count
+     */
+    public void setRefCount( int nRefCount )
+    {
+        _nRefCount = nRefCount;
+    }
+}
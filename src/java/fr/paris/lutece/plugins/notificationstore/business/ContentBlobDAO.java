@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class provides Data Access methods for the content blobs
+ */
+public final class ContentBlobDAO implements IContentBlobDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT IGNORE INTO notificationstore_content_blob ( content_hash, file_key, file_store, ref_count ) VALUES ( ?, ?, ?, 1 ) ";
+    private static final String SQL_QUERY_INCREMENT = "UPDATE notificationstore_content_blob SET ref_count = ref_count + 1 WHERE content_hash = ? ";
+    private static final String SQL_QUERY_DECREMENT = "UPDATE notificationstore_content_blob SET ref_count = ref_count - ? WHERE content_hash = ? ";
+    private static final String SQL_QUERY_DELETE_UNREFERENCED = "DELETE FROM notificationstore_content_blob WHERE content_hash = ? AND ref_count <= 0 ";
+    private static final String SQL_QUERY_SELECT = "SELECT content_hash, file_key, file_store, ref_count FROM notificationstore_content_blob WHERE content_hash = ? ";
+    private static final String SQL_QUERY_SELECT_UNREFERENCED = "SELECT content_hash, file_key, file_store, ref_count FROM notificationstore_content_blob WHERE ref_count <= 0 LIMIT ? ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean insert( ContentBlob contentBlob, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 0;
+            daoUtil.setString( ++nIndex, contentBlob.getContentHash( ) );
+            daoUtil.setString( ++nIndex, contentBlob.getFileKey( ) );
+            daoUtil.setString( ++nIndex, contentBlob.getFileStore( ) );
+
+            // no row is inserted when the primary key already exists
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean increment( String strContentHash, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT, plugin ) )
+        {
+            daoUtil.setString( 1, strContentHash );
+
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void decrement( Map<String, Integer> mapReferences, Plugin plugin )
+    {
+        if ( mapReferences.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DECREMENT, plugin ) )
+        {
+            for ( Map.Entry<String, Integer> entry : mapReferences.entrySet( ) )
+            {
+                daoUtil.setInt( 1, entry.getValue( ) );
+                daoUtil.setString( 2, entry.getKey( ) );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean deleteUnreferenced( String strContentHash, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_UNREFERENCED, plugin ) )
+        {
+            daoUtil.setString( 1, strContentHash );
+
+            // a reference added meanwhile keeps the row
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ContentBlob load( String strContentHash, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setString( 1, strContentHash );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? loadContentBlob( daoUtil ) : null;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<ContentBlob> selectUnreferenced( int nLimit, Plugin plugin )
+    {
+        List<ContentBlob> listContentBlobs = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_UNREFERENCED, plugin ) )
+        {
+            daoUtil.setInt( 1, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listContentBlobs.add( loadContentBlob( daoUtil ) );
+            }
+        }
+
+        return listContentBlobs;
+    }
+
+    /**
+     * Load a content blob from the current row
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @return the content blob
+     */
+    private ContentBlob loadContentBlob( DAOUtil daoUtil )
+    {
+        int nIndex = 0;
+        ContentBlob contentBlob = new ContentBlob( );
+        contentBlob.setContentHash( daoUtil.getString( ++nIndex ) );
+        contentBlob.setFileKey( daoUtil.getString( ++nIndex ) );
+        contentBlob.setFileStore( daoUtil.getString( ++nIndex ) );
+        contentBlob.setRefCount( daoUtil.getInt( ++nIndex ) );
+
+        return contentBlob;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class provides instances management methods for the content blobs. The content blobs are stored in the database of the plugin, like the files
+ * they reference : a file is shared by the notification contents of all the shards.
+ */
+
+public final class ContentBlobHome
+{
+
+    // Static variable pointed at the DAO instance
+
+    private static IContentBlobDAO _dao = (IContentBlobDAO) SpringContextService.getBean( "notificationstore.contentBlobDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+
+    private ContentBlobHome( )
+    {
+    }
+
+    /**
+     * Create a content blob referenced once, unless its hash is already stored
+     * 
+     * @param contentBlob
+     *            the content blob
+     * @return true if the content blob has been created, false if its hash was already stored
+     */
+    public static boolean create( ContentBlob contentBlob )
+    {
+        return _dao.insert( contentBlob, NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Add a reference to a content blob
+     * 
+     * @param strContentHash
+     *            the content hash
+     * @return the content blob, or null if it does not exist
+     */
+    public static ContentBlob acquire( String strContentHash )
+    {
+        // once incremented, the content blob can no longer be removed
+        if ( _dao.increment( strContentHash, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            return _dao.load( strContentHash, NotificationStorePlugin.getPlugin( ) );
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove references to content blobs
+     * 
+     * @param mapReferences
+     *            the number of references to remove, by content hash
+     */
+    public static void release( Map<String, Integer> mapReferences )
+    {
+        _dao.decrement( mapReferences, NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Remove a content blob, only if it is no longer referenced
+     * 
+     * @param strContentHash
+     *            the content hash
+     * @return true if the content blob has been removed : its file can be deleted
+     */
+    public static boolean removeUnreferenced( String strContentHash )
+    {
+        return _dao.deleteUnreferenced( strContentHash, NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Find a content blob
+     * 
+     * @param strContentHash
+     *            the content hash
+     * @return the content blob, or null if it does not exist
+     */
+    public static ContentBlob findByPrimaryKey( String strContentHash )
+    {
+        return _dao.load( strContentHash, NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Find the content blobs which are no longer referenced
+     * 
+     * @param nLimit
+     *            the max number of content blobs
+     * @return the list of the content blobs
+     */
+    public static List<ContentBlob> findUnreferenced( int nLimit )
+    {
+        return _dao.selectUnreferenced( nLimit, NotificationStorePlugin.getPlugin( ) );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * This is the business class for the object CustomerVersion : the change counter of the demands and notifications of a customer
+ */
+public class CustomerVersion
+{
+    // Variables declarations
+    private String _strCustomerId;
+    private long _lVersion;
+    private long _lModifyDate;
+
+    /**
+     * Returns the customer id
+     * 
+     * @return the customer id
+     */
+    public String getCustomerId( )
+    {
+        return _strCustomerId;
+    }
+
+    /**
+     * Sets the customer id
+     * 
+     * @param strCustomerId
+     *            the customer id
+     */
+    public void setCustomerId( String strCustomerId )
+    {
+        _strCustomerId = strCustomerId;
+    }
+
+    /**
+     * Returns the number of writes
+     * 
+     * @return the version
+     */
+    public long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Sets the number of writes
+     * 
+     * @param lVersion
+     *            the version
+     */
+    public void setVersion( long lVersion )
+    {
+        _lVersion = lVersion;
+    }
+
+    /**
+     * Returns the date of the last write
+     * 
+     * @return the modify date
+     */
+    public long getModifyDate( )
+    {
+        return _lModifyDate;
+    }
+
+    /**
+     * Sets the date of the last write
+     * 
+     * @param lModifyDate
+     *            the modify date
+     */
+    public void setModifyDate( long lModifyDate )
+    {
+        _lModifyDate = lModifyDate;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for CustomerVersion objects
+ */
+public final class CustomerVersionDAO implements ICustomerVersionDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INCREMENT = "INSERT INTO notificationstore_customer_version ( customer_id, version, modify_date ) VALUES ( ?, 1, ? ) ON DUPLICATE KEY UPDATE version = version + 1, modify_date = VALUES( modify_date ) ";
+    private static final String SQL_QUERY_INCREMENT_BY_NOTIFICATION_IDS = "UPDATE notificationstore_customer_version SET version = version + 1, modify_date = ? WHERE customer_id IN ( SELECT customer_id FROM notificationstore_notification WHERE id IN ( %s ) ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT customer_id, version, modify_date FROM notificationstore_customer_version WHERE customer_id = ? ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void increment( String strCustomerId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT, plugin ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+            daoUtil.setTimestamp( 2, new Timestamp( System.currentTimeMillis( ) ) );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void incrementByNotificationIds( Collection<Integer> listIdNotifications, Plugin plugin )
+    {
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIdNotifications ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_INCREMENT_BY_NOTIFICATION_IDS, QueryShapeCache.getPlaceholders( listChunk.size( ) ) ),
+                    plugin ) )
+            {
+                int nIndex = 1;
+                daoUtil.setTimestamp( nIndex++, new Timestamp( System.currentTimeMillis( ) ) );
+                for ( Integer nId : listChunk )
+                {
+                    daoUtil.setInt( nIndex++, nId );
+                }
+
+                daoUtil.executeUpdate( );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public CustomerVersion load( String strCustomerId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+            daoUtil.executeQuery( );
+
+            if ( !daoUtil.next( ) )
+            {
+                return null;
+            }
+
+            int nIndex = 0;
+            CustomerVersion customerVersion = new CustomerVersion( );
+            customerVersion.setCustomerId( daoUtil.getString( ++nIndex ) );
+            customerVersion.setVersion( daoUtil.getLong( ++nIndex ) );
+            customerVersion.setModifyDate( daoUtil.getTimestamp( ++nIndex ).getTime( ) );
+
+            return customerVersion;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.Collection;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * This class provides instances management methods for CustomerVersion objects
+ */
+
+public final class CustomerVersionHome
+{
+
+    // Static variable pointed at the DAO instance
+
+    private static ICustomerVersionDAO _dao = (ICustomerVersionDAO) SpringContextService.getBean( "notificationstore.customerVersionDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+
+    private CustomerVersionHome( )
+    {
+    }
+
+    /**
+     * Increment the version of a customer after a write of its demands or notifications
+     * 
+     * @param strCustomerId
+     *            the customer id
+     */
+    public static void increment( String strCustomerId )
+    {
+        if ( StringUtils.isNotEmpty( strCustomerId ) )
+        {
+            _dao.increment( strCustomerId, NotificationStorePlugin.getPlugin( strCustomerId ) );
+        }
+    }
+
+    /**
+     * Increment the versions of the customers of notifications before their deletion
+     * 
+     * @param listIdNotifications
+     *            the notification ids
+     * @param plugin
+     *            the Plugin of the shard
+     */
+    public static void incrementByNotificationIds( Collection<Integer> listIdNotifications, Plugin plugin )
+    {
+        _dao.incrementByNotificationIds( listIdNotifications, plugin );
+    }
+
+    /**
+     * Find the date of the last write of a customer, read from the primary pool, the one where the writes of all the nodes are recorded
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the date of the last write, or 0 if the customer has never been written
+     */
+    public static long findLastWriteDate( String strCustomerId )
+    {
+        CustomerVersion customerVersion = _dao.load( strCustomerId, NotificationStorePlugin.getPlugin( strCustomerId ) );
+
+        return ( customerVersion != null ) ? customerVersion.getModifyDate( ) : 0;
+    }
+
+    /**
+     * Find the version of a customer, read from the same database as its demands and notifications. A customer gets a version with its first write.
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the version, or null if the customer has not been written since the versions exist
+     */
+    public static CustomerVersion findByCustomerId( String strCustomerId )
+    {
+        return _dao.load( strCustomerId, NotificationStorePlugin.getReadPlugin( strCustomerId ) );
+    }
+}
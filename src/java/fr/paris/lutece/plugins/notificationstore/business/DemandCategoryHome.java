@@ -40,6 +40,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandCategory;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandCategoryDAO;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.util.ReferenceList;
 
@@ -68,6 +69,7 @@ public final class DemandCategoryHome
     public static DemandCategory create( DemandCategory demandCategory )
     {
         _dao.insert( demandCategory );
+        ReferenceDataService.getInstance( ).refresh( );
 
         return demandCategory;
     }
@@ -82,6 +84,7 @@ public final class DemandCategoryHome
     public static DemandCategory update( DemandCategory demandCategory )
     {
         _dao.store( demandCategory );
+        ReferenceDataService.getInstance( ).refresh( );
 
         return demandCategory;
     }
@@ -95,6 +98,7 @@ public final class DemandCategoryHome
     public static void remove( int nKey )
     {
         _dao.delete( nKey );
+        ReferenceDataService.getInstance( ).refresh( );
     }
 
     /**
@@ -38,7 +38,10 @@ import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandDAO;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.plugins.notificationstore.service.ReadReplicaService;
+import fr.paris.lutece.plugins.notificationstore.service.ShardRouter;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.sql.DAOUtil;
 
@@ -47,6 +50,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -83,32 +87,58 @@ public final class DemandDAO implements IDemandDAO
     // SQL queries
     private static final String SQL_QUERY_DEMAND_ALL_FIELDS_WITH_NO_DEMAND_ID = " id, demand_type_id, subtype_id, reference, status_id, customer_id, creation_date, closure_date, max_steps, current_step, modify_date, meta_data";
     private static final String SQL_QUERY_DEMAND_ALL_FIELDS = " uid, " + SQL_QUERY_DEMAND_ALL_FIELDS_WITH_NO_DEMAND_ID;
-    private static final String SQL_QUERY_DEMAND_SELECT_BY_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + " FROM notificationstore_demand WHERE uid = ? ";
-    private static final String SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + " FROM notificationstore_demand WHERE id = ? ";
-    private static final String SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID_AND_TYPE_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+    static final String SQL_QUERY_DEMAND_SELECT_BY_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + " FROM notificationstore_demand WHERE uid = ? ";
+    static final String SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + " FROM notificationstore_demand WHERE id = ? ";
+    static final String SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID_AND_TYPE_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
             + " FROM notificationstore_demand WHERE id = ? AND  demand_type_id = ? AND customer_id  = ? ";
     private static final String SQL_QUERY_DEMAND_SELECT_ALL = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS + " FROM notificationstore_demand";
     private static final String SQL_QUERY_DEMAND_SELECT_DEMAND_IDS = "SELECT uid FROM notificationstore_demand ";
+    private static final String SQL_QUERY_DEMAND_SELECT_ALL_DEMAND_IDS = "SELECT id FROM notificationstore_demand";
+    private static final String SQL_QUERY_DEMAND_COUNT = "SELECT COUNT(*) FROM notificationstore_demand ";
     private static final String SQL_QUERY_DEMAND_SELECT_BY_IDS = SQL_QUERY_DEMAND_SELECT_ALL + " where uid in ( %s )";
 
     private static final String SQL_QUERY_DEMAND_INSERT = "INSERT INTO notificationstore_demand ( " + SQL_QUERY_DEMAND_ALL_FIELDS_WITH_NO_DEMAND_ID
             + " ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? , ?) ";
     private static final String SQL_QUERY_DEMAND_UPDATE = "UPDATE notificationstore_demand SET status_id = ?, customer_id = ?, closure_date = ?, current_step = ?, subtype_id = ?, modify_date = ?, meta_data = ? WHERE uid = ? AND demand_type_id = ? ";
-    private static final String SQL_QUERY_DEMAND_UPDATE_LINK = "UPDATE notificationstore_demand SET customer_id = ? WHERE customer_id = ?";
-    private static final String SQL_QUERY_DEMAND_DELETE = "DELETE FROM notificationstore_demand WHERE id = ? AND demand_type_id = ? AND customer_id = ? ";
+    private static final String SQL_QUERY_DEMAND_UPDATE_COLUMNS = "UPDATE notificationstore_demand SET %s WHERE uid = ? AND demand_type_id = ? ";
+    private static final String SQL_QUERY_SET_COLUMN = " = ?";
+    static final String SQL_QUERY_DEMAND_UPDATE_LINK = "UPDATE notificationstore_demand SET customer_id = ? WHERE customer_id = ?";
+    static final String SQL_QUERY_DEMAND_DELETE = "DELETE FROM notificationstore_demand WHERE id = ? AND demand_type_id = ? AND customer_id = ? ";
     private static final String SQL_QUERY_DEMAND_DELETE_BY_UID = "DELETE FROM notificationstore_demand WHERE uid = ? ";
-    private static final String SQL_QUERY_DEMAND_SELECT_BY_CUSTOMER_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+    static final String SQL_QUERY_DEMAND_SELECT_BY_CUSTOMER_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
             + " FROM notificationstore_demand WHERE customer_id = ?";
-    private static final String SQL_QUERY_DEMAND_SELECT_BY_REFERENCE = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+    static final String SQL_QUERY_DEMAND_SELECT_BY_REFERENCE = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
             + " FROM notificationstore_demand WHERE reference = ?";
-
-    private static final String SQL_QUERY_IDS_BY_CUSTOMER_ID_AND_DEMANDTYPE_ID = "SELECT distinct(gd.uid) " + " FROM notificationstore_demand gd "
-            + " LEFT JOIN notificationstore_notification gn ON ( gd.id = gn.demand_id and gd.demand_type_id = gn.demand_type_id and gd.customer_id = gn.customer_id ) "
-            + " LEFT JOIN notificationstore_notification_content gc ON ( gn.id = gc.notification_id ) " + " WHERE gd.customer_id = ? ";
-
-    private static final String SQL_QUERY_IDS_BY_STATUS = "SELECT distinct gd.uid " + " FROM notificationstore_demand gd "
-            + " JOIN notificationstore_notification gn ON ( gd.id = gn.demand_id and gd.demand_type_id=gn.demand_type_id and gd.customer_id=gn.customer_id) "
-            + " JOIN notificationstore_notification_content gc ON gn.id = gc.notification_id " + " WHERE gd.customer_id = ? " + " AND gd.status_id IN ( ";
+    private static final String SQL_QUERY_DEMAND_SELECT_CLOSED_BEFORE = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+            + " FROM notificationstore_demand WHERE closure_date < ? AND customer_id IS NOT NULL AND customer_id <> '' AND status_id IN ( %s ) ORDER BY customer_id LIMIT ?";
+    static final String SQL_QUERY_DEMAND_SELECT_CLOSED_FOR_UPDATE = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+            + " FROM notificationstore_demand WHERE uid = ? AND closure_date < ? AND status_id IN ( %s ) FOR UPDATE";
+    private static final String SQL_QUERY_SELECT_AUTO_INCREMENT = "SELECT @@auto_increment_increment, @@auto_increment_offset";
+    private static final String SQL_QUERY_DEMAND_SELECT_ANY = "SELECT uid FROM notificationstore_demand UNION ALL SELECT uid FROM notificationstore_demand_archive LIMIT 1";
+    private static final String SQL_QUERY_DEMAND_SELECT_RECENT_CUSTOMER_IDS = "SELECT customer_id FROM notificationstore_demand WHERE modify_date > ? AND customer_id IS NOT NULL AND customer_id <> '' GROUP BY customer_id ORDER BY MAX( modify_date ) DESC LIMIT ?";
+
+    private static final String SQL_QUERY_ARCHIVE_INSERT = "INSERT INTO notificationstore_demand_archive ( " + SQL_QUERY_DEMAND_ALL_FIELDS
+            + ", notification_types, id_archive ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_ARCHIVE_SELECT_BY_CUSTOMER_ID = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+            + " FROM notificationstore_demand_archive WHERE customer_id = ?";
+    private static final String SQL_QUERY_ARCHIVE_SELECT_BY_IDS = "SELECT " + SQL_QUERY_DEMAND_ALL_FIELDS
+            + " FROM notificationstore_demand_archive WHERE customer_id = ? AND uid IN ( %s )";
+    private static final String SQL_QUERY_ARCHIVE_SELECT_IDS = "SELECT uid FROM notificationstore_demand_archive WHERE customer_id = ? ";
+    private static final String SQL_QUERY_ARCHIVE_DELETE_BY_CUSTOMER_ID = "DELETE FROM notificationstore_demand_archive WHERE customer_id = ? ";
+    private static final String SQL_FILTER_ARCHIVE_STATUS_IN = " AND status_id IN ( %s ) ";
+    private static final String SQL_FILTER_ARCHIVE_DEMAND_TYPE_IN = " AND demand_type_id IN ( %s ) ";
+    private static final String SQL_FILTER_ARCHIVE_NOTIFICATION_TYPE = " AND notification_types LIKE ? ";
+    private static final String SQL_QUERY_ARCHIVE_ORDER = " ORDER BY modify_date DESC";
+    private static final String NOTIFICATION_TYPES_SEPARATOR = ",";
+
+    // the channels of a demand are read from its mask, not from the contents of its notifications
+    private static final String SQL_QUERY_IDS_BY_CUSTOMER_ID_AND_DEMANDTYPE_ID = "SELECT gd.uid FROM notificationstore_demand gd WHERE gd.customer_id = ? ";
+
+    private static final String SQL_QUERY_IDS_BY_STATUS = "SELECT gd.uid FROM notificationstore_demand gd WHERE gd.customer_id = ? AND gd.channel_mask <> 0 AND gd.status_id IN ( ";
+
+    private static final String SQL_QUERY_DEMAND_UPDATE_CHANNELS_BY_CUSTOMER_ID = "UPDATE notificationstore_demand d SET channel_mask = ( SELECT COALESCE( BIT_OR( n.channel_mask ), 0 ) FROM notificationstore_notification n WHERE n.demand_id = d.id AND n.demand_type_id = d.demand_type_id AND n.customer_id = d.customer_id ) WHERE d.customer_id = ? ";
+    private static final String SQL_QUERY_DEMAND_UPDATE_CHANNELS_BY_NOTIFICATION_IDS = "UPDATE notificationstore_demand d SET channel_mask = ( SELECT COALESCE( BIT_OR( n.channel_mask ), 0 ) FROM notificationstore_notification n WHERE n.demand_id = d.id AND n.demand_type_id = d.demand_type_id AND n.customer_id = d.customer_id ) WHERE ( d.id, d.demand_type_id, d.customer_id ) IN ( SELECT demand_id, demand_type_id, customer_id FROM notificationstore_notification WHERE id IN ( %s ) ) ";
+    private static final String SQL_QUERY_DEMAND_ADD_CHANNELS = "UPDATE notificationstore_demand SET channel_mask = channel_mask | ? WHERE uid = ? AND ( channel_mask | ? ) <> channel_mask ";
 
     private static final String SQL_QUERY_DEMAND_UPDATE_STATUS_ID = "UPDATE notificationstore_demand d"
             + " INNER JOIN notificationstore_notification n2 ON (d.id = n2.demand_id AND d.demand_type_id = n2.demand_type_id AND d.customer_id = n2.customer_id ) "
@@ -126,11 +156,28 @@ public final class DemandDAO implements IDemandDAO
     private static final String SQL_FILTER_BY_DEMAND_TYPE_GD_ID_IN = " AND gd.demand_type_id IN ( ";
     private static final String SQL_FILTER_BY_START_DATE = " AND creation_date >= ? ";
     private static final String SQL_FILTER_BY_END_DATE = " AND creation_date <= ? ";
-    private static final String SQL_FILTER_NOTIFICATION_TYPE = " AND gc.notification_type = ? ";
+    private static final String SQL_FILTER_NOTIFICATION_TYPE = " AND ( gd.channel_mask & ? ) <> 0 ";
     private static final String SQL_QUERY_FILTER_ORDER = " ORDER BY uid ASC";
+    private static final String SQL_QUERY_FILTER_LIMIT = " LIMIT ? OFFSET ? ";
     private static final String SQL_QUERY_DATE_ORDER_DESC = " ORDER BY modify_date DESC";
     private static final String SQL_QUERY_DATE_ORDER_ASC = " ORDER BY modify_date ASC";
 
+    // Kinds of filter queries
+    static final int QUERY_SELECT = 0;
+    static final int QUERY_SELECT_PAGE = 1;
+    static final int QUERY_COUNT = 2;
+    static final int QUERY_SELECT_IDS = 3;
+    private static final int QUERY_SELECT_BY_IDS = 4;
+
+    // Filter criteria bitmask
+    private static final long CRITERIA_DEMAND_ID = 1L;
+    private static final long CRITERIA_DEMAND_TYPE_ID = 1L << 1;
+    private static final long CRITERIA_CUSTOMER_ID = 1L << 2;
+    private static final long CRITERIA_START_DATE = 1L << 3;
+    private static final long CRITERIA_END_DATE = 1L << 4;
+
+    private static final QueryShapeCache<Long> _queryCache = new QueryShapeCache<>( );
+
     private static ObjectMapper _mapper = ( new ObjectMapper( ) ).configure( DeserializationFeature.UNWRAP_ROOT_VALUE, false )
             .configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false );
 
@@ -144,7 +191,31 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public Demand load( int nId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_ID, NotificationStorePlugin.getPlugin( ) ) )
+        // the uids are unique across the shards
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            Demand demand = load( nId, plugin );
+            if ( demand != null )
+            {
+                return demand;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Load a demand by its uid from the database of a plugin
+     * 
+     * @param nId
+     *            the demand uid
+     * @param plugin
+     *            the plugin
+     * @return the demand, or null if it is not in this database
+     */
+    private Demand load( int nId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_ID, plugin ) )
         {
             daoUtil.setInt( 1, nId );
             daoUtil.executeQuery( );
@@ -168,7 +239,7 @@ public final class DemandDAO implements IDemandDAO
     {
         Collection<Demand> collectionDemands = new ArrayList<>( );
 
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_CUSTOMER_ID, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_CUSTOMER_ID, NotificationStorePlugin.getPlugin( strCustomerId ) ) )
         {
 
             daoUtil.setString( 1, strCustomerId );
@@ -189,30 +260,59 @@ public final class DemandDAO implements IDemandDAO
      */
     @Override
     public List<Demand> loadByIds( List<Integer> listIds )
+    {
+        return ShardRouter.getInstance( ).gather( null, plugin -> loadByIds( listIds, plugin ) );
+    }
+
+    /**
+     * Load the demands of a customer by ids, from the read replica if there is one
+     * 
+     * @param listIds
+     *            the ids
+     * @param strCustomerId
+     *            the customer id
+     * @return the demand list
+     */
+    public List<Demand> loadByIds( List<Integer> listIds, String strCustomerId )
+    {
+        return loadByIds( listIds, NotificationStorePlugin.getReadPlugin( strCustomerId ) );
+    }
+
+    /**
+     * Load the demands by ids
+     * 
+     * @param listIds
+     *            the ids
+     * @param plugin
+     *            the plugin
+     * @return the demand list
+     */
+    private List<Demand> loadByIds( List<Integer> listIds, Plugin plugin )
     {
         List<Demand> listDemands = new ArrayList<>( );
 
         if ( listIds == null || listIds.isEmpty( ) )
             return listDemands;
 
-        String sql = String.format( SQL_QUERY_DEMAND_SELECT_BY_IDS, listIds.stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
-
-        try ( DAOUtil daoUtil = new DAOUtil( sql, NotificationStorePlugin.getPlugin( ) ) )
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIds ) )
         {
+            long lShape = QueryShapeCache.arity( listChunk.size( ), 0 );
+            String sql = _queryCache.getQuery( QueryShapeCache.shape( QUERY_SELECT_BY_IDS, lShape ),
+                    ( ) -> String.format( SQL_QUERY_DEMAND_SELECT_BY_IDS, QueryShapeCache.getPlaceholders( QueryShapeCache.getArity( lShape, 0 ) ) ) );
 
-            int index = 1;
-            for ( Integer strId : listIds )
+            try ( DAOUtil daoUtil = new DAOUtil( sql, plugin ) )
             {
-                daoUtil.setInt( index++, strId );
-            }
 
-            daoUtil.executeQuery( );
+                QueryShapeCache.setInts( daoUtil, 1, listChunk, QueryShapeCache.getArity( lShape, 0 ) );
 
-            while ( daoUtil.next( ) )
-            {
-                listDemands.add( dao2Demand( daoUtil ) );
-            }
+                daoUtil.executeQuery( );
+
+                while ( daoUtil.next( ) )
+                {
+                    listDemands.add( dao2Demand( daoUtil ) );
+                }
 
+            }
         }
 
         return listDemands;
@@ -224,22 +324,24 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public Collection<Demand> loadByReference( String strReference )
     {
-        Collection<Demand> collectionDemands = new ArrayList<>( );
+        return ShardRouter.getInstance( ).gather( null, plugin -> {
+            List<Demand> listDemands = new ArrayList<>( );
 
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_REFERENCE, NotificationStorePlugin.getPlugin( ) ) )
-        {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_REFERENCE, plugin ) )
+            {
 
-            daoUtil.setString( 1, strReference );
-            daoUtil.executeQuery( );
+                daoUtil.setString( 1, strReference );
+                daoUtil.executeQuery( );
 
-            while ( daoUtil.next( ) )
-            {
-                collectionDemands.add( dao2Demand( daoUtil ) );
-            }
+                while ( daoUtil.next( ) )
+                {
+                    listDemands.add( dao2Demand( daoUtil ) );
+                }
 
-        }
+            }
 
-        return collectionDemands;
+            return listDemands;
+        } );
     }
 
     /**
@@ -248,25 +350,121 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public Collection<Demand> loadByFilter( NotificationFilter filter )
     {
-        Collection<Demand> collectionDemands = new ArrayList<>( );
-        StringBuilder sql = new StringBuilder( SQL_QUERY_DEMAND_SELECT_ALL + SQL_QUERY_FILTER_WHERE_BASE );
+        long lCriteria = getFilterCriteria( filter );
+
+        return ShardRouter.getInstance( ).gather( filter.getCustomerId( ), plugin -> {
+            List<Demand> listDemands = new ArrayList<>( );
+
+            try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT, lCriteria ), plugin ) )
+            {
+
+                fillDao( daoUtil, filter, lCriteria );
+
+                daoUtil.executeQuery( );
+                while ( daoUtil.next( ) )
+                {
+                    listDemands.add( dao2Demand( daoUtil ) );
+                }
+
+            }
+
+            return listDemands;
+        } );
+    }
+
+    /**
+     * Load one page of the demands matching the filter
+     * 
+     * @param filter
+     *            the filter
+     * @param nOffset
+     *            the index of the first demand of the page
+     * @param nLimit
+     *            the max number of demands of the page
+     * @return the demand list
+     */
+    public List<Demand> loadByFilter( NotificationFilter filter, int nOffset, int nLimit )
+    {
+        List<Plugin> listPlugins = ShardRouter.getInstance( ).getPlugins( filter.getCustomerId( ) );
 
-        buildSql( sql, filter );
+        if ( listPlugins.size( ) == 1 )
+        {
+            return loadByFilter( filter, nOffset, nLimit, NotificationStorePlugin.getReadPlugin( filter.getCustomerId( ) ) );
+        }
 
-        try ( DAOUtil daoUtil = new DAOUtil( sql.toString( ), NotificationStorePlugin.getPlugin( ) ) )
+        // scatter-gather : the first nOffset + nLimit demands of each shard, merged by uid
+        List<Demand> listDemands = new ArrayList<>( );
+        for ( Plugin plugin : listPlugins )
         {
+            listDemands.addAll( loadByFilter( filter, 0, nOffset + nLimit, plugin ) );
+        }
+        listDemands.sort( Comparator.comparingInt( Demand::getUID ) );
+
+        return new ArrayList<>( listDemands.subList( Math.min( nOffset, listDemands.size( ) ), Math.min( nOffset + nLimit, listDemands.size( ) ) ) );
+    }
 
-            fillDao( daoUtil, filter );
+    /**
+     * Load one page of the demands matching the filter from the database of a plugin
+     * 
+     * @param filter
+     *            the filter
+     * @param nOffset
+     *            the index of the first demand of the page
+     * @param nLimit
+     *            the max number of demands of the page
+     * @param plugin
+     *            the plugin
+     * @return the demand list
+     */
+    private List<Demand> loadByFilter( NotificationFilter filter, int nOffset, int nLimit, Plugin plugin )
+    {
+        List<Demand> listDemands = new ArrayList<>( );
+        long lCriteria = getFilterCriteria( filter );
+
+        try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT_PAGE, lCriteria ), plugin ) )
+        {
+            int nIndex = fillDao( daoUtil, filter, lCriteria );
+            daoUtil.setInt( nIndex++, nLimit );
+            daoUtil.setInt( nIndex, nOffset );
 
             daoUtil.executeQuery( );
             while ( daoUtil.next( ) )
             {
-                collectionDemands.add( dao2Demand( daoUtil ) );
+                listDemands.add( dao2Demand( daoUtil ) );
             }
+        }
+
+        return listDemands;
+    }
+
+    /**
+     * Count the demands matching the filter
+     * 
+     * @param filter
+     *            the filter
+     * @return the number of demands
+     */
+    public int countByFilter( NotificationFilter filter )
+    {
+        long lCriteria = getFilterCriteria( filter );
+        List<Plugin> listPlugins = ShardRouter.getInstance( ).getPlugins( filter.getCustomerId( ) );
+        int nCount = 0;
+
+        for ( Plugin plugin : listPlugins )
+        {
+            Plugin readPlugin = ( listPlugins.size( ) == 1 ) ? NotificationStorePlugin.getReadPlugin( filter.getCustomerId( ) ) : plugin;
+
+            try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_COUNT, lCriteria ), readPlugin ) )
+            {
+                fillDao( daoUtil, filter, lCriteria );
 
+                daoUtil.executeQuery( );
+
+                nCount += daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+            }
         }
 
-        return collectionDemands;
+        return nCount;
     }
 
     /**
@@ -275,24 +473,25 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public List<Integer> loadIdsByFilter( NotificationFilter filter )
     {
-        List<Integer> listIds = new ArrayList<>( );
-        StringBuilder sql = new StringBuilder( SQL_QUERY_DEMAND_SELECT_DEMAND_IDS + SQL_QUERY_FILTER_WHERE_BASE );
+        long lCriteria = getFilterCriteria( filter );
 
-        buildSql( sql, filter );
+        return ShardRouter.getInstance( ).gather( filter.getCustomerId( ), plugin -> {
+            List<Integer> listIds = new ArrayList<>( );
 
-        try ( DAOUtil daoUtil = new DAOUtil( sql.toString( ), NotificationStorePlugin.getPlugin( ) ) )
-        {
-            fillDao( daoUtil, filter );
-
-            daoUtil.executeQuery( );
-            while ( daoUtil.next( ) )
+            try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT_IDS, lCriteria ), plugin ) )
             {
-                listIds.add( daoUtil.getInt( 1 ) );
-            }
+                fillDao( daoUtil, filter, lCriteria );
 
-        }
+                daoUtil.executeQuery( );
+                while ( daoUtil.next( ) )
+                {
+                    listIds.add( daoUtil.getInt( 1 ) );
+                }
 
-        return listIds;
+            }
+
+            return listIds;
+        } );
     }
 
     /**
@@ -301,7 +500,8 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public Demand insert( Demand demand )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_INSERT, Statement.RETURN_GENERATED_KEYS,
+                NotificationStorePlugin.getPlugin( demand.getCustomer( ).getCustomerId( ) ) ) )
         {
 
             int nIndex = 1;
@@ -326,6 +526,9 @@ public final class DemandDAO implements IDemandDAO
             }
         }
 
+        ReadReplicaService.getInstance( ).markWrite( demand.getCustomer( ).getCustomerId( ) );
+        CustomerVersionHome.increment( demand.getCustomer( ).getCustomerId( ) );
+
         return demand;
     }
 
@@ -335,26 +538,104 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public Demand store( Demand demand )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE, NotificationStorePlugin.getPlugin( ) ) )
+        if ( demand instanceof PersistentDemand )
         {
-            int nIndex = 1;
+            // a loaded demand : only its changed columns are written, and nothing if none has changed
+            if ( !storeChangedColumns( (PersistentDemand) demand ) )
+            {
+                return demand;
+            }
+        }
+        else
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE, NotificationStorePlugin.getPlugin( demand.getCustomer( ).getCustomerId( ) ) ) )
+            {
+                int nIndex = 1;
+
+                // update
+                daoUtil.setInt( nIndex++, demand.getStatusId( ) );
+                daoUtil.setString( nIndex++, demand.getCustomer( ).getCustomerId( ) );
+                daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp( demand.getClosureDate( ) ) : null );
+                daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
+                daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
+                daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+                daoUtil.setString( nIndex++, getMetaDataJson( demand ) );
+
+                // where primary_key
+                daoUtil.setInt( nIndex++, demand.getUID( ) );
+                daoUtil.setString( nIndex, demand.getTypeId( ) );
+
+                daoUtil.executeUpdate( );
+            }
+        }
 
-            // update
-            daoUtil.setInt( nIndex++, demand.getStatusId( ) );
-            daoUtil.setString( nIndex++, demand.getCustomer( ).getCustomerId( ) );
-            daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp( demand.getClosureDate( ) ) : null );
-            daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
-            daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
-            daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
-            daoUtil.setString( nIndex++, NotificationStoreUtils.hashMapToJson( demand.getMetaData( ) ) );
+        ReadReplicaService.getInstance( ).markWrite( demand.getCustomer( ).getCustomerId( ) );
+        CustomerVersionHome.increment( demand.getCustomer( ).getCustomerId( ) );
 
-            // where primary_key
-            daoUtil.setInt( nIndex++, demand.getUID( ) );
-            daoUtil.setString( nIndex++, demand.getTypeId( ) );
+        return demand;
+    }
+
+    /**
+     * Add channels to the channel mask of a demand. The row is only written if some of the channels are new.
+     * 
+     * @param demand
+     *            the demand
+     * @param nChannelMask
+     *            the mask of the channels
+     */
+    public void addChannels( Demand demand, int nChannelMask )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_ADD_CHANNELS, NotificationStorePlugin.getPlugin( demand.getCustomer( ).getCustomerId( ) ) ) )
+        {
+            daoUtil.setInt( 1, nChannelMask );
+            daoUtil.setInt( 2, demand.getUID( ) );
+            daoUtil.setInt( 3, nChannelMask );
 
             daoUtil.executeUpdate( );
+        }
+    }
 
-            return demand;
+    /**
+     * Compute again the channel masks of the demands of a customer from the masks of their notifications
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param plugin
+     *            the plugin of the shard
+     */
+    public void updateChannelsByCustomerId( String strCustomerId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_CHANNELS_BY_CUSTOMER_ID, plugin ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Compute again the channel masks of the demands of notifications from the masks of all their notifications
+     * 
+     * @param listIdNotifications
+     *            the notification ids
+     * @param plugin
+     *            the plugin of the shard
+     */
+    public void updateChannelsByNotificationIds( Collection<Integer> listIdNotifications, Plugin plugin )
+    {
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIdNotifications ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil(
+                    String.format( SQL_QUERY_DEMAND_UPDATE_CHANNELS_BY_NOTIFICATION_IDS, QueryShapeCache.getPlaceholders( listChunk.size( ) ) ), plugin ) )
+            {
+                int nIndex = 1;
+                for ( Integer nId : listChunk )
+                {
+                    daoUtil.setInt( nIndex++, nId );
+                }
+
+                daoUtil.executeUpdate( );
+            }
         }
     }
 
@@ -364,7 +645,7 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public void reassignDemands( String strOldCustomerId, String strNewCustomerId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_LINK, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_LINK, NotificationStorePlugin.getPlugin( strOldCustomerId ) ) )
         {
             int nIndex = 1;
 
@@ -374,6 +655,11 @@ public final class DemandDAO implements IDemandDAO
 
             daoUtil.executeUpdate( );
         }
+
+        ReadReplicaService.getInstance( ).markWrite( strOldCustomerId );
+        CustomerVersionHome.increment( strOldCustomerId );
+        ReadReplicaService.getInstance( ).markWrite( strNewCustomerId );
+        CustomerVersionHome.increment( strNewCustomerId );
     }
 
     /**
@@ -382,14 +668,17 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public void delete( String strDemandId, String strDemandTypeId, String strCustomerId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_DELETE, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_DELETE, NotificationStorePlugin.getPlugin( strCustomerId ) ) )
         {
             daoUtil.setString( 1, strDemandId );
             daoUtil.setString( 2, strDemandTypeId );
-            daoUtil.setString( 2, strCustomerId );
+            daoUtil.setString( 3, strCustomerId );
 
             daoUtil.executeUpdate( );
         }
+
+        ReadReplicaService.getInstance( ).markWrite( strCustomerId );
+        CustomerVersionHome.increment( strCustomerId );
     }
 
     /**
@@ -398,7 +687,39 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public void deleteByUid( int nUid )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_DELETE_BY_UID, NotificationStorePlugin.getPlugin( ) ) )
+        // the uids are unique across the shards
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            deleteByUid( nUid, plugin );
+        }
+    }
+
+    /**
+     * Delete a demand of a customer by its uid
+     * 
+     * @param nUid
+     *            the demand uid
+     * @param strCustomerId
+     *            the customer id
+     */
+    public void deleteByUid( int nUid, String strCustomerId )
+    {
+        deleteByUid( nUid, NotificationStorePlugin.getPlugin( strCustomerId ) );
+        ReadReplicaService.getInstance( ).markWrite( strCustomerId );
+        CustomerVersionHome.increment( strCustomerId );
+    }
+
+    /**
+     * Delete a demand by its uid from the database of a plugin
+     * 
+     * @param nUid
+     *            the demand uid
+     * @param plugin
+     *            the plugin
+     */
+    private void deleteByUid( int nUid, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_DELETE_BY_UID, plugin ) )
         {
             daoUtil.setInt( 1, nUid );
 
@@ -412,19 +733,21 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public List<String> loadAllIds( )
     {
-        List<String> collectionIds = new ArrayList<>( );
-
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_ALL, NotificationStorePlugin.getPlugin( ) ) )
-        {
-            daoUtil.executeQuery( );
+        return ShardRouter.getInstance( ).gather( null, plugin -> {
+            List<String> collectionIds = new ArrayList<>( );
 
-            while ( daoUtil.next( ) )
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_ALL_DEMAND_IDS, plugin ) )
             {
-                collectionIds.add( String.valueOf( dao2Demand( daoUtil ).getId( ) ) );
-            }
+                daoUtil.executeQuery( );
 
-            return collectionIds;
-        }
+                while ( daoUtil.next( ) )
+                {
+                    collectionIds.add( daoUtil.getString( COLUMN_DEMAND_ID ) );
+                }
+
+                return collectionIds;
+            }
+        } );
     }
 
     /**
@@ -433,20 +756,21 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public Demand loadByDemandId( String strDemandId )
     {
-        Demand demand = null;
-
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID, NotificationStorePlugin.getPlugin( ) ) )
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
         {
-            daoUtil.setString( 1, strDemandId );
-            daoUtil.executeQuery( );
-
-            while ( daoUtil.next( ) )
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID, plugin ) )
             {
-                demand = dao2Demand( daoUtil );
-                break;
+                daoUtil.setString( 1, strDemandId );
+                daoUtil.executeQuery( );
+
+                if ( daoUtil.next( ) )
+                {
+                    return dao2Demand( daoUtil );
+                }
             }
-            return demand;
         }
+
+        return null;
     }
 
     @Override
@@ -454,7 +778,7 @@ public final class DemandDAO implements IDemandDAO
     {
         Demand demand = null;
 
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID_AND_TYPE_ID, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID_AND_TYPE_ID, NotificationStorePlugin.getPlugin( strCustomerId ) ) )
         {
             daoUtil.setString( 1, strDemandId );
             daoUtil.setString( 2, strDemandTypeId );
@@ -471,156 +795,723 @@ public final class DemandDAO implements IDemandDAO
     }
 
     /**
-     * Converts data from DAO to a Demand object
+     * Load the demands closed before a date, with a final status, ordered by customer
      * 
-     * @param daoUtil
-     *            the DAO containing the data to convert
-     * @return a Demand object
+     * @param lClosedBefore
+     *            the closure date limit
+     * @param listStatusIds
+     *            the final status ids
+     * @param nLimit
+     *            the max number of demands
+     * @param plugin
+     *            the plugin of the shard
+     * @return the list of demands
      */
-    private Demand dao2Demand( DAOUtil daoUtil )
+    public List<Demand> loadClosedBefore( long lClosedBefore, List<Integer> listStatusIds, int nLimit, Plugin plugin )
     {
-        Demand demand = new Demand( );
+        List<Demand> listDemands = new ArrayList<>( );
 
-        demand.setUID( daoUtil.getInt( COLUMN_UID ) );
-        demand.setId( daoUtil.getString( COLUMN_DEMAND_ID ) );
-        demand.setTypeId( daoUtil.getString( COLUMN_TYPE_ID ) );
-        demand.setSubtypeId( daoUtil.getString( COLUMN_SUBTYPE_ID ) );
-        demand.setStatusId( daoUtil.getInt( COLUMN_STATUS_ID ) );
+        try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_DEMAND_SELECT_CLOSED_BEFORE, QueryShapeCache.getPlaceholders( listStatusIds.size( ) ) ),
+                plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setTimestamp( nIndex++, new Timestamp( lClosedBefore ) );
+            for ( Integer nStatusId : listStatusIds )
+            {
+                daoUtil.setInt( nIndex++, nStatusId );
+            }
+            daoUtil.setInt( nIndex, nLimit );
 
-        Customer customer = new Customer( );
-        customer.setCustomerId( daoUtil.getString( COLUMN_CUSTOMER_ID ) );
-        demand.setCustomer( customer );
+            daoUtil.executeQuery( );
 
-        demand.setReference( daoUtil.getString( COLUMN_REFERENCE ) );
-        demand.setCreationDate( daoUtil.getTimestamp( COLUMN_CREATION_DATE ) != null ? daoUtil.getTimestamp( COLUMN_CREATION_DATE ).getTime( ) : 0 );
-        demand.setClosureDate( daoUtil.getTimestamp( COLUMN_CLOSURE_DATE ) != null ? daoUtil.getTimestamp( COLUMN_CLOSURE_DATE ).getTime( ) : 0 );
-        demand.setMaxSteps( daoUtil.getInt( COLUMN_MAX_STEPS ) );
-        demand.setCurrentStep( daoUtil.getInt( COLUMN_CURRENT_STEP ) );
-        demand.setModifyDate( daoUtil.getTimestamp( COLUMN_MODIFY_DATE ) != null ? daoUtil.getTimestamp( COLUMN_MODIFY_DATE ).getTime( ) : 0 );
-        demand.setMetaData( NotificationStoreUtils.jsonToHashMap( daoUtil.getString( COLUMN_META_DATA ) ) );
+            while ( daoUtil.next( ) )
+            {
+                listDemands.add( dao2Demand( daoUtil ) );
+            }
+        }
 
-        return demand;
+        return listDemands;
     }
 
     /**
-     * build the sql with selected filters
+     * Load and lock a demand, if it is still closed before a date with a final status. To be called in a transaction : the demand can not be modified
+     * until the transaction ends.
      * 
-     * @param sql
-     * @param filter
+     * @param nUid
+     *            the uid of the demand
+     * @param lClosedBefore
+     *            the closure date limit
+     * @param listStatusIds
+     *            the final status ids
+     * @param plugin
+     *            the plugin of the shard
+     * @return the demand, or null if it is no longer closed
      */
-    private void buildSql( StringBuilder sql, NotificationFilter filter )
+    public Demand loadClosedForUpdate( int nUid, long lClosedBefore, List<Integer> listStatusIds, Plugin plugin )
     {
-
-        if ( filter.containsDemandId( ) )
+        try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_DEMAND_SELECT_CLOSED_FOR_UPDATE, QueryShapeCache.getPlaceholders( listStatusIds.size( ) ) ),
+                plugin ) )
         {
-            sql.append( SQL_FILTER_BY_DEMAND_ID );
-        }
+            int nIndex = 1;
+            daoUtil.setInt( nIndex++, nUid );
+            daoUtil.setTimestamp( nIndex++, new Timestamp( lClosedBefore ) );
+            for ( Integer nStatusId : listStatusIds )
+            {
+                daoUtil.setInt( nIndex++, nStatusId );
+            }
 
-        if ( filter.containsDemandTypeId( ) )
-        {
-            sql.append( SQL_FILTER_BY_DEMAND_TYPE_ID );
-        }
+            daoUtil.executeQuery( );
 
-        if ( filter.containsCustomerId( ) )
-        {
-            sql.append( SQL_FILTER_BY_CUSTOMER_ID );
+            if ( daoUtil.next( ) )
+            {
+                return dao2Demand( daoUtil );
+            }
         }
 
-        if ( filter.containsStartDate( ) )
-        {
-            sql.append( SQL_FILTER_BY_START_DATE );
-        }
+        return null;
+    }
 
-        if ( filter.containsEndDate( ) )
+    /**
+     * Load the ids of the customers whose demands have been modified after a date, the most recent first
+     * 
+     * @param lModifiedAfter
+     *            the modification date limit
+     * @param nLimit
+     *            the max number of customer ids
+     * @param plugin
+     *            the plugin of the shard
+     * @return the list of customer ids
+     */
+    public List<String> loadRecentCustomerIds( long lModifiedAfter, int nLimit, Plugin plugin )
+    {
+        List<String> listCustomerIds = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_RECENT_CUSTOMER_IDS, plugin ) )
         {
-            sql.append( SQL_FILTER_BY_END_DATE );
+            daoUtil.setTimestamp( 1, new Timestamp( lModifiedAfter ) );
+            daoUtil.setInt( 2, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listCustomerIds.add( daoUtil.getString( 1 ) );
+            }
         }
 
-        sql.append( SQL_QUERY_FILTER_ORDER );
+        return listCustomerIds;
     }
 
     /**
-     * fill the dao with filter's values
+     * Check if a database holds demands, archived or not
+     * 
+     * @param plugin
+     *            the plugin of the shard
+     * @return true if there is at least one demand
+     */
+    public boolean hasDemands( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_SELECT_ANY, plugin ) )
+        {
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( );
+        }
+    }
+
+    /**
+     * Load the AUTO_INCREMENT settings of the connections of a database
+     * 
+     * @param plugin
+     *            the plugin of the shard
+     * @return the increment and the offset of the generated ids
+     */
+    public int [ ] loadAutoIncrementSettings( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_AUTO_INCREMENT, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            daoUtil.next( );
+
+            return new int [ ] {
+                    daoUtil.getInt( 1 ), daoUtil.getInt( 2 )
+            };
+        }
+    }
+
+    /**
+     * Insert an archived demand, keeping its uid
+     * 
+     * @param demand
+     *            the demand
+     * @param listNotificationTypes
+     *            the types of the notifications of the demand
+     * @param nIdArchive
+     *            the id of the archive of the notifications
+     * @param plugin
+     *            the plugin of the shard of the customer
+     */
+    public void insertArchive( Demand demand, Collection<String> listNotificationTypes, int nIdArchive, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ARCHIVE_INSERT, plugin ) )
+        {
+            int nIndex = 1;
+
+            daoUtil.setInt( nIndex++, demand.getUID( ) );
+            daoUtil.setString( nIndex++, demand.getId( ) );
+            daoUtil.setString( nIndex++, demand.getTypeId( ) );
+            daoUtil.setString( nIndex++, demand.getSubtypeId( ) );
+            daoUtil.setString( nIndex++, demand.getReference( ) );
+            daoUtil.setInt( nIndex++, demand.getStatusId( ) );
+            daoUtil.setString( nIndex++, demand.getCustomer( ).getCustomerId( ) );
+            daoUtil.setTimestamp( nIndex++, demand.getCreationDate( ) > 0 ? new Timestamp( demand.getCreationDate( ) ) : null );
+            daoUtil.setTimestamp( nIndex++, demand.getClosureDate( ) > 0 ? new Timestamp( demand.getClosureDate( ) ) : null );
+            daoUtil.setInt( nIndex++, demand.getMaxSteps( ) );
+            daoUtil.setInt( nIndex++, demand.getCurrentStep( ) );
+            daoUtil.setTimestamp( nIndex++, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+            daoUtil.setString( nIndex++, getMetaDataJson( demand ) );
+            // surrounded by separators, to be filtered with LIKE
+            daoUtil.setString( nIndex++,
+                    NOTIFICATION_TYPES_SEPARATOR + String.join( NOTIFICATION_TYPES_SEPARATOR, listNotificationTypes ) + NOTIFICATION_TYPES_SEPARATOR );
+            daoUtil.setInt( nIndex, nIdArchive );
+
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Load the archived demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the archived demands
+     */
+    public List<Demand> loadArchivedByCustomerId( String strCustomerId )
+    {
+        List<Demand> listDemands = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ARCHIVE_SELECT_BY_CUSTOMER_ID, NotificationStorePlugin.getPlugin( strCustomerId ) ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listDemands.add( dao2Demand( daoUtil ) );
+            }
+        }
+
+        return listDemands;
+    }
+
+    /**
+     * Load archived demands of a customer by uid
+     * 
+     * @param listIds
+     *            the demand uids
+     * @param strCustomerId
+     *            the customer id
+     * @return the archived demands
+     */
+    public List<Demand> loadArchivedByIds( List<Integer> listIds, String strCustomerId )
+    {
+        List<Demand> listDemands = new ArrayList<>( );
+
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIds ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_ARCHIVE_SELECT_BY_IDS, QueryShapeCache.getPlaceholders( listChunk.size( ) ) ),
+                    NotificationStorePlugin.getReadPlugin( strCustomerId ) ) )
+            {
+                int nIndex = 1;
+                daoUtil.setString( nIndex++, strCustomerId );
+                for ( Integer nId : listChunk )
+                {
+                    daoUtil.setInt( nIndex++, nId );
+                }
+
+                daoUtil.executeQuery( );
+
+                while ( daoUtil.next( ) )
+                {
+                    listDemands.add( dao2Demand( daoUtil ) );
+                }
+            }
+        }
+
+        return listDemands;
+    }
+
+    /**
+     * Load the uids of the archived demands of a customer, most recent first
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param listStatus
+     *            the status ids, or an empty list for all the status
+     * @param strNotificationType
+     *            the notification type, or null
+     * @param listIdsDemandType
+     *            the demand type ids, or an empty list for all the demand types
+     * @return the list of uids
+     */
+    public List<Integer> loadArchivedIds( String strCustomerId, List<String> listStatus, String strNotificationType, List<String> listIdsDemandType )
+    {
+        List<Integer> listIds = new ArrayList<>( );
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_ARCHIVE_SELECT_IDS );
+
+        if ( !listStatus.isEmpty( ) )
+        {
+            sbSql.append( String.format( SQL_FILTER_ARCHIVE_STATUS_IN, QueryShapeCache.getPlaceholders( listStatus.size( ) ) ) );
+        }
+        if ( !listIdsDemandType.isEmpty( ) )
+        {
+            sbSql.append( String.format( SQL_FILTER_ARCHIVE_DEMAND_TYPE_IN, QueryShapeCache.getPlaceholders( listIdsDemandType.size( ) ) ) );
+        }
+        if ( StringUtils.isNotEmpty( strNotificationType ) )
+        {
+            sbSql.append( SQL_FILTER_ARCHIVE_NOTIFICATION_TYPE );
+        }
+        sbSql.append( SQL_QUERY_ARCHIVE_ORDER );
+
+        try ( DAOUtil daoUtil = new DAOUtil( sbSql.toString( ), NotificationStorePlugin.getReadPlugin( strCustomerId ) ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strCustomerId );
+            for ( String strStatus : listStatus )
+            {
+                daoUtil.setString( nIndex++, strStatus );
+            }
+            for ( String strIdDemandType : listIdsDemandType )
+            {
+                daoUtil.setString( nIndex++, strIdDemandType );
+            }
+            if ( StringUtils.isNotEmpty( strNotificationType ) )
+            {
+                daoUtil.setString( nIndex, "%" + NOTIFICATION_TYPES_SEPARATOR + strNotificationType + NOTIFICATION_TYPES_SEPARATOR + "%" );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listIds.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        return listIds;
+    }
+
+    /**
+     * Delete the archived demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param plugin
+     *            the plugin of the shard of the customer
+     */
+    public void deleteArchivedByCustomerId( String strCustomerId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ARCHIVE_DELETE_BY_CUSTOMER_ID, plugin ) )
+        {
+            daoUtil.setString( 1, strCustomerId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Converts data from DAO to a Demand object
+     * 
+     * @param daoUtil
+     *            the DAO containing the data to convert
+     * @return a Demand object
+     */
+    private Demand dao2Demand( DAOUtil daoUtil )
+    {
+        // the meta data are parsed on first access only
+        PersistentDemand demand = new PersistentDemand( daoUtil.getString( COLUMN_META_DATA ) );
+
+        demand.setUID( daoUtil.getInt( COLUMN_UID ) );
+        demand.setId( daoUtil.getString( COLUMN_DEMAND_ID ) );
+        demand.setTypeId( daoUtil.getString( COLUMN_TYPE_ID ) );
+        demand.setSubtypeId( daoUtil.getString( COLUMN_SUBTYPE_ID ) );
+        demand.setStatusId( daoUtil.getInt( COLUMN_STATUS_ID ) );
+
+        Customer customer = new Customer( );
+        customer.setCustomerId( daoUtil.getString( COLUMN_CUSTOMER_ID ) );
+        demand.setCustomer( customer );
+
+        demand.setReference( daoUtil.getString( COLUMN_REFERENCE ) );
+        demand.setCreationDate( daoUtil.getTimestamp( COLUMN_CREATION_DATE ) != null ? daoUtil.getTimestamp( COLUMN_CREATION_DATE ).getTime( ) : 0 );
+        demand.setClosureDate( daoUtil.getTimestamp( COLUMN_CLOSURE_DATE ) != null ? daoUtil.getTimestamp( COLUMN_CLOSURE_DATE ).getTime( ) : 0 );
+        demand.setMaxSteps( daoUtil.getInt( COLUMN_MAX_STEPS ) );
+        demand.setCurrentStep( daoUtil.getInt( COLUMN_CURRENT_STEP ) );
+        demand.setModifyDate( daoUtil.getTimestamp( COLUMN_MODIFY_DATE ) != null ? daoUtil.getTimestamp( COLUMN_MODIFY_DATE ).getTime( ) : 0 );
+        demand.setStored( );
+
+        return demand;
+    }
+
+    /**
+     * Update the columns of a loaded demand that have changed since it was stored
+     * 
+     * @param demand
+     *            the demand
+     * @return false if no column has changed
+     */
+    private static boolean storeChangedColumns( PersistentDemand demand )
+    {
+        List<String> listColumns = new ArrayList<>( );
+        if ( demand.isStatusIdChanged( ) )
+        {
+            listColumns.add( COLUMN_STATUS_ID );
+        }
+        if ( demand.isCustomerIdChanged( ) )
+        {
+            listColumns.add( COLUMN_CUSTOMER_ID );
+        }
+        if ( demand.isClosureDateChanged( ) )
+        {
+            listColumns.add( COLUMN_CLOSURE_DATE );
+        }
+        if ( demand.isCurrentStepChanged( ) )
+        {
+            listColumns.add( COLUMN_CURRENT_STEP );
+        }
+        if ( demand.isSubtypeIdChanged( ) )
+        {
+            listColumns.add( COLUMN_SUBTYPE_ID );
+        }
+        if ( demand.isModifyDateChanged( ) )
+        {
+            listColumns.add( COLUMN_MODIFY_DATE );
+        }
+        // the meta data are not written again if they have not been read nor replaced
+        if ( demand.isMetaDataChanged( ) )
+        {
+            listColumns.add( COLUMN_META_DATA );
+        }
+
+        if ( listColumns.isEmpty( ) )
+        {
+            return false;
+        }
+
+        String strSql = String.format( SQL_QUERY_DEMAND_UPDATE_COLUMNS,
+                listColumns.stream( ).map( strColumn -> strColumn + SQL_QUERY_SET_COLUMN ).collect( Collectors.joining( ", " ) ) );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( demand.getCustomer( ).getCustomerId( ) ) ) )
+        {
+            int nIndex = 1;
+            for ( String strColumn : listColumns )
+            {
+                setColumnValue( daoUtil, nIndex++, strColumn, demand );
+            }
+
+            // where primary_key
+            daoUtil.setInt( nIndex++, demand.getUID( ) );
+            daoUtil.setString( nIndex, demand.getTypeId( ) );
+
+            daoUtil.executeUpdate( );
+        }
+
+        demand.setStored( );
+
+        return true;
+    }
+
+    /**
+     * Set the value of an updatable column of a demand
      * 
      * @param daoUtil
+     *            the daoUtil
+     * @param nIndex
+     *            the index of the parameter
+     * @param strColumn
+     *            the column
+     * @param demand
+     *            the demand
+     */
+    private static void setColumnValue( DAOUtil daoUtil, int nIndex, String strColumn, PersistentDemand demand )
+    {
+        switch( strColumn )
+        {
+            case COLUMN_STATUS_ID:
+                daoUtil.setInt( nIndex, demand.getStatusId( ) );
+                break;
+            case COLUMN_CUSTOMER_ID:
+                daoUtil.setString( nIndex, demand.getCustomer( ).getCustomerId( ) );
+                break;
+            case COLUMN_CLOSURE_DATE:
+                daoUtil.setTimestamp( nIndex, demand.getClosureDate( ) > 0 ? new Timestamp( demand.getClosureDate( ) ) : null );
+                break;
+            case COLUMN_CURRENT_STEP:
+                daoUtil.setInt( nIndex, demand.getCurrentStep( ) );
+                break;
+            case COLUMN_SUBTYPE_ID:
+                daoUtil.setString( nIndex, demand.getSubtypeId( ) );
+                break;
+            case COLUMN_MODIFY_DATE:
+                daoUtil.setTimestamp( nIndex, demand.getModifyDate( ) > 0 ? new Timestamp( demand.getModifyDate( ) ) : null );
+                break;
+            default:
+                daoUtil.setString( nIndex, demand.getMetaDataJson( ) );
+                break;
+        }
+    }
+
+    /**
+     * Get the meta data of a demand as JSON
+     * 
+     * @param demand
+     *            the demand
+     * @return the JSON of the meta data
+     */
+    private static String getMetaDataJson( Demand demand )
+    {
+        if ( demand instanceof PersistentDemand )
+        {
+            return ( (PersistentDemand) demand ).getMetaDataJson( );
+        }
+
+        return NotificationStoreUtils.hashMapToJson( demand.getMetaData( ) );
+    }
+
+    /**
+     * Build the query of the ids of the demands of a customer
+     * 
+     * @param bNotificationType
+     *            true to filter on a notification type
+     * @param bDemandType
+     *            true to filter on a demand type
+     * @param strDirectionDateOrderBy
+     *            the direction of the order by modification date : ASC, or DESC by default
+     * @return the query string
+     */
+    static String buildIdsByCustomerIdQuery( boolean bNotificationType, boolean bDemandType, String strDirectionDateOrderBy )
+    {
+        String strSql = SQL_QUERY_IDS_BY_CUSTOMER_ID_AND_DEMANDTYPE_ID;
+
+        if ( bNotificationType )
+        {
+            strSql += SQL_FILTER_NOTIFICATION_TYPE;
+        }
+
+        if ( bDemandType )
+        {
+            strSql += SQL_FILTER_BY_DEMAND_TYPE_GD_ID;
+        }
+
+        if ( "ASC".equals( strDirectionDateOrderBy ) )
+        {
+            strSql += SQL_QUERY_DATE_ORDER_ASC;
+        }
+        else
+        {
+            strSql += SQL_QUERY_DATE_ORDER_DESC;
+        }
+
+        return strSql;
+    }
+
+    /**
+     * Build the query of the ids of the demands of a customer by status
+     * 
+     * @param nStatus
+     *            the number of statuses
+     * @param nDemandTypes
+     *            the number of demand types, 0 for all the demand types
+     * @param bNotificationType
+     *            true to filter on a notification type
+     * @return the query string
+     */
+    static String buildIdsByStatusQuery( int nStatus, int nDemandTypes, boolean bNotificationType )
+    {
+        String strQuery = SQL_QUERY_IDS_BY_STATUS;
+
+        if ( nStatus > 0 )
+        {
+            strQuery += QueryShapeCache.getPlaceholders( nStatus ) + " ) ";
+        }
+
+        if ( nDemandTypes > 0 )
+        {
+            strQuery += SQL_FILTER_BY_DEMAND_TYPE_GD_ID_IN + QueryShapeCache.getPlaceholders( nDemandTypes ) + " ) ";
+        }
+
+        if ( bNotificationType )
+        {
+            strQuery += SQL_FILTER_NOTIFICATION_TYPE;
+        }
+
+        return strQuery + SQL_QUERY_DATE_ORDER_DESC;
+    }
+
+    /**
+     * Get the criteria bitmask of a filter
+     * 
      * @param filter
+     * @return the criteria bitmask
      */
-    private void fillDao( DAOUtil daoUtil, NotificationFilter filter )
+    static long getFilterCriteria( NotificationFilter filter )
     {
-        int i = 1;
+        long lCriteria = 0;
+
         if ( filter.containsDemandId( ) )
         {
-            daoUtil.setString( i++, filter.getDemandId( ) );
+            lCriteria |= CRITERIA_DEMAND_ID;
         }
 
         if ( filter.containsDemandTypeId( ) )
         {
-            daoUtil.setString( i++, filter.getDemandTypeId( ) );
+            lCriteria |= CRITERIA_DEMAND_TYPE_ID;
         }
 
         if ( filter.containsCustomerId( ) )
         {
-            daoUtil.setString( i++, filter.getCustomerId( ) );
+            lCriteria |= CRITERIA_CUSTOMER_ID;
         }
 
         if ( filter.containsStartDate( ) )
         {
-            daoUtil.setTimestamp( i++, new Timestamp( filter.getStartDate( ) ) );
+            lCriteria |= CRITERIA_START_DATE;
         }
 
         if ( filter.containsEndDate( ) )
         {
-            daoUtil.setTimestamp( i++, new Timestamp( filter.getEndDate( ) ) );
+            lCriteria |= CRITERIA_END_DATE;
         }
+
+        return lCriteria;
     }
 
-    @Override
-    public List<Integer> loadIdsByCustomerIdAndIdDemandType( String strCustomerId, String strNotificationType, String strIdDemandType )
+    /**
+     * Get the filter query of a criteria bitmask (built once per shape)
+     * 
+     * @param nKind
+     *            the kind of query
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the query string
+     */
+    static String getFilterQuery( int nKind, long lCriteria )
     {
-        return this.loadIdsByCustomerIdAndIdDemandType( strCustomerId, strNotificationType, strIdDemandType, null );
+        return _queryCache.getQuery( QueryShapeCache.shape( nKind, lCriteria ), ( ) -> {
+            switch( nKind )
+            {
+                case QUERY_SELECT_PAGE:
+                    return buildSql( SQL_QUERY_DEMAND_SELECT_ALL, lCriteria ) + SQL_QUERY_FILTER_ORDER + SQL_QUERY_FILTER_LIMIT;
+                case QUERY_COUNT:
+                    return buildSql( SQL_QUERY_DEMAND_COUNT, lCriteria );
+                case QUERY_SELECT_IDS:
+                    return buildSql( SQL_QUERY_DEMAND_SELECT_DEMAND_IDS, lCriteria ) + SQL_QUERY_FILTER_ORDER;
+                default:
+                    return buildSql( SQL_QUERY_DEMAND_SELECT_ALL, lCriteria ) + SQL_QUERY_FILTER_ORDER;
+            }
+        } );
     }
 
-    @Override
-    public List<Integer> loadIdsByCustomerIdAndIdDemandType( final String strCustomerId, final String strNotificationType, final String strIdDemandType,
-            final String strDirectionDateOrderBy )
+    /**
+     * build the sql with selected filters
+     * 
+     * @param strBaseQuery
+     *            the base query
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the query string
+     */
+    private static String buildSql( String strBaseQuery, long lCriteria )
     {
-        List<Integer> listIds = new ArrayList<>( );
-        String strSql = SQL_QUERY_IDS_BY_CUSTOMER_ID_AND_DEMANDTYPE_ID;
+        StringBuilder sql = new StringBuilder( strBaseQuery ).append( SQL_QUERY_FILTER_WHERE_BASE );
 
-        if ( StringUtils.isNotEmpty( strNotificationType ) )
+        if ( ( lCriteria & CRITERIA_DEMAND_ID ) != 0 )
         {
-            strSql += SQL_FILTER_NOTIFICATION_TYPE;
+            sql.append( SQL_FILTER_BY_DEMAND_ID );
         }
 
-        if ( StringUtils.isNotEmpty( strIdDemandType ) )
+        if ( ( lCriteria & CRITERIA_DEMAND_TYPE_ID ) != 0 )
         {
-            strSql += SQL_FILTER_BY_DEMAND_TYPE_GD_ID;
+            sql.append( SQL_FILTER_BY_DEMAND_TYPE_ID );
         }
 
-        if ( StringUtils.isNotEmpty( strDirectionDateOrderBy ) && List.of( "ASC", "DESC" ).contains( strDirectionDateOrderBy ) )
+        if ( ( lCriteria & CRITERIA_CUSTOMER_ID ) != 0 )
         {
-            if ( "ASC".equalsIgnoreCase( strDirectionDateOrderBy ) )
-            {
-                strSql += SQL_QUERY_DATE_ORDER_ASC;
-            }
-            else
-            {
-                strSql += SQL_QUERY_DATE_ORDER_DESC;
-            }
+            sql.append( SQL_FILTER_BY_CUSTOMER_ID );
         }
-        else
+
+        if ( ( lCriteria & CRITERIA_START_DATE ) != 0 )
         {
-            strSql += SQL_QUERY_DATE_ORDER_DESC;
+            sql.append( SQL_FILTER_BY_START_DATE );
         }
 
-        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+        if ( ( lCriteria & CRITERIA_END_DATE ) != 0 )
+        {
+            sql.append( SQL_FILTER_BY_END_DATE );
+        }
+
+        return sql.toString( );
+    }
+
+    /**
+     * fill the dao with filter's values
+     * 
+     * @param daoUtil
+     * @param filter
+     * @param lCriteria
+     *            the criteria bitmask of the filter
+     * @return the index of the next parameter
+     */
+    private static int fillDao( DAOUtil daoUtil, NotificationFilter filter, long lCriteria )
+    {
+        int i = 1;
+        if ( ( lCriteria & CRITERIA_DEMAND_ID ) != 0 )
+        {
+            daoUtil.setString( i++, filter.getDemandId( ) );
+        }
+
+        if ( ( lCriteria & CRITERIA_DEMAND_TYPE_ID ) != 0 )
+        {
+            daoUtil.setString( i++, filter.getDemandTypeId( ) );
+        }
+
+        if ( ( lCriteria & CRITERIA_CUSTOMER_ID ) != 0 )
+        {
+            daoUtil.setString( i++, filter.getCustomerId( ) );
+        }
+
+        if ( ( lCriteria & CRITERIA_START_DATE ) != 0 )
+        {
+            daoUtil.setTimestamp( i++, new Timestamp( filter.getStartDate( ) ) );
+        }
+
+        if ( ( lCriteria & CRITERIA_END_DATE ) != 0 )
+        {
+            daoUtil.setTimestamp( i++, new Timestamp( filter.getEndDate( ) ) );
+        }
+
+        return i;
+    }
+
+    @Override
+    public List<Integer> loadIdsByCustomerIdAndIdDemandType( String strCustomerId, String strNotificationType, String strIdDemandType )
+    {
+        return this.loadIdsByCustomerIdAndIdDemandType( strCustomerId, strNotificationType, strIdDemandType, null );
+    }
+
+    @Override
+    public List<Integer> loadIdsByCustomerIdAndIdDemandType( final String strCustomerId, final String strNotificationType, final String strIdDemandType,
+            final String strDirectionDateOrderBy )
+    {
+        List<Integer> listIds = new ArrayList<>( );
+        String strSql = buildIdsByCustomerIdQuery( StringUtils.isNotEmpty( strNotificationType ), StringUtils.isNotEmpty( strIdDemandType ),
+                strDirectionDateOrderBy );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getReadPlugin( strCustomerId ) ) )
         {
             int nIndex = 1;
             daoUtil.setString( nIndex++, strCustomerId );
 
             if ( StringUtils.isNotEmpty( strNotificationType ) )
             {
-                daoUtil.setString( nIndex++, strNotificationType );
+                daoUtil.setInt( nIndex++, ChannelMask.getBit( strNotificationType ) );
             }
 
             if ( StringUtils.isNotEmpty( strIdDemandType ) )
@@ -643,30 +1534,16 @@ public final class DemandDAO implements IDemandDAO
     public List<Integer> loadIdsByStatus( String strCustomerId, List<String> listStatus, String strNotificationType, String strIdDemandType )
     {
         List<Integer> listIds = new ArrayList<>( );
-        String strQuery = SQL_QUERY_IDS_BY_STATUS;
-
-        if ( !listStatus.isEmpty( ) )
-        {
-            strQuery += listStatus.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " ) ";
-        }
 
         List<Integer> listIdsDemandType = new ArrayList<>( );
         if ( StringUtils.isNotEmpty( strIdDemandType ) )
         {
             listIdsDemandType = Arrays.stream( strIdDemandType.split( "," ) ).map( Integer::parseInt ).collect( Collectors.toList( ) );
-            strQuery += SQL_FILTER_BY_DEMAND_TYPE_GD_ID_IN;
-            strQuery += listIdsDemandType.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " ) ";
-
         }
 
-        if ( StringUtils.isNotEmpty( strNotificationType ) )
-        {
-            strQuery += SQL_FILTER_NOTIFICATION_TYPE;
-        }
-
-        strQuery += SQL_QUERY_DATE_ORDER_DESC;
+        String strQuery = buildIdsByStatusQuery( listStatus.size( ), listIdsDemandType.size( ), StringUtils.isNotEmpty( strNotificationType ) );
 
-        try ( DAOUtil daoUtil = new DAOUtil( strQuery, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( strQuery, NotificationStorePlugin.getReadPlugin( strCustomerId ) ) )
         {
             int nIndexIn = 1;
             daoUtil.setString( nIndexIn++, strCustomerId );
@@ -683,7 +1560,7 @@ public final class DemandDAO implements IDemandDAO
             }
             if ( StringUtils.isNotEmpty( strNotificationType ) )
             {
-                daoUtil.setString( nIndexIn++, strNotificationType );
+                daoUtil.setInt( nIndexIn++, ChannelMask.getBit( strNotificationType ) );
             }
 
             daoUtil.executeQuery( );
@@ -700,12 +1577,15 @@ public final class DemandDAO implements IDemandDAO
     @Override
     public void updateDemandsStatusId( int nNewStatusId, int nTemporaryStatusId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_STATUS_ID, NotificationStorePlugin.getPlugin( ) ) )
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
         {
-            daoUtil.setInt( 1, nTemporaryStatusId );
-            daoUtil.setInt( 2, nNewStatusId );
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DEMAND_UPDATE_STATUS_ID, plugin ) )
+            {
+                daoUtil.setInt( 1, nTemporaryStatusId );
+                daoUtil.setInt( 2, nNewStatusId );
 
-            daoUtil.executeUpdate( );
+                daoUtil.executeUpdate( );
+            }
         }
     }
 }
@@ -70,6 +70,20 @@ public final class DemandHome
         return _dao.loadByIds( listIds );
     }
 
+    /**
+     * Finds the demands of a customer, from the read replica if there is one
+     * 
+     * @param listIds
+     *            the ids
+     * @param strCustomerId
+     *            the customer id
+     * @return the demands. An empty collection is returned if no demands has been found.
+     */
+    public static List<Demand> getByIds( List<Integer> listIds, String strCustomerId )
+    {
+        return ( (DemandDAO) _dao ).loadByIds( listIds, strCustomerId );
+    }
+
     /**
      * search demands by filter
      * 
@@ -92,6 +106,32 @@ public final class DemandHome
         return _dao.loadByFilter( filter );
     }
 
+    /**
+     * search one page of demands by filter
+     * 
+     * @param filter
+     * @param nOffset
+     *            the index of the first demand of the page
+     * @param nLimit
+     *            the max number of demands of the page
+     * @return the demand list
+     */
+    public static List<Demand> searchByFilter( NotificationFilter filter, int nOffset, int nLimit )
+    {
+        return ( (DemandDAO) _dao ).loadByFilter( filter, nOffset, nLimit );
+    }
+
+    /**
+     * count demands by filter
+     * 
+     * @param filter
+     * @return the number of demands
+     */
+    public static int countByFilter( NotificationFilter filter )
+    {
+        return ( (DemandDAO) _dao ).countByFilter( filter );
+    }
+
     /**
      * Finds a demand with the specified id and type id
      * 
@@ -155,6 +195,18 @@ public final class DemandHome
         return _dao.loadIdsByStatus( strCustomerId, listStatus, strNotificationType, strIdDemandType );
     }
 
+    /**
+     * Creates a demand
+     * 
+     * @param demand
+     *            the demand to create
+     * @return the created demand
+     */
+    public static Demand create( Demand demand )
+    {
+        return _dao.insert( demand );
+    }
+
     /**
      * Updates a demand
      * 
@@ -167,6 +219,45 @@ public final class DemandHome
         return _dao.store( demand );
     }
 
+    /**
+     * Add channels to the channel mask of a demand
+     * 
+     * @param demand
+     *            the demand
+     * @param nChannelMask
+     *            the mask of the channels
+     */
+    public static void addChannels( Demand demand, int nChannelMask )
+    {
+        ( (DemandDAO) _dao ).addChannels( demand, nChannelMask );
+    }
+
+    /**
+     * Compute again the channel masks of the demands of a customer from the masks of their notifications
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param plugin
+     *            the plugin of the shard
+     */
+    public static void refreshChannels( String strCustomerId, Plugin plugin )
+    {
+        ( (DemandDAO) _dao ).updateChannelsByCustomerId( strCustomerId, plugin );
+    }
+
+    /**
+     * Compute again the channel masks of the demands of notifications from the masks of all their notifications
+     * 
+     * @param listIdNotifications
+     *            the notification ids
+     * @param plugin
+     *            the plugin of the shard
+     */
+    public static void refreshChannels( Collection<Integer> listIdNotifications, Plugin plugin )
+    {
+        ( (DemandDAO) _dao ).updateChannelsByNotificationIds( listIdNotifications, plugin );
+    }
+
     /**
      * reassign demands
      * 
@@ -187,4 +278,167 @@ public final class DemandHome
     {
         _dao.deleteByUid( nUid );
     }
+
+    /**
+     * Delete a demand of a customer by its uid
+     * 
+     * @param nUid
+     *            the demand uid
+     * @param strCustomerId
+     *            the customer id
+     */
+    public static void deleteByUid( int nUid, String strCustomerId )
+    {
+        ( (DemandDAO) _dao ).deleteByUid( nUid, strCustomerId );
+    }
+
+    /**
+     * Get the demands closed before a date, with a final status
+     * 
+     * @param lClosedBefore
+     *            the closure date limit
+     * @param listStatusIds
+     *            the final status ids
+     * @param nLimit
+     *            the max number of demands
+     * @param plugin
+     *            the plugin of the shard
+     * @return the demands, ordered by customer
+     */
+    public static List<Demand> getClosedDemands( long lClosedBefore, List<Integer> listStatusIds, int nLimit, Plugin plugin )
+    {
+        return ( (DemandDAO) _dao ).loadClosedBefore( lClosedBefore, listStatusIds, nLimit, plugin );
+    }
+
+    /**
+     * Lock a demand in the current transaction, if it is still closed before a date with a final status
+     * 
+     * @param nUid
+     *            the uid of the demand
+     * @param lClosedBefore
+     *            the closure date limit
+     * @param listStatusIds
+     *            the final status ids
+     * @param plugin
+     *            the plugin of the shard
+     * @return the demand, or null if it is no longer closed
+     */
+    public static Demand lockClosedDemand( int nUid, long lClosedBefore, List<Integer> listStatusIds, Plugin plugin )
+    {
+        return ( (DemandDAO) _dao ).loadClosedForUpdate( nUid, lClosedBefore, listStatusIds, plugin );
+    }
+
+    /**
+     * Get the ids of the customers whose demands have been modified after a date, the most recent first
+     * 
+     * @param lModifiedAfter
+     *            the modification date limit
+     * @param nLimit
+     *            the max number of customer ids
+     * @param plugin
+     *            the plugin of the shard
+     * @return the customer ids
+     */
+    public static List<String> getRecentCustomerIds( long lModifiedAfter, int nLimit, Plugin plugin )
+    {
+        return ( (DemandDAO) _dao ).loadRecentCustomerIds( lModifiedAfter, nLimit, plugin );
+    }
+
+    /**
+     * Check if a database holds demands, archived or not
+     * 
+     * @param plugin
+     *            the plugin of the shard
+     * @return true if there is at least one demand
+     */
+    public static boolean hasDemands( Plugin plugin )
+    {
+        return ( (DemandDAO) _dao ).hasDemands( plugin );
+    }
+
+    /**
+     * Get the AUTO_INCREMENT settings of the connections of a database
+     * 
+     * @param plugin
+     *            the plugin of the shard
+     * @return the increment and the offset of the generated ids
+     */
+    public static int [ ] getAutoIncrementSettings( Plugin plugin )
+    {
+        return ( (DemandDAO) _dao ).loadAutoIncrementSettings( plugin );
+    }
+
+    /**
+     * Create an archived demand
+     * 
+     * @param demand
+     *            the demand, with its uid
+     * @param listNotificationTypes
+     *            the types of the notifications of the demand
+     * @param nIdArchive
+     *            the id of the archive of the notifications
+     * @param plugin
+     *            the plugin of the shard of the customer
+     */
+    public static void createArchived( Demand demand, Collection<String> listNotificationTypes, int nIdArchive, Plugin plugin )
+    {
+        ( (DemandDAO) _dao ).insertArchive( demand, listNotificationTypes, nIdArchive, plugin );
+    }
+
+    /**
+     * Get the archived demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the archived demands
+     */
+    public static List<Demand> getArchivedByCustomerId( String strCustomerId )
+    {
+        return ( (DemandDAO) _dao ).loadArchivedByCustomerId( strCustomerId );
+    }
+
+    /**
+     * Get archived demands of a customer by uid
+     * 
+     * @param listIds
+     *            the demand uids
+     * @param strCustomerId
+     *            the customer id
+     * @return the archived demands
+     */
+    public static List<Demand> getArchivedByIds( List<Integer> listIds, String strCustomerId )
+    {
+        return ( (DemandDAO) _dao ).loadArchivedByIds( listIds, strCustomerId );
+    }
+
+    /**
+     * Get the uids of the archived demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param listStatus
+     *            the status ids, or an empty list for all the status
+     * @param strNotificationType
+     *            the notification type, or null
+     * @param listIdsDemandType
+     *            the demand type ids, or an empty list for all the demand types
+     * @return the uids, most recent first
+     */
+    public static List<Integer> getArchivedIds( String strCustomerId, List<String> listStatus, String strNotificationType, List<String> listIdsDemandType )
+    {
+        return ( (DemandDAO) _dao ).loadArchivedIds( strCustomerId, listStatus, strNotificationType, listIdsDemandType );
+    }
+
+    /**
+     * Delete the archived demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param plugin
+     *            the plugin of the shard of the customer
+     */
+    public static void deleteArchivedByCustomerId( String strCustomerId, Plugin plugin )
+    {
+        ( (DemandDAO) _dao ).deleteArchivedByCustomerId( strCustomerId, plugin );
+    }
 }
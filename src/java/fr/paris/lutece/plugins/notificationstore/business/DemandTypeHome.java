@@ -40,6 +40,7 @@ import java.util.stream.Collectors;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandTypeDAO;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.util.ReferenceList;
 
@@ -68,6 +69,7 @@ public final class DemandTypeHome
     public static DemandType create( DemandType demandType )
     {
         _dao.insert( demandType );
+        ReferenceDataService.getInstance( ).refresh( );
 
         return demandType;
     }
@@ -82,6 +84,7 @@ public final class DemandTypeHome
     public static DemandType update( DemandType demandType )
     {
         _dao.store( demandType );
+        ReferenceDataService.getInstance( ).refresh( );
 
         return demandType;
     }
@@ -95,6 +98,7 @@ public final class DemandTypeHome
     public static void remove( int nKey )
     {
         _dao.delete( nKey );
+        ReferenceDataService.getInstance( ).refresh( );
     }
 
     /**
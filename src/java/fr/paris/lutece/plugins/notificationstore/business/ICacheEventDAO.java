@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.List;
+
+/**
+ * ICacheEventDAO Interface
+ */
+
+public interface ICacheEventDAO
+{
+
+    /**
+     * Insert a cache event
+     * 
+     * @param strCacheName
+     *            the name of the invalidated cache
+     * @param plugin
+     *            the Plugin
+     * @return the id of the event
+     */
+
+    long insert( String strCacheName, Plugin plugin );
+
+    /**
+     * Load the cache events after an id, ordered by id
+     * 
+     * @param lIdEvent
+     *            the id of the last event already read
+     * @param plugin
+     *            the Plugin
+     * @return the list of the cache events
+     */
+
+    List<CacheEvent> selectAfter( long lIdEvent, Plugin plugin );
+
+    /**
+     * Load the id of the last cache event
+     * 
+     * @param plugin
+     *            the Plugin
+     * @return the id of the last event, or 0 if there is no event
+     */
+
+    long selectLastId( Plugin plugin );
+
+    /**
+     * Delete the cache events created before a date
+     * 
+     * @param lDate
+     *            the date
+     * @param plugin
+     *            the Plugin
+     * @return the number of deleted events
+     */
+
+    int deleteBefore( long lDate, Plugin plugin );
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IContentBlobDAO Interface
+ */
+
+public interface IContentBlobDAO
+{
+
+    /**
+     * Insert a content blob referenced once, unless its hash is already stored
+     * 
+     * @param contentBlob
+     *            the content blob
+     * @param plugin
+     *            the Plugin
+     * @return true if the content blob has been inserted, false if its hash was already stored
+     */
+
+    boolean insert( ContentBlob contentBlob, Plugin plugin );
+
+    /**
+     * Add a reference to a content blob
+     * 
+     * @param strContentHash
+     *            the content hash
+     * @param plugin
+     *            the Plugin
+     * @return true if the content blob exists
+     */
+
+    boolean increment( String strContentHash, Plugin plugin );
+
+    /**
+     * Remove references to content blobs
+     * 
+     * @param mapReferences
+     *            the number of references to remove, by content hash
+     * @param plugin
+     *            the Plugin
+     */
+
+    void decrement( Map<String, Integer> mapReferences, Plugin plugin );
+
+    /**
+     * Delete a content blob, only if it is no longer referenced
+     * 
+     * @param strContentHash
+     *            the content hash
+     * @param plugin
+     *            the Plugin
+     * @return true if the content blob has been deleted
+     */
+
+    boolean deleteUnreferenced( String strContentHash, Plugin plugin );
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Load a content blob
+     * 
+     * @param strContentHash
+     *            the content hash
+     * @param plugin
+     *            the Plugin
+     * @return the content blob, or null if it does not exist
+     */
+
+    ContentBlob load( String strContentHash, Plugin plugin );
+
+    /**
+     * Load the content blobs which are no longer referenced
+     * 
+     * @param nLimit
+     *            the max number of content blobs
+     * @param plugin
+     *            the Plugin
+     * @return the list of the content blobs
+     */
+
+    List<ContentBlob> selectUnreferenced( int nLimit, Plugin plugin );
+}
@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.notificationstore.business;
 
 import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -136,4 +137,95 @@ public interface INotificationContentDAO
     List<NotificationContent> selectNotificationContentsByIdAndTypeNotification( int nIdNotification, List<EnumNotificationType> listNotificationType,
             Plugin plugin );
 
+    /**
+     * Load the notification contents of several notifications
+     * 
+     * @param listIdNotifications
+     *            the ids of the notifications
+     * @param plugin
+     *            the Plugin
+     * @return The List of the notification contents
+     */
+
+    List<NotificationContent> selectNotificationContentsByIdNotifications( Collection<Integer> listIdNotifications, Plugin plugin );
+
+    /**
+     * Load the next notification contents, ordered by id
+     * 
+     * @param nIdNotificationContent
+     *            the id of the last notification content already read
+     * @param nLimit
+     *            the max number of notification contents
+     * @param plugin
+     *            the Plugin
+     * @return The List of the notification contents
+     */
+
+    List<NotificationContent> selectNotificationContentsAfterId( int nIdNotificationContent, int nLimit, Plugin plugin );
+
+    /**
+     * Count the notification contents after an id
+     * 
+     * @param nIdNotificationContent
+     *            the id of the last notification content already read
+     * @param plugin
+     *            the Plugin
+     * @return the number of notification contents
+     */
+
+    int countNotificationContentsAfterId( int nIdNotificationContent, Plugin plugin );
+
+    /**
+     * Replace the file of a notification content, only if it has not been changed meanwhile
+     * 
+     * @param notificationContent
+     *            the notification content, with its current file key
+     * @param strNewFileKey
+     *            the key of the new file
+     * @param strNewFileStore
+     *            the file store of the new file
+     * @param strNewContentHash
+     *            the hash of the shared content of the new file, or null if the file is not shared
+     * @param plugin
+     *            the Plugin
+     * @return true if the notification content has been updated
+     */
+
+    boolean updateFile( NotificationContent notificationContent, String strNewFileKey, String strNewFileStore, String strNewContentHash, Plugin plugin );
+
+    /**
+     * Load the next notification contents of a type whose notification is older than a date, ordered by id
+     * 
+     * @param strNotificationType
+     *            the notification type
+     * @param lDateBefore
+     *            the notification date limit
+     * @param strDemandTypeId
+     *            the demand type id, or null for all the demand types
+     * @param listExcludedDemandTypeIds
+     *            the demand type ids to exclude
+     * @param nIdNotificationContent
+     *            the id of the last notification content already read
+     * @param nLimit
+     *            the max number of notification contents
+     * @param plugin
+     *            the Plugin
+     * @return The List of the notification contents
+     */
+
+    List<NotificationContent> selectExpiredNotificationContents( String strNotificationType, long lDateBefore, String strDemandTypeId,
+            Collection<String> listExcludedDemandTypeIds, int nIdNotificationContent, int nLimit, Plugin plugin );
+
+    /**
+     * Delete notification contents
+     * 
+     * @param listIdNotificationContents
+     *            the ids of the notification contents
+     * @param plugin
+     *            the Plugin
+     * @return the number of deleted notification contents
+     */
+
+    int deleteByIds( List<Integer> listIdNotificationContents, Plugin plugin );
+
 }
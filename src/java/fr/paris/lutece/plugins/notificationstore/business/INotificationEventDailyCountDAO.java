@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * INotificationEventDailyCountDAO Interface
+ */
+
+public interface INotificationEventDailyCountDAO
+{
+
+    /**
+     * Add the counts to the stored daily counts, creating the missing ones
+     * 
+     * @param listDailyCounts
+     *            the daily counts to add
+     * @param plugin
+     *            the Plugin
+     */
+
+    void insertOrIncrement( Collection<NotificationEventDailyCount> listDailyCounts, Plugin plugin );
+
+    /**
+     * Load the daily counts of a period, ordered by day
+     * 
+     * @param lStartDay
+     *            the first day, or 0 for no lower bound
+     * @param lEndDay
+     *            the last day, or 0 for no upper bound
+     * @param strDemandTypeId
+     *            the demand type id, or null for all the demand types
+     * @param strStatus
+     *            the event status, or null for all the statuses
+     * @param plugin
+     *            the Plugin
+     * @return the list of the daily counts
+     */
+
+    List<NotificationEventDailyCount> selectByFilter( long lStartDay, long lEndDay, String strDemandTypeId, String strStatus, Plugin plugin );
+}
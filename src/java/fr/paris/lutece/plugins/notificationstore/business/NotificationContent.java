@@ -46,6 +46,7 @@ public class NotificationContent
     private Integer _strStatusId;
     private String _strFileKey;
     private String _strFileStore;
+    private String _strContentHash;
 
     /**
      * Returns the Id
@@ -174,4 +175,21 @@ public class NotificationContent
         this._strFileStore = strFileStore;
     }
 
+    /**
+     * @return the hash of the shared content of the file, or null if the file belongs to this notification content only
+     */
+    public String getContentHash( )
+    {
+        return _strContentHash;
+    }
+
+    /**
+     * @param strContentHash
+     *            the hash of the shared content of the file
+     */
+    public void setContentHash( String strContentHash )
+    {
+        this._strContentHash = strContentHash;
+    }
+
 }
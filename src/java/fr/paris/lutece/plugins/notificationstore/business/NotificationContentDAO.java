@@ -38,12 +38,14 @@ import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
 
 import java.sql.Statement;
+import java.sql.Timestamp;
 
 /**
  * This class provides Data Access methods for NotificationContent objects
@@ -51,14 +53,23 @@ import java.sql.Statement;
 public final class NotificationContentDAO implements INotificationContentDAO
 {
     // Constants
-    private static final String SQL_QUERY_SELECT = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store FROM notificationstore_notification_content WHERE id_notification_content = ?";
-    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification_content ( notification_id, notification_type, id_temporary_status, status_id, file_key, file_store ) VALUES ( ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store, content_hash FROM notificationstore_notification_content WHERE id_notification_content = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification_content ( notification_id, notification_type, id_temporary_status, status_id, file_key, file_store, content_hash ) VALUES ( ?, ?, ?, ?, ?, ?, ? ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_notification_content WHERE id_notification_content = ? ";
     private static final String SQL_QUERY_UPDATE = "UPDATE notificationstore_notification_content SET notification_type = ?, id_temporary_status = ?, status_id = ?, file_key = ?, file_store = ? WHERE id_notification_content = ?";
-    private static final String SQL_QUERY_SELECTALL = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store FROM notificationstore_notification_content";
-    private static final String SQL_QUERY_SELECT_BY_ID_NOTIF = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store FROM notificationstore_notification_content WHERE notification_id = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store, content_hash FROM notificationstore_notification_content";
+    static final String SQL_QUERY_SELECT_BY_ID_NOTIF = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store, content_hash FROM notificationstore_notification_content WHERE notification_id = ?";
     private static final String SQL_PARAM_QUERY_TYPE_NOTIF = " AND notification_type IN (";
+    private static final String SQL_QUERY_SELECT_BY_ID_NOTIFS = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store, content_hash FROM notificationstore_notification_content WHERE notification_id IN ( %s )";
     private static final String SQL_QUERY_UPDATE_STATUS = "UPDATE notificationstore_notification_content SET id_temporary_status = -1, status_id = ? WHERE id_temporary_status = ?";
+    static final String SQL_QUERY_SELECT_AFTER_ID = "SELECT id_notification_content, notification_id, notification_type, id_temporary_status, status_id, file_key, file_store, content_hash FROM notificationstore_notification_content WHERE id_notification_content > ? ORDER BY id_notification_content LIMIT ?";
+    private static final String SQL_QUERY_COUNT_AFTER_ID = "SELECT COUNT(*) FROM notificationstore_notification_content WHERE id_notification_content > ?";
+    private static final String SQL_QUERY_UPDATE_FILE = "UPDATE notificationstore_notification_content SET file_key = ?, file_store = ?, content_hash = ? WHERE id_notification_content = ? AND file_key = ?";
+    private static final String SQL_QUERY_SELECT_EXPIRED = "SELECT c.id_notification_content, c.notification_id, c.notification_type, c.id_temporary_status, c.status_id, c.file_key, c.file_store, c.content_hash FROM notificationstore_notification_content c JOIN notificationstore_notification n ON n.id = c.notification_id WHERE c.notification_type = ? AND n.date < ? AND c.id_notification_content > ? ";
+    private static final String SQL_FILTER_DEMAND_TYPE = " AND n.demand_type_id = ? ";
+    private static final String SQL_FILTER_EXCLUDED_DEMAND_TYPES = " AND n.demand_type_id NOT IN ( %s ) ";
+    private static final String SQL_ORDER_BY_ID_LIMIT = " ORDER BY c.id_notification_content LIMIT ?";
+    private static final String SQL_QUERY_DELETE_BY_IDS = "DELETE FROM notificationstore_notification_content WHERE id_notification_content IN ( %s ) ";
 
     /**
      * {@inheritDoc }
@@ -75,6 +86,7 @@ public final class NotificationContentDAO implements INotificationContentDAO
             daoUtil.setInt( ++nIndex, notificationContent.getStatusId( ) != null ? notificationContent.getStatusId( ) : -1 );
             daoUtil.setString( ++nIndex, notificationContent.getFileKey( ) );
             daoUtil.setString( ++nIndex, notificationContent.getFileStore( ) );
+            daoUtil.setString( ++nIndex, notificationContent.getContentHash( ) );
 
             daoUtil.executeUpdate( );
             if ( daoUtil.nextGeneratedKey( ) )
@@ -216,6 +228,180 @@ public final class NotificationContentDAO implements INotificationContentDAO
         return listNotificationContents;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<NotificationContent> selectNotificationContentsByIdNotifications( Collection<Integer> listIdNotifications, Plugin plugin )
+    {
+        List<NotificationContent> listNotificationContents = new ArrayList<>( );
+
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIdNotifications ) )
+        {
+            int nArity = QueryShapeCache.getArityBucket( listChunk.size( ) );
+
+            try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_SELECT_BY_ID_NOTIFS, QueryShapeCache.getPlaceholders( nArity ) ), plugin ) )
+            {
+                QueryShapeCache.setInts( daoUtil, 1, listChunk, nArity );
+                daoUtil.executeQuery( );
+
+                while ( daoUtil.next( ) )
+                {
+                    listNotificationContents.add( loadNotificationContent( daoUtil ) );
+                }
+            }
+        }
+
+        return listNotificationContents;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<NotificationContent> selectNotificationContentsAfterId( int nIdNotificationContent, int nLimit, Plugin plugin )
+    {
+        List<NotificationContent> listNotificationContents = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_AFTER_ID, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdNotificationContent );
+            daoUtil.setInt( 2, nLimit );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listNotificationContents.add( loadNotificationContent( daoUtil ) );
+            }
+        }
+
+        return listNotificationContents;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countNotificationContentsAfterId( int nIdNotificationContent, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT_AFTER_ID, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdNotificationContent );
+
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean updateFile( NotificationContent notificationContent, String strNewFileKey, String strNewFileStore, String strNewContentHash,
+            Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_FILE, plugin ) )
+        {
+            int nIndex = 0;
+            daoUtil.setString( ++nIndex, strNewFileKey );
+            daoUtil.setString( ++nIndex, strNewFileStore );
+            daoUtil.setString( ++nIndex, strNewContentHash );
+            daoUtil.setInt( ++nIndex, notificationContent.getId( ) );
+            daoUtil.setString( ++nIndex, notificationContent.getFileKey( ) );
+
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<NotificationContent> selectExpiredNotificationContents( String strNotificationType, long lDateBefore, String strDemandTypeId,
+            Collection<String> listExcludedDemandTypeIds, int nIdNotificationContent, int nLimit, Plugin plugin )
+    {
+        List<NotificationContent> listNotificationContents = new ArrayList<>( );
+        String strSql = buildSelectExpiredQuery( strDemandTypeId != null, listExcludedDemandTypeIds.size( ) );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, plugin ) )
+        {
+            int nIndex = 0;
+            daoUtil.setString( ++nIndex, strNotificationType );
+            daoUtil.setTimestamp( ++nIndex, new Timestamp( lDateBefore ) );
+            daoUtil.setInt( ++nIndex, nIdNotificationContent );
+            if ( strDemandTypeId != null )
+            {
+                daoUtil.setString( ++nIndex, strDemandTypeId );
+            }
+            for ( String strExcludedDemandTypeId : listExcludedDemandTypeIds )
+            {
+                daoUtil.setString( ++nIndex, strExcludedDemandTypeId );
+            }
+            daoUtil.setInt( ++nIndex, nLimit );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listNotificationContents.add( loadNotificationContent( daoUtil ) );
+            }
+        }
+
+        return listNotificationContents;
+    }
+
+    /**
+     * Build the query of the expired notification contents
+     * 
+     * @param bDemandType
+     *            true to filter on a demand type
+     * @param nExcludedDemandTypes
+     *            the number of excluded demand types
+     * @return the query string
+     */
+    static String buildSelectExpiredQuery( boolean bDemandType, int nExcludedDemandTypes )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_EXPIRED );
+
+        if ( bDemandType )
+        {
+            sbSql.append( SQL_FILTER_DEMAND_TYPE );
+        }
+        if ( nExcludedDemandTypes > 0 )
+        {
+            sbSql.append( String.format( SQL_FILTER_EXCLUDED_DEMAND_TYPES, QueryShapeCache.getPlaceholders( nExcludedDemandTypes ) ) );
+        }
+
+        return sbSql.append( SQL_ORDER_BY_ID_LIMIT ).toString( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int deleteByIds( List<Integer> listIdNotificationContents, Plugin plugin )
+    {
+        int nDeleted = 0;
+
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIdNotificationContents ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_DELETE_BY_IDS, QueryShapeCache.getPlaceholders( listChunk.size( ) ) ), plugin ) )
+            {
+                int nIndex = 0;
+                for ( Integer nId : listChunk )
+                {
+                    daoUtil.setInt( ++nIndex, nId );
+                }
+
+                nDeleted += daoUtil.executeUpdate( );
+            }
+        }
+
+        return nDeleted;
+    }
+
     /**
      * Load notification
      * 
@@ -232,6 +418,7 @@ public final class NotificationContentDAO implements INotificationContentDAO
         notificationContent.setStatusId( daoUtil.getInt( "status_id" ) );
         notificationContent.setFileKey( daoUtil.getString( "file_key" ) );
         notificationContent.setFileStore( daoUtil.getString( "file_store" ) );
+        notificationContent.setContentHash( daoUtil.getString( "content_hash" ) );
 
         return notificationContent;
     }
@@ -33,13 +33,17 @@
  */
 package fr.paris.lutece.plugins.notificationstore.business;
 
+import fr.paris.lutece.plugins.grubusiness.business.customer.Customer;
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.TemporaryStatus;
 import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
+import fr.paris.lutece.plugins.notificationstore.service.ContentBlobService;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.plugins.notificationstore.service.ShardRouter;
 import fr.paris.lutece.plugins.notificationstore.service.TemporaryStatusService;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationContentWriter;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
 import fr.paris.lutece.portal.business.file.File;
@@ -48,13 +52,12 @@ import fr.paris.lutece.portal.service.file.FileService;
 import fr.paris.lutece.portal.service.file.FileServiceException;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
-import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import fr.paris.lutece.util.string.StringUtil;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -64,9 +67,6 @@ import javax.ws.rs.core.MediaType;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * This class provides instances management methods (create, find, ...) for NotificationContent objects
  */
@@ -98,7 +98,22 @@ public final class NotificationContentHome
 
     public static NotificationContent create( NotificationContent notificationContent )
     {
-        _dao.insert( notificationContent, NotificationStorePlugin.getPlugin( ) );
+        return create( notificationContent, NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Create an instance of the notificationContent class in the database of a plugin
+     * 
+     * @param notificationContent
+     *            The instance of the NotificationContent which contains the informations to store
+     * @param plugin
+     *            the Plugin
+     * @return The instance of notificationContent which has been created with its primary key.
+     */
+
+    public static NotificationContent create( NotificationContent notificationContent, Plugin plugin )
+    {
+        _dao.insert( notificationContent, plugin );
 
         return notificationContent;
     }
@@ -115,10 +130,54 @@ public final class NotificationContentHome
 
     public static List<NotificationContent> create( Notification notification )
     {
-        List<NotificationContent> listNotificationContent = getListNotificationContent( notification );
+        return create( notification, storeFiles( notification ) );
+    }
+
+    /**
+     * Store the files of the contents of a notification, before the transaction of the notification : with the deduplication, the references to the
+     * shared files are taken in their own short transactions. The files must be released if the notification is not stored.
+     * 
+     * @param notification
+     *            the notification
+     * @return the notification contents, to create with the notification
+     */
+    public static List<NotificationContent> storeFiles( Notification notification )
+    {
+        return getListNotificationContent( notification );
+    }
+
+    /**
+     * Create the contents of a notification, whose files are stored
+     * 
+     * @param notification
+     *            the created notification
+     * @param listNotificationContent
+     *            the notification contents, with their files
+     * @return the created notification contents
+     */
+    public static List<NotificationContent> create( Notification notification, List<NotificationContent> listNotificationContent )
+    {
+        Customer customer = notification.getDemand( ).getCustomer( );
+        Plugin plugin = NotificationStorePlugin.getPlugin( customer != null ? customer.getCustomerId( ) : null );
+
+        List<String> listNotificationTypes = new ArrayList<>( );
         for ( NotificationContent content : listNotificationContent )
         {
-            _dao.insert( content, NotificationStorePlugin.getPlugin( ) );
+            content.setIdNotification( notification.getId( ) );
+            _dao.insert( content, plugin );
+            listNotificationTypes.add( content.getNotificationType( ) );
+        }
+
+        // the demand keeps the channels of all its notifications
+        if ( !listNotificationTypes.isEmpty( ) )
+        {
+            DemandHome.addChannels( notification.getDemand( ), ChannelMask.getMask( listNotificationTypes ) );
+        }
+
+        // the contents are listed with the notification
+        if ( customer != null )
+        {
+            CustomerVersionHome.increment( customer.getCustomerId( ) );
         }
 
         return listNotificationContent;
@@ -136,7 +195,11 @@ public final class NotificationContentHome
 
     public static NotificationContent update( NotificationContent notificationContent )
     {
-        _dao.store( notificationContent, NotificationStorePlugin.getPlugin( ) );
+        // the ids are unique across the shards
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            _dao.store( notificationContent, plugin );
+        }
 
         return notificationContent;
     }
@@ -152,7 +215,10 @@ public final class NotificationContentHome
 
     public static void updateStatusId( int nNewStatusId, int nTemporaryStatusId )
     {
-        _dao.updateStatusId( nNewStatusId, nTemporaryStatusId, NotificationStorePlugin.getPlugin( ) );
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            _dao.updateStatusId( nNewStatusId, nTemporaryStatusId, plugin );
+        }
     }
 
     /**
@@ -166,7 +232,24 @@ public final class NotificationContentHome
 
     public static void remove( int nNotificationContentId )
     {
-        _dao.delete( nNotificationContentId, NotificationStorePlugin.getPlugin( ) );
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            _dao.delete( nNotificationContentId, plugin );
+        }
+    }
+
+    /**
+     * Remove the notificationContent whose identifier is specified in parameter, from the database of a plugin
+     * 
+     * @param nNotificationContentId
+     *            The notificationContent Id
+     * @param plugin
+     *            the Plugin
+     */
+
+    public static void remove( int nNotificationContentId, Plugin plugin )
+    {
+        _dao.delete( nNotificationContentId, plugin );
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -184,7 +267,17 @@ public final class NotificationContentHome
 
     public static NotificationContent findByPrimaryKey( int nKey )
     {
-        return _dao.load( nKey, NotificationStorePlugin.getPlugin( ) );
+        // the ids are unique across the shards
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            NotificationContent notificationContent = _dao.load( nKey, plugin );
+            if ( notificationContent != null )
+            {
+                return notificationContent;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -195,7 +288,7 @@ public final class NotificationContentHome
 
     public static List<NotificationContent> getNotificationContentsList( )
     {
-        return _dao.selectNotificationContentsList( NotificationStorePlugin.getPlugin( ) );
+        return ShardRouter.getInstance( ).gather( null, _dao::selectNotificationContentsList );
     }
 
     /**
@@ -208,7 +301,22 @@ public final class NotificationContentHome
 
     public static List<NotificationContent> getNotificationContentsByIdNotification( int nIdNotification )
     {
-        return _dao.selectNotificationContentsByIdNotification( nIdNotification, NotificationStorePlugin.getPlugin( ) );
+        return ShardRouter.getInstance( ).gather( null, plugin -> getNotificationContentsByIdNotification( nIdNotification, plugin ) );
+    }
+
+    /**
+     * Load the data by id notification from the database of a plugin
+     * 
+     * @param nIdNotification
+     *            the id notification
+     * @param plugin
+     *            the Plugin
+     * @return the list which contains the data by id notification
+     */
+
+    public static List<NotificationContent> getNotificationContentsByIdNotification( int nIdNotification, Plugin plugin )
+    {
+        return _dao.selectNotificationContentsByIdNotification( nIdNotification, plugin );
     }
 
     /**
@@ -222,7 +330,147 @@ public final class NotificationContentHome
     public static List<NotificationContent> getNotificationContentsByIdAndTypeNotification( int nIdNotification,
             List<EnumNotificationType> listNotificationType )
     {
-        return _dao.selectNotificationContentsByIdAndTypeNotification( nIdNotification, listNotificationType, NotificationStorePlugin.getPlugin( ) );
+        return ShardRouter.getInstance( ).gather( null,
+                plugin -> getNotificationContentsByIdAndTypeNotification( nIdNotification, listNotificationType, plugin ) );
+    }
+
+    /**
+     * Load the data by id notification and notification type from the database of a plugin
+     * 
+     * @param nIdNotification
+     *            the id notification
+     * @param listNotificationType
+     *            the notification types
+     * @param plugin
+     *            the Plugin
+     * @return the list which contains the data by id notification
+     */
+
+    public static List<NotificationContent> getNotificationContentsByIdAndTypeNotification( int nIdNotification,
+            List<EnumNotificationType> listNotificationType, Plugin plugin )
+    {
+        return _dao.selectNotificationContentsByIdAndTypeNotification( nIdNotification, listNotificationType, plugin );
+    }
+
+    /**
+     * Load the notification contents of several notifications, in one query per chunk of ids
+     *
+     * @param listIdNotifications
+     *            the ids of the notifications
+     * @param plugin
+     *            the Plugin
+     * @return the list of the notification contents
+     */
+    public static List<NotificationContent> getNotificationContentsByIdNotifications( Collection<Integer> listIdNotifications, Plugin plugin )
+    {
+        return _dao.selectNotificationContentsByIdNotifications( listIdNotifications, plugin );
+    }
+
+    /**
+     * Load the next notification contents, ordered by id (keyset pagination)
+     *
+     * @param nIdNotificationContent
+     *            the id of the last notification content already read
+     * @param nLimit
+     *            the max number of notification contents
+     * @param plugin
+     *            the plugin of the shard
+     * @return the list of the notification contents
+     */
+    public static List<NotificationContent> getNotificationContentsAfterId( int nIdNotificationContent, int nLimit, Plugin plugin )
+    {
+        return _dao.selectNotificationContentsAfterId( nIdNotificationContent, nLimit, plugin );
+    }
+
+    /**
+     * Count the notification contents after an id
+     *
+     * @param nIdNotificationContent
+     *            the id of the last notification content already read
+     * @param plugin
+     *            the plugin of the shard
+     * @return the number of notification contents
+     */
+    public static int countNotificationContentsAfterId( int nIdNotificationContent, Plugin plugin )
+    {
+        return _dao.countNotificationContentsAfterId( nIdNotificationContent, plugin );
+    }
+
+    /**
+     * Replace the file of a notification content, only if it has not been changed meanwhile
+     *
+     * @param notificationContent
+     *            the notification content, with its current file key
+     * @param newContent
+     *            the new file of the notification content : its key, file store and content hash (null if the file is not shared)
+     * @param plugin
+     *            the plugin of the shard of the notification content
+     * @return true if the notification content has been updated
+     */
+    public static boolean updateFile( NotificationContent notificationContent, NotificationContent newContent, Plugin plugin )
+    {
+        return _dao.updateFile( notificationContent, newContent.getFileKey( ), newContent.getFileStore( ), newContent.getContentHash( ), plugin );
+    }
+
+    /**
+     * Get the next notification contents of a type whose notification is older than a date
+     *
+     * @param strNotificationType
+     *            the notification type
+     * @param lDateBefore
+     *            the notification date limit
+     * @param strDemandTypeId
+     *            the demand type id, or null for all the demand types
+     * @param listExcludedDemandTypeIds
+     *            the demand type ids to exclude
+     * @param nIdNotificationContent
+     *            the id of the last notification content already read
+     * @param nLimit
+     *            the max number of notification contents
+     * @param plugin
+     *            the Plugin of the shard
+     * @return the list of the notification contents, ordered by id
+     */
+    public static List<NotificationContent> getExpiredNotificationContents( String strNotificationType, long lDateBefore, String strDemandTypeId,
+            Collection<String> listExcludedDemandTypeIds, int nIdNotificationContent, int nLimit, Plugin plugin )
+    {
+        return _dao.selectExpiredNotificationContents( strNotificationType, lDateBefore, strDemandTypeId, listExcludedDemandTypeIds, nIdNotificationContent,
+                nLimit, plugin );
+    }
+
+    /**
+     * Remove notification contents
+     *
+     * @param listIdNotificationContents
+     *            the ids of the notification contents
+     * @param plugin
+     *            the Plugin of the shard
+     * @return the number of removed notification contents
+     */
+    public static int removeByIds( List<Integer> listIdNotificationContents, Plugin plugin )
+    {
+        return _dao.deleteByIds( listIdNotificationContents, plugin );
+    }
+
+    /**
+     * Set on the demand of a notification the changes implied by its contents : the status of the mydashboard notification and the modification date. The
+     * demand is not stored, this is left to the caller, which writes it once with its other changes.
+     * 
+     * @param notification
+     *            the notification
+     */
+    public static void prepareDemand( Notification notification )
+    {
+        Demand demand = notification.getDemand( );
+
+        if ( notification.getMyDashboardNotification( ) != null )
+        {
+            // Update demand status only for mydashboard notification
+            demand.setStatusId( getStatusGenericId( notification, EnumNotificationType.MYDASHBOARD ) );
+        }
+
+        // Update modify date of demand
+        demand.setModifyDate( new Date( ).getTime( ) );
     }
 
     private static List<NotificationContent> getListNotificationContent( Notification notification )
@@ -231,53 +479,39 @@ public final class NotificationContentHome
 
         try
         {
-            ObjectMapper mapperr = NotificationStoreUtils.getMapper( );
-            Demand demand = notification.getDemand( );
-
             if ( notification.getSmsNotification( ) != null )
             {
                 listNotificationContent.add(
-                        initNotificationContent( notification, EnumNotificationType.SMS, mapperr.writeValueAsString( notification.getSmsNotification( ) ) ) );
+                        initNotificationContent( notification, EnumNotificationType.SMS, notification.getSmsNotification( ) ) );
             }
 
             if ( notification.getBackofficeNotification( ) != null )
             {
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.BACKOFFICE,
-                        mapperr.writeValueAsString( notification.getBackofficeNotification( ) ) ) );
+                listNotificationContent
+                        .add( initNotificationContent( notification, EnumNotificationType.BACKOFFICE, notification.getBackofficeNotification( ) ) );
             }
 
             if ( CollectionUtils.isNotEmpty( notification.getBroadcastEmail( ) ) )
             {
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.BROADCAST_EMAIL,
-                        mapperr.writeValueAsString( notification.getBroadcastEmail( ) ) ) );
+                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.BROADCAST_EMAIL, notification.getBroadcastEmail( ) ) );
             }
 
             if ( notification.getMyDashboardNotification( ) != null )
             {
-                NotificationContent notificationContent = initNotificationContent( notification, EnumNotificationType.MYDASHBOARD,
-                        mapperr.writeValueAsString( notification.getMyDashboardNotification( ) ) );
-                listNotificationContent.add( notificationContent );
-                // Update demand status only for mydashboard notification
-                demand.setStatusId( notificationContent.getStatusId( ) );
+                listNotificationContent.add(
+                        initNotificationContent( notification, EnumNotificationType.MYDASHBOARD, notification.getMyDashboardNotification( ) ) );
             }
 
             if ( notification.getEmailNotification( ) != null )
             {
-                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.CUSTOMER_EMAIL,
-                        mapperr.writeValueAsString( notification.getEmailNotification( ) ) ) );
+                listNotificationContent.add( initNotificationContent( notification, EnumNotificationType.CUSTOMER_EMAIL, notification.getEmailNotification( ) ) );
             }
-            // Update modify date of demand
-            demand.setModifyDate( new Date( ).getTime( ) );
-            DemandHome.update( demand );
-
         }
-        catch( JsonProcessingException e )
+        catch( IOException | FileServiceException e )
         {
-            AppLogService.error( "Error while writing JSON of notification", e );
-        }
-        catch( IOException e )
-        {
-            AppLogService.error( "Error while compressing or writing JSON of notification", e );
+            // no notification without its contents : the files already stored are released, and the storage of the notification fails
+            ContentBlobService.getInstance( ).release( listNotificationContent );
+            throw new AppException( "Unable to store the contents of the notification, demand_id " + notification.getDemand( ).getId( ), e );
         }
 
         return listNotificationContent;
@@ -288,17 +522,20 @@ public final class NotificationContentHome
      * 
      * @param nNotificationId
      * @param notificationType
-     * @param strNotificationContent
+     * @param content
+     *            the channel content to serialize
      * @throws IOException
+     * @throws FileServiceException
+     *             if the file can not be stored
      */
-    private static NotificationContent initNotificationContent( Notification notification, EnumNotificationType notificationType,
-            String strNotificationContent ) throws IOException
+    private static NotificationContent initNotificationContent( Notification notification, EnumNotificationType notificationType, Object content )
+            throws IOException, FileServiceException
     {
         NotificationContent notificationContent = new NotificationContent( );
         notificationContent.setIdNotification( notification.getId( ) );
         notificationContent.setNotificationType( notificationType.name( ) );
-        notificationContent.setFileKey( saveContentInFileStore( notification, notificationType, strNotificationContent ) );
         notificationContent.setFileStore( NotificationStoreConstants.FILE_STORE_PROVIDER );
+        saveContentInFileStore( notificationContent, notification, notificationType, content );
 
         // Calculate status
         Integer nStatusId = getStatusGenericId( notification, EnumNotificationType.MYDASHBOARD );
@@ -315,54 +552,57 @@ public final class NotificationContentHome
     }
 
     /**
-     * Save notification content in file store
+     * Save notification content in file store. The content is streamed to JSON (or Smile, according to the format property), filtered and optionally
+     * compressed without intermediate copies. With the deduplication, the file is shared by the notification contents having the same payload.
      * 
+     * @param notificationContent
+     *            the notification content, whose file key (and content hash) are set
      * @param notification
      * @param notificationType
-     * @param strNotificationContent
-     * @return file id
+     * @param content
+     *            the channel content to serialize
      * @throws IOException
+     * @throws FileServiceException
+     *             if the file can not be stored
      */
-    private static String saveContentInFileStore( Notification notification, EnumNotificationType notificationType, String strNotificationContent )
-            throws IOException
+    private static void saveContentInFileStore( NotificationContent notificationContent, Notification notification, EnumNotificationType notificationType,
+            Object content ) throws IOException, FileServiceException
     {
-        strNotificationContent = strNotificationContent.replaceAll( NotificationStoreConstants.CHARECTER_REGEXP_FILTER, "" );
+        boolean bSmile = NotificationStoreConstants.FORMAT_SMILE
+                .equals( AppPropertiesService.getProperty( NotificationStoreConstants.PROPERTY_NOTIFICATION_FORMAT ) );
 
         // Convert notification content to bytes
-        byte [ ] bytes;
-
-        if ( AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_COMPRESS_NOTIFICATION, false ) )
-        {
-            bytes = StringUtil.compress( strNotificationContent );
-        }
-        else
-        {
-            bytes = strNotificationContent.getBytes( StandardCharsets.UTF_8 );
-        }
+        byte [ ] bytes = NotificationContentWriter.write( bSmile ? NotificationStoreUtils.getSmileMapper( ) : NotificationStoreUtils.getMapper( ), content,
+                AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_COMPRESS_NOTIFICATION, false ) );
 
         // Create file
         File file = new File( );
         file.setTitle(
                 notification.getDemand( ).getId( ) + "_" + notificationType.name( ) + "_" + notification.getDemand( ).getCustomer( ).getConnectionId( ) );
         file.setSize( bytes.length );
-        file.setMimeType( MediaType.APPLICATION_JSON );
+        file.setMimeType( bSmile ? NotificationStoreConstants.MEDIA_TYPE_SMILE : MediaType.APPLICATION_JSON );
 
         PhysicalFile physiqueFile = new PhysicalFile( );
         physiqueFile.setValue( bytes );
 
         file.setPhysicalFile( physiqueFile );
 
-        try
+        // Save file
+        if ( ContentBlobService.getInstance( ).isEnabled( ) )
         {
-            // Save file
-            return FileService.getInstance( ).getFileStoreServiceProvider( NotificationStoreConstants.FILE_STORE_PROVIDER ).storeFile( file );
-
+            ContentBlob contentBlob = ContentBlobService.getInstance( ).store( file );
+            notificationContent.setFileKey( contentBlob.getFileKey( ) );
+            notificationContent.setContentHash( contentBlob.getContentHash( ) );
         }
-        catch( FileServiceException e )
+        else
         {
-            AppLogService.error( "An error occurred while saving the notification content, demand_id {}", notification.getDemand( ).getId( ), e.getMessage( ) );
+            String strFileKey = FileService.getInstance( ).getFileStoreServiceProvider( NotificationStoreConstants.FILE_STORE_PROVIDER ).storeFile( file );
+            if ( StringUtils.isEmpty( strFileKey ) )
+            {
+                throw new IOException( "No file key returned by the file store for the notification content" );
+            }
+            notificationContent.setFileKey( strFileKey );
         }
-        return StringUtils.EMPTY;
     }
 
     /**
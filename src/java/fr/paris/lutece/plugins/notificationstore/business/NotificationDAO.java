@@ -34,16 +34,20 @@
 package fr.paris.lutece.plugins.notificationstore.business;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeSet;
 
-import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import com.fasterxml.jackson.core.JsonParser.Feature;
@@ -64,13 +68,15 @@ import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.plugins.grubusiness.business.notification.SMSNotification;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.plugins.notificationstore.service.ReadReplicaService;
+import fr.paris.lutece.plugins.notificationstore.service.ShardRouter;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationContentReader;
 import fr.paris.lutece.portal.business.file.File;
 import fr.paris.lutece.portal.service.file.FileService;
 import fr.paris.lutece.portal.service.file.FileServiceException;
+import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.sql.DAOUtil;
-import fr.paris.lutece.util.string.StringUtil;
 
 /**
  * This class provides Data Access methods for Notification objects stored in SQL database
@@ -87,22 +93,26 @@ public final class NotificationDAO implements INotificationDAO
 
     private static final String SQL_QUERY_FILTER_SELECT_BASE = "SELECT id, demand_id, demand_type_id, customer_id, date FROM notificationstore_notification ";
     private static final String SQL_QUERY_FILTER_SELECT_ID_BASE = "SELECT distinct id FROM notificationstore_notification ";
+    private static final String SQL_QUERY_FILTER_COUNT_BASE = "SELECT COUNT(*) FROM notificationstore_notification ";
     private static final String SQL_QUERY_FILTER_WHERE_BASE = " WHERE ";
     private static final String SQL_QUERY_FILTER_WHERE_DEMANDID = " demand_id = ? ";
-    private static final String SQL_QUERY_FILTER_WHERE_ID_IN = " id in ( %s )";
+    private static final String SQL_QUERY_FILTER_WHERE_ID_IN = " id in ( %s ) ";
     private static final String SQL_QUERY_FILTER_WHERE_DEMANDTYPEID = " demand_type_id = ? ";
     private static final String SQL_QUERY_FILTER_WHERE_CUSTOMERID = " customer_id = ? ";
     private static final String SQL_QUERY_FILTER_ORDER = " ORDER BY id ASC";
+    private static final String SQL_QUERY_FILTER_LIMIT = " LIMIT ? OFFSET ? ";
     private static final String SQL_QUERY_FILTER_WHERE_START_DATE = " date >= ? ";
     private static final String SQL_QUERY_FILTER_WHERE_END_DATE = " date <= ? ";
     private static final String SQL_QUERY_AND = " AND ";
     private static final String SQL_QUERY_NOTIFICATION_TYPE = " AND nnc.notification_type in  (%s) ";
-    private static final String SQL_QUERY_FILTER_NOTIFICATION_TYPE = " id IN (SELECT notification_id FROM notificationstore_notification_content WHERE notification_type in (  ";
+    private static final String SQL_QUERY_FILTER_CHANNEL_MASK = " ( channel_mask & ? ) <> 0 ";
     private static final String SQL_QUERY_EXISTS_DEMAND_TYPE_ID = "SELECT 1 WHERE exists (SELECT * FROM notificationstore_notification WHERE demand_type_id = ? )";
 
-    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification ( demand_id, demand_type_id, customer_id, date ) VALUES (  ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification ( demand_id, demand_type_id, customer_id, date, channel_mask ) VALUES (  ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_REMOVE_CHANNEL = "UPDATE notificationstore_notification SET channel_mask = channel_mask & ~? WHERE id IN ( %s ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_notification WHERE id = ?";
-    private static final String SQL_QUERY_DELETE_BY_DEMAND = "DELETE FROM notificationstore_notification WHERE demand_id = ? AND demand_type_id = ? AND customer_id = ? ";
+    private static final String SQL_QUERY_DELETE_WITHOUT_CONTENT = "DELETE FROM notificationstore_notification WHERE id IN ( %s ) AND NOT EXISTS ( SELECT 1 FROM notificationstore_notification_content c WHERE c.notification_id = notificationstore_notification.id )";
+    static final String SQL_QUERY_DELETE_BY_DEMAND = "DELETE FROM notificationstore_notification WHERE demand_id = ? AND demand_type_id = ? AND customer_id = ? ";
     private static final String SQL_QUERY_DISTINCT_DEMAND_TYPE_ID = " SELECT DISTINCT demand_type_id FROM notificationstore_notification ORDER BY demand_type_id ";
     private static final String SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER_TYPE = " SELECT * FROM notificationstore_notification nn"
             + " INNER JOIN  notificationstore_notification_content nnc ON nn.id = nnc.notification_id "
@@ -110,13 +120,42 @@ public final class NotificationDAO implements INotificationDAO
 
     private static final String SQL_QUERY_SELECT_BY_DEMAND_LIST_CUSTOMER = " SELECT * FROM notificationstore_notification nn"
             + " INNER JOIN notificationstore_notification_content nnc ON nn.id = nnc.notification_id "
-            + " WHERE nn.customer_id = ? AND ( %s ) ";
+            + " WHERE nn.customer_id = ? AND ( nn.demand_id, nn.demand_type_id ) IN ( %s ) ";
+    private static final String SQL_QUERY_DEMAND_PAIR = "( ?, ? )";
+    static final String SQL_QUERY_SELECT_EXPORT = "SELECT id, demand_id, demand_type_id, customer_id, date FROM notificationstore_notification WHERE demand_type_id = ? AND id > ? AND date >= ? AND date <= ? ORDER BY id LIMIT ?";
 
-    private static final String SQL_QUERY_SELECT_LAST_NOTIFICATION = "SELECT * FROM notificationstore_notification " + " WHERE demand_id = ?"
+    static final String SQL_QUERY_SELECT_LAST_NOTIFICATION = "SELECT * FROM notificationstore_notification " + " WHERE demand_id = ?"
             + " AND demand_type_id = ?" + " ORDER BY date desc, id desc " + " LIMIT 1";
-    private static final String SQL_QUERY_UPDATE_NOTIFICATIONS_TO_LINK = "UPDATE notificationstore_notification SET customer_id = ? WHERE customer_id = ?";
-
-    private static final String PROPERTY_DECOMPRESS_NOTIFICATION = "grustoragedb.notification.decompress";
+    static final String SQL_QUERY_UPDATE_NOTIFICATIONS_TO_LINK = "UPDATE notificationstore_notification SET customer_id = ? WHERE customer_id = ?";
+
+    // Kinds of filter queries
+    static final int QUERY_SELECT = 0;
+    static final int QUERY_SELECT_PAGE = 1;
+    static final int QUERY_COUNT = 2;
+    static final int QUERY_SELECT_IDS = 3;
+    private static final int QUERY_SELECT_BY_DEMAND = 4;
+    private static final int QUERY_SELECT_BY_DEMAND_LIST = 5;
+
+    // Filter criteria bitmask
+    private static final long CRITERIA_ID = 1L;
+    private static final long CRITERIA_DEMAND_ID = 1L << 1;
+    private static final long CRITERIA_DEMAND_TYPE_ID = 1L << 2;
+    private static final long CRITERIA_CUSTOMER_ID = 1L << 3;
+    private static final long CRITERIA_START_DATE = 1L << 4;
+    private static final long CRITERIA_END_DATE = 1L << 5;
+    private static final int CRITERIA_NOTIFICATION_TYPE_SHIFT = 8;
+    private static final int CRITERIA_ID_ARITY_SHIFT = 24;
+    private static final int CRITERIA_NOTIFICATION_TYPE_ARITY_SHIFT = 32;
+    private static final int CRITERIA_DEMAND_PAIR_ARITY_SHIFT = 40;
+    private static final String KEY_DEMAND_ID = "demandId";
+    private static final String KEY_DEMAND_TYPE_ID = "demandTypeId";
+
+    private static final EnumNotificationType [ ] FILTER_NOTIFICATION_TYPES = {
+            EnumNotificationType.BACKOFFICE, EnumNotificationType.SMS, EnumNotificationType.CUSTOMER_EMAIL, EnumNotificationType.MYDASHBOARD,
+            EnumNotificationType.BROADCAST_EMAIL
+    };
+
+    private static final QueryShapeCache<Long> _queryCache = new QueryShapeCache<>( );
 
     ObjectMapper _mapper;
 
@@ -154,178 +193,405 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public List<Notification> loadByFilter( NotificationFilter notificationFilter )
     {
-        String strSQL = getFilterCriteriaClauses( SQL_QUERY_FILTER_SELECT_BASE, notificationFilter );
+        long lCriteria = getFilterCriteria( notificationFilter );
+
+        List<Notification> listNotifications = ShardRouter.getInstance( ).gather( notificationFilter.getCustomerId( ), plugin -> {
+            try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT, lCriteria ), plugin ) )
+            {
+                addFilterCriteriaValues( daoUtil, notificationFilter, lCriteria );
+
+                daoUtil.executeQuery( );
+
+                return getNotificationsFromDao( daoUtil, notificationFilter, plugin );
+            }
+        } );
+
+        // the results of the shards are merged by id, as each shard orders them
+        listNotifications.sort( Comparator.comparingInt( Notification::getId ) );
+
+        return listNotifications;
+    }
+
+    /**
+     * Load one page of the notifications matching the filter
+     * 
+     * @param notificationFilter
+     *            the filter
+     * @param nOffset
+     *            the index of the first notification of the page
+     * @param nLimit
+     *            the max number of notifications of the page
+     * @return the notification list
+     */
+    public List<Notification> loadByFilter( NotificationFilter notificationFilter, int nOffset, int nLimit )
+    {
+        List<Plugin> listPlugins = ShardRouter.getInstance( ).getPlugins( notificationFilter.getCustomerId( ) );
+
+        if ( listPlugins.size( ) == 1 )
+        {
+            return loadByFilter( notificationFilter, nOffset, nLimit, NotificationStorePlugin.getReadPlugin( notificationFilter.getCustomerId( ) ) );
+        }
+
+        // scatter-gather : the first nOffset + nLimit notifications of each shard, merged by id
+        List<Notification> listNotifications = new ArrayList<>( );
+        for ( Plugin plugin : listPlugins )
+        {
+            listNotifications.addAll( loadByFilter( notificationFilter, 0, nOffset + nLimit, plugin ) );
+        }
+        listNotifications.sort( Comparator.comparingInt( Notification::getId ) );
+
+        return new ArrayList<>( listNotifications.subList( Math.min( nOffset, listNotifications.size( ) ),
+                Math.min( nOffset + nLimit, listNotifications.size( ) ) ) );
+    }
+
+    /**
+     * Load one page of the notifications matching the filter from the database of a plugin
+     * 
+     * @param notificationFilter
+     *            the filter
+     * @param nOffset
+     *            the index of the first notification of the page
+     * @param nLimit
+     *            the max number of notifications of the page
+     * @param plugin
+     *            the plugin
+     * @return the notification list
+     */
+    private List<Notification> loadByFilter( NotificationFilter notificationFilter, int nOffset, int nLimit, Plugin plugin )
+    {
+        long lCriteria = getFilterCriteria( notificationFilter );
 
-        try ( DAOUtil daoUtil = new DAOUtil( strSQL, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT_PAGE, lCriteria ), plugin ) )
         {
-            addFilterCriteriaValues( daoUtil, notificationFilter );
+            int nIndex = addFilterCriteriaValues( daoUtil, notificationFilter, lCriteria );
+            daoUtil.setInt( nIndex++, nLimit );
+            daoUtil.setInt( nIndex, nOffset );
 
             daoUtil.executeQuery( );
 
-            return getNotificationsFromDao( daoUtil, notificationFilter );
+            return getNotificationsFromDao( daoUtil, notificationFilter, plugin );
         }
     }
 
+    /**
+     * Count the notifications matching the filter
+     * 
+     * @param notificationFilter
+     *            the filter
+     * @return the number of notifications
+     */
+    public int countByFilter( NotificationFilter notificationFilter )
+    {
+        long lCriteria = getFilterCriteria( notificationFilter );
+        List<Plugin> listPlugins = ShardRouter.getInstance( ).getPlugins( notificationFilter.getCustomerId( ) );
+        int nCount = 0;
+
+        for ( Plugin plugin : listPlugins )
+        {
+            Plugin readPlugin = ( listPlugins.size( ) == 1 ) ? NotificationStorePlugin.getReadPlugin( notificationFilter.getCustomerId( ) ) : plugin;
+
+            try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_COUNT, lCriteria ), readPlugin ) )
+            {
+                addFilterCriteriaValues( daoUtil, notificationFilter, lCriteria );
+
+                daoUtil.executeQuery( );
+
+                nCount += daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+            }
+        }
+
+        return nCount;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public List<Integer> loadIdsByFilter( NotificationFilter notificationFilter )
     {
-        String strSQL = getFilterCriteriaClauses( SQL_QUERY_FILTER_SELECT_ID_BASE, notificationFilter );
-        List<Integer> listIds = new ArrayList<>( );
+        long lCriteria = getFilterCriteria( notificationFilter );
 
-        try ( DAOUtil daoUtil = new DAOUtil( strSQL, NotificationStorePlugin.getPlugin( ) ) )
-        {
+        return ShardRouter.getInstance( ).gather( notificationFilter.getCustomerId( ), plugin -> {
+            List<Integer> listIds = new ArrayList<>( );
 
-            addFilterCriteriaValues( daoUtil, notificationFilter );
+            try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT_IDS, lCriteria ), plugin ) )
+            {
+                addFilterCriteriaValues( daoUtil, notificationFilter, lCriteria );
 
-            daoUtil.executeQuery( );
+                daoUtil.executeQuery( );
 
-            while ( daoUtil.next( ) )
-            {
-                int nNotificationId = daoUtil.getInt( COLUMN_NOTIFICATION_ID );
-                listIds.add( nNotificationId );
+                while ( daoUtil.next( ) )
+                {
+                    listIds.add( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
+                }
             }
 
             return listIds;
-        }
+        } );
     }
 
     /**
+     * Get the criteria bitmask of a filter : the criteria present in the filter and the arity bucket of its lists
+     * 
      * @param notificationFilter
-     * @return the query string
+     *            the filter
+     * @return the criteria bitmask
      */
-    private String getFilterCriteriaClauses( String strBaseQuery, NotificationFilter notificationFilter )
+    static long getFilterCriteria( NotificationFilter notificationFilter )
     {
-        StringBuilder sbQuery = new StringBuilder( strBaseQuery );
-        boolean hasOneWhere = false;
-
-        // WHERE
+        long lCriteria = 0;
 
         if ( notificationFilter.containsId( ) )
         {
-            sbQuery.append( BooleanUtils.toString( hasOneWhere, SQL_QUERY_AND, SQL_QUERY_FILTER_WHERE_BASE ) );
-
-            String sql = String.format( SQL_QUERY_FILTER_WHERE_ID_IN,
-                    notificationFilter.getIds( ).stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
-
-            sbQuery.append( sql );
-            hasOneWhere = true;
+            lCriteria |= CRITERIA_ID | QueryShapeCache.arity( notificationFilter.getIds( ).size( ), CRITERIA_ID_ARITY_SHIFT );
         }
         if ( notificationFilter.containsDemandId( ) )
         {
-            sbQuery.append( SQL_QUERY_FILTER_WHERE_BASE );
-            sbQuery.append( SQL_QUERY_FILTER_WHERE_DEMANDID );
-            hasOneWhere = true;
+            lCriteria |= CRITERIA_DEMAND_ID;
         }
         if ( notificationFilter.containsDemandTypeId( ) )
         {
-            sbQuery.append( BooleanUtils.toString( hasOneWhere, SQL_QUERY_AND, SQL_QUERY_FILTER_WHERE_BASE ) );
-            sbQuery.append( SQL_QUERY_FILTER_WHERE_DEMANDTYPEID );
-            hasOneWhere = true;
+            lCriteria |= CRITERIA_DEMAND_TYPE_ID;
         }
         if ( notificationFilter.containsCustomerId( ) )
         {
-            sbQuery.append( BooleanUtils.toString( hasOneWhere, SQL_QUERY_AND, SQL_QUERY_FILTER_WHERE_BASE ) );
-            sbQuery.append( SQL_QUERY_FILTER_WHERE_CUSTOMERID );
-            hasOneWhere = true;
+            lCriteria |= CRITERIA_CUSTOMER_ID;
         }
         if ( notificationFilter.containsNotificationTypeFilter( ) )
         {
-            sbQuery.append( BooleanUtils.toString( hasOneWhere, SQL_QUERY_AND, SQL_QUERY_FILTER_WHERE_BASE ) );
-            sbQuery.append( SQL_QUERY_FILTER_NOTIFICATION_TYPE );
-            boolean hasOneNotiType = false;
-            if ( notificationFilter.containsBackofficeNotificationType( ) )
+            for ( int i = 0; i < FILTER_NOTIFICATION_TYPES.length; i++ )
             {
-                sbQuery.append( BooleanUtils.toString( hasOneNotiType, ", ", StringUtils.EMPTY ) );
-                sbQuery.append( "'" + EnumNotificationType.BACKOFFICE.name( ) + "'" );
-                hasOneNotiType = true;
-            }
-            if ( notificationFilter.containsSmsNotificationType( ) )
-            {
-                sbQuery.append( BooleanUtils.toString( hasOneNotiType, ", ", StringUtils.EMPTY ) );
-                sbQuery.append( "'" + EnumNotificationType.SMS.name( ) + "'" );
-                hasOneNotiType = true;
-            }
-            if ( notificationFilter.containsCustomerEmailNotificationType( ) )
-            {
-                sbQuery.append( BooleanUtils.toString( hasOneNotiType, ", ", StringUtils.EMPTY ) );
-                sbQuery.append( "'" + EnumNotificationType.CUSTOMER_EMAIL.name( ) + "'" );
-                hasOneNotiType = true;
-            }
-            if ( notificationFilter.containsMyDashboardNotificationType( ) )
-            {
-                sbQuery.append( BooleanUtils.toString( hasOneNotiType, ", ", StringUtils.EMPTY ) );
-                sbQuery.append( "'" + EnumNotificationType.MYDASHBOARD.name( ) + "'" );
-                hasOneNotiType = true;
+                if ( containsNotificationType( notificationFilter, FILTER_NOTIFICATION_TYPES [i] ) )
+                {
+                    lCriteria |= 1L << ( CRITERIA_NOTIFICATION_TYPE_SHIFT + i );
+                }
             }
-            if ( notificationFilter.containsBroadcastEmailNotificationType( ) )
+        }
+        if ( notificationFilter.containsStartDate( ) )
+        {
+            lCriteria |= CRITERIA_START_DATE;
+        }
+        if ( notificationFilter.containsEndDate( ) )
+        {
+            lCriteria |= CRITERIA_END_DATE;
+        }
+
+        return lCriteria;
+    }
+
+    /**
+     * Check if the filter contains a notification type
+     * 
+     * @param notificationFilter
+     *            the filter
+     * @param notificationType
+     *            the notification type
+     * @return true if the filter contains the notification type
+     */
+    private static boolean containsNotificationType( NotificationFilter notificationFilter, EnumNotificationType notificationType )
+    {
+        switch( notificationType )
+        {
+            case BACKOFFICE:
+                return notificationFilter.containsBackofficeNotificationType( );
+            case SMS:
+                return notificationFilter.containsSmsNotificationType( );
+            case CUSTOMER_EMAIL:
+                return notificationFilter.containsCustomerEmailNotificationType( );
+            case MYDASHBOARD:
+                return notificationFilter.containsMyDashboardNotificationType( );
+            case BROADCAST_EMAIL:
+                return notificationFilter.containsBroadcastEmailNotificationType( );
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Get the notification types of the criteria bitmask
+     * 
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the notification types
+     */
+    private static List<String> getNotificationTypes( long lCriteria )
+    {
+        List<String> listNotificationTypes = new ArrayList<>( FILTER_NOTIFICATION_TYPES.length );
+
+        for ( int i = 0; i < FILTER_NOTIFICATION_TYPES.length; i++ )
+        {
+            if ( ( lCriteria & ( 1L << ( CRITERIA_NOTIFICATION_TYPE_SHIFT + i ) ) ) != 0 )
             {
-                sbQuery.append( BooleanUtils.toString( hasOneNotiType, ", ", StringUtils.EMPTY ) );
-                sbQuery.append( "'" + EnumNotificationType.BROADCAST_EMAIL.name( ) + "'" );
-                hasOneNotiType = true;
+                listNotificationTypes.add( FILTER_NOTIFICATION_TYPES [i].name( ) );
             }
-            if ( hasOneNotiType )
+        }
+
+        return listNotificationTypes;
+    }
+
+    /**
+     * Build the query of the notifications of a demand and a customer, with their contents
+     * 
+     * @param nTypeArity
+     *            the number of placeholders of the notification type filter, 0 for all the notification types
+     * @return the query string
+     */
+    static String buildSelectByDemandQuery( int nTypeArity )
+    {
+        if ( nTypeArity == 0 )
+        {
+            return SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER_TYPE;
+        }
+
+        return SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER_TYPE + String.format( SQL_QUERY_NOTIFICATION_TYPE, QueryShapeCache.getPlaceholders( nTypeArity ) );
+    }
+
+    /**
+     * Build the query of the notifications of a list of demands and a customer, with their contents
+     * 
+     * @param nPairArity
+     *            the number of (demand id, demand type id) pairs
+     * @param nTypeArity
+     *            the number of placeholders of the notification type filter, 0 for all the notification types
+     * @return the query string
+     */
+    static String buildSelectByDemandListQuery( int nPairArity, int nTypeArity )
+    {
+        String strPairs = String.join( ", ", Collections.nCopies( nPairArity, SQL_QUERY_DEMAND_PAIR ) );
+        String strQuery = String.format( SQL_QUERY_SELECT_BY_DEMAND_LIST_CUSTOMER, strPairs );
+
+        if ( nTypeArity == 0 )
+        {
+            return strQuery;
+        }
+
+        return strQuery + String.format( SQL_QUERY_NOTIFICATION_TYPE, QueryShapeCache.getPlaceholders( nTypeArity ) );
+    }
+
+    /**
+     * Get the filter query of a criteria bitmask (built once per shape)
+     * 
+     * @param nKind
+     *            the kind of query
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the query string
+     */
+    static String getFilterQuery( int nKind, long lCriteria )
+    {
+        return _queryCache.getQuery( QueryShapeCache.shape( nKind, lCriteria ), ( ) -> {
+            switch( nKind )
             {
-                sbQuery.append( "))" );
+                case QUERY_SELECT_PAGE:
+                    return getFilterCriteriaClauses( SQL_QUERY_FILTER_SELECT_BASE, lCriteria ) + SQL_QUERY_FILTER_ORDER + SQL_QUERY_FILTER_LIMIT;
+                case QUERY_COUNT:
+                    return getFilterCriteriaClauses( SQL_QUERY_FILTER_COUNT_BASE, lCriteria );
+                case QUERY_SELECT_IDS:
+                    return getFilterCriteriaClauses( SQL_QUERY_FILTER_SELECT_ID_BASE, lCriteria ) + SQL_QUERY_FILTER_ORDER;
+                default:
+                    return getFilterCriteriaClauses( SQL_QUERY_FILTER_SELECT_BASE, lCriteria ) + SQL_QUERY_FILTER_ORDER;
             }
+        } );
+    }
+
+    /**
+     * Build the WHERE clause of a criteria bitmask
+     * 
+     * @param strBaseQuery
+     *            the base query
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the query string
+     */
+    private static String getFilterCriteriaClauses( String strBaseQuery, long lCriteria )
+    {
+        List<String> listClauses = new ArrayList<>( );
+
+        if ( ( lCriteria & CRITERIA_ID ) != 0 )
+        {
+            int nArity = QueryShapeCache.getArity( lCriteria, CRITERIA_ID_ARITY_SHIFT );
+            listClauses.add( String.format( SQL_QUERY_FILTER_WHERE_ID_IN, QueryShapeCache.getPlaceholders( nArity ) ) );
+        }
+        if ( ( lCriteria & CRITERIA_DEMAND_ID ) != 0 )
+        {
+            listClauses.add( SQL_QUERY_FILTER_WHERE_DEMANDID );
+        }
+        if ( ( lCriteria & CRITERIA_DEMAND_TYPE_ID ) != 0 )
+        {
+            listClauses.add( SQL_QUERY_FILTER_WHERE_DEMANDTYPEID );
+        }
+        if ( ( lCriteria & CRITERIA_CUSTOMER_ID ) != 0 )
+        {
+            listClauses.add( SQL_QUERY_FILTER_WHERE_CUSTOMERID );
         }
 
-        if ( notificationFilter.containsStartDate( ) )
+        // the channels of a notification are read from its mask, not from its contents
+        if ( !getNotificationTypes( lCriteria ).isEmpty( ) )
         {
-            sbQuery.append( BooleanUtils.toString( hasOneWhere, SQL_QUERY_AND, SQL_QUERY_FILTER_WHERE_BASE ) );
-            sbQuery.append( SQL_QUERY_FILTER_WHERE_START_DATE );
-            hasOneWhere = true;
+            listClauses.add( SQL_QUERY_FILTER_CHANNEL_MASK );
         }
-        if ( notificationFilter.containsEndDate( ) )
+
+        if ( ( lCriteria & CRITERIA_START_DATE ) != 0 )
         {
-            sbQuery.append( BooleanUtils.toString( hasOneWhere, SQL_QUERY_AND, SQL_QUERY_FILTER_WHERE_BASE ) );
-            sbQuery.append( SQL_QUERY_FILTER_WHERE_END_DATE );
-            hasOneWhere = true;
+            listClauses.add( SQL_QUERY_FILTER_WHERE_START_DATE );
+        }
+        if ( ( lCriteria & CRITERIA_END_DATE ) != 0 )
+        {
+            listClauses.add( SQL_QUERY_FILTER_WHERE_END_DATE );
         }
 
-        // ORDER
-        sbQuery.append( SQL_QUERY_FILTER_ORDER );
+        if ( listClauses.isEmpty( ) )
+        {
+            return strBaseQuery;
+        }
 
-        return sbQuery.toString( );
+        return strBaseQuery + SQL_QUERY_FILTER_WHERE_BASE + String.join( SQL_QUERY_AND, listClauses );
     }
 
     /**
+     * Bind the values of the filter, in the order of the clauses of the criteria bitmask
+     * 
      * @param daoUtil
      * @param notificationFilter
+     * @param lCriteria
+     *            the criteria bitmask of the filter
+     * @return the index of the next parameter
      */
-    private void addFilterCriteriaValues( DAOUtil daoUtil, NotificationFilter notificationFilter )
+    private static int addFilterCriteriaValues( DAOUtil daoUtil, NotificationFilter notificationFilter, long lCriteria )
     {
         int nIndex = 1;
 
-        if ( notificationFilter.containsId( ) )
+        if ( ( lCriteria & CRITERIA_ID ) != 0 )
         {
-            for ( Integer id : notificationFilter.getIds( ) )
-            {
-                daoUtil.setInt( nIndex++, id );
-            }
+            nIndex = QueryShapeCache.setInts( daoUtil, nIndex, notificationFilter.getIds( ), QueryShapeCache.getArity( lCriteria, CRITERIA_ID_ARITY_SHIFT ) );
         }
-        if ( notificationFilter.containsDemandId( ) )
+        if ( ( lCriteria & CRITERIA_DEMAND_ID ) != 0 )
         {
             daoUtil.setString( nIndex++, notificationFilter.getDemandId( ) );
         }
-        if ( notificationFilter.containsDemandTypeId( ) )
+        if ( ( lCriteria & CRITERIA_DEMAND_TYPE_ID ) != 0 )
         {
             daoUtil.setString( nIndex++, notificationFilter.getDemandTypeId( ) );
         }
-        if ( notificationFilter.containsCustomerId( ) )
+        if ( ( lCriteria & CRITERIA_CUSTOMER_ID ) != 0 )
         {
             daoUtil.setString( nIndex++, notificationFilter.getCustomerId( ) );
         }
-        if ( notificationFilter.containsStartDate( ) )
+        List<String> listNotificationTypes = getNotificationTypes( lCriteria );
+        if ( !listNotificationTypes.isEmpty( ) )
+        {
+            daoUtil.setInt( nIndex++, ChannelMask.getMask( listNotificationTypes ) );
+        }
+        if ( ( lCriteria & CRITERIA_START_DATE ) != 0 )
         {
             daoUtil.setTimestamp( nIndex++, new Timestamp( notificationFilter.getStartDate( ) ) );
         }
-        if ( notificationFilter.containsEndDate( ) )
+        if ( ( lCriteria & CRITERIA_END_DATE ) != 0 )
         {
             daoUtil.setTimestamp( nIndex++, new Timestamp( notificationFilter.getEndDate( ) ) );
         }
+
+        return nIndex;
     }
 
     /**
@@ -334,23 +600,23 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public synchronized Notification insert( Notification notification )
     {
+        String strCustomerId = StringUtils.EMPTY;
+        if ( notification.getDemand( ).getCustomer( ) != null && StringUtils.isNotEmpty( notification.getDemand( ).getCustomer( ).getCustomerId( ) ) )
+        {
+            strCustomerId = notification.getDemand( ).getCustomer( ).getCustomerId( );
+        }
 
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( strCustomerId ) ) )
         {
 
             int nIndex = 1;
 
             daoUtil.setString( nIndex++, notification.getDemand( ).getId( ) );
             daoUtil.setString( nIndex++, notification.getDemand( ).getTypeId( ) );
-
-            String strCustomerId = StringUtils.EMPTY;
-            if ( notification.getDemand( ).getCustomer( ) != null && StringUtils.isNotEmpty( notification.getDemand( ).getCustomer( ).getCustomerId( ) ) )
-            {
-                strCustomerId = notification.getDemand( ).getCustomer( ).getCustomerId( );
-            }
             daoUtil.setString( nIndex++, strCustomerId );
 
             daoUtil.setTimestamp( nIndex++, notification.getDate( ) > 0 ? new Timestamp( notification.getDate( ) ) : null );
+            daoUtil.setInt( nIndex, ChannelMask.getMask( notification ) );
 
             daoUtil.executeUpdate( );
 
@@ -358,6 +624,9 @@ public final class NotificationDAO implements INotificationDAO
             {
                 notification.setId( daoUtil.getGeneratedKeyInt( 1 ) );
             }
+
+            ReadReplicaService.getInstance( ).markWrite( strCustomerId );
+            CustomerVersionHome.increment( strCustomerId );
         }
 
         return notification;
@@ -369,7 +638,7 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public void reassignNotifications( String strOldCustomerId, String strNewCustomerId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_NOTIFICATIONS_TO_LINK, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_NOTIFICATIONS_TO_LINK, NotificationStorePlugin.getPlugin( strOldCustomerId ) ) )
         {
 
             int nIndex = 1;
@@ -379,6 +648,11 @@ public final class NotificationDAO implements INotificationDAO
 
             daoUtil.executeUpdate( );
         }
+
+        ReadReplicaService.getInstance( ).markWrite( strOldCustomerId );
+        CustomerVersionHome.increment( strOldCustomerId );
+        ReadReplicaService.getInstance( ).markWrite( strNewCustomerId );
+        CustomerVersionHome.increment( strNewCustomerId );
     }
 
     /**
@@ -387,20 +661,109 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public void delete( int id )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, NotificationStorePlugin.getPlugin( ) ) )
+        // the ids are unique across the shards
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            delete( id, plugin );
+        }
+    }
+
+    /**
+     * Delete a notification of a customer
+     * 
+     * @param id
+     *            the notification id
+     * @param strCustomerId
+     *            the customer id
+     */
+    public void delete( int id, String strCustomerId )
+    {
+        delete( id, NotificationStorePlugin.getPlugin( strCustomerId ) );
+    }
+
+    /**
+     * Delete a notification from the database of a plugin
+     * 
+     * @param id
+     *            the notification id
+     * @param plugin
+     *            the plugin
+     */
+    private void delete( int id, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
         {
             daoUtil.setInt( 1, id );
             daoUtil.executeUpdate( );
         }
     }
 
+    /**
+     * Remove a channel from the channel mask of notifications, after the removal of their contents of this channel
+     * 
+     * @param listIds
+     *            the ids of the notifications
+     * @param nChannelBit
+     *            the bit of the channel
+     * @param plugin
+     *            the plugin of the shard
+     */
+    public void removeChannel( Collection<Integer> listIds, int nChannelBit, Plugin plugin )
+    {
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIds ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_REMOVE_CHANNEL, QueryShapeCache.getPlaceholders( listChunk.size( ) ) ), plugin ) )
+            {
+                int nIndex = 1;
+                daoUtil.setInt( nIndex++, nChannelBit );
+                for ( Integer nId : listChunk )
+                {
+                    daoUtil.setInt( nIndex++, nId );
+                }
+
+                daoUtil.executeUpdate( );
+            }
+        }
+    }
+
+    /**
+     * Delete the notifications which have no content left
+     * 
+     * @param listIds
+     *            the ids of the notifications to check
+     * @param plugin
+     *            the plugin of the shard
+     * @return the number of deleted notifications
+     */
+    public int deleteWithoutContent( Collection<Integer> listIds, Plugin plugin )
+    {
+        int nDeleted = 0;
+
+        for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIds ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_DELETE_WITHOUT_CONTENT, QueryShapeCache.getPlaceholders( listChunk.size( ) ) ),
+                    plugin ) )
+            {
+                int nIndex = 1;
+                for ( Integer nId : listChunk )
+                {
+                    daoUtil.setInt( nIndex++, nId );
+                }
+
+                nDeleted += daoUtil.executeUpdate( );
+            }
+        }
+
+        return nDeleted;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void deleteByDemand( String strDemandId, String strDemandTypeId, String strCustomerId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_DEMAND, NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_DEMAND, NotificationStorePlugin.getPlugin( strCustomerId ) ) )
         {
 
             daoUtil.setString( 1, strDemandId );
@@ -409,6 +772,9 @@ public final class NotificationDAO implements INotificationDAO
 
             daoUtil.executeUpdate( );
         }
+
+        ReadReplicaService.getInstance( ).markWrite( strCustomerId );
+        CustomerVersionHome.increment( strCustomerId );
     }
 
     /**
@@ -443,12 +809,29 @@ public final class NotificationDAO implements INotificationDAO
             return new ArrayList<>( );
         }
         else
-        {
-            NotificationFilter filter = new NotificationFilter( );
-            filter.setIds( listIds );
+            if ( listIds != null && listIds.size( ) > QueryShapeCache.MAX_IN_LIST_SIZE )
+            {
+                // the chunks are sorted, so are the notifications (ORDER BY id)
+                List<Notification> listNotifications = new ArrayList<>( listIds.size( ) );
 
-            return loadByFilter( filter );
-        }
+                for ( List<Integer> listChunk : QueryShapeCache.getSortedChunks( listIds ) )
+                {
+                    listNotifications.addAll( loadByIds( listChunk ) );
+                }
+
+                return listNotifications;
+            }
+            else
+            {
+                NotificationFilter filter = new NotificationFilter( );
+                filter.setIds( listIds );
+
+                // the notifications of each shard are gathered, the ids are unique across the shards
+                List<Notification> listNotifications = loadByFilter( filter );
+                listNotifications.sort( Comparator.comparingInt( Notification::getId ) );
+
+                return listNotifications;
+            }
     }
 
     /**
@@ -472,30 +855,34 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public List<String> loadDistinctDemandTypeIds( )
     {
-        List<String> listIds = new ArrayList<>( );
+        Set<String> setIds = new TreeSet<>( );
 
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DISTINCT_DEMAND_TYPE_ID, NotificationStorePlugin.getPlugin( ) ) )
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
         {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DISTINCT_DEMAND_TYPE_ID, plugin ) )
+            {
 
-            daoUtil.executeQuery( );
+                daoUtil.executeQuery( );
 
-            while ( daoUtil.next( ) )
-            {
-                String strId = daoUtil.getString( 1 );
-                listIds.add( strId );
+                while ( daoUtil.next( ) )
+                {
+                    setIds.add( daoUtil.getString( 1 ) );
+                }
             }
-
-            return listIds;
         }
+
+        return new ArrayList<>( setIds );
     }
 
     /**
      * get notification list from dao
      * 
      * @param daoUtil
+     * @param plugin
+     *            the plugin of the notifications
      * @return the list
      */
-    private List<Notification> getNotificationsFromDao( DAOUtil daoUtil, NotificationFilter notificationFilter )
+    private List<Notification> getNotificationsFromDao( DAOUtil daoUtil, NotificationFilter notificationFilter, Plugin plugin )
     {
         List<Notification> listNotifications = new ArrayList<>( );
         while ( daoUtil.next( ) )
@@ -523,7 +910,7 @@ public final class NotificationDAO implements INotificationDAO
 
             notification.setDemand( demand );
 
-            setNotificationContent( notification, notificationFilter );
+            setNotificationContent( notification, notificationFilter, plugin );
 
             listNotifications.add( notification );
         }
@@ -535,44 +922,73 @@ public final class NotificationDAO implements INotificationDAO
      * Retrieval of notification content
      * 
      * @param notif
+     * @param plugin
+     *            the plugin of the notification
+     */
+    private void setNotificationContent( Notification notif, NotificationFilter notificationFilter, Plugin plugin )
+    {
+        setNotificationContent( notif, notificationFilter.getListNotificationType( ), plugin );
+    }
+
+    /**
+     * Retrieval of the notification contents of some channels only
+     * 
+     * @param notif
+     * @param listChannels
+     *            the notification types to read, or an empty list for all of them
+     * @param plugin
+     *            the plugin of the notification
      */
-    private void setNotificationContent( Notification notif, NotificationFilter notificationFilter )
+    private void setNotificationContent( Notification notif, List<EnumNotificationType> listChannels, Plugin plugin )
     {
         List<NotificationContent> listNotificiationContent = NotificationContentHome.getNotificationContentsByIdAndTypeNotification( notif.getId( ),
-                notificationFilter.getListNotificationType( ) );
+                listChannels, plugin );
 
         for ( NotificationContent notifContent : listNotificiationContent )
         {
-            if ( EnumNotificationType.BACKOFFICE.name( ).equals( notifContent.getNotificationType( ) ) )
+            setNotificationContent( notif, notifContent );
+        }
+    }
+
+    /**
+     * Set a notification content, decoded from the file store, in the channel of its type
+     * 
+     * @param notif
+     *            the notification
+     * @param notifContent
+     *            the notification content
+     */
+    private void setNotificationContent( Notification notif, NotificationContent notifContent )
+    {
+        if ( EnumNotificationType.BACKOFFICE.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setBackofficeNotification( convertToObject( notifContent, new TypeReference<BackofficeNotification>( )
             {
-                notif.setBackofficeNotification( convertToObject( notifContent, new TypeReference<BackofficeNotification>( )
-                {
-                } ) );
-            }
-            if ( EnumNotificationType.BROADCAST_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+            } ) );
+        }
+        if ( EnumNotificationType.BROADCAST_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setBroadcastEmail( convertToObject( notifContent, new TypeReference<List<BroadcastNotification>>( )
             {
-                notif.setBroadcastEmail( convertToObject( notifContent, new TypeReference<List<BroadcastNotification>>( )
-                {
-                } ) );
-            }
-            if ( EnumNotificationType.CUSTOMER_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+            } ) );
+        }
+        if ( EnumNotificationType.CUSTOMER_EMAIL.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setEmailNotification( convertToObject( notifContent, new TypeReference<EmailNotification>( )
             {
-                notif.setEmailNotification( convertToObject( notifContent, new TypeReference<EmailNotification>( )
-                {
-                } ) );
-            }
-            if ( EnumNotificationType.MYDASHBOARD.name( ).equals( notifContent.getNotificationType( ) ) )
+            } ) );
+        }
+        if ( EnumNotificationType.MYDASHBOARD.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setMyDashboardNotification( convertToObject( notifContent, new TypeReference<MyDashboardNotification>( )
             {
-                notif.setMyDashboardNotification( convertToObject( notifContent, new TypeReference<MyDashboardNotification>( )
-                {
-                } ) );
-            }
-            if ( EnumNotificationType.SMS.name( ).equals( notifContent.getNotificationType( ) ) )
+            } ) );
+        }
+        if ( EnumNotificationType.SMS.name( ).equals( notifContent.getNotificationType( ) ) )
+        {
+            notif.setSmsNotification( convertToObject( notifContent, new TypeReference<SMSNotification>( )
             {
-                notif.setSmsNotification( convertToObject( notifContent, new TypeReference<SMSNotification>( )
-                {
-                } ) );
-            }
+            } ) );
         }
     }
 
@@ -589,18 +1005,8 @@ public final class NotificationDAO implements INotificationDAO
         {
             File file = FileService.getInstance( ).getFileStoreServiceProvider( notifContent.getFileStore( ) ).getFile( notifContent.getFileKey( ) );
 
-            String strNotification;
-
-            if ( AppPropertiesService.getPropertyBoolean( PROPERTY_DECOMPRESS_NOTIFICATION, false ) )
-            {
-                strNotification = StringUtil.decompress( file.getPhysicalFile( ).getValue( ) );
-            }
-            else
-            {
-                strNotification = new String( file.getPhysicalFile( ).getValue( ), StandardCharsets.UTF_8 );
-            }
-            return _mapper.readValue( strNotification, typeReference );
-
+            // compressed contents are detected, whatever the current configuration
+            return NotificationContentReader.read( _mapper, file.getPhysicalFile( ).getValue( ), typeReference );
         }
         catch( FileServiceException | IOException e )
         {
@@ -613,33 +1019,63 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public List<Notification> loadByDemandIdTypeIdCustomerId( String strDemandId, String strDemandTypeId, String strCustomerId, NotificationFilter filter )
     {
-        String strSql = SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER_TYPE;
+        return loadByDemandIdTypeIdCustomerId( strDemandId, strDemandTypeId, strCustomerId, filter, null );
+    }
+
+    /**
+     * Load the notifications of a demand, with the contents of some channels only. The contents of the other channels are neither selected nor read
+     * from the file store.
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strCustomerId
+     *            the customer id
+     * @param filter
+     *            the notification filter
+     * @param listChannels
+     *            the notification types whose contents are read, an empty list for the notification headers only, or null for all the contents
+     * @return the list of notifications
+     */
+    public List<Notification> loadByDemandIdTypeIdCustomerId( String strDemandId, String strDemandTypeId, String strCustomerId, NotificationFilter filter,
+            Collection<EnumNotificationType> listChannels )
+    {
+        List<String> listNotificationTypes = new ArrayList<>( );
+        if ( filter != null && filter.getListNotificationType( ) != null )
+        {
+            filter.getListNotificationType( ).forEach( notifType -> listNotificationTypes.add( notifType.name( ) ) );
+        }
 
-        if ( filter != null && !filter.getListNotificationType( ).isEmpty( ) )
+        int nTypeArity = QueryShapeCache.getArityBucket( listNotificationTypes.size( ) );
+        long lShape = 0;
+        if ( !listNotificationTypes.isEmpty( ) )
         {
-            strSql = strSql + String.format( SQL_QUERY_NOTIFICATION_TYPE,
-                    filter.getListNotificationType( ).stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
+            // bit 0 : notification type filter
+            lShape = QueryShapeCache.arity( listNotificationTypes.size( ), CRITERIA_NOTIFICATION_TYPE_ARITY_SHIFT ) | 1L;
         }
+        String strSql = _queryCache.getQuery( QueryShapeCache.shape( QUERY_SELECT_BY_DEMAND, lShape ),
+                ( ) -> buildSelectByDemandQuery( listNotificationTypes.isEmpty( ) ? 0 : nTypeArity ) );
 
-        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+        Plugin plugin = NotificationStorePlugin.getReadPlugin( strCustomerId );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, plugin ) )
         {
             int nIndex = 1;
             daoUtil.setString( nIndex++, strDemandId );
             daoUtil.setString( nIndex++, strDemandTypeId );
             daoUtil.setString( nIndex++, strCustomerId );
 
-            if ( filter != null && !filter.getListNotificationType( ).isEmpty( ) )
+            if ( !listNotificationTypes.isEmpty( ) )
             {
-                for ( EnumNotificationType notifType : filter.getListNotificationType( ) )
-                {
-                    daoUtil.setString( nIndex++, notifType.name( ) );
-
-                }
+                QueryShapeCache.setStrings( daoUtil, nIndex, listNotificationTypes, nTypeArity );
             }
 
             daoUtil.executeQuery( );
 
             List<Notification> listNotifications = new ArrayList<>( );
+            List<EnumNotificationType> listContentTypes = getContentTypes( filter, listChannels );
+            Demand demand = null;
 
             while ( daoUtil.next( ) )
             {
@@ -647,8 +1083,16 @@ public final class NotificationDAO implements INotificationDAO
                 notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
                 notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime( ) : 0 );
 
-                notification.setDemand( DemandHome.getDemandByDemandIdAndTypeIdAndCustomerId( strDemandId, strDemandTypeId, strCustomerId ) );
-                setNotificationContent( notification, filter );
+                // all the notifications belong to the same demand
+                if ( demand == null )
+                {
+                    demand = DemandHome.getDemandByDemandIdAndTypeIdAndCustomerId( strDemandId, strDemandTypeId, strCustomerId );
+                }
+                notification.setDemand( demand );
+                if ( listContentTypes == null || !listContentTypes.isEmpty( ) )
+                {
+                    setNotificationContent( notification, listContentTypes != null ? listContentTypes : filter.getListNotificationType( ), plugin );
+                }
 
                 Customer customer = new Customer( );
                 customer.setCustomerId( daoUtil.getString( COLUMN_CUSTOMER ) );
@@ -661,6 +1105,93 @@ public final class NotificationDAO implements INotificationDAO
         }
     }
 
+    /**
+     * Get the notification types whose contents must be read : the channels of the projection, restricted to the types of the filter
+     * 
+     * @param filter
+     *            the notification filter
+     * @param listChannels
+     *            the channels of the projection, or null for no projection
+     * @return the notification types, an empty list for none, or null for the types of the filter
+     */
+    private static List<EnumNotificationType> getContentTypes( NotificationFilter filter, Collection<EnumNotificationType> listChannels )
+    {
+        if ( listChannels == null )
+        {
+            return null;
+        }
+
+        List<EnumNotificationType> listContentTypes = new ArrayList<>( listChannels );
+        if ( filter != null && filter.getListNotificationType( ) != null && !filter.getListNotificationType( ).isEmpty( ) )
+        {
+            listContentTypes.retainAll( filter.getListNotificationType( ) );
+        }
+
+        return listContentTypes;
+    }
+
+    /**
+     * Load the next notifications of a demand type in a time window, ordered by id (keyset pagination), with their decoded contents. The contents of
+     * the whole page are selected in one query.
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param lStartDate
+     *            the start of the time window
+     * @param lEndDate
+     *            the end of the time window
+     * @param nIdNotification
+     *            the id of the last notification already read
+     * @param nLimit
+     *            the max number of notifications
+     * @param plugin
+     *            the plugin of the shard
+     * @return the list of notifications
+     */
+    public List<Notification> loadForExport( String strDemandTypeId, long lStartDate, long lEndDate, int nIdNotification, int nLimit, Plugin plugin )
+    {
+        Map<Integer, Notification> mapNotifications = new LinkedHashMap<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_EXPORT, plugin ) )
+        {
+            int nIndex = 1;
+            daoUtil.setString( nIndex++, strDemandTypeId );
+            daoUtil.setInt( nIndex++, nIdNotification );
+            daoUtil.setTimestamp( nIndex++, new Timestamp( lStartDate ) );
+            daoUtil.setTimestamp( nIndex++, new Timestamp( lEndDate ) );
+            daoUtil.setInt( nIndex, nLimit );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                Notification notification = new Notification( );
+                notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
+                notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime( ) : 0 );
+
+                Demand demand = new Demand( );
+                demand.setId( daoUtil.getString( COLUMN_DEMAND_ID ) );
+                demand.setTypeId( daoUtil.getString( COLUMN_DEMAND_TYPE_ID ) );
+
+                Customer customer = new Customer( );
+                customer.setCustomerId( daoUtil.getString( COLUMN_CUSTOMER_ID ) );
+                demand.setCustomer( customer );
+
+                notification.setDemand( demand );
+                mapNotifications.put( notification.getId( ), notification );
+            }
+        }
+
+        if ( !mapNotifications.isEmpty( ) )
+        {
+            for ( NotificationContent notifContent : NotificationContentHome.getNotificationContentsByIdNotifications( mapNotifications.keySet( ), plugin ) )
+            {
+                setNotificationContent( mapNotifications.get( notifContent.getIdNotification( ) ), notifContent );
+            }
+        }
+
+        return new ArrayList<>( mapNotifications.values( ) );
+    }
+
     /**
      * Load notifications for a list of (demandId, demandTypeId) pairs and a customer id
      *
@@ -679,40 +1210,79 @@ public final class NotificationDAO implements INotificationDAO
             return new ArrayList<>( );
         }
 
-        // Build ( nn.demand_id = ? AND nn.demand_type_id = ? ) OR ( ... ) clauses
-        String strPairsClauses = listDemandPairs.stream( )
-                .map( p -> "( nn.demand_id = ? AND nn.demand_type_id = ? )" )
-                .collect( Collectors.joining( " OR " ) );
+        // distinct ( demand_id, demand_type_id ) pairs, in chunks
+        Map<String, List<String>> mapPairs = new LinkedHashMap<>( );
+        for ( Map<String, String> pair : listDemandPairs )
+        {
+            mapPairs.putIfAbsent( pair.get( KEY_DEMAND_ID ) + '\n' + pair.get( KEY_DEMAND_TYPE_ID ),
+                    Arrays.asList( pair.get( KEY_DEMAND_ID ), pair.get( KEY_DEMAND_TYPE_ID ) ) );
+        }
 
-        String strSql = String.format( SQL_QUERY_SELECT_BY_DEMAND_LIST_CUSTOMER, strPairsClauses );
+        List<String> listNotificationTypes = new ArrayList<>( );
+        if ( filter != null && filter.getListNotificationType( ) != null )
+        {
+            filter.getListNotificationType( ).forEach( notifType -> listNotificationTypes.add( notifType.name( ) ) );
+        }
 
-        if ( filter != null && !filter.getListNotificationType( ).isEmpty( ) )
+        List<Notification> listNotifications = new ArrayList<>( );
+        for ( List<List<String>> listChunk : QueryShapeCache.getChunks( new ArrayList<>( mapPairs.values( ) ), QueryShapeCache.MAX_IN_LIST_SIZE / 2 ) )
         {
-            strSql = strSql + String.format( SQL_QUERY_NOTIFICATION_TYPE,
-                    filter.getListNotificationType( ).stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
+            listNotifications.addAll( loadByDemandPairsAndCustomerId( listChunk, strCustomerId, listNotificationTypes, filter ) );
         }
 
-        try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+        return listNotifications;
+    }
+
+    /**
+     * Load notifications for a chunk of (demandId, demandTypeId) pairs and a customer id
+     *
+     * @param listDemandPairs
+     *            the distinct pairs of the chunk
+     * @param strCustomerId
+     *            the customer id
+     * @param listNotificationTypes
+     *            the notification types to load
+     * @param filter
+     *            the notification filter
+     * @return the list of notifications
+     */
+    private List<Notification> loadByDemandPairsAndCustomerId( List<List<String>> listDemandPairs, String strCustomerId, List<String> listNotificationTypes,
+            NotificationFilter filter )
+    {
+        long lShape = QueryShapeCache.arity( listDemandPairs.size( ), CRITERIA_DEMAND_PAIR_ARITY_SHIFT );
+        if ( !listNotificationTypes.isEmpty( ) )
+        {
+            // bit 0 : notification type filter
+            lShape |= QueryShapeCache.arity( listNotificationTypes.size( ), CRITERIA_NOTIFICATION_TYPE_ARITY_SHIFT ) | 1L;
+        }
+        int nPairArity = QueryShapeCache.getArity( lShape, CRITERIA_DEMAND_PAIR_ARITY_SHIFT );
+        int nTypeArity = QueryShapeCache.getArity( lShape, CRITERIA_NOTIFICATION_TYPE_ARITY_SHIFT );
+        boolean bFilterTypes = !listNotificationTypes.isEmpty( );
+
+        String strSql = _queryCache.getQuery( QueryShapeCache.shape( QUERY_SELECT_BY_DEMAND_LIST, lShape ),
+                ( ) -> buildSelectByDemandListQuery( nPairArity, bFilterTypes ? nTypeArity : 0 ) );
+
+        Plugin plugin = NotificationStorePlugin.getReadPlugin( strCustomerId );
+
+        try ( DAOUtil daoUtil = new DAOUtil( strSql, plugin ) )
         {
             int nIndex = 1;
 
             // First parameter: customerId
             daoUtil.setString( nIndex++, strCustomerId );
 
-            // Then pairs of (demandId, demandTypeId)
-            for ( Map<String, String> pair : listDemandPairs )
+            // Then pairs of (demandId, demandTypeId), padded with the last pair
+            for ( int i = 0; i < nPairArity; i++ )
             {
-                daoUtil.setString( nIndex++, pair.get( "demandId" ) );
-                daoUtil.setString( nIndex++, pair.get( "demandTypeId" ) );
+                List<String> pair = listDemandPairs.get( Math.min( i, listDemandPairs.size( ) - 1 ) );
+                daoUtil.setString( nIndex++, pair.get( 0 ) );
+                daoUtil.setString( nIndex++, pair.get( 1 ) );
             }
 
             // Notification type filter
-            if ( filter != null && !filter.getListNotificationType( ).isEmpty( ) )
+            if ( bFilterTypes )
             {
-                for ( EnumNotificationType notifType : filter.getListNotificationType( ) )
-                {
-                    daoUtil.setString( nIndex++, notifType.name( ) );
-                }
+                QueryShapeCache.setStrings( daoUtil, nIndex, listNotificationTypes, nTypeArity );
             }
 
             daoUtil.executeQuery( );
@@ -734,7 +1304,7 @@ public final class NotificationDAO implements INotificationDAO
                 demand.setCustomer( customer );
 
                 notification.setDemand( demand );
-                setNotificationContent( notification, filter );
+                setNotificationContent( notification, filter, plugin );
 
                 listNotifications.add( notification );
             }
@@ -746,26 +1316,32 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public Notification loadLastNotifByDemandIdAndDemandTypeId( String strDemandId, String strDemandTypeId )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_LAST_NOTIFICATION, NotificationStorePlugin.getPlugin( ) ) )
-        {
-            daoUtil.setString( 1, strDemandId );
-            daoUtil.setString( 2, strDemandTypeId );
+        // the demand may be in any shard : the last notification of all the shards
+        List<Notification> listNotifications = ShardRouter.getInstance( ).gather( null, plugin -> {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_LAST_NOTIFICATION, plugin ) )
+            {
+                daoUtil.setString( 1, strDemandId );
+                daoUtil.setString( 2, strDemandTypeId );
 
-            daoUtil.executeQuery( );
+                daoUtil.executeQuery( );
 
-            Notification notification = null;
+                List<Notification> listLast = new ArrayList<>( );
 
-            while ( daoUtil.next( ) )
-            {
-                notification = new Notification( );
-                notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
-                notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime( ) : 0 );
-                setNotificationContent( notification, new NotificationFilter( ) );
+                while ( daoUtil.next( ) )
+                {
+                    Notification notification = new Notification( );
+                    notification.setId( daoUtil.getInt( COLUMN_NOTIFICATION_ID ) );
+                    notification.setDate( daoUtil.getTimestamp( COLUMN_DATE ) != null ? daoUtil.getTimestamp( COLUMN_DATE ).getTime( ) : 0 );
+                    setNotificationContent( notification, new NotificationFilter( ), plugin );
+
+                    listLast.add( notification );
+                }
 
+                return listLast;
             }
+        } );
 
-            return notification;
-        }
+        return listNotifications.stream( ).max( Comparator.comparingLong( Notification::getDate ).thenComparingInt( Notification::getId ) ).orElse( null );
     }
 
     /**
@@ -774,21 +1350,21 @@ public final class NotificationDAO implements INotificationDAO
     @Override
     public boolean existsNotificationWithDemandTypeId( int nDemandTypeId )
     {
-
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_EXISTS_DEMAND_TYPE_ID, NotificationStorePlugin.getPlugin( ) ) )
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
         {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_EXISTS_DEMAND_TYPE_ID, plugin ) )
+            {
 
-            daoUtil.setString( 1, String.valueOf( nDemandTypeId ) );
-            daoUtil.executeQuery( );
+                daoUtil.setString( 1, String.valueOf( nDemandTypeId ) );
+                daoUtil.executeQuery( );
 
-            if ( daoUtil.next( ) )
-            {
-                return true;
-            }
-            else
-            {
-                return false;
+                if ( daoUtil.next( ) )
+                {
+                    return true;
+                }
             }
         }
+
+        return false;
     }
 }
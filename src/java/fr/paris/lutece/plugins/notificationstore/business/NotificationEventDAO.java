@@ -36,9 +36,10 @@ package fr.paris.lutece.plugins.notificationstore.business;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -50,7 +51,10 @@ import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationEv
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.plugins.notificationstore.service.ShardRouter;
+import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
+import fr.paris.lutece.util.sql.TransactionManager;
 
 /**
  * This class provides Data Access methods for NotificationEvent objects
@@ -59,22 +63,45 @@ public final class NotificationEventDAO implements INotificationEventDAO
 {
     // Constants
     private static final String SQL_QUERY_SELECTALL = "SELECT id, event_date, type, status, redelivry, message, msg_id, demand_id, demand_type_id, customer_id, notification_date FROM notificationstore_notification_event ";
-    private static final String SQL_QUERY_INSERT = "INSERT INTO notificationstore_notification_event ( event_date, type, status, redelivry, message, demand_id, demand_type_id, customer_id, notification_date, msg_id ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    // 0 row for a duplicate, whatever the found rows flag of the connection
+    private static final String SQL_QUERY_INSERT_OR_SKIP_DUPLICATE = "INSERT IGNORE INTO notificationstore_notification_event ( event_date, type, status, redelivry, message, demand_id, demand_type_id, customer_id, notification_date, msg_id ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM notificationstore_notification_event WHERE id = ? ";
-    private static final String SQL_QUERY_DELETE_BY_CUSTOMER_ID = "DELETE FROM notificationstore_notification_event WHERE customer_id = ? ";
-    private static final String SQL_QUERY_DELETE_BY_DATE = "DELETE FROM notificationstore_notification_event WHERE event_date < ? ";
-    private static final String SQL_QUERY_SELECT_BY_DEMAND = SQL_QUERY_SELECTALL + " WHERE demand_id = ? AND demand_type_id = ? ";
-    private static final String SQL_QUERY_SELECT_BY_NOTIFICATION = SQL_QUERY_SELECTALL
+    static final String SQL_QUERY_DELETE_BY_CUSTOMER_ID = "DELETE FROM notificationstore_notification_event WHERE customer_id = ? ";
+    static final String SQL_QUERY_DELETE_BY_DEMAND = "DELETE FROM notificationstore_notification_event WHERE demand_id = ? AND demand_type_id = ? AND customer_id = ? ";
+    static final String SQL_QUERY_DELETE_BY_DATE = "DELETE FROM notificationstore_notification_event WHERE event_date < ? ";
+    static final String SQL_QUERY_SELECT_BY_DEMAND = SQL_QUERY_SELECTALL + " WHERE demand_id = ? AND demand_type_id = ? ";
+    static final String SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER = SQL_QUERY_SELECT_BY_DEMAND + " AND customer_id = ? ";
+    static final String SQL_QUERY_SELECT_BY_NOTIFICATION = SQL_QUERY_SELECTALL
             + " WHERE demand_id = ? AND demand_type_id = ? and notification_date = ? ";
     private static final String SQL_QUERY_SELECT_BY_FILTER = SQL_QUERY_SELECTALL + " WHERE 1  ";
+    private static final String SQL_QUERY_COUNT_BY_FILTER = "SELECT COUNT(*) FROM notificationstore_notification_event WHERE 1 ";
     private static final String SQL_QUERY_FILTER_BY_ID = " AND id in ( %s ) ";
     private static final String SQL_QUERY_FILTER_BY_DEMAND_ID = " AND demand_id = ? ";
     private static final String SQL_QUERY_FILTER_BY_DEMAND_TYPE_ID = " AND demand_type_id = ? ";
     private static final String SQL_QUERY_FILTER_BY_STARTDATE = " AND event_date >= ? ";
     private static final String SQL_QUERY_FILTER_BY_ENDDATE = " AND event_date <= ? ";
     private static final String SQL_QUERY_FILTER_BY_STATUS = " AND status = ? ";
-    private static final String SQL_QUERY_FILTER_BY_TYPE = " AND type in ( ";
-    private static final String SQL_QUERY_FILTER_ORDER_BY = " ORDER BY event_date DESC ";
+    private static final String SQL_QUERY_FILTER_BY_TYPE = " AND type in ( %s ) ";
+    private static final String SQL_QUERY_FILTER_ORDER_BY = " ORDER BY event_date DESC, id DESC ";
+    private static final String SQL_QUERY_FILTER_LIMIT = " LIMIT ? OFFSET ? ";
+
+    // Kinds of filter queries
+    static final int QUERY_SELECT = 0;
+    static final int QUERY_SELECT_PAGE = 1;
+    static final int QUERY_COUNT = 2;
+
+    // Filter criteria bitmask
+    private static final long CRITERIA_ID = 1L;
+    private static final long CRITERIA_DEMAND_ID = 1L << 1;
+    private static final long CRITERIA_DEMAND_TYPE_ID = 1L << 2;
+    private static final long CRITERIA_START_DATE = 1L << 3;
+    private static final long CRITERIA_END_DATE = 1L << 4;
+    private static final long CRITERIA_STATUS = 1L << 5;
+    private static final long CRITERIA_TYPE = 1L << 6;
+    private static final int CRITERIA_ID_ARITY_SHIFT = 16;
+    private static final int CRITERIA_TYPE_ARITY_SHIFT = 24;
+
+    private static final QueryShapeCache<Long> _queryCache = new QueryShapeCache<>( );
 
     /**
      * {@inheritDoc }
@@ -82,37 +109,170 @@ public final class NotificationEventDAO implements INotificationEventDAO
     @Override
     public NotificationEvent insert( NotificationEvent notificationEvent )
     {
-        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, NotificationStorePlugin.getPlugin( ) ) )
-        {
-            int nIndex = 1;
-            daoUtil.setTimestamp( nIndex++,
-                    notificationEvent.getEvent( ).getEventDate( ) > 0 ? new Timestamp( notificationEvent.getEvent( ).getEventDate( ) ) : null );
-            daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getType( ) );
-            daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getStatus( ) );
-            daoUtil.setInt( nIndex++, notificationEvent.getEvent( ).getRedelivry( ) );
-            daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getMessage( ) );
-            daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getId( ) ) );
-            daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getTypeId( ) ) );
-            String strCustomerId = StringUtils.EMPTY;
-
-            if ( notificationEvent.getDemand( ).getCustomer( ) != null
-                    && StringUtils.isNotEmpty( notificationEvent.getDemand( ).getCustomer( ).getCustomerId( ) ) )
+        Plugin plugin = NotificationStorePlugin.getPlugin( );
+
+        // the event and its daily count are stored together
+        TransactionManager.beginTransaction( plugin );
+        try
+        {
+            if ( insertEvent( notificationEvent, plugin ) )
             {
-                strCustomerId = notificationEvent.getDemand( ).getCustomer( ).getCustomerId( );
+                NotificationEventDailyCountHome.addEvents( Collections.singletonList( notificationEvent ) );
             }
-            daoUtil.setString( nIndex++, strCustomerId );
-            daoUtil.setTimestamp( nIndex++, notificationEvent.getNotificationDate( ) > 0 ? new Timestamp( notificationEvent.getNotificationDate( ) ) : null );
-            daoUtil.setString( nIndex++, notificationEvent.getMsgId( ) );
 
-            daoUtil.executeUpdate( );
+            TransactionManager.commitTransaction( plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( plugin );
+            throw e;
+        }
+
+        return notificationEvent;
+    }
+
+    /**
+     * Insert notification events in a JDBC batch, with their daily counts in the same transaction. The events already stored with the same msg id,
+     * status and demand are skipped, the others are added to the daily counts.
+     * 
+     * @param listNotificationEvents
+     *            the notification events
+     * @return the number of inserted events
+     */
+    public int insertBatch( List<NotificationEvent> listNotificationEvents )
+    {
+        Plugin plugin = NotificationStorePlugin.getPlugin( );
+        List<NotificationEvent> listInsertedEvents;
+
+        TransactionManager.beginTransaction( plugin );
+        try
+        {
+            listInsertedEvents = executeBatch( listNotificationEvents, plugin );
+
+            if ( listInsertedEvents == null )
+            {
+                // the driver did not report the result of each event (a rewritten batch) : the events are inserted again one by one, to count them
+                TransactionManager.rollBack( plugin );
+                TransactionManager.beginTransaction( plugin );
+
+                listInsertedEvents = new ArrayList<>( );
+                for ( NotificationEvent notificationEvent : listNotificationEvents )
+                {
+                    if ( insertEvent( notificationEvent, plugin ) )
+                    {
+                        listInsertedEvents.add( notificationEvent );
+                    }
+                }
+            }
+
+            NotificationEventDailyCountHome.addEvents( listInsertedEvents );
+
+            TransactionManager.commitTransaction( plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( plugin );
+            throw e;
+        }
+
+        return listInsertedEvents.size( );
+    }
+
+    /**
+     * Insert a notification event, unless it is already stored
+     * 
+     * @param notificationEvent
+     *            the notification event, whose id is set
+     * @param plugin
+     *            the plugin
+     * @return true if the event has been inserted, false if it is already stored
+     */
+    private static boolean insertEvent( NotificationEvent notificationEvent, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_OR_SKIP_DUPLICATE, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            setInsertValues( daoUtil, notificationEvent );
+
+            // 0 for a skipped duplicate, which has no generated key
+            boolean bInserted = daoUtil.executeUpdate( ) > 0;
             if ( daoUtil.nextGeneratedKey( ) )
             {
                 notificationEvent.setId( daoUtil.getGeneratedKeyInt( 1 ) );
             }
 
-            return notificationEvent;
+            return bInserted;
+        }
+    }
+
+    /**
+     * Insert notification events in a JDBC batch
+     * 
+     * @param listNotificationEvents
+     *            the notification events
+     * @param plugin
+     *            the plugin
+     * @return the inserted events, or null if the driver did not report the result of each event
+     */
+    private static List<NotificationEvent> executeBatch( List<NotificationEvent> listNotificationEvents, Plugin plugin )
+    {
+        List<NotificationEvent> listInsertedEvents = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_OR_SKIP_DUPLICATE, plugin ) )
+        {
+            for ( NotificationEvent notificationEvent : listNotificationEvents )
+            {
+                setInsertValues( daoUtil, notificationEvent );
+                daoUtil.addBatch( );
+            }
+
+            int [ ] counts = daoUtil.executeBatch( );
+            for ( int nIndex = 0; nIndex < counts.length; nIndex++ )
+            {
+                if ( counts [nIndex] == Statement.SUCCESS_NO_INFO )
+                {
+                    return null;
+                }
+
+                // 0 for a skipped duplicate
+                if ( counts [nIndex] > 0 )
+                {
+                    listInsertedEvents.add( listNotificationEvents.get( nIndex ) );
+                }
+            }
         }
 
+        return listInsertedEvents;
+    }
+
+    /**
+     * Set the values of the insert query
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param notificationEvent
+     *            the notification event
+     */
+    private static void setInsertValues( DAOUtil daoUtil, NotificationEvent notificationEvent )
+    {
+        int nIndex = 1;
+        daoUtil.setTimestamp( nIndex++,
+                notificationEvent.getEvent( ).getEventDate( ) > 0 ? new Timestamp( notificationEvent.getEvent( ).getEventDate( ) ) : null );
+        daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getType( ) );
+        daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getStatus( ) );
+        daoUtil.setInt( nIndex++, notificationEvent.getEvent( ).getRedelivry( ) );
+        daoUtil.setString( nIndex++, notificationEvent.getEvent( ).getMessage( ) );
+        daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getId( ) ) );
+        daoUtil.setString( nIndex++, String.valueOf( notificationEvent.getDemand( ).getTypeId( ) ) );
+        String strCustomerId = StringUtils.EMPTY;
+
+        if ( notificationEvent.getDemand( ).getCustomer( ) != null && StringUtils.isNotEmpty( notificationEvent.getDemand( ).getCustomer( ).getCustomerId( ) ) )
+        {
+            strCustomerId = notificationEvent.getDemand( ).getCustomer( ).getCustomerId( );
+        }
+        daoUtil.setString( nIndex++, strCustomerId );
+        daoUtil.setTimestamp( nIndex++, notificationEvent.getNotificationDate( ) > 0 ? new Timestamp( notificationEvent.getNotificationDate( ) ) : null );
+        // NULL without msg id : the unique index does not deduplicate the events without msg id
+        daoUtil.setString( nIndex, StringUtils.defaultIfEmpty( notificationEvent.getMsgId( ), null ) );
     }
 
     /**
@@ -144,10 +304,25 @@ public final class NotificationEventDAO implements INotificationEventDAO
     {
         if ( listIds != null && !listIds.isEmpty( ) )
         {
-            NotificationFilter filter = new NotificationFilter( );
-            filter.setIds( listIds );
+            List<List<Integer>> listChunks = QueryShapeCache.getSortedChunks( listIds );
+            List<NotificationEvent> listEvents = new ArrayList<>( listIds.size( ) );
+
+            for ( List<Integer> listChunk : listChunks )
+            {
+                NotificationFilter filter = new NotificationFilter( );
+                filter.setIds( listChunk );
+
+                listEvents.addAll( loadByFilter( filter ) );
+            }
 
-            return loadByFilter( filter );
+            if ( listChunks.size( ) > 1 )
+            {
+                // same order as a single query
+                listEvents.sort( Comparator.comparingLong( ( NotificationEvent event ) -> event.getEvent( ).getEventDate( ) )
+                        .thenComparingInt( NotificationEvent::getId ).reversed( ) );
+            }
+
+            return listEvents;
         }
         else
         {
@@ -182,6 +357,58 @@ public final class NotificationEventDAO implements INotificationEventDAO
         }
     }
 
+    /**
+     * Delete the events of a demand of a customer
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strCustomerId
+     *            the customer id
+     */
+    public void deleteByDemand( String strDemandId, String strDemandTypeId, String strCustomerId )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BY_DEMAND, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strDemandId );
+            daoUtil.setString( 2, strDemandTypeId );
+            daoUtil.setString( 3, strCustomerId );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Load the events of a demand of a customer
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strCustomerId
+     *            the customer id
+     * @return the events
+     */
+    public List<NotificationEvent> loadByDemand( String strDemandId, String strDemandTypeId, String strCustomerId )
+    {
+        List<NotificationEvent> notificationEventList = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER, NotificationStorePlugin.getPlugin( ) ) )
+        {
+            daoUtil.setString( 1, strDemandId );
+            daoUtil.setString( 2, strDemandTypeId );
+            daoUtil.setString( 3, strCustomerId );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                notificationEventList.add( getItemFromDao( daoUtil ) );
+            }
+        }
+
+        return notificationEventList;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -243,13 +470,11 @@ public final class NotificationEventDAO implements INotificationEventDAO
     {
 
         List<NotificationEvent> notificationEventList = new ArrayList<>( );
-        StringBuilder strSql = new StringBuilder( SQL_QUERY_SELECT_BY_FILTER );
-
-        getFilterCriteriaClauses( strSql, filter );
+        long lCriteria = getFilterCriteria( filter );
 
-        try ( DAOUtil daoUtil = new DAOUtil( strSql.toString( ), NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT, lCriteria ), NotificationStorePlugin.getPlugin( ) ) )
         {
-            addFilterCriteriaValues( daoUtil, filter );
+            addFilterCriteriaValues( daoUtil, filter, lCriteria );
 
             daoUtil.executeQuery( );
 
@@ -272,13 +497,11 @@ public final class NotificationEventDAO implements INotificationEventDAO
     public List<Integer> loadIdsByFilter( NotificationFilter filter )
     {
         List<Integer> notificationEventList = new ArrayList<>( );
-        StringBuilder strSql = new StringBuilder( SQL_QUERY_SELECT_BY_FILTER );
+        long lCriteria = getFilterCriteria( filter );
 
-        getFilterCriteriaClauses( strSql, filter );
-
-        try ( DAOUtil daoUtil = new DAOUtil( strSql.toString( ), NotificationStorePlugin.getPlugin( ) ) )
+        try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT, lCriteria ), NotificationStorePlugin.getPlugin( ) ) )
         {
-            addFilterCriteriaValues( daoUtil, filter );
+            addFilterCriteriaValues( daoUtil, filter, lCriteria );
 
             daoUtil.executeQuery( );
 
@@ -292,6 +515,77 @@ public final class NotificationEventDAO implements INotificationEventDAO
         }
     }
 
+    /**
+     * Load one page of the notification events matching the filter
+     * 
+     * @param filter
+     *            the filter
+     * @param nOffset
+     *            the index of the first event of the page
+     * @param nLimit
+     *            the max number of events of the page
+     * @return the notification event list
+     */
+    public List<NotificationEvent> loadByFilter( NotificationFilter filter, int nOffset, int nLimit )
+    {
+        List<NotificationEvent> notificationEventList = new ArrayList<>( );
+        long lCriteria = getFilterCriteria( filter );
+
+        try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_SELECT_PAGE, lCriteria ), getReadPlugin( filter ) ) )
+        {
+            int nIndex = addFilterCriteriaValues( daoUtil, filter, lCriteria );
+            daoUtil.setInt( nIndex++, nLimit );
+            daoUtil.setInt( nIndex, nOffset );
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                notificationEventList.add( getItemFromDao( daoUtil ) );
+            }
+        }
+
+        return notificationEventList;
+    }
+
+    /**
+     * Get the plugin of a read-only query : the events are not sharded, they stay in the plugin pool
+     * 
+     * @param filter
+     *            the filter
+     * @return the plugin of the read replica pool if there is one and the demands are not sharded, otherwise the plugin
+     */
+    private static Plugin getReadPlugin( NotificationFilter filter )
+    {
+        if ( ShardRouter.getInstance( ).isSharded( ) )
+        {
+            return NotificationStorePlugin.getPlugin( );
+        }
+
+        return NotificationStorePlugin.getReadPlugin( filter.getCustomerId( ) );
+    }
+
+    /**
+     * Count the notification events matching the filter
+     * 
+     * @param filter
+     *            the filter
+     * @return the number of events
+     */
+    public int countByFilter( NotificationFilter filter )
+    {
+        long lCriteria = getFilterCriteria( filter );
+
+        try ( DAOUtil daoUtil = new DAOUtil( getFilterQuery( QUERY_COUNT, lCriteria ), getReadPlugin( filter ) ) )
+        {
+            addFilterCriteriaValues( daoUtil, filter, lCriteria );
+
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0;
+        }
+    }
+
     /**
      * get notification event from daoUtil
      * 
@@ -334,101 +628,166 @@ public final class NotificationEventDAO implements INotificationEventDAO
     }
 
     /**
-     * build sql filter
+     * Get the criteria bitmask of a filter : the criteria present in the filter and the arity bucket of its lists
      * 
-     * @param sql
      * @param filter
+     * @return the criteria bitmask
      */
-    private void getFilterCriteriaClauses( StringBuilder sbSql, NotificationFilter filter )
+    static long getFilterCriteria( NotificationFilter filter )
     {
+        long lCriteria = 0;
 
         if ( filter.containsId( ) )
         {
-            String sql = String.format( SQL_QUERY_FILTER_BY_ID, filter.getIds( ).stream( ).map( v -> "?" ).collect( Collectors.joining( ", " ) ) );
-
-            sbSql.append( sql );
+            lCriteria |= CRITERIA_ID | QueryShapeCache.arity( filter.getIds( ).size( ), CRITERIA_ID_ARITY_SHIFT );
         }
         if ( filter.containsDemandId( ) )
         {
-            sbSql.append( SQL_QUERY_FILTER_BY_DEMAND_ID );
+            lCriteria |= CRITERIA_DEMAND_ID;
         }
         if ( filter.containsDemandTypeId( ) )
         {
-            sbSql.append( SQL_QUERY_FILTER_BY_DEMAND_TYPE_ID );
+            lCriteria |= CRITERIA_DEMAND_TYPE_ID;
         }
-
         if ( filter.containsStartDate( ) )
         {
-            sbSql.append( SQL_QUERY_FILTER_BY_STARTDATE );
+            lCriteria |= CRITERIA_START_DATE;
         }
-
         if ( filter.containsEndDate( ) )
         {
-            sbSql.append( SQL_QUERY_FILTER_BY_ENDDATE );
+            lCriteria |= CRITERIA_END_DATE;
         }
-
         if ( !StringUtils.isEmpty( filter.getEventStatus( ) ) )
         {
-            sbSql.append( SQL_QUERY_FILTER_BY_STATUS );
+            lCriteria |= CRITERIA_STATUS;
         }
-
-        if ( filter.containsNotificationTypeFilter( ) )
+        if ( filter.getListNotificationType( ) != null && !filter.getListNotificationType( ).isEmpty( ) )
         {
-            sbSql.append( SQL_QUERY_FILTER_BY_TYPE );
-            for ( int i = 0; i < filter.getListNotificationType( ).size( ) - 1; i++ )
+            lCriteria |= CRITERIA_TYPE | QueryShapeCache.arity( filter.getListNotificationType( ).size( ), CRITERIA_TYPE_ARITY_SHIFT );
+        }
+
+        return lCriteria;
+    }
+
+    /**
+     * Get the filter query of a criteria bitmask (built once per shape)
+     * 
+     * @param nKind
+     *            the kind of query
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the query string
+     */
+    static String getFilterQuery( int nKind, long lCriteria )
+    {
+        return _queryCache.getQuery( QueryShapeCache.shape( nKind, lCriteria ), ( ) -> {
+            switch( nKind )
             {
-                sbSql.append( "?, " );
+                case QUERY_SELECT_PAGE:
+                    return getFilterCriteriaClauses( SQL_QUERY_SELECT_BY_FILTER, lCriteria ) + SQL_QUERY_FILTER_ORDER_BY + SQL_QUERY_FILTER_LIMIT;
+                case QUERY_COUNT:
+                    return getFilterCriteriaClauses( SQL_QUERY_COUNT_BY_FILTER, lCriteria );
+                default:
+                    return getFilterCriteriaClauses( SQL_QUERY_SELECT_BY_FILTER, lCriteria ) + SQL_QUERY_FILTER_ORDER_BY;
             }
-            sbSql.append( "?)" );
+        } );
+    }
+
+    /**
+     * build sql filter
+     * 
+     * @param strBaseQuery
+     *            the base query
+     * @param lCriteria
+     *            the criteria bitmask
+     * @return the query string
+     */
+    private static String getFilterCriteriaClauses( String strBaseQuery, long lCriteria )
+    {
+        StringBuilder sbSql = new StringBuilder( strBaseQuery );
+
+        if ( ( lCriteria & CRITERIA_ID ) != 0 )
+        {
+            int nArity = QueryShapeCache.getArity( lCriteria, CRITERIA_ID_ARITY_SHIFT );
+            sbSql.append( String.format( SQL_QUERY_FILTER_BY_ID, QueryShapeCache.getPlaceholders( nArity ) ) );
+        }
+        if ( ( lCriteria & CRITERIA_DEMAND_ID ) != 0 )
+        {
+            sbSql.append( SQL_QUERY_FILTER_BY_DEMAND_ID );
+        }
+        if ( ( lCriteria & CRITERIA_DEMAND_TYPE_ID ) != 0 )
+        {
+            sbSql.append( SQL_QUERY_FILTER_BY_DEMAND_TYPE_ID );
+        }
+        if ( ( lCriteria & CRITERIA_START_DATE ) != 0 )
+        {
+            sbSql.append( SQL_QUERY_FILTER_BY_STARTDATE );
+        }
+        if ( ( lCriteria & CRITERIA_END_DATE ) != 0 )
+        {
+            sbSql.append( SQL_QUERY_FILTER_BY_ENDDATE );
+        }
+        if ( ( lCriteria & CRITERIA_STATUS ) != 0 )
+        {
+            sbSql.append( SQL_QUERY_FILTER_BY_STATUS );
+        }
+        if ( ( lCriteria & CRITERIA_TYPE ) != 0 )
+        {
+            int nArity = QueryShapeCache.getArity( lCriteria, CRITERIA_TYPE_ARITY_SHIFT );
+            sbSql.append( String.format( SQL_QUERY_FILTER_BY_TYPE, QueryShapeCache.getPlaceholders( nArity ) ) );
         }
 
-        sbSql.append( SQL_QUERY_FILTER_ORDER_BY );
+        return sbSql.toString( );
     }
 
     /**
-     * fill DAO with values
+     * fill DAO with values, in the order of the clauses of the criteria bitmask
      * 
      * @param daoUtil
      * @param filter
+     * @param lCriteria
+     *            the criteria bitmask of the filter
+     * @return the index of the next parameter
      */
-    private void addFilterCriteriaValues( DAOUtil daoUtil, NotificationFilter filter )
+    private static int addFilterCriteriaValues( DAOUtil daoUtil, NotificationFilter filter, long lCriteria )
     {
-
         int i = 1;
-        if ( filter.containsId( ) )
+
+        if ( ( lCriteria & CRITERIA_ID ) != 0 )
         {
-            for ( Integer id : filter.getIds( ) )
-            {
-                daoUtil.setInt( i++, id );
-            }
+            i = QueryShapeCache.setInts( daoUtil, i, filter.getIds( ), QueryShapeCache.getArity( lCriteria, CRITERIA_ID_ARITY_SHIFT ) );
         }
-        if ( filter.containsDemandId( ) )
+        if ( ( lCriteria & CRITERIA_DEMAND_ID ) != 0 )
         {
             daoUtil.setString( i++, filter.getDemandId( ) );
         }
-        if ( filter.containsDemandTypeId( ) )
+        if ( ( lCriteria & CRITERIA_DEMAND_TYPE_ID ) != 0 )
         {
             daoUtil.setString( i++, filter.getDemandTypeId( ) );
         }
-        if ( filter.containsStartDate( ) )
+        if ( ( lCriteria & CRITERIA_START_DATE ) != 0 )
         {
             daoUtil.setTimestamp( i++, new Timestamp( filter.getStartDate( ) ) );
         }
-        if ( filter.containsEndDate( ) )
+        if ( ( lCriteria & CRITERIA_END_DATE ) != 0 )
         {
             daoUtil.setTimestamp( i++, new Timestamp( filter.getEndDate( ) ) );
         }
-        if ( !StringUtils.isEmpty( filter.getEventStatus( ) ) )
+        if ( ( lCriteria & CRITERIA_STATUS ) != 0 )
         {
             daoUtil.setString( i++, filter.getEventStatus( ) );
         }
-        if ( filter.getListNotificationType( ) != null && !filter.getListNotificationType( ).isEmpty( ) )
+        if ( ( lCriteria & CRITERIA_TYPE ) != 0 )
         {
+            List<String> listTypes = new ArrayList<>( );
             for ( EnumNotificationType type : filter.getListNotificationType( ) )
             {
-                daoUtil.setString( i++, type.name( ) );
+                listTypes.add( type.name( ) );
             }
+            i = QueryShapeCache.setStrings( daoUtil, i, listTypes, QueryShapeCache.getArity( lCriteria, CRITERIA_TYPE_ARITY_SHIFT ) );
         }
+
+        return i;
     }
 
     /**
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+/**
+ * The number of notification events of a day, for a demand type, an event type and an event status
+ */
+public class NotificationEventDailyCount
+{
+    private long _lDay;
+    private String _strDemandTypeId;
+    private String _strType;
+    private String _strStatus;
+    private int _nCount;
+
+    /**
+     * Returns the day, as the time of its first millisecond
+     * 
+     * @return the day
+     */
+    public long getDay( )
+    {
+        return _lDay;
+    }
+
+    /**
+     * Sets the day
+     * 
+     * @param lDay
+     *            the time of the first millisecond of the day
+     */
+    public void setDay( long lDay )
+    {
+        _lDay = lDay;
+    }
+
+    /**
+     * Returns the demand type id
+     * 
+     * @return the demand type id
+     */
+    public String getDemandTypeId( )
+    {
+        return _strDemandTypeId;
+    }
+
+    /**
+     * Sets the demand type id
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     */
+    public void setDemandTypeId( String strDemandTypeId )
+    {
+        _strDemandTypeId = strDemandTypeId;
+    }
+
+    /**
+     * Returns the event type
+     * 
+     * @return the event type
+     */
+    public String getType( )
+    {
+        return _strType;
+    }
+
+    /**
+     * Sets the event type
+     * 
+     * @param strType
+     *            the event type
+     */
+    public void setType( String strType )
+    {
+        _strType = strType;
+    }
+
+    /**
+     * Returns the event status
+     * 
+     * @return the event status
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Sets the event status
+     * 
+     * @param strStatus
+     *            the event status
+     */
+    public void setStatus( String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Returns the number of events
+     * 
+     * @return the number of events
+     */
+    public int getCount( )
+    {
+        return _nCount;
+    }
+
+    /**
+     * Sets the number of events
+     * 
+     * @param nCount
+     *            the number of events
+     */
+    public void setCount( int nCount )
+    {
+        _nCount = nCount;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * This class provides Data Access methods for the daily counts of the notification events
+ */
+public final class NotificationEventDailyCountDAO implements INotificationEventDailyCountDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT_OR_INCREMENT = "INSERT INTO notificationstore_notification_event_daily ( event_day, demand_type_id, type, status, event_count ) VALUES ( ?, ?, ?, ?, ? ) ON DUPLICATE KEY UPDATE event_count = event_count + VALUES( event_count ) ";
+    private static final String SQL_QUERY_SELECT = "SELECT event_day, demand_type_id, type, status, event_count FROM notificationstore_notification_event_daily WHERE 1 ";
+    private static final String SQL_QUERY_FILTER_BY_START_DAY = " AND event_day >= ? ";
+    private static final String SQL_QUERY_FILTER_BY_END_DAY = " AND event_day <= ? ";
+    private static final String SQL_QUERY_FILTER_BY_DEMAND_TYPE_ID = " AND demand_type_id = ? ";
+    private static final String SQL_QUERY_FILTER_BY_STATUS = " AND status = ? ";
+    private static final String SQL_QUERY_ORDER_BY = " ORDER BY event_day, demand_type_id, type, status ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertOrIncrement( Collection<NotificationEventDailyCount> listDailyCounts, Plugin plugin )
+    {
+        if ( listDailyCounts.isEmpty( ) )
+        {
+            return;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT_OR_INCREMENT, plugin ) )
+        {
+            for ( NotificationEventDailyCount dailyCount : listDailyCounts )
+            {
+                int nIndex = 1;
+                daoUtil.setDate( nIndex++, new Date( dailyCount.getDay( ) ) );
+                daoUtil.setString( nIndex++, dailyCount.getDemandTypeId( ) );
+                daoUtil.setString( nIndex++, dailyCount.getType( ) );
+                daoUtil.setString( nIndex++, dailyCount.getStatus( ) );
+                daoUtil.setInt( nIndex, dailyCount.getCount( ) );
+                daoUtil.addBatch( );
+            }
+
+            daoUtil.executeBatch( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<NotificationEventDailyCount> selectByFilter( long lStartDay, long lEndDay, String strDemandTypeId, String strStatus, Plugin plugin )
+    {
+        StringBuilder sbQuery = new StringBuilder( SQL_QUERY_SELECT );
+        if ( lStartDay > 0 )
+        {
+            sbQuery.append( SQL_QUERY_FILTER_BY_START_DAY );
+        }
+        if ( lEndDay > 0 )
+        {
+            sbQuery.append( SQL_QUERY_FILTER_BY_END_DAY );
+        }
+        if ( StringUtils.isNotBlank( strDemandTypeId ) )
+        {
+            sbQuery.append( SQL_QUERY_FILTER_BY_DEMAND_TYPE_ID );
+        }
+        if ( StringUtils.isNotBlank( strStatus ) )
+        {
+            sbQuery.append( SQL_QUERY_FILTER_BY_STATUS );
+        }
+        sbQuery.append( SQL_QUERY_ORDER_BY );
+
+        List<NotificationEventDailyCount> listDailyCounts = new ArrayList<>( );
+
+        try ( DAOUtil daoUtil = new DAOUtil( sbQuery.toString( ), plugin ) )
+        {
+            int nIndex = 1;
+            if ( lStartDay > 0 )
+            {
+                daoUtil.setDate( nIndex++, new Date( lStartDay ) );
+            }
+            if ( lEndDay > 0 )
+            {
+                daoUtil.setDate( nIndex++, new Date( lEndDay ) );
+            }
+            if ( StringUtils.isNotBlank( strDemandTypeId ) )
+            {
+                daoUtil.setString( nIndex++, strDemandTypeId );
+            }
+            if ( StringUtils.isNotBlank( strStatus ) )
+            {
+                daoUtil.setString( nIndex, strStatus );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                NotificationEventDailyCount dailyCount = new NotificationEventDailyCount( );
+                int nCol = 1;
+                dailyCount.setDay( daoUtil.getDate( nCol++ ).getTime( ) );
+                dailyCount.setDemandTypeId( daoUtil.getString( nCol++ ) );
+                dailyCount.setType( daoUtil.getString( nCol++ ) );
+                dailyCount.setStatus( daoUtil.getString( nCol++ ) );
+                dailyCount.setCount( daoUtil.getInt( nCol ) );
+
+                listDailyCounts.add( dailyCount );
+            }
+        }
+
+        return listDailyCounts;
+    }
+}
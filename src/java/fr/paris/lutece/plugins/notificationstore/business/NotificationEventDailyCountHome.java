@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * This class provides instances management methods for the daily counts of the notification events. The counts are maintained in the transaction
+ * inserting the events, so that the reports never scan the events themselves.
+ */
+public final class NotificationEventDailyCountHome
+{
+    private static final String KEY_SEPARATOR = "\u0000";
+
+    // Static variable pointed at the DAO instance
+    private static INotificationEventDailyCountDAO _dao = SpringContextService.getBean( "notificationstore.notificationEventDailyCountDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private NotificationEventDailyCountHome( )
+    {
+    }
+
+    /**
+     * Add newly inserted notification events to the daily counts
+     * 
+     * @param listNotificationEvents
+     *            the inserted notification events
+     */
+    public static void addEvents( List<NotificationEvent> listNotificationEvents )
+    {
+        // sorted keys : concurrent batches lock the rows in the same order
+        Map<String, NotificationEventDailyCount> mapDailyCounts = new TreeMap<>( );
+
+        for ( NotificationEvent notificationEvent : listNotificationEvents )
+        {
+            if ( notificationEvent.getEvent( ) == null || notificationEvent.getEvent( ).getEventDate( ) <= 0 )
+            {
+                continue;
+            }
+
+            long lDay = getDay( notificationEvent.getEvent( ).getEventDate( ) );
+            String strDemandTypeId = String.valueOf( notificationEvent.getDemand( ).getTypeId( ) );
+            String strType = StringUtils.defaultString( notificationEvent.getEvent( ).getType( ) );
+            String strStatus = StringUtils.defaultString( notificationEvent.getEvent( ).getStatus( ) );
+
+            NotificationEventDailyCount dailyCount = mapDailyCounts.computeIfAbsent(
+                    String.join( KEY_SEPARATOR, String.valueOf( lDay ), strDemandTypeId, strType, strStatus ), k -> new NotificationEventDailyCount( ) );
+            dailyCount.setDay( lDay );
+            dailyCount.setDemandTypeId( strDemandTypeId );
+            dailyCount.setType( strType );
+            dailyCount.setStatus( strStatus );
+            dailyCount.setCount( dailyCount.getCount( ) + 1 );
+        }
+
+        _dao.insertOrIncrement( mapDailyCounts.values( ), NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Find the daily counts of a period, ordered by day
+     * 
+     * @param lStartDate
+     *            a date of the first day, or 0 for no lower bound
+     * @param lEndDate
+     *            a date of the last day, or 0 for no upper bound
+     * @param strDemandTypeId
+     *            the demand type id, or null for all the demand types
+     * @param strStatus
+     *            the event status, or null for all the statuses
+     * @return the list of the daily counts
+     */
+    public static List<NotificationEventDailyCount> findByFilter( long lStartDate, long lEndDate, String strDemandTypeId, String strStatus )
+    {
+        return _dao.selectByFilter( lStartDate > 0 ? getDay( lStartDate ) : 0, lEndDate > 0 ? getDay( lEndDate ) : 0, strDemandTypeId, strStatus,
+                NotificationStorePlugin.getPlugin( ) );
+    }
+
+    /**
+     * Get the day of a date
+     * 
+     * @param lDate
+     *            the date
+     * @return the time of the first millisecond of the day
+     */
+    private static long getDay( long lDate )
+    {
+        ZoneId zone = ZoneId.systemDefault( );
+
+        return Instant.ofEpochMilli( lDate ).atZone( zone ).toLocalDate( ).atStartOfDay( zone ).toInstant( ).toEpochMilli( );
+    }
+}
@@ -55,6 +55,18 @@ public final class NotificationEventHome
     {
     }
 
+    /**
+     * Create notification events in a batch, skipping the events already stored with the same msg id, status and demand
+     * 
+     * @param listNotificationEvents
+     *            the notification events
+     * @return the number of created events
+     */
+    public static int createAll( List<NotificationEvent> listNotificationEvents )
+    {
+        return ( (NotificationEventDAO) _dao ).insertBatch( listNotificationEvents );
+    }
+
     /**
      * Find the demand's NotificationEvents
      * 
@@ -123,6 +135,32 @@ public final class NotificationEventHome
         return _dao.loadIdsByFilter( notificationFilter );
     }
 
+    /**
+     * Find one page of the NotificationEvents according to the filter
+     * 
+     * @param notificationFilter
+     * @param nOffset
+     *            the index of the first event of the page
+     * @param nLimit
+     *            the max number of events of the page
+     * @return the NotificationEvent list
+     */
+    public static List<NotificationEvent> findByFilter( NotificationFilter notificationFilter, int nOffset, int nLimit )
+    {
+        return ( (NotificationEventDAO) _dao ).loadByFilter( notificationFilter, nOffset, nLimit );
+    }
+
+    /**
+     * Count the NotificationEvents according to the filter
+     * 
+     * @param notificationFilter
+     * @return the number of NotificationEvents
+     */
+    public static int countByFilter( NotificationFilter notificationFilter )
+    {
+        return ( (NotificationEventDAO) _dao ).countByFilter( notificationFilter );
+    }
+
     /**
      * Purge the NotificationEvents after N days
      * 
@@ -147,4 +185,35 @@ public final class NotificationEventHome
     {
         _dao.deleteByCustomerId( strCustomerId );
     }
+
+    /**
+     * Find the events of a demand of a customer
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strCustomerId
+     *            the customer id
+     * @return the events
+     */
+    public static List<NotificationEvent> findByDemand( String strDemandId, String strDemandTypeId, String strCustomerId )
+    {
+        return ( (NotificationEventDAO) _dao ).loadByDemand( strDemandId, strDemandTypeId, strCustomerId );
+    }
+
+    /**
+     * Delete the events of a demand of a customer
+     * 
+     * @param strDemandId
+     *            the demand id
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param strCustomerId
+     *            the customer id
+     */
+    public static void deleteByDemand( String strDemandId, String strDemandTypeId, String strCustomerId )
+    {
+        ( (NotificationEventDAO) _dao ).deleteByDemand( strDemandId, strDemandTypeId, strCustomerId );
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+
+/**
+ * This class provides Data Access methods for the notification fingerprints
+ */
+public final class NotificationFingerprintDAO implements INotificationFingerprintDAO
+{
+    // Constants
+    private static final String SQL_QUERY_INSERT = "INSERT IGNORE INTO notificationstore_notification_fingerprint ( fingerprint, demand_type_id, fingerprint_date ) VALUES ( ?, ?, ? ) ";
+    private static final String SQL_QUERY_DELETE_BEFORE = "DELETE FROM notificationstore_notification_fingerprint WHERE fingerprint_date < ? ";
+    private static final String SQL_QUERY_EXISTS = "SELECT 1 FROM notificationstore_notification_fingerprint WHERE fingerprint = ? ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean insert( String strFingerprint, String strDemandTypeId, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            int nIndex = 0;
+            daoUtil.setString( ++nIndex, strFingerprint );
+            daoUtil.setString( ++nIndex, strDemandTypeId );
+            daoUtil.setTimestamp( ++nIndex, new Timestamp( System.currentTimeMillis( ) ) );
+
+            // no row is inserted when the primary key already exists
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int deleteBefore( long lDate, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_BEFORE, plugin ) )
+        {
+            daoUtil.setTimestamp( 1, new Timestamp( lDate ) );
+            return daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean exists( String strFingerprint, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_EXISTS, plugin ) )
+        {
+            daoUtil.setString( 1, strFingerprint );
+            daoUtil.executeQuery( );
+
+            return daoUtil.next( );
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides instances management methods for the notification fingerprints
+ */
+
+public final class NotificationFingerprintHome
+{
+
+    // Static variable pointed at the DAO instance
+
+    private static INotificationFingerprintDAO _dao = (INotificationFingerprintDAO) SpringContextService
+            .getBean( "notificationstore.notificationFingerprintDao" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+
+    private NotificationFingerprintHome( )
+    {
+    }
+
+    /**
+     * Create a fingerprint, unless it is already stored
+     * 
+     * @param strFingerprint
+     *            the fingerprint of the notification
+     * @param strDemandTypeId
+     *            the demand type id of the notification
+     * @param plugin
+     *            the Plugin of the shard of the customer
+     * @return true if the fingerprint has been created, false if it was already stored
+     */
+    public static boolean create( String strFingerprint, String strDemandTypeId, Plugin plugin )
+    {
+        return _dao.insert( strFingerprint, strDemandTypeId, plugin );
+    }
+
+    /**
+     * Remove the fingerprints stored before a date
+     * 
+     * @param lDate
+     *            the date
+     * @param plugin
+     *            the Plugin of the shard
+     * @return the number of removed fingerprints
+     */
+    public static int removeBefore( long lDate, Plugin plugin )
+    {
+        return _dao.deleteBefore( lDate, plugin );
+    }
+
+    /**
+     * Check if a fingerprint is stored
+     * 
+     * @param strFingerprint
+     *            the fingerprint
+     * @param plugin
+     *            the Plugin of the shard of the customer
+     * @return true if the fingerprint is stored
+     */
+    public static boolean exists( String strFingerprint, Plugin plugin )
+    {
+        return _dao.exists( strFingerprint, plugin );
+    }
+}
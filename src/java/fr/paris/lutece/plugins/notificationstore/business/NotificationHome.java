@@ -33,13 +33,16 @@
  */
 package fr.paris.lutece.plugins.notificationstore.business;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
 import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationDAO;
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
+import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.util.ReferenceList;
 
@@ -116,6 +119,32 @@ public final class NotificationHome
         return _dao.loadIdsByFilter( filter );
     }
 
+    /**
+     * search one page of notifications by filter
+     * 
+     * @param filter
+     * @param nOffset
+     *            the index of the first notification of the page
+     * @param nLimit
+     *            the max number of notifications of the page
+     * @return the notification list
+     */
+    public static List<Notification> findByFilter( NotificationFilter filter, int nOffset, int nLimit )
+    {
+        return ( (NotificationDAO) _dao ).loadByFilter( filter, nOffset, nLimit );
+    }
+
+    /**
+     * count notifications by filter
+     * 
+     * @param filter
+     * @return the number of notifications
+     */
+    public static int countByFilter( NotificationFilter filter )
+    {
+        return ( (NotificationDAO) _dao ).countByFilter( filter );
+    }
+
     /**
      * Find the notifications according to the filter
      * 
@@ -142,6 +171,23 @@ public final class NotificationHome
         return _dao.loadByDemandIdTypeIdCustomerId( strDemandId, strDemandTypeId, strCustomerId, filter );
     }
 
+    /**
+     * Find the notifications of a demand, with the contents of some channels only
+     * 
+     * @param strDemandId
+     * @param strDemandTypeId
+     * @param strCustomerId
+     * @param filter
+     * @param listChannels
+     *            the notification types whose contents are read, an empty list for the notification headers only, or null for all the contents
+     * @return the notification list
+     */
+    public static List<Notification> getByDemandIdTypeIdCustomerId( String strDemandId, String strDemandTypeId, String strCustomerId,
+            NotificationFilter filter, Collection<EnumNotificationType> listChannels )
+    {
+        return ( (NotificationDAO) _dao ).loadByDemandIdTypeIdCustomerId( strDemandId, strDemandTypeId, strCustomerId, filter, listChannels );
+    }
+
     /**
      * Find the notifications for a list of (demandId, demandTypeId) pairs and a customer id
      *
@@ -159,6 +205,29 @@ public final class NotificationHome
         return ( (NotificationDAO) _dao ).loadByDemandListAndCustomerId( listDemandPairs, strCustomerId, filter );
     }
 
+    /**
+     * Get the next notifications of a demand type in a time window, ordered by id, with their decoded contents
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param lStartDate
+     *            the start of the time window
+     * @param lEndDate
+     *            the end of the time window
+     * @param nIdNotification
+     *            the id of the last notification already read
+     * @param nLimit
+     *            the max number of notifications
+     * @param plugin
+     *            the plugin of the shard
+     * @return the notification list
+     */
+    public static List<Notification> getForExport( String strDemandTypeId, long lStartDate, long lEndDate, int nIdNotification, int nLimit,
+            Plugin plugin )
+    {
+        return ( (NotificationDAO) _dao ).loadForExport( strDemandTypeId, lStartDate, lEndDate, nIdNotification, nLimit, plugin );
+    }
+
     /**
      * Find the notifications according to the filter
      *
@@ -213,6 +282,19 @@ public final class NotificationHome
         _dao.delete( nKey );
     }
 
+    /**
+     * Remove a notification of a customer
+     * 
+     * @param nKey
+     *            the notification id
+     * @param strCustomerId
+     *            the customer id
+     */
+    public static void remove( int nKey, String strCustomerId )
+    {
+        ( (NotificationDAO) _dao ).delete( nKey, strCustomerId );
+    }
+
     /**
      * test if a notif exists with the specified demand_type_id
      * 
@@ -246,4 +328,33 @@ public final class NotificationHome
     {
         _dao.reassignNotifications( strOldCustomerId, strNewCustomerId );
     }
+
+    /**
+     * Remove a channel from the channel mask of notifications, after the removal of their contents of this channel
+     * 
+     * @param listIds
+     *            the ids of the notifications
+     * @param strNotificationType
+     *            the notification type of the removed contents
+     * @param plugin
+     *            the plugin of the shard
+     */
+    public static void removeChannel( Collection<Integer> listIds, String strNotificationType, Plugin plugin )
+    {
+        ( (NotificationDAO) _dao ).removeChannel( listIds, ChannelMask.getBit( strNotificationType ), plugin );
+    }
+
+    /**
+     * Remove the notifications which have no content left
+     * 
+     * @param listIds
+     *            the ids of the notifications to check
+     * @param plugin
+     *            the plugin of the shard
+     * @return the number of removed notifications
+     */
+    public static int removeWithoutContent( Collection<Integer> listIds, Plugin plugin )
+    {
+        return ( (NotificationDAO) _dao ).deleteWithoutContent( listIds, plugin );
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.Map;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+
+/**
+ * A demand loaded from the database. Its meta data are kept as the raw JSON of the meta_data column, and only parsed on first access. The values of the
+ * updatable columns are kept as stored, so that an update only writes the changed ones.
+ */
+public class PersistentDemand extends Demand
+{
+    private String _strMetaDataJson;
+    private boolean _bMetaDataParsed;
+    private int _nStoredStatusId;
+    private String _strStoredCustomerId;
+    private long _lStoredClosureDate;
+    private int _nStoredCurrentStep;
+    private String _strStoredSubtypeId;
+    private long _lStoredModifyDate;
+
+    /**
+     * Constructor
+     * 
+     * @param strMetaDataJson
+     *            the raw JSON of the meta data, as stored
+     */
+    PersistentDemand( String strMetaDataJson )
+    {
+        _strMetaDataJson = strMetaDataJson;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getMetaData( )
+    {
+        if ( !_bMetaDataParsed )
+        {
+            super.setMetaData( NotificationStoreUtils.jsonToHashMap( _strMetaDataJson ) );
+            _bMetaDataParsed = true;
+        }
+
+        return super.getMetaData( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMetaData( Map<String, String> mapMetaData )
+    {
+        super.setMetaData( mapMetaData );
+        _bMetaDataParsed = true;
+    }
+
+    /**
+     * Check if the meta data may have changed since the demand was loaded : they have been read (the map may have been modified) or replaced
+     * 
+     * @return true if the meta data must be written again
+     */
+    @JsonIgnore
+    public boolean isMetaDataChanged( )
+    {
+        return _bMetaDataParsed;
+    }
+
+    /**
+     * Get the meta data as JSON, without serializing them again if they are unchanged
+     * 
+     * @return the JSON of the meta data
+     */
+    @JsonIgnore
+    public String getMetaDataJson( )
+    {
+        return _bMetaDataParsed ? NotificationStoreUtils.hashMapToJson( super.getMetaData( ) ) : _strMetaDataJson;
+    }
+
+    /**
+     * Keep the current values of the updatable columns as the stored ones
+     */
+    void setStored( )
+    {
+        _nStoredStatusId = getStatusId( );
+        _strStoredCustomerId = getCustomerId( );
+        _lStoredClosureDate = getClosureDate( );
+        _nStoredCurrentStep = getCurrentStep( );
+        _strStoredSubtypeId = getSubtypeId( );
+        _lStoredModifyDate = getModifyDate( );
+    }
+
+    /**
+     * Check if the status id has changed since the demand was stored
+     * 
+     * @return true if the status id has changed
+     */
+    boolean isStatusIdChanged( )
+    {
+        return getStatusId( ) != _nStoredStatusId;
+    }
+
+    /**
+     * Check if the customer id has changed since the demand was stored
+     * 
+     * @return true if the customer id has changed
+     */
+    boolean isCustomerIdChanged( )
+    {
+        return !Objects.equals( getCustomerId( ), _strStoredCustomerId );
+    }
+
+    /**
+     * Check if the closure date has changed since the demand was stored
+     * 
+     * @return true if the closure date has changed
+     */
+    boolean isClosureDateChanged( )
+    {
+        return getClosureDate( ) != _lStoredClosureDate;
+    }
+
+    /**
+     * Check if the current step has changed since the demand was stored
+     * 
+     * @return true if the current step has changed
+     */
+    boolean isCurrentStepChanged( )
+    {
+        return getCurrentStep( ) != _nStoredCurrentStep;
+    }
+
+    /**
+     * Check if the subtype id has changed since the demand was stored
+     * 
+     * @return true if the subtype id has changed
+     */
+    boolean isSubtypeIdChanged( )
+    {
+        return !Objects.equals( getSubtypeId( ), _strStoredSubtypeId );
+    }
+
+    /**
+     * Check if the modification date has changed since the demand was stored
+     * 
+     * @return true if the modification date has changed
+     */
+    boolean isModifyDateChanged( )
+    {
+        return getModifyDate( ) != _lStoredModifyDate;
+    }
+
+    /**
+     * Get the customer id of the demand
+     * 
+     * @return the customer id, or null if the demand has no customer
+     */
+    private String getCustomerId( )
+    {
+        return getCustomer( ) != null ? getCustomer( ).getCustomerId( ) : null;
+    }
+}
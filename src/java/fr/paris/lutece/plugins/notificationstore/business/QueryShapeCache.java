@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import fr.paris.lutece.util.sql.DAOUtil;
+
+/**
+ * Cache of the SQL statements built from a filter.
+ * <p>
+ * A statement is identified by its shape : the criteria present in the filter and the arity bucket of its IN lists. The SQL of a shape is built once, all
+ * the values being bound as parameters, so that the same statements are sent to the database and can be reused by the prepared statement cache of the
+ * driver. IN lists are padded up to their arity bucket (a power of two) by repeating their last value, which does not change the result. Longer lists are
+ * split in chunks of at most {@link #MAX_IN_LIST_SIZE} values, so that the statements stay small and below the parameter limit of the drivers.
+ * </p>
+ *
+ * @param <K>
+ *            the type of the shape
+ */
+public final class QueryShapeCache<K>
+{
+    /**
+     * Max number of values of an IN list (a power of two)
+     */
+    public static final int MAX_IN_LIST_SIZE = 512;
+
+    private static final int DEFAULT_MAX_SIZE = 256;
+    private static final int KIND_SHIFT = 56;
+    private static final int ARITY_BITS = 0x3f;
+    private static final String PLACEHOLDER = "?";
+    private static final String PLACEHOLDER_SEPARATOR = ", ";
+
+    private final Map<K, String> _mapQueries = new ConcurrentHashMap<>( );
+    private final int _nMaxSize;
+
+    /**
+     * Constructor
+     */
+    public QueryShapeCache( )
+    {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param nMaxSize
+     *            the max number of cached statements
+     */
+    public QueryShapeCache( int nMaxSize )
+    {
+        _nMaxSize = nMaxSize;
+    }
+
+    /**
+     * Get the SQL statement of a shape, building it on the first call
+     * 
+     * @param shape
+     *            the shape
+     * @param builder
+     *            the builder of the statement, which must only depend on the shape
+     * @return the SQL statement
+     */
+    public String getQuery( K shape, Supplier<String> builder )
+    {
+        String strQuery = _mapQueries.get( shape );
+
+        if ( strQuery == null )
+        {
+            strQuery = builder.get( );
+
+            // unexpected shapes are not cached beyond the max size
+            if ( _mapQueries.size( ) < _nMaxSize )
+            {
+                _mapQueries.putIfAbsent( shape, strQuery );
+            }
+        }
+
+        return strQuery;
+    }
+
+    /**
+     * Get the number of cached statements
+     * 
+     * @return the number of cached statements
+     */
+    public int size( )
+    {
+        return _mapQueries.size( );
+    }
+
+    /**
+     * Build a shape from the kind of statement (select, count, ...) and the criteria bitmask
+     * 
+     * @param nKind
+     *            the kind of statement (0 to 127)
+     * @param lCriteria
+     *            the criteria bitmask (bits 0 to 55)
+     * @return the shape
+     */
+    public static long shape( int nKind, long lCriteria )
+    {
+        return ( (long) nKind << KIND_SHIFT ) | lCriteria;
+    }
+
+    /**
+     * Encode the arity bucket of an IN list in a criteria bitmask
+     * 
+     * @param nSize
+     *            the size of the list
+     * @param nShift
+     *            the position of the 6 bits reserved for the list in the bitmask
+     * @return the bits to add to the bitmask
+     */
+    public static long arity( int nSize, int nShift )
+    {
+        return (long) Integer.numberOfTrailingZeros( getArityBucket( nSize ) ) << nShift;
+    }
+
+    /**
+     * Decode the arity bucket of an IN list from a criteria bitmask
+     * 
+     * @param lShape
+     *            the shape
+     * @param nShift
+     *            the position of the 6 bits reserved for the list in the bitmask
+     * @return the arity bucket
+     */
+    public static int getArity( long lShape, int nShift )
+    {
+        return 1 << ( ( lShape >>> nShift ) & ARITY_BITS );
+    }
+
+    /**
+     * Get the arity bucket of a list : the smallest power of two greater or equal to its size
+     * 
+     * @param nSize
+     *            the size of the list
+     * @return the arity bucket
+     */
+    public static int getArityBucket( int nSize )
+    {
+        return nSize <= 1 ? 1 : Integer.highestOneBit( nSize - 1 ) << 1;
+    }
+
+    /**
+     * Get the placeholders of an IN list
+     * 
+     * @param nArity
+     *            the number of placeholders
+     * @return the placeholders, separated by commas
+     */
+    public static String getPlaceholders( int nArity )
+    {
+        StringBuilder sbPlaceholders = new StringBuilder( nArity * 3 );
+
+        for ( int i = 0; i < nArity; i++ )
+        {
+            if ( i > 0 )
+            {
+                sbPlaceholders.append( PLACEHOLDER_SEPARATOR );
+            }
+            sbPlaceholders.append( PLACEHOLDER );
+        }
+
+        return sbPlaceholders.toString( );
+    }
+
+    /**
+     * Bind the values of an IN list of integers, padded up to the arity bucket with the last value
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param nIndex
+     *            the index of the first parameter
+     * @param listValues
+     *            the values (not empty)
+     * @param nArity
+     *            the arity bucket
+     * @return the index of the next parameter
+     */
+    public static int setInts( DAOUtil daoUtil, int nIndex, List<Integer> listValues, int nArity )
+    {
+        for ( int i = 0; i < nArity; i++ )
+        {
+            daoUtil.setInt( nIndex++, listValues.get( Math.min( i, listValues.size( ) - 1 ) ) );
+        }
+
+        return nIndex;
+    }
+
+    /**
+     * Bind the values of an IN list of strings, padded up to the arity bucket with the last value
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param nIndex
+     *            the index of the first parameter
+     * @param listValues
+     *            the values (not empty)
+     * @param nArity
+     *            the arity bucket
+     * @return the index of the next parameter
+     */
+    public static int setStrings( DAOUtil daoUtil, int nIndex, List<String> listValues, int nArity )
+    {
+        for ( int i = 0; i < nArity; i++ )
+        {
+            daoUtil.setString( nIndex++, listValues.get( Math.min( i, listValues.size( ) - 1 ) ) );
+        }
+
+        return nIndex;
+    }
+
+    /**
+     * Split a list of values in chunks of at most {@link #MAX_IN_LIST_SIZE} distinct values, in ascending order
+     * 
+     * @param <V>
+     *            the type of the values
+     * @param values
+     *            the values
+     * @return the chunks
+     */
+    public static <V extends Comparable<V>> List<List<V>> getSortedChunks( Collection<V> values )
+    {
+        return getChunks( new ArrayList<>( new TreeSet<>( values ) ), MAX_IN_LIST_SIZE );
+    }
+
+    /**
+     * Split a list of values in chunks
+     * 
+     * @param <V>
+     *            the type of the values
+     * @param listValues
+     *            the values
+     * @param nChunkSize
+     *            the max size of a chunk
+     * @return the chunks
+     */
+    public static <V> List<List<V>> getChunks( List<V> listValues, int nChunkSize )
+    {
+        List<List<V>> listChunks = new ArrayList<>( );
+
+        for ( int nFrom = 0; nFrom < listValues.size( ); nFrom += nChunkSize )
+        {
+            listChunks.add( listValues.subList( nFrom, Math.min( listValues.size( ), nFrom + nChunkSize ) ) );
+        }
+
+        return listChunks;
+    }
+}
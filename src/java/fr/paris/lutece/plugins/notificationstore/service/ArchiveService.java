@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
+import fr.paris.lutece.plugins.notificationstore.business.Archive;
+import fr.paris.lutece.plugins.notificationstore.business.ArchiveHome;
+import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationContentReader;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationContentWriter;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.business.physicalfile.PhysicalFile;
+import fr.paris.lutece.portal.service.file.FileService;
+import fr.paris.lutece.portal.service.file.FileServiceException;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Archive of the closed demands.
+ * <p>
+ * The demands closed with a final status for more than the configured period are moved to the demand archive table. Their notifications, notification
+ * contents and events are packed into one compressed archive file per customer and run, then deleted from the active tables and from the file store. The
+ * archived demands are only read when explicitly requested.
+ * </p>
+ */
+public final class ArchiveService
+{
+    // Properties
+    private static final String PROPERTY_NB_DAYS_AFTER_CLOSURE = "notificationstore.archive.nbDaysAfterClosure";
+    private static final String PROPERTY_BATCH_SIZE = "notificationstore.archive.batchSize";
+    private static final int DEFAULT_NB_DAYS_AFTER_CLOSURE = 365;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final String ARCHIVE_FILE_TITLE_PREFIX = "archive_";
+
+    private static ArchiveService _instance;
+
+    /**
+     * Private constructor
+     */
+    private ArchiveService( )
+    {
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized ArchiveService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ArchiveService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Archive a batch of closed demands in each shard
+     * 
+     * @return the logs of the run
+     */
+    public synchronized String process( )
+    {
+        int nNbDays = AppPropertiesService.getPropertyInt( PROPERTY_NB_DAYS_AFTER_CLOSURE, DEFAULT_NB_DAYS_AFTER_CLOSURE );
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+        long lClosedBefore = System.currentTimeMillis( ) - TimeUnit.DAYS.toMillis( nNbDays );
+        List<Integer> listFinalStatusIds = Arrays.stream( EnumGenericStatus.values( ) ).filter( EnumGenericStatus::isFinalStatus )
+                .map( EnumGenericStatus::getStatusId ).collect( Collectors.toList( ) );
+
+        int nArchived = 0;
+        int nErrors = 0;
+
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            Map<String, List<Demand>> mapDemandsByCustomer = DemandHome.getClosedDemands( lClosedBefore, listFinalStatusIds, nBatchSize, plugin ).stream( )
+                    .collect( Collectors.groupingBy( demand -> demand.getCustomer( ).getCustomerId( ), LinkedHashMap::new, Collectors.toList( ) ) );
+
+            for ( Map.Entry<String, List<Demand>> entry : mapDemandsByCustomer.entrySet( ) )
+            {
+                try
+                {
+                    nArchived += archive( entry.getKey( ), entry.getValue( ), lClosedBefore, listFinalStatusIds, plugin );
+                }
+                catch( AppException e )
+                {
+                    AppLogService.error( "Unable to archive the demands of the customer {}", entry.getKey( ), e );
+                    nErrors++;
+                }
+            }
+        }
+
+        return "Archived demands : " + nArchived + ", customers in error : " + nErrors + " (closed for more than " + nNbDays + " days)";
+    }
+
+    /**
+     * Get the archived demands of a customer, with their notifications
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the archived demands
+     */
+    public List<Demand> getArchivedDemands( String strCustomerId )
+    {
+        List<Demand> listDemands = new ArrayList<>( );
+
+        for ( Archive archive : ArchiveHome.getArchivesByCustomerId( strCustomerId ) )
+        {
+            ArchiveContent content = readArchive( archive );
+            if ( content != null )
+            {
+                listDemands.addAll( content.getDemands( ) );
+            }
+        }
+
+        return listDemands;
+    }
+
+    /**
+     * Delete the archives of a customer. Their files are not deleted : they must be released once the deletion is committed.
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param plugin
+     *            the plugin of the shard of the customer
+     * @return the deleted archives, whose files are to release
+     */
+    public List<Archive> deleteArchives( String strCustomerId, Plugin plugin )
+    {
+        List<Archive> listArchives = ArchiveHome.getArchivesByCustomerId( strCustomerId );
+
+        ArchiveHome.removeByCustomerId( strCustomerId, plugin );
+        DemandHome.deleteArchivedByCustomerId( strCustomerId, plugin );
+
+        return listArchives;
+    }
+
+    /**
+     * Release the files of deleted archives. To be called once the deletion of the archives is committed.
+     * 
+     * @param listArchives
+     *            the deleted archives
+     */
+    public void release( List<Archive> listArchives )
+    {
+        for ( Archive archive : listArchives )
+        {
+            deleteFile( archive.getFileStore( ), archive.getFileKey( ) );
+        }
+    }
+
+    /**
+     * Archive demands of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param listClosedDemands
+     *            the closed demands of the customer
+     * @param lClosedBefore
+     *            the closure date limit
+     * @param listFinalStatusIds
+     *            the final status ids
+     * @param plugin
+     *            the plugin of the shard of the customer
+     * @return the number of archived demands
+     */
+    private int archive( String strCustomerId, List<Demand> listClosedDemands, long lClosedBefore, List<Integer> listFinalStatusIds, Plugin plugin )
+    {
+        Archive archive = new Archive( );
+        archive.setCustomerId( strCustomerId );
+        archive.setArchiveDate( System.currentTimeMillis( ) );
+        archive.setFileStore( NotificationStoreConstants.FILE_STORE_PROVIDER );
+
+        List<Demand> listDemands = new ArrayList<>( );
+        List<NotificationContent> listContents = new ArrayList<>( );
+
+        TransactionManager.beginTransaction( plugin );
+
+        try
+        {
+            // the demands still closed are locked, then read again : a notification received meanwhile has reopened its demand, or waits for the archive
+            List<NotificationEvent> listEvents = new ArrayList<>( );
+            for ( Demand closedDemand : listClosedDemands )
+            {
+                Demand demand = DemandHome.lockClosedDemand( closedDemand.getUID( ), lClosedBefore, listFinalStatusIds, plugin );
+                if ( demand != null )
+                {
+                    demand.setNotifications( NotificationHome.findByDemand( demand.getId( ), demand.getTypeId( ), strCustomerId ) );
+                    listEvents.addAll( NotificationEventHome.findByDemand( demand.getId( ), demand.getTypeId( ), strCustomerId ) );
+                    listDemands.add( demand );
+                }
+            }
+
+            if ( listDemands.isEmpty( ) )
+            {
+                TransactionManager.commitTransaction( plugin );
+                return 0;
+            }
+
+            archive.setFileKey( storeArchive( strCustomerId, new ArchiveContent( listDemands, listEvents ) ) );
+            ArchiveHome.create( archive, plugin );
+
+            for ( Demand demand : listDemands )
+            {
+                Set<String> setNotificationTypes = new TreeSet<>( );
+
+                for ( Notification notification : demand.getNotifications( ) )
+                {
+                    for ( NotificationContent content : NotificationContentHome.getNotificationContentsByIdNotification( notification.getId( ), plugin ) )
+                    {
+                        setNotificationTypes.add( content.getNotificationType( ) );
+                        listContents.add( content );
+                        NotificationContentHome.remove( content.getId( ), plugin );
+                    }
+                    NotificationHome.remove( notification.getId( ), strCustomerId );
+                }
+
+                DemandHome.createArchived( demand, setNotificationTypes, archive.getId( ), plugin );
+                DemandHome.deleteByUid( demand.getUID( ), strCustomerId );
+            }
+
+            // the demands left to the customer keep the channels of their own notifications only
+            DemandHome.refreshChannels( strCustomerId, plugin );
+
+            TransactionManager.commitTransaction( plugin );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( plugin );
+            if ( archive.getFileKey( ) != null )
+            {
+                deleteFile( archive.getFileStore( ), archive.getFileKey( ) );
+            }
+
+            throw new AppException( e.getMessage( ), e );
+        }
+
+        // the files and the events are not in the transaction : they are removed once the archive is committed
+        ContentBlobService.getInstance( ).release( listContents );
+        for ( Demand demand : listDemands )
+        {
+            NotificationEventHome.deleteByDemand( demand.getId( ), demand.getTypeId( ), strCustomerId );
+        }
+
+        return listDemands.size( );
+    }
+
+    /**
+     * Store the compressed content of an archive in the file store
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param content
+     *            the archive content
+     * @return the file key
+     */
+    private String storeArchive( String strCustomerId, ArchiveContent content )
+    {
+        try
+        {
+            byte [ ] bytes = NotificationContentWriter.write( NotificationStoreUtils.getMapper( ), content, true );
+
+            File file = new File( );
+            file.setTitle( ARCHIVE_FILE_TITLE_PREFIX + strCustomerId );
+            file.setSize( bytes.length );
+            file.setMimeType( MediaType.APPLICATION_JSON );
+
+            PhysicalFile physicalFile = new PhysicalFile( );
+            physicalFile.setValue( bytes );
+            file.setPhysicalFile( physicalFile );
+
+            return FileService.getInstance( ).getFileStoreServiceProvider( NotificationStoreConstants.FILE_STORE_PROVIDER ).storeFile( file );
+        }
+        catch( IOException | FileServiceException e )
+        {
+            throw new AppException( "Unable to store the archive of the customer " + strCustomerId, e );
+        }
+    }
+
+    /**
+     * Read the content of an archive
+     * 
+     * @param archive
+     *            the archive
+     * @return the content, or null if the archive can't be read
+     */
+    private ArchiveContent readArchive( Archive archive )
+    {
+        try
+        {
+            File file = FileService.getInstance( ).getFileStoreServiceProvider( archive.getFileStore( ) ).getFile( archive.getFileKey( ) );
+            if ( file == null || file.getPhysicalFile( ) == null )
+            {
+                AppLogService.error( "The file of the archive {} is missing", archive.getId( ) );
+                return null;
+            }
+
+            return NotificationContentReader.read( NotificationStoreUtils.getMapper( ), file.getPhysicalFile( ).getValue( ),
+                    new TypeReference<ArchiveContent>( )
+                    {
+                    } );
+        }
+        catch( FileServiceException | IOException e )
+        {
+            AppLogService.error( "Error while reading the archive " + archive.getId( ), e );
+        }
+
+        return null;
+    }
+
+    /**
+     * Delete a file, logging the errors
+     * 
+     * @param strFileStore
+     *            the file store
+     * @param strFileKey
+     *            the file key
+     */
+    private static void deleteFile( String strFileStore, String strFileKey )
+    {
+        try
+        {
+            FileService.getInstance( ).getFileStoreServiceProvider( strFileStore ).delete( strFileKey );
+        }
+        catch( FileServiceException e )
+        {
+            AppLogService.error( "Unable to delete the file {} of the file store {}", strFileKey, strFileStore, e );
+        }
+    }
+
+    /**
+     * The content of an archive file : the archived demands with their notifications, and their events
+     */
+    public static final class ArchiveContent
+    {
+        private List<Demand> _listDemands;
+        private List<NotificationEvent> _listEvents;
+
+        /**
+         * Constructor
+         */
+        public ArchiveContent( )
+        {
+            this( new ArrayList<>( ), new ArrayList<>( ) );
+        }
+
+        /**
+         * Constructor
+         * 
+         * @param listDemands
+         *            the demands, with their notifications
+         * @param listEvents
+         *            the events of the demands
+         */
+        public ArchiveContent( List<Demand> listDemands, List<NotificationEvent> listEvents )
+        {
+            _listDemands = listDemands;
+            _listEvents = listEvents;
+        }
+
+        /**
+         * @return the demands
+         */
+        public List<Demand> getDemands( )
+        {
+            return _listDemands;
+        }
+
+        /**
+         * @param listDemands
+         *            the demands
+         */
+        public void setDemands( List<Demand> listDemands )
+        {
+            _listDemands = listDemands;
+        }
+
+        /**
+         * @return the events
+         */
+        public List<NotificationEvent> getEvents( )
+        {
+            return _listEvents;
+        }
+
+        /**
+         * @param listEvents
+         *            the events
+         */
+        public void setEvents( List<NotificationEvent> listEvents )
+        {
+            _listEvents = listEvents;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of hashes : a negative answer is certain, a positive one may be false with the configured probability.
+ * <p>
+ * The hashes must be uniformly distributed (SHA-256 for instance) and at least 16 bytes long : their first two longs give the bit positions by double
+ * hashing.
+ * </p>
+ */
+final class BloomFilter
+{
+    private final AtomicLongArray _bits;
+    private final long _lNbBits;
+    private final int _nNbHashes;
+
+    /**
+     * Constructor
+     * 
+     * @param nExpectedInsertions
+     *            the expected number of hashes
+     * @param dFalsePositiveRate
+     *            the false positive rate once the expected number of hashes are put
+     */
+    BloomFilter( int nExpectedInsertions, double dFalsePositiveRate )
+    {
+        long lNbBits = (long) Math.ceil( -nExpectedInsertions * Math.log( dFalsePositiveRate ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+        int nNbLongs = (int) Math.max( 1, ( lNbBits + Long.SIZE - 1 ) / Long.SIZE );
+
+        _bits = new AtomicLongArray( nNbLongs );
+        _lNbBits = (long) nNbLongs * Long.SIZE;
+        _nNbHashes = Math.max( 1, (int) Math.round( (double) _lNbBits / nExpectedInsertions * Math.log( 2 ) ) );
+    }
+
+    /**
+     * Put a hash
+     * 
+     * @param hash
+     *            the hash
+     */
+    void put( byte [ ] hash )
+    {
+        ByteBuffer buffer = ByteBuffer.wrap( hash );
+        long lHash1 = buffer.getLong( );
+        long lHash2 = buffer.getLong( );
+
+        for ( int i = 0; i < _nNbHashes; i++ )
+        {
+            long lBit = Math.floorMod( lHash1 + i * lHash2, _lNbBits );
+            int nIndex = (int) ( lBit >>> 6 );
+            long lMask = 1L << lBit;
+            long lValue = _bits.get( nIndex );
+
+            while ( ( lValue & lMask ) == 0 && !_bits.compareAndSet( nIndex, lValue, lValue | lMask ) )
+            {
+                lValue = _bits.get( nIndex );
+            }
+        }
+    }
+
+    /**
+     * Check if a hash may have been put
+     * 
+     * @param hash
+     *            the hash
+     * @return false if the hash has certainly not been put
+     */
+    boolean mightContain( byte [ ] hash )
+    {
+        ByteBuffer buffer = ByteBuffer.wrap( hash );
+        long lHash1 = buffer.getLong( );
+        long lHash2 = buffer.getLong( );
+
+        for ( int i = 0; i < _nNbHashes; i++ )
+        {
+            long lBit = Math.floorMod( lHash1 + i * lHash2, _lNbBits );
+
+            if ( ( _bits.get( (int) ( lBit >>> 6 ) ) & ( 1L << lBit ) ) == 0 )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
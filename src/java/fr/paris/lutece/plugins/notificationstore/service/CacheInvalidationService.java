@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.plugins.notificationstore.business.CacheEvent;
+import fr.paris.lutece.plugins.notificationstore.business.ICacheEventDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Invalidation of the local caches on every webapp of the cluster.
+ * <p>
+ * Each modification of cached data is published as an event in a change log table whose ids increase. Each webapp polls the events after the last id it
+ * has read (CacheInvalidationDaemon) and invalidates its caches named by the events published by the other webapps. An id missing in the log may be an
+ * event not committed yet : it is read again by the next polls until it appears or its gap timeout expires.
+ * </p>
+ */
+public final class CacheInvalidationService
+{
+    public static final String CACHE_REFERENCE_DATA = "referenceData";
+
+    // Properties
+    private static final String PROPERTY_GAP_TIMEOUT = "notificationstore.cacheEvent.gapTimeout";
+    private static final String PROPERTY_NB_DAYS = "notificationstore.cacheEvent.nbDays";
+    private static final int DEFAULT_GAP_TIMEOUT = 60000;
+    private static final int DEFAULT_NB_DAYS = 1;
+
+    // above this number of missing ids, the ids are not allocated one by one (auto increment jump)
+    private static final int MAX_GAPS = 1000;
+
+    private static final String BEAN_CACHE_EVENT_DAO = "notificationstore.cacheEventDao";
+
+    private static CacheInvalidationService _instance;
+
+    private final ICacheEventDAO _dao;
+    private final Plugin _plugin;
+    private final long _lGapTimeout;
+    private final Map<String, Runnable> _mapInvalidations = new ConcurrentHashMap<>( );
+    private final Set<Long> _setPublishedEvents = ConcurrentHashMap.newKeySet( );
+    private final Map<Long, Long> _mapGaps = new HashMap<>( );
+    private long _lLastIdEvent;
+
+    /**
+     * Constructor. The events already in the log are ignored : the caches are loaded after the creation of this service.
+     * 
+     * @param dao
+     *            the cache event DAO
+     * @param plugin
+     *            the plugin of the change log table
+     * @param lGapTimeout
+     *            the delay in milliseconds to wait for a missing event id
+     */
+    CacheInvalidationService( ICacheEventDAO dao, Plugin plugin, long lGapTimeout )
+    {
+        _dao = dao;
+        _plugin = plugin;
+        _lGapTimeout = lGapTimeout;
+        _lLastIdEvent = dao.selectLastId( plugin );
+    }
+
+    /**
+     * get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized CacheInvalidationService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new CacheInvalidationService( SpringContextService.getBean( BEAN_CACHE_EVENT_DAO ), NotificationStorePlugin.getPlugin( ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_GAP_TIMEOUT, DEFAULT_GAP_TIMEOUT ) );
+        }
+        return _instance;
+    }
+
+    /**
+     * Register the invalidation of a local cache
+     * 
+     * @param strCacheName
+     *            the cache name
+     * @param invalidation
+     *            the invalidation of the cache
+     */
+    public void register( String strCacheName, Runnable invalidation )
+    {
+        _mapInvalidations.put( strCacheName, invalidation );
+    }
+
+    /**
+     * Publish the invalidation of a cache to the other webapps. The local cache must be invalidated by the caller.
+     * 
+     * @param strCacheName
+     *            the cache name
+     */
+    public void publish( String strCacheName )
+    {
+        _setPublishedEvents.add( _dao.insert( strCacheName, _plugin ) );
+    }
+
+    /**
+     * Read the new events of the change log and invalidate the caches named by the events published by the other webapps
+     * 
+     * @return the number of invalidated caches
+     */
+    public synchronized int poll( )
+    {
+        long lNow = System.currentTimeMillis( );
+        long lIdFrom = _mapGaps.isEmpty( ) ? _lLastIdEvent : Collections.min( _mapGaps.keySet( ) ) - 1;
+        Set<String> setCacheNames = new HashSet<>( );
+
+        for ( CacheEvent event : _dao.selectAfter( lIdFrom, _plugin ) )
+        {
+            long lIdEvent = event.getId( );
+            if ( lIdEvent > _lLastIdEvent )
+            {
+                if ( lIdEvent - _lLastIdEvent - 1 <= MAX_GAPS )
+                {
+                    for ( long lIdMissing = _lLastIdEvent + 1; lIdMissing < lIdEvent; lIdMissing++ )
+                    {
+                        _mapGaps.put( lIdMissing, lNow );
+                    }
+                }
+                _lLastIdEvent = lIdEvent;
+            }
+            else
+                if ( _mapGaps.remove( lIdEvent ) == null )
+                {
+                    // already read
+                    continue;
+                }
+
+            if ( !_setPublishedEvents.remove( lIdEvent ) )
+            {
+                setCacheNames.add( event.getCacheName( ) );
+            }
+        }
+        _mapGaps.values( ).removeIf( lMissingSince -> lNow - lMissingSince > _lGapTimeout );
+
+        int nInvalidated = 0;
+        for ( String strCacheName : setCacheNames )
+        {
+            Runnable invalidation = _mapInvalidations.get( strCacheName );
+            if ( invalidation != null )
+            {
+                try
+                {
+                    invalidation.run( );
+                    nInvalidated++;
+                }
+                catch( RuntimeException e )
+                {
+                    AppLogService.error( "Error invalidating the cache {}", strCacheName, e );
+                }
+            }
+        }
+
+        return nInvalidated;
+    }
+
+    /**
+     * Purge the events older than the configured number of days
+     * 
+     * @return the logs
+     */
+    public String purge( )
+    {
+        long lDateBefore = System.currentTimeMillis( ) - TimeUnit.DAYS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_NB_DAYS, DEFAULT_NB_DAYS ) );
+
+        return "Deleted cache events : " + _dao.deleteBefore( lDateBefore, _plugin );
+    }
+}
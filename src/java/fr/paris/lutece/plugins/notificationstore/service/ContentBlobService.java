@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.notificationstore.business.ContentBlob;
+import fr.paris.lutece.plugins.notificationstore.business.ContentBlobHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.service.file.FileService;
+import fr.paris.lutece.portal.service.file.FileServiceException;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Content-addressable storage of the notification contents.
+ * <p>
+ * When the property <code>notificationstore.notification.deduplicate</code> is set, a notification content file is stored once per distinct payload : the
+ * file is referenced by the SHA-256 hash of its bytes, with the number of notification contents using it. The contents of a broadcast or a campaign share a
+ * single file. The references are removed once the notification contents are deleted and committed, then the files no longer referenced are deleted. The
+ * files stored before, or while the property is not set, still belong to their notification content only.
+ * </p>
+ * <p>
+ * The references are taken before the transaction of the notification, each in its own statement, and released if the notification is not stored.
+ * </p>
+ */
+public final class ContentBlobService
+{
+    // Properties
+    private static final String PROPERTY_CHUNK_SIZE = "notificationstore.retention.chunkSize";
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static ContentBlobService _instance;
+
+    /**
+     * Private constructor
+     */
+    private ContentBlobService( )
+    {
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized ContentBlobService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ContentBlobService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Check if the new notification contents share their files
+     * 
+     * @return true if the files are stored once per distinct payload
+     */
+    public boolean isEnabled( )
+    {
+        return AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_DEDUPLICATE_NOTIFICATION, false );
+    }
+
+    /**
+     * Get a reference to the shared file of a content, storing the file if its content is not stored yet
+     * 
+     * @param file
+     *            the file, with its physical file
+     * @return the content blob, referencing the stored file
+     * @throws FileServiceException
+     *             if the file can not be stored
+     */
+    public ContentBlob store( File file ) throws FileServiceException
+    {
+        String strContentHash = getContentHash( file.getPhysicalFile( ).getValue( ) );
+
+        ContentBlob contentBlob = ContentBlobHome.acquire( strContentHash );
+        if ( contentBlob != null )
+        {
+            return contentBlob;
+        }
+
+        // the file is shared by several notifications : it is named after its content
+        file.setTitle( strContentHash );
+
+        contentBlob = new ContentBlob( );
+        contentBlob.setContentHash( strContentHash );
+        contentBlob.setFileStore( NotificationStoreConstants.FILE_STORE_PROVIDER );
+        contentBlob.setFileKey( FileService.getInstance( ).getFileStoreServiceProvider( NotificationStoreConstants.FILE_STORE_PROVIDER ).storeFile( file ) );
+        contentBlob.setRefCount( 1 );
+
+        if ( ContentBlobHome.create( contentBlob ) )
+        {
+            return contentBlob;
+        }
+
+        // the same content has been stored meanwhile by another notification : its file is used
+        deleteFile( contentBlob.getFileStore( ), contentBlob.getFileKey( ) );
+
+        return store( file );
+    }
+
+    /**
+     * Release the files of deleted notification contents : the references to the shared files are removed, then the files which are no longer referenced
+     * are deleted. The other files are deleted. To be called once the deletion of the notification contents is committed.
+     * 
+     * @param listContents
+     *            the deleted notification contents
+     * @return the number of deleted files
+     */
+    public int release( Collection<NotificationContent> listContents )
+    {
+        Map<String, Integer> mapReferences = new HashMap<>( );
+        int nDeletedFiles = 0;
+
+        for ( NotificationContent content : listContents )
+        {
+            if ( content.getContentHash( ) != null )
+            {
+                mapReferences.merge( content.getContentHash( ), 1, Integer::sum );
+            }
+            else
+                if ( StringUtils.isNotEmpty( content.getFileKey( ) ) && deleteFile( content.getFileStore( ), content.getFileKey( ) ) )
+                {
+                    nDeletedFiles++;
+                }
+        }
+
+        if ( mapReferences.isEmpty( ) )
+        {
+            return nDeletedFiles;
+        }
+
+        ContentBlobHome.release( mapReferences );
+
+        for ( String strContentHash : mapReferences.keySet( ) )
+        {
+            ContentBlob contentBlob = ContentBlobHome.findByPrimaryKey( strContentHash );
+            if ( contentBlob != null && contentBlob.getRefCount( ) <= 0 && collect( contentBlob ) )
+            {
+                nDeletedFiles++;
+            }
+        }
+
+        return nDeletedFiles;
+    }
+
+    /**
+     * Delete the shared files which are no longer referenced, left by an interrupted release
+     * 
+     * @return the logs of the purge
+     */
+    public String purge( )
+    {
+        int nDeletedFiles = 0;
+
+        for ( ContentBlob contentBlob : ContentBlobHome.findUnreferenced( AppPropertiesService.getPropertyInt( PROPERTY_CHUNK_SIZE, DEFAULT_CHUNK_SIZE ) ) )
+        {
+            if ( collect( contentBlob ) )
+            {
+                nDeletedFiles++;
+            }
+        }
+
+        return "Deleted unreferenced content files : " + nDeletedFiles;
+    }
+
+    /**
+     * Remove a content blob which is no longer referenced, then delete its file
+     * 
+     * @param contentBlob
+     *            the content blob
+     * @return true if the file has been deleted, false if the content blob has been referenced again meanwhile
+     */
+    private boolean collect( ContentBlob contentBlob )
+    {
+        return ContentBlobHome.removeUnreferenced( contentBlob.getContentHash( ) ) && deleteFile( contentBlob.getFileStore( ), contentBlob.getFileKey( ) );
+    }
+
+    /**
+     * Get the hash of a file content
+     * 
+     * @param content
+     *            the bytes of the file
+     * @return the SHA-256 hash, in hexadecimal
+     */
+    private static String getContentHash( byte [ ] content )
+    {
+        try
+        {
+            return NotificationStoreUtils.toHex( MessageDigest.getInstance( DIGEST_ALGORITHM ).digest( content ) );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new AppException( "Unable to hash the notification content", e );
+        }
+    }
+
+    /**
+     * Delete a file, logging the errors
+     * 
+     * @param strFileStore
+     *            the file store
+     * @param strFileKey
+     *            the file key
+     * @return true if the file has been deleted
+     */
+    private static boolean deleteFile( String strFileStore, String strFileKey )
+    {
+        try
+        {
+            FileService.getInstance( ).getFileStoreServiceProvider( strFileStore ).delete( strFileKey );
+            return true;
+        }
+        catch( FileServiceException e )
+        {
+            AppLogService.error( "Unable to delete the file {} of the file store {}", strFileKey, strFileStore, e );
+            return false;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.notificationstore.business.ContentBlob;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationContentReader;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.portal.business.file.File;
+import fr.paris.lutece.portal.business.physicalfile.PhysicalFile;
+import fr.paris.lutece.portal.service.datastore.DatastoreService;
+import fr.paris.lutece.portal.service.file.FileService;
+import fr.paris.lutece.portal.service.file.FileServiceException;
+import fr.paris.lutece.portal.service.file.IFileStoreServiceProvider;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Migration of the existing notification contents to the configured codec (compressed or not).
+ * <p>
+ * The blobs are rewritten in place, shard after shard, in chunks ordered by notification content id. Each file is read from and written to the file store
+ * of its notification content. The progress is checkpointed in the datastore after each chunk, so the migration can be paused, resumed and survives a
+ * restart. The ids of the notifications and of their contents are never changed.
+ * </p>
+ */
+public final class ContentMigrationService
+{
+    public static final String STATUS_NONE = "NONE";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_PAUSED = "PAUSED";
+    public static final String STATUS_DONE = "DONE";
+
+    // Properties
+    private static final String PROPERTY_CHUNK_SIZE = "notificationstore.contentMigration.chunkSize";
+    private static final String PROPERTY_MAX_CHUNKS_PER_RUN = "notificationstore.contentMigration.maxChunksPerRun";
+    private static final String PROPERTY_PAUSE_BETWEEN_CHUNKS = "notificationstore.contentMigration.pauseBetweenChunks";
+
+    // Datastore keys
+    private static final String DS_KEY_PREFIX = "notificationstore.contentMigration.";
+    private static final String DS_KEY_STATUS = DS_KEY_PREFIX + "status";
+    private static final String DS_KEY_COMPRESS = DS_KEY_PREFIX + "compress";
+    private static final String DS_KEY_SHARD = DS_KEY_PREFIX + "shard";
+    private static final String DS_KEY_LAST_ID = DS_KEY_PREFIX + "lastId";
+    private static final String DS_KEY_PROCESSED = DS_KEY_PREFIX + "processed";
+    private static final String DS_KEY_MIGRATED = DS_KEY_PREFIX + "migrated";
+    private static final String DS_KEY_ERRORS = DS_KEY_PREFIX + "errors";
+    private static final String DS_KEY_TOTAL = DS_KEY_PREFIX + "total";
+
+    private static ContentMigrationService _instance;
+
+    /**
+     * Private constructor
+     */
+    private ContentMigrationService( )
+    {
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized ContentMigrationService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ContentMigrationService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Start a new migration, from the first notification content
+     * 
+     * @param bCompress
+     *            true to compress the contents, false to decompress them
+     */
+    public synchronized void start( boolean bCompress )
+    {
+        int nTotal = 0;
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            nTotal += NotificationContentHome.countNotificationContentsAfterId( 0, plugin );
+        }
+
+        DatastoreService.setDataValue( DS_KEY_COMPRESS, String.valueOf( bCompress ) );
+        DatastoreService.setDataValue( DS_KEY_SHARD, "0" );
+        DatastoreService.setDataValue( DS_KEY_LAST_ID, "0" );
+        DatastoreService.setDataValue( DS_KEY_PROCESSED, "0" );
+        DatastoreService.setDataValue( DS_KEY_MIGRATED, "0" );
+        DatastoreService.setDataValue( DS_KEY_ERRORS, "0" );
+        DatastoreService.setDataValue( DS_KEY_TOTAL, String.valueOf( nTotal ) );
+        DatastoreService.setDataValue( DS_KEY_STATUS, STATUS_RUNNING );
+    }
+
+    /**
+     * Pause the running migration. The current chunk is completed.
+     */
+    public synchronized void pause( )
+    {
+        if ( STATUS_RUNNING.equals( getStatus( ) ) )
+        {
+            DatastoreService.setDataValue( DS_KEY_STATUS, STATUS_PAUSED );
+        }
+    }
+
+    /**
+     * Resume the paused migration from its last checkpoint
+     */
+    public synchronized void resume( )
+    {
+        if ( STATUS_PAUSED.equals( getStatus( ) ) )
+        {
+            DatastoreService.setDataValue( DS_KEY_STATUS, STATUS_RUNNING );
+        }
+    }
+
+    /**
+     * Get the status of the migration
+     * 
+     * @return the status
+     */
+    public String getStatus( )
+    {
+        return DatastoreService.getDataValue( DS_KEY_STATUS, STATUS_NONE );
+    }
+
+    /**
+     * Get the progress of the migration
+     * 
+     * @return the progress
+     */
+    public Progress getProgress( )
+    {
+        Progress progress = new Progress( );
+        progress._strStatus = getStatus( );
+        progress._bCompress = Boolean.parseBoolean( DatastoreService.getDataValue( DS_KEY_COMPRESS, "false" ) );
+        progress._nShard = getIntValue( DS_KEY_SHARD );
+        progress._nLastId = getIntValue( DS_KEY_LAST_ID );
+        progress._nProcessed = getIntValue( DS_KEY_PROCESSED );
+        progress._nMigrated = getIntValue( DS_KEY_MIGRATED );
+        progress._nErrors = getIntValue( DS_KEY_ERRORS );
+        progress._nTotal = getIntValue( DS_KEY_TOTAL );
+
+        return progress;
+    }
+
+    /**
+     * Process the next chunks of the running migration (called by the daemon)
+     * 
+     * @return the logs of the run
+     */
+    public String process( )
+    {
+        if ( !STATUS_RUNNING.equals( getStatus( ) ) )
+        {
+            return "No running migration (status : " + getStatus( ) + ")";
+        }
+
+        int nChunkSize = AppPropertiesService.getPropertyInt( PROPERTY_CHUNK_SIZE, 500 );
+        int nMaxChunks = AppPropertiesService.getPropertyInt( PROPERTY_MAX_CHUNKS_PER_RUN, 20 );
+        long lPause = AppPropertiesService.getPropertyInt( PROPERTY_PAUSE_BETWEEN_CHUNKS, 200 );
+
+        Progress progress = getProgress( );
+        List<Plugin> listPlugins = ShardRouter.getInstance( ).getPlugins( );
+
+        for ( int nChunk = 0; nChunk < nMaxChunks; nChunk++ )
+        {
+            if ( progress._nShard >= listPlugins.size( ) )
+            {
+                DatastoreService.setDataValue( DS_KEY_STATUS, STATUS_DONE );
+                return "Migration done : " + progress;
+            }
+
+            Plugin plugin = listPlugins.get( progress._nShard );
+            List<NotificationContent> listContents = NotificationContentHome.getNotificationContentsAfterId( progress._nLastId, nChunkSize, plugin );
+
+            if ( listContents.isEmpty( ) )
+            {
+                // next shard, from its first notification content
+                progress._nShard++;
+                progress._nLastId = 0;
+                checkpoint( progress );
+                continue;
+            }
+
+            for ( NotificationContent content : listContents )
+            {
+                try
+                {
+                    if ( migrate( content, progress._bCompress, plugin ) )
+                    {
+                        progress._nMigrated++;
+                    }
+                }
+                catch( FileServiceException | IOException e )
+                {
+                    progress._nErrors++;
+                    AppLogService.error( "Unable to migrate the notification content {}", content.getId( ), e );
+                }
+                progress._nProcessed++;
+                progress._nLastId = content.getId( );
+            }
+
+            checkpoint( progress );
+
+            // the migration may have been paused from the back office meanwhile
+            if ( !STATUS_RUNNING.equals( getStatus( ) ) )
+            {
+                break;
+            }
+
+            try
+            {
+                Thread.sleep( lPause );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                break;
+            }
+        }
+
+        return "Migration in progress : " + progress;
+    }
+
+    /**
+     * Rewrite the file of a notification content with the target codec
+     * 
+     * @param content
+     *            the notification content
+     * @param bCompress
+     *            the target codec
+     * @param plugin
+     *            the plugin of the shard of the notification content
+     * @return true if the file has been rewritten, false if it was already encoded with the target codec
+     * @throws FileServiceException
+     * @throws IOException
+     */
+    private boolean migrate( NotificationContent content, boolean bCompress, Plugin plugin ) throws FileServiceException, IOException
+    {
+        String strFileStore = StringUtils.defaultIfEmpty( content.getFileStore( ), NotificationStoreConstants.FILE_STORE_PROVIDER );
+        IFileStoreServiceProvider fileStore = FileService.getInstance( ).getFileStoreServiceProvider( strFileStore );
+
+        File file = fileStore.getFile( content.getFileKey( ) );
+        if ( file == null || file.getPhysicalFile( ) == null )
+        {
+            return false;
+        }
+
+        byte [ ] blob = file.getPhysicalFile( ).getValue( );
+        byte [ ] newBlob = NotificationContentReader.recode( blob, bCompress );
+        if ( newBlob == blob )
+        {
+            return false;
+        }
+
+        File newFile = new File( );
+        newFile.setTitle( file.getTitle( ) );
+        newFile.setMimeType( file.getMimeType( ) );
+        newFile.setSize( newBlob.length );
+
+        PhysicalFile physicalFile = new PhysicalFile( );
+        physicalFile.setValue( newBlob );
+        newFile.setPhysicalFile( physicalFile );
+
+        NotificationContent newContent = new NotificationContent( );
+        newContent.setId( content.getId( ) );
+
+        // a shared file is replaced by the shared file of the new content
+        if ( content.getContentHash( ) != null || ContentBlobService.getInstance( ).isEnabled( ) )
+        {
+            ContentBlob contentBlob = ContentBlobService.getInstance( ).store( newFile );
+            newContent.setFileKey( contentBlob.getFileKey( ) );
+            newContent.setFileStore( contentBlob.getFileStore( ) );
+            newContent.setContentHash( contentBlob.getContentHash( ) );
+        }
+        else
+        {
+            newContent.setFileKey( fileStore.storeFile( newFile ) );
+            newContent.setFileStore( strFileStore );
+        }
+
+        if ( NotificationContentHome.updateFile( content, newContent, plugin ) )
+        {
+            ContentBlobService.getInstance( ).release( Collections.singletonList( content ) );
+            return true;
+        }
+
+        // the content has been changed meanwhile : keep it as is
+        ContentBlobService.getInstance( ).release( Collections.singletonList( newContent ) );
+        return false;
+    }
+
+    /**
+     * Save the progress in the datastore
+     * 
+     * @param progress
+     *            the progress
+     */
+    private void checkpoint( Progress progress )
+    {
+        DatastoreService.setDataValue( DS_KEY_SHARD, String.valueOf( progress._nShard ) );
+        DatastoreService.setDataValue( DS_KEY_LAST_ID, String.valueOf( progress._nLastId ) );
+        DatastoreService.setDataValue( DS_KEY_PROCESSED, String.valueOf( progress._nProcessed ) );
+        DatastoreService.setDataValue( DS_KEY_MIGRATED, String.valueOf( progress._nMigrated ) );
+        DatastoreService.setDataValue( DS_KEY_ERRORS, String.valueOf( progress._nErrors ) );
+    }
+
+    /**
+     * Get an int value from the datastore
+     * 
+     * @param strKey
+     *            the key
+     * @return the value
+     */
+    private static int getIntValue( String strKey )
+    {
+        try
+        {
+            return Integer.parseInt( DatastoreService.getDataValue( strKey, "0" ) );
+        }
+        catch( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Progress of the migration
+     */
+    public static final class Progress
+    {
+        private String _strStatus;
+        private boolean _bCompress;
+        private int _nShard;
+        private int _nLastId;
+        private int _nProcessed;
+        private int _nMigrated;
+        private int _nErrors;
+        private int _nTotal;
+
+        /**
+         * @return the status
+         */
+        public String getStatus( )
+        {
+            return _strStatus;
+        }
+
+        /**
+         * @return true if the contents are compressed, false if they are decompressed
+         */
+        public boolean isCompress( )
+        {
+            return _bCompress;
+        }
+
+        /**
+         * @return the index of the shard being processed
+         */
+        public int getShard( )
+        {
+            return _nShard;
+        }
+
+        /**
+         * @return the id of the last processed notification content of the shard
+         */
+        public int getLastId( )
+        {
+            return _nLastId;
+        }
+
+        /**
+         * @return the number of processed notification contents
+         */
+        public int getProcessed( )
+        {
+            return _nProcessed;
+        }
+
+        /**
+         * @return the number of rewritten notification contents
+         */
+        public int getMigrated( )
+        {
+            return _nMigrated;
+        }
+
+        /**
+         * @return the number of errors
+         */
+        public int getErrors( )
+        {
+            return _nErrors;
+        }
+
+        /**
+         * @return the number of notification contents to process
+         */
+        public int getTotal( )
+        {
+            return _nTotal;
+        }
+
+        /**
+         * @return the percentage of processed notification contents
+         */
+        public int getPercent( )
+        {
+            return _nTotal > 0 ? Math.min( 100, (int) ( 100L * _nProcessed / _nTotal ) ) : 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString( )
+        {
+            return _nProcessed + "/" + _nTotal + " processed, " + _nMigrated + " rewritten, " + _nErrors + " errors, shard " + _nShard + ", last id "
+                    + _nLastId;
+        }
+    }
+}
@@ -47,18 +47,18 @@ import fr.paris.lutece.plugins.grubusiness.business.notification.INotificationLi
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
+import fr.paris.lutece.plugins.notificationstore.business.Archive;
 import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
-import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
-import fr.paris.lutece.portal.service.file.FileService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.sql.TransactionManager;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -67,7 +67,7 @@ import java.util.Optional;
  * This class manages demands
  *
  */
-public class DemandService extends AbstractCacheableService implements IDemandServiceProvider
+public class DemandService implements IDemandServiceProvider
 {
 
     private IDemandDAO _demandDao;
@@ -75,10 +75,6 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
     private INotificationEventDAO _notificationEventDao;
     private ITemporaryStatusDAO _statusDao;
 
-    private static final String SERVICE_NAME = "DemandRefCacheService";
-    private static final String DEMAND_TYPE_CACHE_PREFIX = "DEMAND_TYPE_";
-    private static final String DEMAND_TYPE_LIST_CACHE_KEY = "DEMAND_TYPE_LIST";
-
     /**
      * Constructor
      * 
@@ -86,8 +82,6 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
     public DemandService( )
     {
         super( );
-
-        initCache( );
     }
 
     /**
@@ -106,8 +100,6 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
         this._notificationDao = _notificationDao;
         this._notificationEventDao = _notificationEventDao;
         this._statusDao = _statusDao;
-
-        initCache( );
     }
 
     /**
@@ -131,6 +123,26 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
         return collectionDemands;
     }
 
+    /**
+     * Finds demands for the specified customer id, including the archived demands if requested
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param bIncludeArchived
+     *            true to add the archived demands
+     * @return the demands. An empty collection is returned if no demand has been found
+     */
+    public Collection<Demand> findByCustomerId( String strCustomerId, boolean bIncludeArchived )
+    {
+        Collection<Demand> collectionDemands = findByCustomerId( strCustomerId );
+
+        if ( bIncludeArchived )
+        {
+            collectionDemands.addAll( ArchiveService.getInstance( ).getArchivedDemands( strCustomerId ) );
+        }
+        return collectionDemands;
+    }
+
     /**
      * Finds demands for the specified reference
      * 
@@ -199,10 +211,24 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
      * @return the created notification
      */
     public Notification create( Notification notification )
+    {
+        return create( notification, NotificationContentHome.storeFiles( notification ) );
+    }
+
+    /**
+     * Creates a notification whose content files are stored
+     * 
+     * @param notification
+     *            the notification to create
+     * @param listNotificationContent
+     *            the notification contents, with their files
+     * @return the created notification
+     */
+    public Notification create( Notification notification, List<NotificationContent> listNotificationContent )
     {
         Notification notificationDao = _notificationDao.insert( notification );
 
-        NotificationContentHome.create( notification );
+        NotificationContentHome.create( notification, listNotificationContent );
 
         for ( INotificationListener iNotificationListener : SpringContextService.getBeansOfType( INotificationListener.class ) )
         {
@@ -329,17 +355,7 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
      */
     public List<DemandType> getDemandTypesList( )
     {
-        List<DemandType> demandTypeList = (List<DemandType>) getFromCache( DEMAND_TYPE_LIST_CACHE_KEY );
-        if ( demandTypeList == null )
-        {
-            demandTypeList = DemandTypeHome.getDemandTypesList( );
-            if ( demandTypeList != null )
-            {
-                putInCache( DEMAND_TYPE_LIST_CACHE_KEY, demandTypeList );
-            }
-        }
-
-        return demandTypeList;
+        return ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypes( );
     }
 
     /**
@@ -349,21 +365,7 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
      */
     public Optional<DemandType> getDemandType( String type_id )
     {
-        DemandType dt = (DemandType) getFromCache( DEMAND_TYPE_CACHE_PREFIX + type_id );
-
-        if ( dt != null )
-        {
-            return Optional.of( dt );
-        }
-        else
-        {
-            Optional<DemandType> odt = DemandTypeHome.getDemandType( type_id );
-            if ( odt.isPresent( ) )
-            {
-                putInCache( DEMAND_TYPE_CACHE_PREFIX + type_id, odt.get( ) );
-            }
-            return odt;
-        }
+        return ReferenceDataService.getInstance( ).getSnapshot( ).getDemandType( type_id );
     }
 
     /**
@@ -410,27 +412,31 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
     @Override
     public void deleteAllDemandByCustomerId( String strCustomerId )
     {
+        // the demands and notifications of the customer are in its shard
+        Plugin plugin = ShardRouter.getInstance( ).isSharded( ) ? NotificationStorePlugin.getPlugin( strCustomerId ) : null;
+        List<NotificationContent> listContents = new ArrayList<>( );
+        List<Archive> listArchives;
+
         try
         {
             // Début de la transaction
-            TransactionManager.beginTransaction( null );
+            TransactionManager.beginTransaction( plugin );
 
             // Notifications
             List<Notification> listNotification = NotificationHome.findByDemand( null, null, strCustomerId );
             for ( Notification notification : listNotification )
             {
-                List<NotificationContent> listNotificationContent = NotificationContentHome.getNotificationContentsByIdNotification( notification.getId( ) );
+                List<NotificationContent> listNotificationContent = NotificationContentHome.getNotificationContentsByIdNotification( notification.getId( ),
+                        NotificationStorePlugin.getPlugin( strCustomerId ) );
 
                 for ( NotificationContent notifContent : listNotificationContent )
                 {
-                    // Remove File
-                    FileService.getInstance( ).getFileStoreServiceProvider( notifContent.getFileStore( ) ).delete( notifContent.getFileKey( ) );
-
                     // Remove notification content
-                    NotificationContentHome.remove( notifContent.getId( ) );
+                    listContents.add( notifContent );
+                    NotificationContentHome.remove( notifContent.getId( ), NotificationStorePlugin.getPlugin( strCustomerId ) );
                 }
                 // Remove notification
-                NotificationHome.remove( notification.getId( ) );
+                NotificationHome.remove( notification.getId( ), strCustomerId );
             }
 
             // Demands
@@ -438,30 +444,32 @@ public class DemandService extends AbstractCacheableService implements IDemandSe
             for ( Demand demand : demands )
             {
                 // Remove demand
-                DemandHome.deleteByUid( demand.getUID( ) );
+                DemandHome.deleteByUid( demand.getUID( ), strCustomerId );
             }
 
-            // Events
-            NotificationEventHome.deleteByCustomerId( strCustomerId );
+            // a demand written meanwhile keeps the channels of its remaining notifications only
+            DemandHome.refreshChannels( strCustomerId, NotificationStorePlugin.getPlugin( strCustomerId ) );
+
+            // Archives
+            listArchives = ArchiveService.getInstance( ).deleteArchives( strCustomerId, NotificationStorePlugin.getPlugin( strCustomerId ) );
 
             // Commit de la transaction
-            TransactionManager.commitTransaction( null );
+            TransactionManager.commitTransaction( plugin );
         }
         catch( Exception e )
         {
             // Roll back
-            TransactionManager.rollBack( null );
+            TransactionManager.rollBack( plugin );
 
             AppLogService.error( "Une erreur s'est produite lors de la suppression des demandes et des données liées de l'usager {}", strCustomerId,
                     e.getMessage( ) );
+            return;
         }
 
-    }
-
-    @Override
-    public String getName( )
-    {
-        return SERVICE_NAME;
+        // the files and the events are not in the transaction : they are removed, or their shared files released, once the removal is committed
+        ContentBlobService.getInstance( ).release( listContents );
+        ArchiveService.getInstance( ).release( listArchives );
+        NotificationEventHome.deleteByCustomerId( strCustomerId );
     }
 
 }
@@ -37,13 +37,13 @@ import java.util.List;
 import java.util.Optional;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
-import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
 
-public class DemandTypeService extends AbstractCacheableService
+/**
+ * Access to the demand types of the reference data snapshot
+ */
+public class DemandTypeService
 {
 
-    private static final String CACHE_NAME = "DemandTypeCacheService";
     private static DemandTypeService _instance = null;
 
     /**
@@ -68,23 +68,7 @@ public class DemandTypeService extends AbstractCacheableService
      */
     public Optional<DemandType> getDemandType( String strId )
     {
-	DemandType demandType = ( DemandType ) getFromCache( strId );
-	
-	if ( demandType == null )
-	{ 
-	    Optional<DemandType> optDemandType = DemandTypeHome.getDemandType( strId );
-	    if ( optDemandType.isPresent( ) )
-	    {
-		putInCache( strId, optDemandType.get( ) );
-		return optDemandType;
-	    }
-	    else
-	    {
-		return Optional.empty( );
-	    }
-	}
-	        
-        return Optional.of( demandType );
+        return ReferenceDataService.getInstance( ).getSnapshot( ).getDemandType( strId );
     }
     
     /**
@@ -94,12 +78,6 @@ public class DemandTypeService extends AbstractCacheableService
      */
     public List<DemandType> getDemandTypes( )
     {
-        return DemandTypeHome.getDemandTypesList( );
-    }
-
-    @Override
-    public String getName( )
-    {
-	return CACHE_NAME;
+        return ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypes( );
     }
 }
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationFingerprintHome;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Idempotent storage of the notifications.
+ * <p>
+ * A notification is fingerprinted by a SHA-256 hash of its demand key, its date and the canonical JSON of its channel payloads. The fingerprint is claimed
+ * in a table whose primary key drops the redelivered notifications, in the transaction of their storage, before any other write. A Bloom filter of the
+ * fingerprints seen by this webapp saves the lookup of the new ones : only the fingerprints it may contain are looked up before the claim.
+ * </p>
+ */
+public final class IdempotencyService
+{
+    // Properties
+    private static final String PROPERTY_DEMAND_TYPES = "notificationstore.idempotency.demandTypes";
+    private static final String PROPERTY_NB_DAYS = "notificationstore.idempotency.nbDays";
+    private static final String PROPERTY_BLOOM_EXPECTED_INSERTIONS = "notificationstore.idempotency.bloom.expectedInsertions";
+    private static final String PROPERTY_BLOOM_FALSE_POSITIVE_RATE = "notificationstore.idempotency.bloom.falsePositiveRate";
+    private static final int DEFAULT_NB_DAYS = 7;
+    private static final int DEFAULT_BLOOM_EXPECTED_INSERTIONS = 1000000;
+    private static final double DEFAULT_BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final String ALL_DEMAND_TYPES = "*";
+    private static final String DEMAND_TYPES_SEPARATOR = ",";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    // Fingerprinted fields
+    private static final String FIELD_DEMAND_ID = "demand_id";
+    private static final String FIELD_DEMAND_TYPE_ID = "demand_type_id";
+    private static final String FIELD_CUSTOMER_ID = "customer_id";
+    private static final String FIELD_DATE = "date";
+
+    // Same JSON for the same values, whatever the order of the properties and map entries
+    private static final ObjectMapper _canonicalMapper = new ObjectMapper( ).configure( MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true )
+            .configure( SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true ).setSerializationInclusion( JsonInclude.Include.NON_NULL );
+
+    private static IdempotencyService _instance;
+
+    private final boolean _bAllDemandTypes;
+    private final Set<String> _setDemandTypes;
+    private final BloomFilter _bloomFilter;
+    private final AtomicLong _lChecked = new AtomicLong( );
+    private final AtomicLong _lLookups = new AtomicLong( );
+    private final AtomicLong _lDroppedByLookup = new AtomicLong( );
+    private final AtomicLong _lDroppedByIndex = new AtomicLong( );
+
+    /**
+     * Constructor
+     * 
+     * @param strDemandTypes
+     *            the demand type ids checked, separated by commas, or * for all the demand types
+     */
+    private IdempotencyService( String strDemandTypes )
+    {
+        _bAllDemandTypes = ALL_DEMAND_TYPES.equals( StringUtils.trim( strDemandTypes ) );
+        _setDemandTypes = new HashSet<>( Arrays.asList( StringUtils.stripAll( StringUtils.split( StringUtils.defaultString( strDemandTypes ),
+                DEMAND_TYPES_SEPARATOR ) ) ) );
+        _bloomFilter = new BloomFilter( AppPropertiesService.getPropertyInt( PROPERTY_BLOOM_EXPECTED_INSERTIONS, DEFAULT_BLOOM_EXPECTED_INSERTIONS ),
+                NumberUtils.toDouble( AppPropertiesService.getProperty( PROPERTY_BLOOM_FALSE_POSITIVE_RATE ), DEFAULT_BLOOM_FALSE_POSITIVE_RATE ) );
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized IdempotencyService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new IdempotencyService( AppPropertiesService.getProperty( PROPERTY_DEMAND_TYPES ) );
+        }
+        return _instance;
+    }
+
+    /**
+     * Check if the idempotency is enabled for at least one demand type
+     * 
+     * @return true if enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bAllDemandTypes || !_setDemandTypes.isEmpty( );
+    }
+
+    /**
+     * Check if the idempotency is enabled for a demand type
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @return true if enabled
+     */
+    public boolean isEnabled( String strDemandTypeId )
+    {
+        return _bAllDemandTypes || _setDemandTypes.contains( strDemandTypeId );
+    }
+
+    /**
+     * Get the fingerprint of a notification
+     * 
+     * @param notification
+     *            the notification
+     * @return the SHA-256 hash of the demand key, the date and the channel payloads
+     */
+    public byte [ ] getFingerprint( Notification notification )
+    {
+        Map<String, Object> mapFields = new TreeMap<>( );
+        mapFields.put( FIELD_DEMAND_ID, notification.getDemand( ).getId( ) );
+        mapFields.put( FIELD_DEMAND_TYPE_ID, notification.getDemand( ).getTypeId( ) );
+        mapFields.put( FIELD_CUSTOMER_ID, notification.getDemand( ).getCustomer( ).getCustomerId( ) );
+        mapFields.put( FIELD_DATE, notification.getDate( ) );
+        mapFields.put( EnumNotificationType.SMS.name( ), notification.getSmsNotification( ) );
+        mapFields.put( EnumNotificationType.BACKOFFICE.name( ), notification.getBackofficeNotification( ) );
+        mapFields.put( EnumNotificationType.BROADCAST_EMAIL.name( ), notification.getBroadcastEmail( ) );
+        mapFields.put( EnumNotificationType.MYDASHBOARD.name( ), notification.getMyDashboardNotification( ) );
+        mapFields.put( EnumNotificationType.CUSTOMER_EMAIL.name( ), notification.getEmailNotification( ) );
+
+        try
+        {
+            return MessageDigest.getInstance( DIGEST_ALGORITHM ).digest( _canonicalMapper.writeValueAsBytes( mapFields ) );
+        }
+        catch( JsonProcessingException | NoSuchAlgorithmException e )
+        {
+            throw new AppException( "Unable to fingerprint the notification", e );
+        }
+    }
+
+    /**
+     * Check if a notification has already been stored by a committed delivery, before its files are stored
+     * 
+     * @param fingerprint
+     *            the fingerprint
+     * @param notification
+     *            the notification
+     * @return true if the notification has already been stored
+     */
+    public boolean isStored( byte [ ] fingerprint, Notification notification )
+    {
+        _lChecked.incrementAndGet( );
+
+        if ( !_bloomFilter.mightContain( fingerprint ) )
+        {
+            return false;
+        }
+
+        _lLookups.incrementAndGet( );
+
+        Plugin plugin = NotificationStorePlugin.getPlugin( notification.getDemand( ).getCustomer( ).getCustomerId( ) );
+        if ( NotificationFingerprintHome.exists( NotificationStoreUtils.toHex( fingerprint ), plugin ) )
+        {
+            _lDroppedByLookup.incrementAndGet( );
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Claim the fingerprint of a notification, in the transaction of its storage on the shard of its customer : the claim is rolled back with a failed
+     * storage, and a concurrent delivery of the same notification waits for the outcome of this transaction
+     * 
+     * @param fingerprint
+     *            the fingerprint
+     * @param notification
+     *            the notification
+     * @return true if the notification is new, false if it has already been stored
+     */
+    public boolean claim( byte [ ] fingerprint, Notification notification )
+    {
+        String strFingerprint = NotificationStoreUtils.toHex( fingerprint );
+        Plugin plugin = NotificationStorePlugin.getPlugin( notification.getDemand( ).getCustomer( ).getCustomerId( ) );
+
+        // the primary key settles the concurrent deliveries, and the fingerprints stored before a restart
+        boolean bClaimed = NotificationFingerprintHome.create( strFingerprint, notification.getDemand( ).getTypeId( ), plugin );
+        _bloomFilter.put( fingerprint );
+
+        if ( !bClaimed )
+        {
+            _lDroppedByIndex.incrementAndGet( );
+        }
+
+        return bClaimed;
+    }
+
+    /**
+     * Purge the fingerprints older than the idempotency period
+     * 
+     * @return the logs of the purge
+     */
+    public String purge( )
+    {
+        long lDateBefore = System.currentTimeMillis( ) - TimeUnit.DAYS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_NB_DAYS, DEFAULT_NB_DAYS ) );
+        int nDeleted = 0;
+
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            nDeleted += NotificationFingerprintHome.removeBefore( lDateBefore, plugin );
+        }
+
+        return "Deleted notification fingerprints : " + nDeleted;
+    }
+
+    /**
+     * Get the counters of the checked notifications
+     * 
+     * @return the counters since the start of the webapp
+     */
+    public Counters getCounters( )
+    {
+        Counters counters = new Counters( );
+        counters._lChecked = _lChecked.get( );
+        counters._lLookups = _lLookups.get( );
+        counters._lDroppedByLookup = _lDroppedByLookup.get( );
+        counters._lDroppedByIndex = _lDroppedByIndex.get( );
+
+        return counters;
+    }
+
+    /**
+     * Counters of the checked notifications
+     */
+    public static final class Counters
+    {
+        private long _lChecked;
+        private long _lLookups;
+        private long _lDroppedByLookup;
+        private long _lDroppedByIndex;
+
+        /**
+         * @return the number of checked notifications
+         */
+        public long getChecked( )
+        {
+            return _lChecked;
+        }
+
+        /**
+         * @return the number of fingerprints looked up, the Bloom filter having a possible match
+         */
+        public long getLookups( )
+        {
+            return _lLookups;
+        }
+
+        /**
+         * @return the number of duplicates dropped by the lookup
+         */
+        public long getDroppedByLookup( )
+        {
+            return _lDroppedByLookup;
+        }
+
+        /**
+         * @return the number of duplicates dropped by the unique fingerprint
+         */
+        public long getDroppedByIndex( )
+        {
+            return _lDroppedByIndex;
+        }
+
+        /**
+         * @return the total number of dropped duplicates
+         */
+        public long getDropped( )
+        {
+            return _lDroppedByLookup + _lDroppedByIndex;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Write-behind buffer of the notification events.
+ * <p>
+ * The events received by the concurrent requests during a short delay are written by a single thread in JDBC batches. A request returns once its events are
+ * committed, so an acknowledged event is never lost. The events replayed with the same msg id, status and demand are dropped by a filter of the recent keys,
+ * then by the unique index of the table.
+ * </p>
+ */
+public final class NotificationEventBuffer
+{
+    // Properties
+    private static final String PROPERTY_BATCH_SIZE = "notificationstore.event.batchSize";
+    private static final String PROPERTY_FLUSH_DELAY = "notificationstore.event.flushDelay";
+    private static final String PROPERTY_RECENT_KEYS = "notificationstore.event.recentKeys";
+    private static final String PROPERTY_WRITE_TIMEOUT = "notificationstore.event.writeTimeout";
+    private static final int DEFAULT_BATCH_SIZE = 200;
+    private static final int DEFAULT_FLUSH_DELAY = 20;
+    private static final int DEFAULT_RECENT_KEYS = 10000;
+    private static final int DEFAULT_WRITE_TIMEOUT = 10000;
+
+    private static final String KEY_SEPARATOR = "\n";
+    private static final String WRITER_THREAD_NAME = "notificationstore-event-writer";
+
+    private static NotificationEventBuffer _instance;
+
+    private final BlockingQueue<PendingEvents> _queue = new LinkedBlockingQueue<>( );
+    private final RecentKeyFilter _recentKeys;
+    private final int _nBatchSize;
+    private final long _lFlushDelay;
+    private final long _lWriteTimeout;
+
+    /**
+     * Constructor
+     * 
+     * @param nBatchSize
+     *            the max number of events per batch
+     * @param lFlushDelay
+     *            the max delay to fill a batch, in milliseconds
+     * @param nRecentKeys
+     *            the number of recent keys kept to drop the replayed events
+     * @param lWriteTimeout
+     *            the max delay to wait for the write of the events, in milliseconds
+     */
+    private NotificationEventBuffer( int nBatchSize, long lFlushDelay, int nRecentKeys, long lWriteTimeout )
+    {
+        _nBatchSize = nBatchSize;
+        _lFlushDelay = lFlushDelay;
+        _recentKeys = new RecentKeyFilter( nRecentKeys );
+        _lWriteTimeout = lWriteTimeout;
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized NotificationEventBuffer getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationEventBuffer( AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_FLUSH_DELAY, DEFAULT_FLUSH_DELAY ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_RECENT_KEYS, DEFAULT_RECENT_KEYS ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_WRITE_TIMEOUT, DEFAULT_WRITE_TIMEOUT ) );
+
+            Thread writer = new Thread( _instance::write, WRITER_THREAD_NAME );
+            writer.setDaemon( true );
+            writer.start( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Store notification events, and wait for their write
+     * 
+     * @param listNotificationEvents
+     *            the notification events
+     * @return the number of events kept, the recently received events being dropped
+     */
+    public int store( List<NotificationEvent> listNotificationEvents )
+    {
+        PendingEvents pending = new PendingEvents( );
+
+        for ( NotificationEvent notificationEvent : listNotificationEvents )
+        {
+            String strKey = getKey( notificationEvent );
+
+            if ( strKey == null || _recentKeys.add( strKey ) )
+            {
+                pending._listEvents.add( notificationEvent );
+                pending._listKeys.add( strKey );
+            }
+        }
+
+        if ( pending._listEvents.isEmpty( ) )
+        {
+            return 0;
+        }
+
+        _queue.add( pending );
+
+        try
+        {
+            pending._future.get( _lWriteTimeout, TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "Interrupted while storing the notification events", e );
+        }
+        catch( ExecutionException | TimeoutException e )
+        {
+            throw new AppException( "Unable to store the notification events", e );
+        }
+
+        return pending._listEvents.size( );
+    }
+
+    /**
+     * Loop of the writer thread : gather the pending events until the batch is full or the flush delay has elapsed, then write them
+     */
+    private void write( )
+    {
+        while ( !Thread.currentThread( ).isInterrupted( ) )
+        {
+            try
+            {
+                List<PendingEvents> listPending = new ArrayList<>( );
+                PendingEvents pending = _queue.take( );
+                int nSize = 0;
+                long lDeadline = System.currentTimeMillis( ) + _lFlushDelay;
+
+                while ( pending != null )
+                {
+                    listPending.add( pending );
+                    nSize += pending._listEvents.size( );
+
+                    long lRemaining = lDeadline - System.currentTimeMillis( );
+                    pending = ( nSize < _nBatchSize && lRemaining > 0 ) ? _queue.poll( lRemaining, TimeUnit.MILLISECONDS ) : null;
+                }
+
+                flush( listPending );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Write pending events, and release their requests
+     * 
+     * @param listPending
+     *            the pending events
+     */
+    private void flush( List<PendingEvents> listPending )
+    {
+        List<NotificationEvent> listEvents = new ArrayList<>( );
+        for ( PendingEvents pending : listPending )
+        {
+            listEvents.addAll( pending._listEvents );
+        }
+
+        try
+        {
+            int nInserted = 0;
+            for ( int nFrom = 0; nFrom < listEvents.size( ); nFrom += _nBatchSize )
+            {
+                nInserted += NotificationEventHome.createAll( listEvents.subList( nFrom, Math.min( nFrom + _nBatchSize, listEvents.size( ) ) ) );
+            }
+            AppLogService.debug( "notificationstore / notificationEvent - {} events written, {} already stored", nInserted,
+                    listEvents.size( ) - nInserted );
+
+            for ( PendingEvents pending : listPending )
+            {
+                pending._future.complete( null );
+            }
+        }
+        catch( RuntimeException e )
+        {
+            for ( PendingEvents pending : listPending )
+            {
+                // the events may be sent again
+                pending._listKeys.forEach( _recentKeys::remove );
+                pending._future.completeExceptionally( e );
+            }
+        }
+    }
+
+    /**
+     * Get the deduplication key of a notification event
+     * 
+     * @param notificationEvent
+     *            the notification event
+     * @return the key, or null if the event has no msg id
+     */
+    private static String getKey( NotificationEvent notificationEvent )
+    {
+        if ( StringUtils.isEmpty( notificationEvent.getMsgId( ) ) )
+        {
+            return null;
+        }
+
+        return String.join( KEY_SEPARATOR, notificationEvent.getMsgId( ), notificationEvent.getEvent( ).getStatus( ),
+                String.valueOf( notificationEvent.getDemand( ).getId( ) ), String.valueOf( notificationEvent.getDemand( ).getTypeId( ) ) );
+    }
+
+    /**
+     * The events of a request, waiting for their write
+     */
+    private static final class PendingEvents
+    {
+        private final List<NotificationEvent> _listEvents = new ArrayList<>( );
+        private final List<String> _listKeys = new ArrayList<>( );
+        private final CompletableFuture<Void> _future = new CompletableFuture<>( );
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Bulk export of the notifications of a demand type in a time window, as NDJSON : one notification per line, with its decoded contents.
+ * <p>
+ * The notifications are read by pages, in id order (keyset pagination), and written as soon as read, so that the memory used does not depend on the
+ * number of exported notifications. The pages of the shards are merged by id : an interrupted export can be resumed after the id of the last exported
+ * notification.
+ * </p>
+ */
+public final class NotificationExportService
+{
+    // Properties
+    private static final String PROPERTY_BATCH_SIZE = "notificationstore.export.batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int LINE_SEPARATOR = '\n';
+
+    private static NotificationExportService _instance;
+
+    private final ObjectWriter _writer = NotificationStoreUtils.getMapper( ).writer( ).without( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+
+    /**
+     * Private constructor
+     */
+    private NotificationExportService( )
+    {
+    }
+
+    /**
+     * get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized NotificationExportService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new NotificationExportService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Export the notifications of a demand type in a time window
+     * 
+     * @param strDemandTypeId
+     *            the demand type id
+     * @param lStartDate
+     *            the start of the time window
+     * @param lEndDate
+     *            the end of the time window
+     * @param nAfterId
+     *            the id of the last notification already exported, 0 for a full export
+     * @param out
+     *            the output stream, not closed
+     * @return the number of exported notifications
+     * @throws IOException
+     *             if the output stream fails
+     */
+    public int export( String strDemandTypeId, long lStartDate, long lEndDate, int nAfterId, OutputStream out ) throws IOException
+    {
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+
+        List<ShardCursor> listCursors = new ArrayList<>( );
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            listCursors.add( new ShardCursor( plugin, strDemandTypeId, lStartDate, lEndDate, nAfterId, nBatchSize ) );
+        }
+
+        int nExported = 0;
+        ShardCursor cursor;
+        while ( ( cursor = getNextCursor( listCursors ) ) != null )
+        {
+            _writer.writeValue( out, cursor.next( ) );
+            out.write( LINE_SEPARATOR );
+            nExported++;
+        }
+        out.flush( );
+
+        AppLogService.info( "Notificationstore export of demand type {} : {} notifications exported after id {}", strDemandTypeId, nExported, nAfterId );
+
+        return nExported;
+    }
+
+    /**
+     * Get the cursor of the shard whose next notification has the lowest id
+     * 
+     * @param listCursors
+     *            the cursors of the shards
+     * @return the cursor, or null if all the notifications have been exported
+     */
+    private static ShardCursor getNextCursor( List<ShardCursor> listCursors )
+    {
+        ShardCursor nextCursor = null;
+        for ( ShardCursor cursor : listCursors )
+        {
+            Notification notification = cursor.peek( );
+            if ( notification != null && ( nextCursor == null || notification.getId( ) < nextCursor.peek( ).getId( ) ) )
+            {
+                nextCursor = cursor;
+            }
+        }
+
+        return nextCursor;
+    }
+
+    /**
+     * Forward-only cursor on the notifications of a shard, read by pages
+     */
+    private static final class ShardCursor
+    {
+        private final Plugin _plugin;
+        private final String _strDemandTypeId;
+        private final long _lStartDate;
+        private final long _lEndDate;
+        private final int _nBatchSize;
+        private final Deque<Notification> _page = new ArrayDeque<>( );
+        private int _nLastId;
+        private boolean _bEnd;
+
+        /**
+         * Constructor
+         * 
+         * @param plugin
+         *            the plugin of the shard
+         * @param strDemandTypeId
+         *            the demand type id
+         * @param lStartDate
+         *            the start of the time window
+         * @param lEndDate
+         *            the end of the time window
+         * @param nAfterId
+         *            the id of the last notification already exported
+         * @param nBatchSize
+         *            the number of notifications of a page
+         */
+        ShardCursor( Plugin plugin, String strDemandTypeId, long lStartDate, long lEndDate, int nAfterId, int nBatchSize )
+        {
+            _plugin = plugin;
+            _strDemandTypeId = strDemandTypeId;
+            _lStartDate = lStartDate;
+            _lEndDate = lEndDate;
+            _nLastId = nAfterId;
+            _nBatchSize = nBatchSize;
+        }
+
+        /**
+         * Get the next notification, without moving the cursor. The next page is loaded when the current one is over.
+         * 
+         * @return the next notification, or null at the end of the shard
+         */
+        Notification peek( )
+        {
+            if ( _page.isEmpty( ) && !_bEnd )
+            {
+                List<Notification> listNotifications = NotificationHome.getForExport( _strDemandTypeId, _lStartDate, _lEndDate, _nLastId, _nBatchSize,
+                        _plugin );
+                _page.addAll( listNotifications );
+                _bEnd = listNotifications.size( ) < _nBatchSize;
+                if ( !listNotifications.isEmpty( ) )
+                {
+                    _nLastId = listNotifications.get( listNotifications.size( ) - 1 ).getId( );
+                }
+            }
+
+            return _page.peekFirst( );
+        }
+
+        /**
+         * Get the next notification and move the cursor
+         * 
+         * @return the next notification
+         */
+        Notification next( )
+        {
+            peek( );
+            return _page.pollFirst( );
+        }
+    }
+}
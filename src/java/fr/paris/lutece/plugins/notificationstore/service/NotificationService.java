@@ -37,6 +37,7 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.paris.lutece.plugins.grubusiness.business.customer.Customer;
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
@@ -48,11 +49,17 @@ import fr.paris.lutece.plugins.grubusiness.service.notification.INotifierService
 import fr.paris.lutece.plugins.grubusiness.service.notification.NotificationException;
 import fr.paris.lutece.plugins.identitystore.web.exception.IdentityStoreException;
 import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.ws.rs.core.Response;
@@ -63,6 +70,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -140,13 +148,37 @@ public class NotificationService
      * @param notification
      */
     public Response newNotification( String strJson )
+    {
+        return newNotification( ( ) -> getNotificationFromJson( strJson ) );
+    }
+
+    /**
+     * process Notification received in the Smile format (binary JSON)
+     * 
+     * @param smile
+     *            the Smile content
+     * @return the response
+     */
+    public Response newNotification( byte [ ] smile )
+    {
+        return newNotification( ( ) -> getNotificationFromSmile( smile ) );
+    }
+
+    /**
+     * process Notification
+     * 
+     * @param parser
+     *            the parser of the received notification
+     * @return the response
+     */
+    private Response newNotification( NotificationParser parser )
     {
         List<StatusMessage> warnings = new ArrayList<>( );
 
         try
         {
             // parse json
-            Notification notification = getNotificationFromJson( strJson );
+            Notification notification = parser.parse( );
 
             // control customer
             boolean customerExists = processCustomer( notification, warnings );
@@ -163,7 +195,19 @@ public class NotificationService
 
             if ( customerIdNotEmpty && ( customerExists || storeEvenCustomerIfNotExists ) )
             {
-                store( notification );
+                IdempotencyService idempotencyService = IdempotencyService.getInstance( );
+                byte [ ] fingerprint = null;
+                if ( idempotencyService.isEnabled( notification.getDemand( ).getTypeId( ) ) )
+                {
+                    fingerprint = idempotencyService.getFingerprint( notification );
+                }
+
+                if ( !store( notification, fingerprint ) )
+                {
+                    // redelivered notification : already stored by a committed delivery, which handled its events and forward
+                    AppLogService.debug( "notificationstore / notification - Duplicate dropped, demand_id {}", notification.getDemand( ).getId( ) );
+                    return success( );
+                }
             }
 
             // add event (success, or failure if customer not found for example)
@@ -374,8 +418,15 @@ public class NotificationService
                 return ok( );
             }
 
-            DemandHome.reassignDemands( request.getOldCustomerId( ), request.getNewCustomerId( ) );
-            NotificationHome.reassignNotifications( request.getOldCustomerId( ), request.getNewCustomerId( ) );
+            if ( ShardRouter.getInstance( ).isSameShard( request.getOldCustomerId( ), request.getNewCustomerId( ) ) )
+            {
+                DemandHome.reassignDemands( request.getOldCustomerId( ), request.getNewCustomerId( ) );
+                NotificationHome.reassignNotifications( request.getOldCustomerId( ), request.getNewCustomerId( ) );
+            }
+            else
+            {
+                moveToShard( request.getOldCustomerId( ), request.getNewCustomerId( ), listNotifsToReassign );
+            }
 
             // generate events (for history)
             for ( Notification notif : listNotifsToReassign )
@@ -404,7 +455,72 @@ public class NotificationService
     }
 
     /**
-     * store a notification event
+     * Reassign the demands and notifications of a customer to a customer stored in another shard : the rows are copied to the target shard, then
+     * deleted from the source shard. As for a reassignment within a shard, the archives stay with the old customer, in its shard, and the events stay in
+     * the plugin pool, which is not sharded.
+     * 
+     * @param strOldCustomerId
+     *            the old customer id
+     * @param strNewCustomerId
+     *            the new customer id
+     * @param listNotifications
+     *            the notifications of the old customer
+     */
+    private void moveToShard( String strOldCustomerId, String strNewCustomerId, List<Notification> listNotifications )
+    {
+        Plugin sourcePlugin = NotificationStorePlugin.getPlugin( strOldCustomerId );
+        Plugin targetPlugin = NotificationStorePlugin.getPlugin( strNewCustomerId );
+        Collection<Demand> listDemands = DemandHome.getDemandIdCustomer( strOldCustomerId );
+
+        TransactionManager.beginTransaction( targetPlugin );
+        TransactionManager.beginTransaction( sourcePlugin );
+
+        try
+        {
+            for ( Demand demand : listDemands )
+            {
+                int nOldUid = demand.getUID( );
+                demand.getCustomer( ).setCustomerId( strNewCustomerId );
+                DemandHome.create( demand );
+                DemandHome.deleteByUid( nOldUid, strOldCustomerId );
+            }
+
+            for ( Notification notification : listNotifications )
+            {
+                int nOldId = notification.getId( );
+                List<NotificationContent> listContents = NotificationContentHome.getNotificationContentsByIdNotification( nOldId, sourcePlugin );
+
+                notification.getDemand( ).getCustomer( ).setCustomerId( strNewCustomerId );
+                NotificationHome.create( notification );
+
+                for ( NotificationContent content : listContents )
+                {
+                    int nOldContentId = content.getId( );
+                    content.setIdNotification( notification.getId( ) );
+                    NotificationContentHome.create( content, targetPlugin );
+                    NotificationContentHome.remove( nOldContentId, sourcePlugin );
+                }
+
+                NotificationHome.remove( nOldId, strOldCustomerId );
+            }
+
+            // the copied demands are created without channels
+            DemandHome.refreshChannels( strNewCustomerId, targetPlugin );
+
+            // the copies are committed first : a failure of the second commit leaves duplicates, never lost rows
+            TransactionManager.commitTransaction( targetPlugin );
+            TransactionManager.commitTransaction( sourcePlugin );
+        }
+        catch( Exception e )
+        {
+            TransactionManager.rollBack( sourcePlugin );
+            TransactionManager.rollBack( targetPlugin );
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * store notification events : a single event, or an array of events written in batches
      * 
      * @param strJson
      * @return the response
@@ -413,10 +529,24 @@ public class NotificationService
     {
         try
         {
-            NotificationEvent notificationEvent = _mapper.readValue( strJson, NotificationEvent.class );
+            JsonNode nodeEvents = _mapper.readTree( strJson );
             AppLogService.debug( "notificationstore / notificationEvent - Received strJson : " + strJson );
 
-            store( notificationEvent );
+            List<NotificationEvent> listNotificationEvents = new ArrayList<>( );
+            if ( nodeEvents.isArray( ) )
+            {
+                for ( JsonNode nodeEvent : nodeEvents )
+                {
+                    listNotificationEvents.add( _mapper.treeToValue( nodeEvent, NotificationEvent.class ) );
+                }
+            }
+            else
+            {
+                listNotificationEvents.add( _mapper.treeToValue( nodeEvents, NotificationEvent.class ) );
+            }
+
+            listNotificationEvents.forEach( NotificationService::setCustomerId );
+            NotificationEventBuffer.getInstance( ).store( listNotificationEvents );
 
         }
         catch( JsonParseException ex )
@@ -448,85 +578,138 @@ public class NotificationService
      */
     private void store( NotificationEvent notificationEvent )
     {
-        // set customer id if provided by ID customer attribute (if valid)
+        setCustomerId( notificationEvent );
 
+        _demandService.create( notificationEvent );
+    }
+
+    /**
+     * Set the customer id of a notification event if provided by ID customer attribute (if valid)
+     * 
+     * @param notificationEvent
+     *            the notification event
+     */
+    private static void setCustomerId( NotificationEvent notificationEvent )
+    {
         if ( notificationEvent.getDemand( ) != null && notificationEvent.getDemand( ).getCustomer( ) != null
                 && !CustomerProvider.isCustomerIdValid( notificationEvent.getDemand( ).getCustomer( ).getCustomerId( ) )
                 && CustomerProvider.isCustomerIdValid( notificationEvent.getDemand( ).getCustomer( ).getId( ) ) )
         {
             notificationEvent.getDemand( ).getCustomer( ).setCustomerId( notificationEvent.getDemand( ).getCustomer( ).getId( ) );
         }
-
-        _demandService.create( notificationEvent );
     }
 
     /**
-     * Stores a notification and the associated demand
+     * Stores a notification and the associated demand, in a single transaction
      * 
      * @param notification
      *            the notification to store
+     * @param fingerprint
+     *            the fingerprint of the notification, claimed in the transaction, or null if the idempotency is disabled for its demand type
+     * @return false if the notification has already been stored
      */
-    private void store( Notification notification )
+    private boolean store( Notification notification, byte [ ] fingerprint )
     {
-        Demand demand = _demandService.findByPrimaryKey( notification.getDemand( ).getId( ), notification.getDemand( ).getTypeId( ),
-                notification.getDemand( ).getCustomer( ).getCustomerId( ) );
-
-        if ( demand == null || ( demand.getCustomer( ) != null && demand.getCustomer( ).getCustomerId( ) != null
-                && !demand.getCustomer( ).getCustomerId( ).equals( notification.getDemand( ).getCustomer( ).getCustomerId( ) ) ) )
+        if ( fingerprint != null && IdempotencyService.getInstance( ).isStored( fingerprint, notification ) )
         {
-            demand = new Demand( );
+            return false;
+        }
 
-            demand.setId( notification.getDemand( ).getId( ) );
-            demand.setTypeId( notification.getDemand( ).getTypeId( ) );
-            demand.setSubtypeId( notification.getDemand( ).getSubtypeId( ) );
-            demand.setReference( notification.getDemand( ).getReference( ) );
-            demand.setCreationDate( notification.getDate( ) );
-            demand.setMaxSteps( notification.getDemand( ).getMaxSteps( ) );
-            demand.setCurrentStep( notification.getDemand( ).getCurrentStep( ) );
-            demand.setStatusId( getNewDemandStatusIdFromNotification( notification ) );
-            demand.setMetaData( notification.getDemand( ).getMetaData( ) );
+        // the files are stored first, so that the transaction holds no lock on a shared file
+        List<NotificationContent> listContents = NotificationContentHome.storeFiles( notification );
 
-            Customer customerDemand = new Customer( );
-            customerDemand.setCustomerId( notification.getDemand( ).getCustomer( ).getId( ) );
-            customerDemand.setCustomerId( notification.getDemand( ).getCustomer( ).getCustomerId( ) );
-            customerDemand.setConnectionId( notification.getDemand( ).getCustomer( ).getConnectionId( ) );
-            demand.setCustomer( customerDemand );
+        // one transaction : the fingerprint, the demand, the notification and its contents are stored together, on a single connection
+        Plugin plugin = NotificationStorePlugin.getPlugin( notification.getDemand( ).getCustomer( ).getCustomerId( ) );
 
-            // create demand
-            _demandService.create( demand );
-        }
-        else
+        TransactionManager.beginTransaction( plugin );
+        try
         {
-            // update demand status
-            demand.setCurrentStep( notification.getDemand( ).getCurrentStep( ) );
+            if ( fingerprint != null && !IdempotencyService.getInstance( ).claim( fingerprint, notification ) )
+            {
+                TransactionManager.rollBack( plugin );
+                ContentBlobService.getInstance( ).release( listContents );
+                return false;
+            }
 
-            demand.setModifyDate( notification.getDate( ) );
+            Demand demand = _demandService.findByPrimaryKey( notification.getDemand( ).getId( ), notification.getDemand( ).getTypeId( ),
+                    notification.getDemand( ).getCustomer( ).getCustomerId( ) );
 
-            int nNewStatusId = getNewDemandStatusIdFromNotification( notification );
+            boolean bNewDemand = demand == null || ( demand.getCustomer( ) != null && demand.getCustomer( ).getCustomerId( ) != null
+                    && !demand.getCustomer( ).getCustomerId( ).equals( notification.getDemand( ).getCustomer( ).getCustomerId( ) ) );
 
-            demand.setStatusId( nNewStatusId );
+            if ( bNewDemand )
+            {
+                demand = new Demand( );
+
+                demand.setId( notification.getDemand( ).getId( ) );
+                demand.setTypeId( notification.getDemand( ).getTypeId( ) );
+                demand.setSubtypeId( notification.getDemand( ).getSubtypeId( ) );
+                demand.setReference( notification.getDemand( ).getReference( ) );
+                demand.setCreationDate( notification.getDate( ) );
+                demand.setMaxSteps( notification.getDemand( ).getMaxSteps( ) );
+                demand.setCurrentStep( notification.getDemand( ).getCurrentStep( ) );
+                demand.setStatusId( getNewDemandStatusIdFromNotification( notification ) );
+                demand.setMetaData( notification.getDemand( ).getMetaData( ) );
+
+                Customer customerDemand = new Customer( );
+                customerDemand.setCustomerId( notification.getDemand( ).getCustomer( ).getId( ) );
+                customerDemand.setCustomerId( notification.getDemand( ).getCustomer( ).getCustomerId( ) );
+                customerDemand.setConnectionId( notification.getDemand( ).getCustomer( ).getConnectionId( ) );
+                demand.setCustomer( customerDemand );
+            }
+            else
+            {
+                // update demand status
+                demand.setCurrentStep( notification.getDemand( ).getCurrentStep( ) );
 
-            EnumGenericStatus oldStatus = EnumGenericStatus.getByStatusId( demand.getStatusId( ) );
-            EnumGenericStatus newStatus = EnumGenericStatus.getByStatusId( nNewStatusId );
+                demand.setModifyDate( notification.getDate( ) );
 
-            // Demand opened to closed
-            if ( oldStatus != null && newStatus != null && !oldStatus.isFinalStatus( ) && newStatus.isFinalStatus( ) )
-            {
-                demand.setClosureDate( notification.getDate( ) );
+                int nNewStatusId = getNewDemandStatusIdFromNotification( notification );
+
+                demand.setStatusId( nNewStatusId );
+
+                EnumGenericStatus oldStatus = EnumGenericStatus.getByStatusId( demand.getStatusId( ) );
+                EnumGenericStatus newStatus = EnumGenericStatus.getByStatusId( nNewStatusId );
+
+                // Demand opened to closed
+                if ( oldStatus != null && newStatus != null && !oldStatus.isFinalStatus( ) && newStatus.isFinalStatus( ) )
+                {
+                    demand.setClosureDate( notification.getDate( ) );
+                }
+
+                // Demand closed to opened
+                if ( oldStatus != null && newStatus != null && oldStatus.isFinalStatus( ) && !newStatus.isFinalStatus( ) )
+                {
+                    demand.setClosureDate( 0 );
+                }
             }
+            notification.setDemand( demand );
 
-            // Demand closed to opened
-            if ( oldStatus != null && newStatus != null && oldStatus.isFinalStatus( ) && !newStatus.isFinalStatus( ) )
+            // the demand is written once, with the changes implied by the contents of the notification
+            NotificationContentHome.prepareDemand( notification );
+            if ( bNewDemand )
+            {
+                _demandService.create( demand );
+            }
+            else
             {
-                demand.setClosureDate( 0 );
+                _demandService.update( demand );
             }
 
-            _demandService.update( demand );
-        }
-        notification.setDemand( demand );
+            // create notification
+            _demandService.create( notification, listContents );
+
+            TransactionManager.commitTransaction( plugin );
 
-        // create notification
-        _demandService.create( notification );
+            return true;
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( plugin );
+            // the files, or the references to the shared files, of the contents which have not been stored
+            ContentBlobService.getInstance( ).release( listContents );
+            throw e;
+        }
     }
 
     /**
@@ -561,7 +744,8 @@ public class NotificationService
 
         NotificationEvent notificationEvent = new NotificationEvent( );
         notificationEvent.setEvent( event );
-        notificationEvent.setMsgId( StringUtils.EMPTY );
+        // no msg id : the internal events are not deduplicated
+        notificationEvent.setMsgId( null );
         notificationEvent.setDemand( notification.getDemand( ) );
         notificationEvent.setNotificationDate( notification.getDate( ) );
 
@@ -587,7 +771,8 @@ public class NotificationService
 
         NotificationEvent notificationEvent = new NotificationEvent( );
         notificationEvent.setEvent( event );
-        notificationEvent.setMsgId( StringUtils.EMPTY );
+        // no msg id : the internal events are not deduplicated
+        notificationEvent.setMsgId( null );
         notificationEvent.setDemand( notification.getDemand( ) );
         notificationEvent.setNotificationDate( notification.getDate( ) );
 
@@ -766,6 +951,23 @@ public class NotificationService
         return notification;
     }
 
+    /**
+     * Get notification from Smile
+     * 
+     * @param smile
+     *            the Smile content
+     * @return the notification
+     * @throws IOException
+     *             if the content can't be parsed
+     */
+    private Notification getNotificationFromSmile( byte [ ] smile ) throws IOException
+    {
+        AppLogService.debug( "notificationstore / notification - Received Smile content of {} bytes", smile.length );
+
+        return NotificationStoreUtils.getSmileMapper( ).readerFor( Notification.class ).with( DeserializationFeature.UNWRAP_ROOT_VALUE )
+                .without( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES ).readValue( smile );
+    }
+
     /**
      * call the registred notifyers
      * 
@@ -782,4 +984,20 @@ public class NotificationService
         }
 
     }
+
+    /**
+     * Parser of a received notification
+     */
+    @FunctionalInterface
+    private interface NotificationParser
+    {
+        /**
+         * Parse the notification
+         * 
+         * @return the notification
+         * @throws IOException
+         *             if the notification can't be parsed
+         */
+        Notification parse( ) throws IOException;
+    }
 }
@@ -46,12 +46,46 @@ public class NotificationStorePlugin extends Plugin
      */
     public static final String PLUGIN_NAME = "notificationStore";
 
+    private static final String POOL_SEPARATOR = ".";
+
+    private final String _strPoolPluginName;
+
+    /**
+     * Constructor
+     */
+    public NotificationStorePlugin( )
+    {
+        _strPoolPluginName = null;
+    }
+
+    /**
+     * Constructor of the plugin of another connection pool, named after its pool so that TransactionManager keeps the transactions of each pool apart
+     *
+     * @param strPoolName
+     *            the name of the connection pool
+     */
+    private NotificationStorePlugin( String strPoolName )
+    {
+        _strPoolPluginName = PLUGIN_NAME + POOL_SEPARATOR + strPoolName;
+        initConnectionService( strPoolName );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return ( _strPoolPluginName != null ) ? _strPoolPluginName : super.getName( );
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void init( )
     {
+        WarmUpService.getInstance( ).start( );
     }
 
     /**
@@ -63,4 +97,40 @@ public class NotificationStorePlugin extends Plugin
     {
         return PluginService.getPlugin( PLUGIN_NAME );
     }
+
+    /**
+     * Gives a plugin using another connection pool, a shard or a read replica
+     *
+     * @param strPoolName
+     *            the name of the connection pool
+     * @return The plugin of the pool
+     */
+    static Plugin getPoolPlugin( String strPoolName )
+    {
+        return new NotificationStorePlugin( strPoolName );
+    }
+
+    /**
+     * Gives the plugin of the shard of a customer
+     *
+     * @param strCustomerId
+     *            the customer id
+     * @return The plugin of the shard of the customer, the plugin if there is a single shard
+     */
+    public static Plugin getPlugin( String strCustomerId )
+    {
+        return ShardRouter.getInstance( ).getPlugin( strCustomerId );
+    }
+
+    /**
+     * Gives the plugin to use for a read-only query
+     *
+     * @param strCustomerId
+     *            the customer id of the query, or null
+     * @return The plugin of the read replica pool if there is one, otherwise the plugin
+     */
+    public static Plugin getReadPlugin( String strCustomerId )
+    {
+        return ReadReplicaService.getInstance( ).getReadPlugin( strCustomerId );
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.notificationstore.business.CustomerVersionHome;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Routing of the read-only queries to a read replica pool.
+ * <p>
+ * The replica is used only when a pool is configured and the demands are not sharded. The reads of a customer stay on the primary pool during the replica
+ * lag tolerance that follows a write of this customer (read-your-writes).
+ * </p>
+ * <p>
+ * The writes of the current node are recorded in memory. The writes made by the other nodes of a cluster are found with the modification date of the
+ * customer version, read from the primary pool when the memory has no recent write of the customer. The clocks of the nodes must be synchronized.
+ * </p>
+ */
+public final class ReadReplicaService
+{
+    // Properties
+    private static final String PROPERTY_POOL = "notificationstore.readReplica.pool";
+    private static final String PROPERTY_MAX_LAG = "notificationstore.readReplica.maxLag";
+    private static final int DEFAULT_MAX_LAG = 5;
+
+    // Expired writes are purged once this number of customers is reached
+    private static final int PURGE_THRESHOLD = 10000;
+
+    private static ReadReplicaService _instance;
+
+    private final String _strPoolName;
+    private final long _lMaxLag;
+    private final Map<String, Long> _mapLastWrites = new ConcurrentHashMap<>( );
+    private volatile Plugin _replicaPlugin;
+
+    /**
+     * Constructor
+     * 
+     * @param strPoolName
+     *            the name of the replica pool, or null if there is no replica
+     * @param lMaxLag
+     *            the replica lag tolerance, in milliseconds
+     */
+    ReadReplicaService( String strPoolName, long lMaxLag )
+    {
+        _strPoolName = strPoolName;
+        _lMaxLag = lMaxLag;
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized ReadReplicaService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ReadReplicaService( AppPropertiesService.getProperty( PROPERTY_POOL ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_MAX_LAG, DEFAULT_MAX_LAG ) * 1000L );
+        }
+        return _instance;
+    }
+
+    /**
+     * Get the plugin to use for a read-only query
+     * 
+     * @param strCustomerId
+     *            the customer id of the query, or null
+     * @return the replica plugin, or the primary one if there is no replica or if the customer has been written recently
+     */
+    public Plugin getReadPlugin( String strCustomerId )
+    {
+        if ( ShardRouter.getInstance( ).isSharded( ) )
+        {
+            // the shards have no replica
+            return ShardRouter.getInstance( ).getPlugin( strCustomerId );
+        }
+
+        long lNow = System.currentTimeMillis( );
+        if ( StringUtils.isBlank( _strPoolName ) || isReadFromPrimary( strCustomerId, lNow ) || isWrittenByCluster( strCustomerId, lNow ) )
+        {
+            return NotificationStorePlugin.getPlugin( );
+        }
+
+        if ( _replicaPlugin == null )
+        {
+            _replicaPlugin = NotificationStorePlugin.getPoolPlugin( _strPoolName );
+        }
+
+        return _replicaPlugin;
+    }
+
+    /**
+     * Record a write of a customer, so its next reads go to the primary pool
+     * 
+     * @param strCustomerId
+     *            the customer id
+     */
+    public void markWrite( String strCustomerId )
+    {
+        markWrite( strCustomerId, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Record a write of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param lNow
+     *            the time of the write
+     */
+    void markWrite( String strCustomerId, long lNow )
+    {
+        if ( StringUtils.isBlank( strCustomerId ) || _lMaxLag <= 0 )
+        {
+            return;
+        }
+
+        if ( _mapLastWrites.size( ) >= PURGE_THRESHOLD )
+        {
+            _mapLastWrites.values( ).removeIf( lWrite -> lNow - lWrite >= _lMaxLag );
+        }
+
+        _mapLastWrites.put( strCustomerId, lNow );
+    }
+
+    /**
+     * Check if the reads of a customer must go to the primary pool
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param lNow
+     *            the time of the read
+     * @return true if the customer has been written during the replica lag tolerance
+     */
+    boolean isReadFromPrimary( String strCustomerId, long lNow )
+    {
+        if ( StringUtils.isBlank( strCustomerId ) )
+        {
+            return false;
+        }
+
+        Long lLastWrite = _mapLastWrites.get( strCustomerId );
+
+        return lLastWrite != null && lNow - lLastWrite < _lMaxLag;
+    }
+
+    /**
+     * Check if a customer has been written by any node of the cluster during the replica lag tolerance
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @param lNow
+     *            the time of the read
+     * @return true if the last write recorded on the primary pool is within the replica lag tolerance
+     */
+    private boolean isWrittenByCluster( String strCustomerId, long lNow )
+    {
+        if ( StringUtils.isBlank( strCustomerId ) || _lMaxLag <= 0 )
+        {
+            return false;
+        }
+
+        return lNow - CustomerVersionHome.findLastWriteDate( strCustomerId ) < _lMaxLag;
+    }
+}
@@ -33,76 +33,56 @@
  */
 package fr.paris.lutece.plugins.notificationstore.service;
 
-import java.util.List;
-
-import fr.paris.lutece.plugins.grubusiness.business.demand.TemporaryStatus;
-import fr.paris.lutece.plugins.notificationstore.business.TemporaryStatusHome;
-import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * 
- * TemporaryStatusCacheService
- *
+ * Bounded set of the most recently seen keys, the least recently seen keys being evicted first
  */
-public class TemporaryStatusCacheService extends AbstractCacheableService
+final class RecentKeyFilter
 {
-    private static final String SERVICE_NAME = "temporaryStatusCacheService";
-    private static final String KEY_TEMPORARY_STATUS = "[temporaryStatus]";
-
-    private static TemporaryStatusCacheService _singleton;
-
-    /**
-     * Private constructor
-     */
-    private TemporaryStatusCacheService( )
-    {
-        initCache( );
-    }
+    private final Map<String, Boolean> _mapKeys;
 
     /**
-     * Public constructor
+     * Constructor
      * 
-     * @return instance
+     * @param nMaxKeys
+     *            the max number of keys kept
      */
-    public static TemporaryStatusCacheService getInstance( )
+    RecentKeyFilter( int nMaxKeys )
     {
-        if ( _singleton == null )
+        _mapKeys = new LinkedHashMap<String, Boolean>( 16, 0.75f, true )
         {
-            _singleton = new TemporaryStatusCacheService( );
-        }
-        return _singleton;
-    }
+            private static final long serialVersionUID = 1L;
 
-    @Override
-    public String getName( )
-    {
-        return SERVICE_NAME;
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, Boolean> eldest )
+            {
+                return size( ) > nMaxKeys;
+            }
+        };
     }
 
     /**
-     * Gets list temporary status
+     * Add a key
      * 
-     * @return list of temporary status
+     * @param strKey
+     *            the key
+     * @return true if the key has not been seen recently
      */
-    public List<TemporaryStatus> getList( )
+    synchronized boolean add( String strKey )
     {
-        List<TemporaryStatus> listTemporaryStatus = (List<TemporaryStatus>) getFromCache( KEY_TEMPORARY_STATUS );
-
-        if ( listTemporaryStatus == null || listTemporaryStatus.isEmpty( ) )
-        {
-            listTemporaryStatus = TemporaryStatusHome.getStatusList( );
-
-            putInCache( KEY_TEMPORARY_STATUS, listTemporaryStatus );
-        }
-
-        return listTemporaryStatus;
+        return _mapKeys.put( strKey, Boolean.TRUE ) == null;
     }
 
     /**
-     * Remove cache
+     * Forget a key
+     * 
+     * @param strKey
+     *            the key
      */
-    public void removeCache( )
+    synchronized void remove( String strKey )
     {
-        removeKey( KEY_TEMPORARY_STATUS );
+        _mapKeys.remove( strKey );
     }
 }
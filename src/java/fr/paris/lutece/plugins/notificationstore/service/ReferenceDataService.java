@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
+import fr.paris.lutece.plugins.notificationstore.business.DemandCategoryHome;
+import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
+import fr.paris.lutece.plugins.notificationstore.business.TemporaryStatusHome;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.web.l10n.LocaleService;
+
+/**
+ * Holds the current snapshot of the reference data. The snapshot is loaded on the first use and replaced as a whole on each modification of a demand
+ * type, a demand category or a temporary status, so the readers always see a consistent set of reference data without any lock. The other webapps of
+ * the cluster reload their snapshot when they read the modification in the change log of the CacheInvalidationService.
+ */
+public final class ReferenceDataService
+{
+    private static ReferenceDataService _instance;
+
+    private final AtomicReference<ReferenceDataSnapshot> _snapshot = new AtomicReference<>( );
+
+    /**
+     * Private constructor
+     */
+    private ReferenceDataService( )
+    {
+    }
+
+    /**
+     * get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized ReferenceDataService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new ReferenceDataService( );
+            CacheInvalidationService.getInstance( ).register( CacheInvalidationService.CACHE_REFERENCE_DATA, _instance::reload );
+        }
+        return _instance;
+    }
+
+    /**
+     * get the current snapshot of the reference data
+     * 
+     * @return the snapshot
+     */
+    public ReferenceDataSnapshot getSnapshot( )
+    {
+        ReferenceDataSnapshot snapshot = _snapshot.get( );
+        if ( snapshot == null )
+        {
+            snapshot = reload( );
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reload the reference data after its modification by this webapp, and publish the modification to the other webapps
+     */
+    public void refresh( )
+    {
+        reload( );
+        CacheInvalidationService.getInstance( ).publish( CacheInvalidationService.CACHE_REFERENCE_DATA );
+    }
+
+    /**
+     * Reload the reference data and replace the current snapshot. Reloads are serialized so a snapshot never replaces a more recent one.
+     * 
+     * @return the new snapshot
+     */
+    public synchronized ReferenceDataSnapshot reload( )
+    {
+        ReferenceDataSnapshot current = _snapshot.get( );
+        long lVersion = ( current == null ) ? 1 : current.getVersion( ) + 1;
+
+        Map<Integer, String> mapGenericStatusLabels = new HashMap<>( );
+        for ( EnumGenericStatus genericStatus : EnumGenericStatus.values( ) )
+        {
+            mapGenericStatusLabels.put( genericStatus.getStatusId( ),
+                    I18nService.getLocalizedString( genericStatus.getLabel( ), LocaleService.getDefault( ) ) );
+        }
+
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot( lVersion, DemandTypeHome.getDemandTypesList( ),
+                DemandCategoryHome.getDemandCategoriesList( ), TemporaryStatusHome.getStatusList( ), mapGenericStatusLabels );
+        _snapshot.set( snapshot );
+
+        return snapshot;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.DemandCategory;
+import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
+import fr.paris.lutece.plugins.grubusiness.business.demand.TemporaryStatus;
+import fr.paris.lutece.util.ReferenceList;
+
+/**
+ * Immutable snapshot of the reference data : demand types, demand categories, temporary statuses and generic status labels. A new snapshot is built
+ * on each modification, the existing one is never changed.
+ */
+public final class ReferenceDataSnapshot
+{
+    private final long _lVersion;
+    private final List<DemandType> _listDemandTypes;
+    private final Map<Integer, DemandType> _mapDemandTypesByTypeId = new HashMap<>( );
+    private final Map<Integer, DemandType> _mapDemandTypesById = new HashMap<>( );
+    private final Map<String, List<DemandType>> _mapDemandTypesByCategoryCode = new HashMap<>( );
+    private final List<DemandCategory> _listDemandCategories;
+    private final Map<Integer, DemandCategory> _mapDemandCategoriesById = new HashMap<>( );
+    private final Map<String, DemandCategory> _mapDemandCategoriesByCode = new HashMap<>( );
+    private final List<TemporaryStatus> _listTemporaryStatus;
+    private final Map<Integer, String> _mapGenericStatusLabels;
+
+    /**
+     * Constructor
+     * 
+     * @param lVersion
+     *            the version of the snapshot
+     * @param listDemandTypes
+     *            the demand types
+     * @param listDemandCategories
+     *            the demand categories
+     * @param listTemporaryStatus
+     *            the temporary statuses
+     * @param mapGenericStatusLabels
+     *            the localized labels of the generic statuses, by status id
+     */
+    ReferenceDataSnapshot( long lVersion, List<DemandType> listDemandTypes, List<DemandCategory> listDemandCategories,
+            List<TemporaryStatus> listTemporaryStatus, Map<Integer, String> mapGenericStatusLabels )
+    {
+        _lVersion = lVersion;
+        _listDemandTypes = Collections.unmodifiableList( new ArrayList<>( listDemandTypes ) );
+        _listDemandCategories = Collections.unmodifiableList( new ArrayList<>( listDemandCategories ) );
+        _listTemporaryStatus = Collections.unmodifiableList( new ArrayList<>( listTemporaryStatus ) );
+        _mapGenericStatusLabels = Collections.unmodifiableMap( new HashMap<>( mapGenericStatusLabels ) );
+
+        for ( DemandType demandType : _listDemandTypes )
+        {
+            _mapDemandTypesByTypeId.put( demandType.getIdDemandType( ), demandType );
+            _mapDemandTypesById.put( demandType.getId( ), demandType );
+            if ( demandType.getCategory( ) != null )
+            {
+                _mapDemandTypesByCategoryCode.computeIfAbsent( demandType.getCategory( ), c -> new ArrayList<>( ) ).add( demandType );
+            }
+        }
+        _mapDemandTypesByCategoryCode.replaceAll( ( c, list ) -> Collections.unmodifiableList( list ) );
+
+        for ( DemandCategory demandCategory : _listDemandCategories )
+        {
+            _mapDemandCategoriesById.put( demandCategory.getId( ), demandCategory );
+            _mapDemandCategoriesByCode.put( demandCategory.getCode( ), demandCategory );
+        }
+    }
+
+    /**
+     * get the version of the snapshot, increased on each modification of the reference data
+     * 
+     * @return the version
+     */
+    public long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * get the demand types
+     * 
+     * @return the demand types
+     */
+    public List<DemandType> getDemandTypes( )
+    {
+        return _listDemandTypes;
+    }
+
+    /**
+     * get a demand type by its type id
+     * 
+     * @param strTypeId
+     *            the demand type id
+     * @return the demand type, or an empty optional if the id is not a number
+     */
+    public Optional<DemandType> getDemandType( String strTypeId )
+    {
+        String strTrimmedTypeId = StringUtils.trim( strTypeId );
+        if ( !NumberUtils.isDigits( strTrimmedTypeId ) )
+        {
+            return Optional.empty( );
+        }
+        return Optional.ofNullable( _mapDemandTypesByTypeId.get( NumberUtils.toInt( strTrimmedTypeId ) ) );
+    }
+
+    /**
+     * get a demand type by its primary key
+     * 
+     * @param nId
+     *            the primary key
+     * @return the demand type
+     */
+    public Optional<DemandType> getDemandTypeById( int nId )
+    {
+        return Optional.ofNullable( _mapDemandTypesById.get( nId ) );
+    }
+
+    /**
+     * get the demand types of a category
+     * 
+     * @param strCategoryCode
+     *            the category code
+     * @return the demand types of the category
+     */
+    public List<DemandType> getDemandTypesByCategoryCode( String strCategoryCode )
+    {
+        return _mapDemandTypesByCategoryCode.getOrDefault( strCategoryCode, Collections.emptyList( ) );
+    }
+
+    /**
+     * get a reference list of demand types
+     * 
+     * @return a new reference list
+     */
+    public ReferenceList getDemandTypesReferenceList( )
+    {
+        ReferenceList listDemandType = new ReferenceList( );
+        listDemandType.addItem( "", " " );
+
+        _listDemandTypes.stream( )
+                .forEach( dt -> listDemandType.addItem( String.valueOf( dt.getIdDemandType( ) ), dt.getIdDemandType( ) + ": " + dt.getLabel( ) ) );
+
+        return listDemandType;
+    }
+
+    /**
+     * get the demand categories
+     * 
+     * @return the demand categories
+     */
+    public List<DemandCategory> getDemandCategories( )
+    {
+        return _listDemandCategories;
+    }
+
+    /**
+     * get a demand category by its primary key
+     * 
+     * @param nId
+     *            the primary key
+     * @return the demand category
+     */
+    public Optional<DemandCategory> getDemandCategory( int nId )
+    {
+        return Optional.ofNullable( _mapDemandCategoriesById.get( nId ) );
+    }
+
+    /**
+     * get a demand category by its code
+     * 
+     * @param strCode
+     *            the category code
+     * @return the demand category
+     */
+    public Optional<DemandCategory> getDemandCategoryByCode( String strCode )
+    {
+        return Optional.ofNullable( _mapDemandCategoriesByCode.get( strCode ) );
+    }
+
+    /**
+     * get categories as reference list
+     * 
+     * @return a new reference list
+     */
+    public ReferenceList getDemandCategoriesReferenceList( )
+    {
+        ReferenceList list = new ReferenceList( );
+        list.addItem( StringUtils.EMPTY, StringUtils.EMPTY );
+
+        _listDemandCategories.stream( ).forEach( c -> list.addItem( c.getCode( ), c.getLabel( ) ) );
+
+        return list;
+    }
+
+    /**
+     * get the temporary statuses
+     * 
+     * @return the temporary statuses
+     */
+    public List<TemporaryStatus> getTemporaryStatus( )
+    {
+        return _listTemporaryStatus;
+    }
+
+    /**
+     * get the localized label of a generic status
+     * 
+     * @param nStatusId
+     *            the generic status id
+     * @return the label, or an empty string if the status is unknown
+     */
+    public String getGenericStatusLabel( Integer nStatusId )
+    {
+        return _mapGenericStatusLabels.getOrDefault( nStatusId, StringUtils.EMPTY );
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.notificationstore.business.CustomerVersionHome;
+import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContent;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationContentHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Retention of the notification contents.
+ * <p>
+ * The rules are set per channel (notification type) and optionally per demand type, by the properties
+ * <code>notificationstore.retention.rule.&lt;TYPE&gt;=nbDays</code> and
+ * <code>notificationstore.retention.rule.&lt;TYPE&gt;.&lt;demandTypeId&gt;=nbDays</code>. The contents of the notifications older than the retention period
+ * are deleted in chunks ordered by id, then their files (or their references to the shared files), then the notifications left without any content. Each
+ * chunk only deletes the rows it has read, so the purge can run while notifications are stored.
+ * </p>
+ */
+public final class RetentionService
+{
+    // Properties
+    private static final String PROPERTY_RULE_PREFIX = "notificationstore.retention.rule.";
+    private static final String PROPERTY_CHUNK_SIZE = "notificationstore.retention.chunkSize";
+    private static final String PROPERTY_MAX_CHUNKS_PER_RUN = "notificationstore.retention.maxChunksPerRun";
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+    private static final int DEFAULT_MAX_CHUNKS_PER_RUN = 100;
+
+    private static final String RULE_SEPARATOR = ".";
+
+    private static RetentionService _instance;
+
+    /**
+     * Private constructor
+     */
+    private RetentionService( )
+    {
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized RetentionService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new RetentionService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Purge the expired notification contents of each shard, according to the retention rules
+     * 
+     * @return the logs of the run
+     */
+    public synchronized String process( )
+    {
+        Map<String, String> mapProperties = new HashMap<>( );
+        for ( String strKey : AppPropertiesService.getKeys( PROPERTY_RULE_PREFIX ) )
+        {
+            mapProperties.put( strKey.substring( PROPERTY_RULE_PREFIX.length( ) ), AppPropertiesService.getProperty( strKey ) );
+        }
+
+        List<RetentionRule> listRules = getRules( mapProperties );
+        if ( listRules.isEmpty( ) )
+        {
+            return "No retention rule";
+        }
+
+        int nChunkSize = AppPropertiesService.getPropertyInt( PROPERTY_CHUNK_SIZE, DEFAULT_CHUNK_SIZE );
+        int nMaxChunks = AppPropertiesService.getPropertyInt( PROPERTY_MAX_CHUNKS_PER_RUN, DEFAULT_MAX_CHUNKS_PER_RUN );
+        RetentionReport report = new RetentionReport( );
+
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            for ( RetentionRule rule : listRules )
+            {
+                if ( report.getChunks( ) >= nMaxChunks )
+                {
+                    report.setIncomplete( );
+                    return report.toString( );
+                }
+
+                purge( rule, getExcludedDemandTypes( rule, listRules ), nChunkSize, nMaxChunks, plugin, report );
+            }
+        }
+
+        return report.toString( );
+    }
+
+    /**
+     * Purge the expired notification contents of a rule
+     * 
+     * @param rule
+     *            the rule
+     * @param setExcludedDemandTypes
+     *            the demand types having their own rule
+     * @param nChunkSize
+     *            the chunk size
+     * @param nMaxChunks
+     *            the max number of chunks of the run
+     * @param plugin
+     *            the plugin of the shard
+     * @param report
+     *            the report of the run
+     */
+    private void purge( RetentionRule rule, Set<String> setExcludedDemandTypes, int nChunkSize, int nMaxChunks, Plugin plugin, RetentionReport report )
+    {
+        long lDateBefore = System.currentTimeMillis( ) - TimeUnit.DAYS.toMillis( rule.getNbDays( ) );
+        int nLastId = 0;
+
+        while ( report.getChunks( ) < nMaxChunks )
+        {
+            List<NotificationContent> listContents = NotificationContentHome.getExpiredNotificationContents( rule.getNotificationType( ), lDateBefore,
+                    rule.getDemandTypeId( ), setExcludedDemandTypes, nLastId, nChunkSize, plugin );
+
+            if ( listContents.isEmpty( ) )
+            {
+                return;
+            }
+
+            nLastId = listContents.get( listContents.size( ) - 1 ).getId( );
+
+            List<Integer> listContentIds = new ArrayList<>( );
+            Set<Integer> setNotificationIds = new HashSet<>( );
+            for ( NotificationContent content : listContents )
+            {
+                listContentIds.add( content.getId( ) );
+                setNotificationIds.add( content.getIdNotification( ) );
+            }
+
+            TransactionManager.beginTransaction( plugin );
+            try
+            {
+                CustomerVersionHome.incrementByNotificationIds( setNotificationIds, plugin );
+                report.addContents( rule.getNotificationType( ), NotificationContentHome.removeByIds( listContentIds, plugin ) );
+                NotificationHome.removeChannel( setNotificationIds, rule.getNotificationType( ), plugin );
+                // the demands lose the channel unless another of their notifications has it, before the notifications left empty are removed
+                DemandHome.refreshChannels( setNotificationIds, plugin );
+                report.addNotifications( NotificationHome.removeWithoutContent( setNotificationIds, plugin ) );
+
+                TransactionManager.commitTransaction( plugin );
+            }
+            catch( Exception e )
+            {
+                TransactionManager.rollBack( plugin );
+                AppLogService.error( "Unable to purge the {} notification contents after id {}", rule.getNotificationType( ), nLastId, e );
+                return;
+            }
+
+            // the rows are committed : their files, or their references to the shared files, are orphans
+            report.addFiles( ContentBlobService.getInstance( ).release( listContents ) );
+
+            report.addChunk( );
+
+            if ( listContents.size( ) < nChunkSize )
+            {
+                return;
+            }
+        }
+
+        report.setIncomplete( );
+    }
+
+    /**
+     * Parse the retention rules
+     * 
+     * @param mapProperties
+     *            the rule properties, without their prefix : TYPE or TYPE.demandTypeId, and the number of days
+     * @return the valid rules
+     */
+    static List<RetentionRule> getRules( Map<String, String> mapProperties )
+    {
+        List<RetentionRule> listRules = new ArrayList<>( );
+
+        for ( Map.Entry<String, String> entry : new TreeMap<>( mapProperties ).entrySet( ) )
+        {
+            int nNbDays = StringUtils.isNumeric( StringUtils.trim( entry.getValue( ) ) ) ? Integer.parseInt( entry.getValue( ).trim( ) ) : 0;
+            if ( nNbDays <= 0 )
+            {
+                AppLogService.info( "Retention rule {} ignored : the number of days must be a positive integer", entry.getKey( ) );
+                continue;
+            }
+
+            String strNotificationType = StringUtils.substringBefore( entry.getKey( ), RULE_SEPARATOR );
+            String strDemandTypeId = entry.getKey( ).contains( RULE_SEPARATOR ) ? StringUtils.substringAfter( entry.getKey( ), RULE_SEPARATOR ) : null;
+
+            listRules.add( new RetentionRule( strNotificationType, strDemandTypeId, nNbDays ) );
+        }
+
+        return listRules;
+    }
+
+    /**
+     * Get the demand types excluded from a rule : a rule of a channel applies to the demand types which have no rule of their own for this channel
+     * 
+     * @param rule
+     *            the rule
+     * @param listRules
+     *            all the rules
+     * @return the excluded demand type ids
+     */
+    static Set<String> getExcludedDemandTypes( RetentionRule rule, List<RetentionRule> listRules )
+    {
+        Set<String> setExcludedDemandTypes = new HashSet<>( );
+
+        if ( rule.getDemandTypeId( ) == null )
+        {
+            for ( RetentionRule other : listRules )
+            {
+                if ( other.getDemandTypeId( ) != null && other.getNotificationType( ).equals( rule.getNotificationType( ) ) )
+                {
+                    setExcludedDemandTypes.add( other.getDemandTypeId( ) );
+                }
+            }
+        }
+
+        return setExcludedDemandTypes;
+    }
+
+    /**
+     * A retention rule
+     */
+    static final class RetentionRule
+    {
+        private final String _strNotificationType;
+        private final String _strDemandTypeId;
+        private final int _nNbDays;
+
+        /**
+         * Constructor
+         * 
+         * @param strNotificationType
+         *            the notification type
+         * @param strDemandTypeId
+         *            the demand type id, or null for all the demand types
+         * @param nNbDays
+         *            the retention period in days
+         */
+        RetentionRule( String strNotificationType, String strDemandTypeId, int nNbDays )
+        {
+            _strNotificationType = strNotificationType;
+            _strDemandTypeId = strDemandTypeId;
+            _nNbDays = nNbDays;
+        }
+
+        /**
+         * @return the notification type
+         */
+        String getNotificationType( )
+        {
+            return _strNotificationType;
+        }
+
+        /**
+         * @return the demand type id, or null for all the demand types
+         */
+        String getDemandTypeId( )
+        {
+            return _strDemandTypeId;
+        }
+
+        /**
+         * @return the retention period in days
+         */
+        int getNbDays( )
+        {
+            return _nNbDays;
+        }
+    }
+
+    /**
+     * What a run has reclaimed
+     */
+    private static final class RetentionReport
+    {
+        private final Map<String, Integer> _mapContentsByType = new TreeMap<>( );
+        private int _nNotifications;
+        private int _nFiles;
+        private int _nChunks;
+        private boolean _bIncomplete;
+
+        /**
+         * @param strNotificationType
+         *            the notification type
+         * @param nContents
+         *            the number of deleted notification contents
+         */
+        void addContents( String strNotificationType, int nContents )
+        {
+            _mapContentsByType.merge( strNotificationType, nContents, Integer::sum );
+        }
+
+        /**
+         * @param nNotifications
+         *            the number of deleted notifications
+         */
+        void addNotifications( int nNotifications )
+        {
+            _nNotifications += nNotifications;
+        }
+
+        /**
+         * @param nFiles
+         *            the number of deleted files
+         */
+        void addFiles( int nFiles )
+        {
+            _nFiles += nFiles;
+        }
+
+        /**
+         * Count a processed chunk
+         */
+        void addChunk( )
+        {
+            _nChunks++;
+        }
+
+        /**
+         * @return the number of processed chunks
+         */
+        int getChunks( )
+        {
+            return _nChunks;
+        }
+
+        /**
+         * Mark the run as stopped by the max number of chunks
+         */
+        void setIncomplete( )
+        {
+            _bIncomplete = true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString( )
+        {
+            return "Deleted notification contents : " + _mapContentsByType + ", notifications : " + _nNotifications + ", files : " + _nFiles
+                    + ( _bIncomplete ? " (max chunks per run reached, to be continued)" : StringUtils.EMPTY );
+        }
+    }
+}
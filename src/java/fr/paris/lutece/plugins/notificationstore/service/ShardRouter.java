@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.portal.service.datastore.DatastoreService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Routing of the demands and notifications of a customer to a shard.
+ * <p>
+ * Each shard is a connection pool declared in db.properties. The customer id is placed on a consistent hash ring, whose first member is always the
+ * plugin pool: without configured pools, it is the single shard.
+ * </p>
+ * <p>
+ * No data is moved between the shards: a change of the ring would hide the customers of the changed arcs. The ring is recorded in the datastore, and a
+ * configured ring different from the recorded one is only applied while no shard holds demands. Otherwise the change is refused and logged, and the
+ * recorded ring is kept.
+ * </p>
+ * <p>
+ * The ids generated by each shard must be unique across the shards, since the scatter-gather queries merge by id and the id-only methods look in every
+ * shard : each shard pool sets the same auto_increment_increment, at least the number of shards, and its own auto_increment_offset.
+ * </p>
+ */
+public final class ShardRouter
+{
+    // Properties
+    private static final String PROPERTY_POOLS = "notificationstore.shard.pools";
+    private static final String PROPERTY_VIRTUAL_NODES = "notificationstore.shard.virtualNodes";
+    private static final int DEFAULT_VIRTUAL_NODES = 64;
+
+    // Datastore keys of the applied ring
+    private static final String DS_KEY_POOLS = "notificationstore.shard.ring.pools";
+    private static final String DS_KEY_VIRTUAL_NODES = "notificationstore.shard.ring.virtualNodes";
+
+    private static final String HASH_ALGORITHM = "MD5";
+    private static final String VIRTUAL_NODE_SEPARATOR = "#";
+
+    private static ShardRouter _instance;
+
+    private final List<String> _listPoolNames;
+    private final TreeMap<Long, Integer> _ring = new TreeMap<>( );
+    private volatile List<Plugin> _listShardPlugins;
+
+    /**
+     * Constructor
+     * 
+     * @param listPoolNames
+     *            the names of the shard pools, the first one being the plugin pool, empty for a single shard
+     * @param nVirtualNodes
+     *            the number of points of each shard on the hash ring
+     */
+    ShardRouter( List<String> listPoolNames, int nVirtualNodes )
+    {
+        _listPoolNames = Collections.unmodifiableList( new ArrayList<>( listPoolNames ) );
+
+        for ( int nShard = 0; nShard < _listPoolNames.size( ); nShard++ )
+        {
+            for ( int i = 0; i < nVirtualNodes; i++ )
+            {
+                _ring.put( hash( _listPoolNames.get( nShard ) + VIRTUAL_NODE_SEPARATOR + i ), nShard );
+            }
+        }
+    }
+
+    /**
+     * Get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized ShardRouter getInstance( )
+    {
+        if ( _instance == null )
+        {
+            List<String> listPoolNames = new ArrayList<>( );
+            listPoolNames.add( StringUtils.defaultString( NotificationStorePlugin.getPlugin( ).getDbPoolName( ) ) );
+            for ( String strPoolName : StringUtils.split( AppPropertiesService.getProperty( PROPERTY_POOLS, StringUtils.EMPTY ), ',' ) )
+            {
+                if ( StringUtils.isNotBlank( strPoolName ) && !listPoolNames.contains( strPoolName.trim( ) ) )
+                {
+                    listPoolNames.add( strPoolName.trim( ) );
+                }
+            }
+
+            _instance = getAppliedRing( listPoolNames, AppPropertiesService.getPropertyInt( PROPERTY_VIRTUAL_NODES, DEFAULT_VIRTUAL_NODES ) );
+            _instance.checkUniqueIds( );
+        }
+        return _instance;
+    }
+
+    /**
+     * Get the ring to apply : the configured ring if it is the recorded one or if no shard holds demands, otherwise the recorded ring
+     * 
+     * @param listPoolNames
+     *            the configured shard pools, the plugin pool first
+     * @param nVirtualNodes
+     *            the configured number of points of each shard on the ring
+     * @return the router of the applied ring
+     */
+    private static ShardRouter getAppliedRing( List<String> listPoolNames, int nVirtualNodes )
+    {
+        String strPools = String.join( ",", listPoolNames );
+        // a store without recorded ring has been used with the plugin pool as single shard
+        String strRecordedPools = DatastoreService.getDataValue( DS_KEY_POOLS, listPoolNames.get( 0 ) );
+        int nRecordedVirtualNodes = Integer.parseInt( DatastoreService.getDataValue( DS_KEY_VIRTUAL_NODES, String.valueOf( nVirtualNodes ) ) );
+
+        ShardRouter router = new ShardRouter( listPoolNames, nVirtualNodes );
+
+        if ( strPools.equals( strRecordedPools ) && ( nVirtualNodes == nRecordedVirtualNodes || !router.isSharded( ) ) )
+        {
+            return router;
+        }
+
+        ShardRouter recordedRouter = new ShardRouter( Arrays.asList( StringUtils.split( strRecordedPools, ',' ) ), nRecordedVirtualNodes );
+
+        if ( recordedRouter.hasDemands( ) || router.hasDemands( ) )
+        {
+            AppLogService.error( "notificationstore : the shard ring can't be changed to the pools [" + strPools
+                    + "] while the shards hold demands, the pools [" + strRecordedPools + "] are kept" );
+
+            return recordedRouter;
+        }
+
+        DatastoreService.setDataValue( DS_KEY_POOLS, strPools );
+        DatastoreService.setDataValue( DS_KEY_VIRTUAL_NODES, String.valueOf( nVirtualNodes ) );
+
+        return router;
+    }
+
+    /**
+     * Check if the demands and notifications are spread over several pools
+     * 
+     * @return true if shard pools are configured
+     */
+    public boolean isSharded( )
+    {
+        return _listPoolNames.size( ) > 1;
+    }
+
+    /**
+     * Get the shard of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the index of the shard
+     */
+    public int getShard( String strCustomerId )
+    {
+        if ( !isSharded( ) )
+        {
+            return 0;
+        }
+
+        Map.Entry<Long, Integer> entry = _ring.ceilingEntry( hash( StringUtils.defaultString( strCustomerId ) ) );
+
+        return ( entry != null ) ? entry.getValue( ) : _ring.firstEntry( ).getValue( );
+    }
+
+    /**
+     * Check if two customers are stored in the same shard
+     * 
+     * @param strCustomerId
+     *            the first customer id
+     * @param strOtherCustomerId
+     *            the other customer id
+     * @return true if both customers are in the same shard
+     */
+    public boolean isSameShard( String strCustomerId, String strOtherCustomerId )
+    {
+        return getShard( strCustomerId ) == getShard( strOtherCustomerId );
+    }
+
+    /**
+     * Get the plugin of the shard of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the plugin of the shard
+     */
+    public Plugin getPlugin( String strCustomerId )
+    {
+        return isSharded( ) ? getPlugins( ).get( getShard( strCustomerId ) ) : NotificationStorePlugin.getPlugin( );
+    }
+
+    /**
+     * Get the plugins of all the shards
+     * 
+     * @return the plugins, one per shard
+     */
+    public List<Plugin> getPlugins( )
+    {
+        if ( !isSharded( ) )
+        {
+            return Collections.singletonList( NotificationStorePlugin.getPlugin( ) );
+        }
+
+        if ( _listShardPlugins == null )
+        {
+            List<Plugin> listPlugins = new ArrayList<>( );
+            listPlugins.add( NotificationStorePlugin.getPlugin( ) );
+            for ( String strPoolName : _listPoolNames.subList( 1, _listPoolNames.size( ) ) )
+            {
+                listPlugins.add( NotificationStorePlugin.getPoolPlugin( strPoolName ) );
+            }
+            _listShardPlugins = Collections.unmodifiableList( listPlugins );
+        }
+
+        return _listShardPlugins;
+    }
+
+    /**
+     * Get the plugins of the shards to query for a customer
+     * 
+     * @param strCustomerId
+     *            the customer id, or null for all the customers
+     * @return the plugin of the shard of the customer, or the plugins of all the shards
+     */
+    public List<Plugin> getPlugins( String strCustomerId )
+    {
+        if ( StringUtils.isEmpty( strCustomerId ) && isSharded( ) )
+        {
+            return getPlugins( );
+        }
+
+        return Collections.singletonList( getPlugin( strCustomerId ) );
+    }
+
+    /**
+     * Run a query on the shards of a customer and gather the results
+     * 
+     * @param <T>
+     *            the type of the results
+     * @param strCustomerId
+     *            the customer id, or null to query all the shards
+     * @param query
+     *            the query of one shard
+     * @return the results of the shards
+     */
+    public <T> List<T> gather( String strCustomerId, Function<Plugin, List<T>> query )
+    {
+        List<T> listResults = new ArrayList<>( );
+        for ( Plugin plugin : getPlugins( strCustomerId ) )
+        {
+            listResults.addAll( query.apply( plugin ) );
+        }
+
+        return listResults;
+    }
+
+    /**
+     * Check that the ids generated by the shards are unique across the shards, and log an error otherwise
+     */
+    private void checkUniqueIds( )
+    {
+        if ( !isSharded( ) )
+        {
+            return;
+        }
+
+        List<Plugin> listPlugins = getPlugins( );
+        Set<Integer> setOffsets = new HashSet<>( );
+        int nIncrement = 0;
+
+        for ( int nShard = 0; nShard < listPlugins.size( ); nShard++ )
+        {
+            int [ ] settings = DemandHome.getAutoIncrementSettings( listPlugins.get( nShard ) );
+            if ( nShard == 0 )
+            {
+                nIncrement = settings [0];
+            }
+
+            if ( settings [0] != nIncrement || nIncrement < listPlugins.size( ) || settings [1] > nIncrement || !setOffsets.add( settings [1] ) )
+            {
+                AppLogService.error( "notificationstore : the ids of the shard pool " + _listPoolNames.get( nShard )
+                        + " can collide with another shard, each shard pool must set auto_increment_increment to " + nIncrement
+                        + " (at least " + listPlugins.size( ) + ") and its own auto_increment_offset" );
+            }
+        }
+    }
+
+    /**
+     * Check if a shard of the ring holds demands
+     * 
+     * @return true if at least one shard holds demands
+     */
+    private boolean hasDemands( )
+    {
+        for ( Plugin plugin : getPlugins( ) )
+        {
+            if ( DemandHome.hasDemands( plugin ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Hash a key on the ring
+     * 
+     * @param strKey
+     *            the key
+     * @return the position on the ring
+     */
+    private static long hash( String strKey )
+    {
+        try
+        {
+            byte [ ] digest = MessageDigest.getInstance( HASH_ALGORITHM ).digest( strKey.getBytes( StandardCharsets.UTF_8 ) );
+            long lHash = 0;
+            for ( int i = 0; i < Long.BYTES; i++ )
+            {
+                lHash = ( lHash << 8 ) | ( digest [i] & 0xFF );
+            }
+
+            return lHash;
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            throw new AppException( "Unable to hash the shard key", e );
+        }
+    }
+}
@@ -59,7 +59,6 @@ public class TemporaryStatusService
 
     private static TemporaryStatusService _instance;
     private static IDemandServiceProvider _demandService;
-    private static TemporaryStatusCacheService _cache;
 
     /**
      * Private constructor
@@ -80,7 +79,6 @@ public class TemporaryStatusService
         {
             _instance = new TemporaryStatusService( );
             _demandService = SpringContextService.getBean( BEAN_STORAGE_SERVICE );
-            _cache = TemporaryStatusCacheService.getInstance( );
         }
         return _instance;
     }
@@ -96,8 +94,8 @@ public class TemporaryStatusService
     {
         TemporaryStatusHome.create( status );
 
-        // Remove cache
-        TemporaryStatusCacheService.getInstance( ).removeCache( );
+        // Refresh the reference data
+        ReferenceDataService.getInstance( ).refresh( );
 
         return status;
     }
@@ -132,8 +130,8 @@ public class TemporaryStatusService
             // Commit de la transaction
             TransactionManager.commitTransaction( null );
 
-            // Remove cache
-            TemporaryStatusCacheService.getInstance( ).removeCache( );
+            // Refresh the reference data
+            ReferenceDataService.getInstance( ).refresh( );
         }
         catch( Exception e )
         {
@@ -155,8 +153,8 @@ public class TemporaryStatusService
     {
         TemporaryStatusHome.remove( nKey );
 
-        // Remove cache
-        TemporaryStatusCacheService.getInstance( ).removeCache( );
+        // Refresh the reference data
+        ReferenceDataService.getInstance( ).refresh( );
     }
 
     /**
@@ -192,7 +190,7 @@ public class TemporaryStatusService
      */
     public Optional<TemporaryStatus> findByStatus( String strStatus )
     {
-        List<TemporaryStatus> listTemporaryStatus = _cache.getList( );
+        List<TemporaryStatus> listTemporaryStatus = ReferenceDataService.getInstance( ).getSnapshot( ).getTemporaryStatus( );
 
         strStatus = strStatus.replaceAll( "\\s", "" ).toLowerCase( );
 
@@ -212,13 +210,13 @@ public class TemporaryStatusService
     }
 
     /**
-     * Load the data of all the status objects and returns them as a list
+     * Get all the status objects from the reference data snapshot
      * 
-     * @return the list which contains the data of all the status objects
+     * @return the unmodifiable list of all the status objects
      */
     public List<TemporaryStatus> getStatusList( )
     {
-        return TemporaryStatusHome.getStatusList( );
+        return ReferenceDataService.getInstance( ).getSnapshot( ).getTemporaryStatus( );
     }
 
     /**
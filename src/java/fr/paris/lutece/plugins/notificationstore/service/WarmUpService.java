@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import fr.paris.lutece.plugins.grubusiness.business.customer.Customer;
+import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
+import fr.paris.lutece.plugins.notificationstore.business.CustomerVersionHome;
+import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+/**
+ * Warm-up of the webapp after its start, run from the plugin initialization in a background thread.
+ * <p>
+ * It loads the reference data, optionally reads the first page of demands of the recently active customers, and optionally runs a synthetic loop of
+ * demand and notification writes and reads in transactions which are always rolled back. The webapp is reported ready once the warm-up is over.
+ * </p>
+ */
+public final class WarmUpService
+{
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_READY = "READY";
+
+    // Properties
+    private static final String PROPERTY_ENABLED = "notificationstore.warmup.enabled";
+    private static final String PROPERTY_RECENT_CUSTOMERS = "notificationstore.warmup.recentCustomers";
+    private static final String PROPERTY_RECENT_CUSTOMERS_NB_DAYS = "notificationstore.warmup.recentCustomers.nbDays";
+    private static final String PROPERTY_SYNTHETIC_ITERATIONS = "notificationstore.warmup.syntheticIterations";
+    private static final int DEFAULT_RECENT_CUSTOMERS_NB_DAYS = 1;
+
+    private static final String THREAD_NAME = "notificationstore-warmup";
+    private static final String SYNTHETIC_CUSTOMER_PREFIX = "warmup-";
+    private static final String SYNTHETIC_DEMAND_ID = "warmup";
+    private static final String SYNTHETIC_DEMAND_TYPE_ID = "-1";
+
+    private static WarmUpService _instance;
+
+    private volatile String _strStatus = STATUS_PENDING;
+
+    /**
+     * Private constructor
+     */
+    private WarmUpService( )
+    {
+    }
+
+    /**
+     * get the instance
+     * 
+     * @return the instance
+     */
+    public static synchronized WarmUpService getInstance( )
+    {
+        if ( _instance == null )
+        {
+            _instance = new WarmUpService( );
+        }
+        return _instance;
+    }
+
+    /**
+     * get the status of the warm-up
+     * 
+     * @return the status : PENDING, RUNNING or READY
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Check if the warm-up is over
+     * 
+     * @return true if the webapp is ready
+     */
+    public boolean isReady( )
+    {
+        return STATUS_READY.equals( _strStatus );
+    }
+
+    /**
+     * Start the warm-up in a background thread, or report the webapp ready at once if the warm-up is disabled
+     */
+    public synchronized void start( )
+    {
+        if ( !STATUS_PENDING.equals( _strStatus ) )
+        {
+            return;
+        }
+        if ( !AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true ) )
+        {
+            _strStatus = STATUS_READY;
+            return;
+        }
+
+        _strStatus = STATUS_RUNNING;
+        Thread thread = new Thread( this::warmUp, THREAD_NAME );
+        thread.setDaemon( true );
+        thread.start( );
+    }
+
+    /**
+     * Run the warm-up steps. A failed step is logged and does not prevent the webapp from being ready.
+     */
+    private void warmUp( )
+    {
+        long lStart = System.currentTimeMillis( );
+
+        try
+        {
+            ReferenceDataService.getInstance( ).reload( );
+            int nCustomers = readRecentCustomers( AppPropertiesService.getPropertyInt( PROPERTY_RECENT_CUSTOMERS, 0 ) );
+            int nIterations = runSyntheticLoop( AppPropertiesService.getPropertyInt( PROPERTY_SYNTHETIC_ITERATIONS, 0 ) );
+
+            AppLogService.info( "Notificationstore warm-up done in {} ms : {} recent customers read, {} synthetic iterations",
+                    System.currentTimeMillis( ) - lStart, nCustomers, nIterations );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Notificationstore warm-up failed", e );
+        }
+        finally
+        {
+            _strStatus = STATUS_READY;
+        }
+    }
+
+    /**
+     * Read the first page of demands of the customers whose demands have been recently modified, on each shard
+     * 
+     * @param nMaxCustomers
+     *            the max number of customers per shard
+     * @return the number of customers read
+     */
+    private int readRecentCustomers( int nMaxCustomers )
+    {
+        if ( nMaxCustomers <= 0 )
+        {
+            return 0;
+        }
+
+        long lModifiedAfter = System.currentTimeMillis( )
+                - TimeUnit.DAYS.toMillis( AppPropertiesService.getPropertyInt( PROPERTY_RECENT_CUSTOMERS_NB_DAYS, DEFAULT_RECENT_CUSTOMERS_NB_DAYS ) );
+        int nPageSize = AppPropertiesService.getPropertyInt( NotificationStoreConstants.LIMIT_DEMAND_API_REST, 10 );
+        int nCustomers = 0;
+
+        for ( Plugin plugin : ShardRouter.getInstance( ).getPlugins( ) )
+        {
+            for ( String strCustomerId : DemandHome.getRecentCustomerIds( lModifiedAfter, nMaxCustomers, plugin ) )
+            {
+                CustomerVersionHome.findByCustomerId( strCustomerId );
+                List<Integer> listIds = DemandHome.getIdsByCustomerIdAndDemandTypeId( strCustomerId, null, null, null );
+                DemandHome.getByIds( listIds.subList( 0, Math.min( nPageSize, listIds.size( ) ) ), strCustomerId );
+                nCustomers++;
+            }
+        }
+
+        return nCustomers;
+    }
+
+    /**
+     * Write and read a synthetic demand and notification, in transactions which are rolled back
+     * 
+     * @param nIterations
+     *            the number of iterations
+     * @return the number of iterations run
+     */
+    private int runSyntheticLoop( int nIterations )
+    {
+        for ( int i = 0; i < nIterations; i++ )
+        {
+            String strCustomerId = SYNTHETIC_CUSTOMER_PREFIX + UUID.randomUUID( );
+            Plugin plugin = NotificationStorePlugin.getPlugin( strCustomerId );
+
+            TransactionManager.beginTransaction( plugin );
+            try
+            {
+                long lNow = System.currentTimeMillis( );
+                Customer customer = new Customer( );
+                customer.setCustomerId( strCustomerId );
+                Demand demand = new Demand( );
+                demand.setId( SYNTHETIC_DEMAND_ID );
+                demand.setTypeId( SYNTHETIC_DEMAND_TYPE_ID );
+                demand.setCustomer( customer );
+                demand.setCreationDate( lNow );
+                demand.setModifyDate( lNow );
+                Notification notification = new Notification( );
+                notification.setDemand( demand );
+                notification.setDate( lNow );
+
+                // same JSON mapping as the notifications received by the REST API
+                NotificationStoreUtils.getMapper( ).readValue( NotificationStoreUtils.convertToJsonString( notification ), Notification.class );
+
+                DemandHome.create( demand );
+                NotificationHome.create( notification );
+
+                // the reads of the customer are routed to the primary after its writes, so they are done in the transaction
+                List<Integer> listIds = DemandHome.getIdsByCustomerIdAndDemandTypeId( strCustomerId, null, null, null );
+                DemandHome.getByIds( listIds, strCustomerId );
+                NotificationHome.getByDemandIdTypeIdCustomerId( SYNTHETIC_DEMAND_ID, SYNTHETIC_DEMAND_TYPE_ID, strCustomerId, new NotificationFilter( ) );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Notificationstore warm-up : JSON mapping failed", e );
+            }
+            finally
+            {
+                TransactionManager.rollBack( plugin );
+            }
+        }
+
+        return nIterations;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reader of notification contents. The codec of each blob (plain JSON or Smile, optionally GZIP compressed) is detected from its first bytes, so that
+ * the contents of every codec can be read whatever the current configuration.
+ */
+public final class NotificationContentReader
+{
+    private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+    private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte [ ] SMILE_HEADER = {
+            ':', ')', '\n'
+    };
+
+    /**
+     * Private constructor
+     */
+    private NotificationContentReader( )
+    {
+    }
+
+    /**
+     * Check if a blob is compressed
+     * 
+     * @param blob
+     *            the blob
+     * @return true if the blob is GZIP compressed
+     */
+    public static boolean isCompressed( byte [ ] blob )
+    {
+        return blob != null && blob.length > 1 && ( blob [0] & 0xff ) == GZIP_MAGIC_FIRST_BYTE && ( blob [1] & 0xff ) == GZIP_MAGIC_SECOND_BYTE;
+    }
+
+    /**
+     * Read a blob as an object
+     * 
+     * @param <T>
+     *            the type of the object
+     * @param mapper
+     *            the mapper
+     * @param blob
+     *            the blob
+     * @param typeReference
+     *            the type of the object
+     * @return the object
+     * @throws IOException
+     *             if the blob can't be read
+     */
+    public static <T> T read( ObjectMapper mapper, byte [ ] blob, TypeReference<T> typeReference ) throws IOException
+    {
+        try ( InputStream in = open( blob ) )
+        {
+            ObjectMapper blobMapper = isSmile( in ) ? NotificationStoreUtils.getSmileMapper( ) : mapper;
+
+            return blobMapper.readValue( in, typeReference );
+        }
+    }
+
+    /**
+     * Encode a blob with the given codec
+     * 
+     * @param blob
+     *            the blob
+     * @param bCompress
+     *            true to compress the blob, false to decompress it
+     * @return the encoded blob, or the same blob if it is already encoded with this codec
+     * @throws IOException
+     *             if the blob can't be encoded
+     */
+    public static byte [ ] recode( byte [ ] blob, boolean bCompress ) throws IOException
+    {
+        if ( isCompressed( blob ) == bCompress )
+        {
+            return blob;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream( bCompress ? blob.length / 2 : blob.length * 4 );
+
+        if ( bCompress )
+        {
+            try ( GZIPOutputStream out = new GZIPOutputStream( buffer, BUFFER_SIZE ) )
+            {
+                out.write( blob );
+            }
+        }
+        else
+        {
+            try ( InputStream in = open( blob ) )
+            {
+                byte [ ] chunk = new byte [ BUFFER_SIZE];
+                int nRead;
+                while ( ( nRead = in.read( chunk ) ) != -1 )
+                {
+                    buffer.write( chunk, 0, nRead );
+                }
+            }
+        }
+
+        return buffer.toByteArray( );
+    }
+
+    /**
+     * Open a blob
+     * 
+     * @param blob
+     *            the blob
+     * @return the stream of the uncompressed content
+     * @throws IOException
+     *             if the blob can't be opened
+     */
+    private static InputStream open( byte [ ] blob ) throws IOException
+    {
+        InputStream in = new ByteArrayInputStream( blob );
+
+        return isCompressed( blob ) ? new BufferedInputStream( new GZIPInputStream( in, BUFFER_SIZE ), BUFFER_SIZE ) : in;
+    }
+
+    /**
+     * Check if an uncompressed content is in the Smile format, without consuming it
+     * 
+     * @param in
+     *            the stream of the uncompressed content, supporting mark
+     * @return true if the content starts with the Smile header
+     * @throws IOException
+     *             if the content can't be read
+     */
+    private static boolean isSmile( InputStream in ) throws IOException
+    {
+        in.mark( SMILE_HEADER.length );
+
+        try
+        {
+            for ( byte b : SMILE_HEADER )
+            {
+                if ( in.read( ) != b )
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+        finally
+        {
+            in.reset( );
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Streaming writer of notification contents.
+ * <p>
+ * The content is serialized by Jackson directly into a pipeline made of a character filter (same characters as
+ * {@link NotificationStoreConstants#CHARECTER_REGEXP_FILTER} are stripped), an optional GZIP compressor (same format as
+ * <code>StringUtil.compress</code>) and a per thread reusable buffer. Only the final blob is allocated.
+ * </p>
+ * <p>
+ * With a Smile mapper, the content is written in the Smile format (binary JSON) : the same characters are stripped from the strings and the field names,
+ * and the blob starts with the Smile header, which tells it apart from the JSON blobs when it is read.
+ * </p>
+ */
+public final class NotificationContentWriter
+{
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteArrayOutputStream> _buffer = ThreadLocal.withInitial( ( ) -> new ByteArrayOutputStream( DEFAULT_BUFFER_SIZE ) );
+
+    /**
+     * Private constructor
+     */
+    private NotificationContentWriter( )
+    {
+    }
+
+    /**
+     * Serialize the content into a blob
+     * 
+     * @param mapper
+     *            the mapper used to serialize the content
+     * @param content
+     *            the content to serialize
+     * @param bCompress
+     *            true if the blob must be compressed
+     * @return the blob
+     * @throws IOException
+     *             if an error occurs while serializing or compressing the content
+     */
+    public static byte [ ] write( ObjectMapper mapper, Object content, boolean bCompress ) throws IOException
+    {
+        ByteArrayOutputStream buffer = _buffer.get( );
+        buffer.reset( );
+
+        try
+        {
+            OutputStream out = bCompress ? new GZIPOutputStream( buffer, DEFAULT_BUFFER_SIZE ) : buffer;
+
+            if ( mapper.getFactory( ) instanceof SmileFactory )
+            {
+                try ( JsonGenerator generator = new CharacterFilterGenerator( mapper.getFactory( ).createGenerator( out ) ) )
+                {
+                    mapper.writeValue( generator, content );
+                }
+            }
+            else
+            {
+                try ( Writer writer = new CharacterFilterWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) ) )
+                {
+                    mapper.writeValue( writer, content );
+                }
+            }
+
+            return buffer.toByteArray( );
+        }
+        finally
+        {
+            // Do not keep huge buffers attached to the thread
+            if ( buffer.size( ) > MAX_RETAINED_BUFFER_SIZE )
+            {
+                _buffer.remove( );
+            }
+        }
+    }
+
+    /**
+     * Check if a code point is kept by the filter
+     * 
+     * @param nCodePoint
+     *            the code point
+     * @return true if the code point is kept
+     */
+    static boolean isAllowed( int nCodePoint )
+    {
+        switch( Character.getType( nCodePoint ) )
+        {
+            // \p{L}
+            case Character.UPPERCASE_LETTER:
+            case Character.LOWERCASE_LETTER:
+            case Character.TITLECASE_LETTER:
+            case Character.MODIFIER_LETTER:
+            case Character.OTHER_LETTER:
+                // \p{M}
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+                // \p{N}
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.LETTER_NUMBER:
+            case Character.OTHER_NUMBER:
+                // \p{P}
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                // \p{Z}
+            case Character.SPACE_SEPARATOR:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+                // \p{Cf}, \p{Cs}, \p{Sm}, \p{Sc}
+            case Character.FORMAT:
+            case Character.SURROGATE:
+            case Character.MATH_SYMBOL:
+            case Character.CURRENCY_SYMBOL:
+                return true;
+            default:
+                // \s
+                return nCodePoint == ' ' || nCodePoint == '\t' || nCodePoint == '\n' || nCodePoint == 0x0B || nCodePoint == '\f' || nCodePoint == '\r';
+        }
+    }
+
+    /**
+     * Strip the characters which are not allowed from a string
+     * 
+     * @param str
+     *            the string
+     * @return the filtered string, or the same string if all its characters are allowed
+     */
+    static String filter( String str )
+    {
+        StringBuilder sbFiltered = null;
+
+        for ( int i = 0; i < str.length( ); )
+        {
+            int nCodePoint = str.codePointAt( i );
+
+            if ( isAllowed( nCodePoint ) )
+            {
+                if ( sbFiltered != null )
+                {
+                    sbFiltered.appendCodePoint( nCodePoint );
+                }
+            }
+            else
+                if ( sbFiltered == null )
+                {
+                    sbFiltered = new StringBuilder( str.length( ) ).append( str, 0, i );
+                }
+
+            i += Character.charCount( nCodePoint );
+        }
+
+        return sbFiltered != null ? sbFiltered.toString( ) : str;
+    }
+
+    /**
+     * Generator stripping the characters which are not allowed from the strings and the field names, for the binary formats
+     */
+    static final class CharacterFilterGenerator extends JsonGeneratorDelegate
+    {
+        /**
+         * Constructor
+         * 
+         * @param generator
+         *            the underlying generator
+         */
+        CharacterFilterGenerator( JsonGenerator generator )
+        {
+            super( generator, false );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeFieldName( String name ) throws IOException
+        {
+            delegate.writeFieldName( filter( name ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeFieldName( SerializableString name ) throws IOException
+        {
+            writeFieldName( name.getValue( ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeString( String text ) throws IOException
+        {
+            if ( text == null )
+            {
+                delegate.writeNull( );
+            }
+            else
+            {
+                delegate.writeString( filter( text ) );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeString( char [ ] text, int offset, int len ) throws IOException
+        {
+            writeString( new String( text, offset, len ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeString( SerializableString text ) throws IOException
+        {
+            writeString( text.getValue( ) );
+        }
+    }
+
+    /**
+     * Writer stripping the characters which are not allowed. Surrogate pairs are checked as a single code point.
+     */
+    static final class CharacterFilterWriter extends FilterWriter
+    {
+        private static final char NO_PENDING_CHAR = 0;
+
+        private char _cPendingHighSurrogate = NO_PENDING_CHAR;
+        private char [ ] _filtered = new char [ DEFAULT_BUFFER_SIZE];
+        private final char [ ] _chunk = new char [ DEFAULT_BUFFER_SIZE];
+
+        /**
+         * Constructor
+         * 
+         * @param out
+         *            the underlying writer
+         */
+        CharacterFilterWriter( Writer out )
+        {
+            super( out );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( int c ) throws IOException
+        {
+            write( new char [ ] {
+                    (char) c
+            }, 0, 1 );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( String str, int off, int len ) throws IOException
+        {
+            // the string is copied by chunks into a reused buffer, not as a whole
+            for ( int nFrom = off; nFrom < off + len; nFrom += _chunk.length )
+            {
+                int nTo = Math.min( nFrom + _chunk.length, off + len );
+                str.getChars( nFrom, nTo, _chunk, 0 );
+                write( _chunk, 0, nTo - nFrom );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write( char [ ] cbuf, int off, int len ) throws IOException
+        {
+            if ( _filtered.length < len + 1 )
+            {
+                _filtered = new char [ len + 1];
+            }
+
+            char [ ] filtered = _filtered;
+            int nCount = 0;
+
+            for ( int i = off; i < off + len; i++ )
+            {
+                char c = cbuf [i];
+
+                if ( Character.isLowSurrogate( c ) && _cPendingHighSurrogate != NO_PENDING_CHAR )
+                {
+                    int nCodePoint = Character.toCodePoint( _cPendingHighSurrogate, c );
+                    if ( isAllowed( nCodePoint ) )
+                    {
+                        filtered [nCount++] = _cPendingHighSurrogate;
+                        filtered [nCount++] = c;
+                    }
+                    _cPendingHighSurrogate = NO_PENDING_CHAR;
+                    continue;
+                }
+
+                // An unpaired high surrogate is a Cs code point, which is kept
+                if ( _cPendingHighSurrogate != NO_PENDING_CHAR )
+                {
+                    filtered [nCount++] = _cPendingHighSurrogate;
+                    _cPendingHighSurrogate = NO_PENDING_CHAR;
+                }
+
+                if ( Character.isHighSurrogate( c ) )
+                {
+                    _cPendingHighSurrogate = c;
+                }
+                else
+                    if ( isAllowed( c ) )
+                    {
+                        filtered [nCount++] = c;
+                    }
+            }
+
+            if ( nCount > 0 )
+            {
+                out.write( filtered, 0, nCount );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void flush( ) throws IOException
+        {
+            out.flush( );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close( ) throws IOException
+        {
+            if ( _cPendingHighSurrogate != NO_PENDING_CHAR )
+            {
+                out.write( _cPendingHighSurrogate );
+                _cPendingHighSurrogate = NO_PENDING_CHAR;
+            }
+            out.close( );
+        }
+    }
+}
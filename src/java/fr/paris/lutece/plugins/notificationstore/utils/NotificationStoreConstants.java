@@ -46,6 +46,9 @@ public class NotificationStoreConstants
     public static final String PATH_GENERIC_STATUS = "/genericStatus";
     public static final String PATH_CATEGORY = "/category";
     public static final String PATH_REASSIGN = "/reassign";
+    public static final String PATH_READY = "/ready";
+    public static final String PATH_EXPORT = "/export";
+    public static final String PATH_REPORT = "/report";
 
     public static final String PATH_LIST = "/list";
     public static final String PATH_TYPE_NOTIFICATION = "notificationType";
@@ -66,6 +69,16 @@ public class NotificationStoreConstants
     public static final String QUERY_PARAM_CATEGORY_CODE = "categoryCode";
     public static final String QUERY_PARAM_DIRECT_MODE = "direct";
     public static final String QUERY_PARAM_DIRECTION_DATE_ORDER_BY = "directionDateOrderBy";
+    public static final String QUERY_PARAM_INCLUDE_ARCHIVED = "includeArchived";
+    public static final String QUERY_PARAM_FIELDS = "fields";
+    public static final String FIELDS_HEADER = "header";
+    public static final String QUERY_PARAM_START_DATE = "startDate";
+    public static final String QUERY_PARAM_END_DATE = "endDate";
+    public static final String QUERY_PARAM_AFTER_ID = "afterId";
+    public static final String QUERY_PARAM_EVENT_STATUS = "status";
+
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    public static final String MEDIA_TYPE_SMILE = "application/x-jackson-smile";
 
     // Demand type attributes
     public static final String DEMANDTYPE_ATTRIBUTE_ID_DEMAND_TYPE = "id_demand_type";
@@ -91,6 +104,9 @@ public class NotificationStoreConstants
     /** The Constant LIMIT_DEMAND_API_REST. */
     public static final String LIMIT_DEMAND_API_REST = "notificationstore.api.rest.limit.demand";
     public static final String PROPERTY_COMPRESS_NOTIFICATION = "notificationstore.notification.compress";
+    public static final String PROPERTY_DEDUPLICATE_NOTIFICATION = "notificationstore.notification.deduplicate";
+    public static final String PROPERTY_NOTIFICATION_FORMAT = "notificationstore.notification.format";
+    public static final String FORMAT_SMILE = "smile";
     public static final String PROPERTY_CONSIDER_GUID_AS_CUSTOMER_ID = "notificationstore.notification.considerGuidAsCuid";
 
     // MESSAGE
@@ -102,6 +118,8 @@ public class NotificationStoreConstants
     public static final String MESSAGE_ERROR_DEMAND_TYPE_ID_USED = "This DemandTypeId is used by existing notifications";
     public static final String MESSAGE_ERROR_BAD_REQUEST_EMPTY_PARAMETER = "Empty parameter";
     public static final String MESSAGE_ERROR_DIRECTION_DATE_ORDER_BY_WRONG_VALUE = "Optional parameter directionDateOrderBy only accepts 'ASC' or 'DESC' values";
+    public static final String MESSAGE_ERROR_EXPORT = "Parameter idDemandType is mandatory";
+    public static final String MESSAGE_ERROR_FIELDS_WRONG_VALUE = "Optional parameter fields only accepts 'header' or notification types separated by ,";
     public static final String MESSAGE_ERROR_INVALID_DATE_FORMAT = "Invalid date format. Date must be in the format yyyy-MM-dd'T'HH:mm:ss";
 
     // Constants
@@ -33,11 +33,14 @@
  */
 package fr.paris.lutece.plugins.notificationstore.utils;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.util.AppLogService;
@@ -57,6 +60,10 @@ public class NotificationStoreUtils
 {
     private static ObjectMapper _mapper = new ObjectMapper( ).configure( DeserializationFeature.UNWRAP_ROOT_VALUE, false )
             .configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false ).configure( SerializationFeature.WRAP_ROOT_VALUE, false );
+    private static ObjectMapper _projectionMapper = _mapper.copy( ).addMixIn( Notification.class, ProjectedNotification.class );
+    private static ObjectMapper _smileMapper = new ObjectMapper( new SmileFactory( ) ).configure( DeserializationFeature.UNWRAP_ROOT_VALUE, false )
+            .configure( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false ).configure( SerializationFeature.WRAP_ROOT_VALUE, false );
+    private static ObjectMapper _projectionSmileMapper = _smileMapper.copy( ).addMixIn( Notification.class, ProjectedNotification.class );
 
     private static TypeReference<HashMap<String, String>> hashMapTypeRef = new TypeReference<HashMap<String, String>>( )
     {
@@ -85,6 +92,47 @@ public class NotificationStoreUtils
         return StringUtils.EMPTY;
     }
 
+    /**
+     * Serialize a value as a String, omitting the null properties of the notifications (the channels excluded by a projection)
+     * 
+     * @param object
+     * @return the JSON string
+     */
+    public static String convertToProjectedJsonString( Object object )
+    {
+        try
+        {
+            return _projectionMapper.writeValueAsString( object );
+        }
+        catch( JsonProcessingException e )
+        {
+            AppLogService.error( "An error occurred while trying to serialize object to json.", e.getMessage( ) );
+        }
+        return StringUtils.EMPTY;
+    }
+
+    /**
+     * Serialize a value in the Smile format (binary JSON)
+     * 
+     * @param object
+     *            the value
+     * @param bProjected
+     *            true to omit the null properties of the notifications (the channels excluded by a projection)
+     * @return the Smile bytes
+     */
+    public static byte [ ] convertToSmile( Object object, boolean bProjected )
+    {
+        try
+        {
+            return ( bProjected ? _projectionSmileMapper : _smileMapper ).writeValueAsBytes( object );
+        }
+        catch( JsonProcessingException e )
+        {
+            AppLogService.error( "An error occurred while trying to serialize object to smile.", e.getMessage( ) );
+        }
+        return new byte [ 0];
+    }
+
     /**
      * convert json to Status object
      * 
@@ -97,6 +145,16 @@ public class NotificationStoreUtils
         return _mapper;
     }
 
+    /**
+     * Get the mapper of the Smile format (binary JSON), configured as the JSON mapper
+     * 
+     * @return the Smile mapper
+     */
+    public static ObjectMapper getSmileMapper( )
+    {
+        return _smileMapper;
+    }
+
     /**
      * Return an reference list of GenericStatus (Code = name of enum and Name = label of enum)
      * 
@@ -156,6 +214,30 @@ public class NotificationStoreUtils
         }
     }
 
+    /**
+     * Get the hexadecimal form of a hash
+     * 
+     * @param hash
+     *            the hash
+     * @return the lower case hexadecimal string
+     */
+    public static String toHex( byte [ ] hash )
+    {
+        StringBuilder sbHex = new StringBuilder( hash.length * 2 );
 
+        for ( byte b : hash )
+        {
+            sbHex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
 
+        return sbHex.toString( );
+    }
+
+    /**
+     * Mix-in of the notifications serialized with a projection
+     */
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    private abstract static class ProjectedNotification
+    {
+    }
 }
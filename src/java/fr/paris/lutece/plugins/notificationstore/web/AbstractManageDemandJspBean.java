@@ -35,19 +35,22 @@ package fr.paris.lutece.plugins.notificationstore.web;
 
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.util.mvc.admin.MVCAdminJspBean;
-import fr.paris.lutece.portal.web.util.LocalizedPaginator;
+import fr.paris.lutece.portal.web.util.LocalizedDelegatePaginator;
 import fr.paris.lutece.util.html.AbstractPaginator;
 import fr.paris.lutece.util.url.UrlItem;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.lang3.math.NumberUtils;
+
 /**
  * ManageProject JSP Bean abstract class for JSP Bean
  */
-public abstract class AbstractManageDemandJspBean<S, T> extends MVCAdminJspBean
+public abstract class AbstractManageDemandJspBean<T> extends MVCAdminJspBean
 {
 
     private static final long serialVersionUID = 1L;
@@ -70,48 +73,55 @@ public abstract class AbstractManageDemandJspBean<S, T> extends MVCAdminJspBean
     private int _nItemsPerPage;
 
     /**
-     * Return a model that contains the list and paginator infos
+     * Return a model that contains the current page items and paginator infos. Only the items of the current page are loaded.
      * 
      * @param request
      *            The HTTP request
      * @param strBookmark
      *            The bookmark
-     * @param list
-     *            The list of item
+     * @param nItemsCount
+     *            The total number of items
      * @param strManageJsp
      *            The JSP
      * @return The model
      */
-    protected Map<String, Object> getPaginatedListModel( HttpServletRequest request, String strBookmark, List<S> list, String strManageJsp )
+    protected Map<String, Object> getPaginatedListModel( HttpServletRequest request, String strBookmark, int nItemsCount, String strManageJsp )
     {
         int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_LIST_ITEM_PER_PAGE, 50 );
         _strCurrentPageIndex = AbstractPaginator.getPageIndex( request, AbstractPaginator.PARAMETER_PAGE_INDEX, _strCurrentPageIndex );
         _nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, nDefaultItemsPerPage );
 
+        // keep the page index in the range of the result
+        int nPageCount = Math.max( 1, (int) Math.ceil( (double) nItemsCount / _nItemsPerPage ) );
+        int nPageIndex = Math.min( Math.max( NumberUtils.toInt( _strCurrentPageIndex, 1 ), 1 ), nPageCount );
+        _strCurrentPageIndex = String.valueOf( nPageIndex );
+
+        List<T> listItems = ( nItemsCount > 0 ) ? getItems( ( nPageIndex - 1 ) * _nItemsPerPage, _nItemsPerPage ) : new ArrayList<>( );
+
         UrlItem url = new UrlItem( strManageJsp );
         String strUrl = url.getUrl( );
 
         // PAGINATOR
-        LocalizedPaginator<S> paginator = new LocalizedPaginator<>( list, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX, _strCurrentPageIndex, getLocale( ) );
+        LocalizedDelegatePaginator<T> paginator = new LocalizedDelegatePaginator<>( listItems, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX,
+                _strCurrentPageIndex, nItemsCount, getLocale( ) );
 
         Map<String, Object> model = getModel( );
 
         model.put( MARK_NB_ITEMS_PER_PAGE, String.valueOf( _nItemsPerPage ) );
         model.put( MARK_PAGINATOR, paginator );
-        model.put( strBookmark, getItemsFromIds( paginator.getPageItems( ) ) );
+        model.put( strBookmark, listItems );
 
         return model;
     }
 
     /**
-     * Get Items from Ids list
+     * Get the items of a page
      * 
-     * @param <S>
-     *            the generic type of the Ids
-     * @param <T>
-     *            the generic type of the items
-     * @param listIds
-     * @return the populated list of items corresponding to the id List
+     * @param nOffset
+     *            the index of the first item of the page
+     * @param nLimit
+     *            the max number of items of the page
+     * @return the items of the page
      */
-    abstract List<T> getItemsFromIds( List<S> listIds );
+    abstract List<T> getItems( int nOffset, int nLimit );
 }
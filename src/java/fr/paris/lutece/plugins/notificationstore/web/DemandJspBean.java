@@ -33,12 +33,9 @@
  */
 package fr.paris.lutece.plugins.notificationstore.web;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -47,7 +44,7 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
 import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
 import fr.paris.lutece.util.ReferenceList;
@@ -55,7 +52,7 @@ import fr.paris.lutece.util.date.DateUtil;
 import fr.paris.lutece.util.html.AbstractPaginator;
 
 @Controller( controllerJsp = "ManageDemand.jsp", controllerPath = "jsp/admin/plugins/notificationstore/", right = "DEMAND_MANAGEMENT" )
-public class DemandJspBean extends AbstractManageDemandJspBean<Integer, Demand>
+public class DemandJspBean extends AbstractManageDemandJspBean<Demand>
 {
 
     private static final long serialVersionUID = 1L;
@@ -90,7 +87,7 @@ public class DemandJspBean extends AbstractManageDemandJspBean<Integer, Demand>
 
     // instance variables
     private ReferenceList _listDemandTypeId;
-    private List<Integer> _listDemanId = new ArrayList<>( );
+    private int _nItemsCount;
     private NotificationFilter _currentFilter;
 
     /**
@@ -105,11 +102,11 @@ public class DemandJspBean extends AbstractManageDemandJspBean<Integer, Demand>
     {
         if ( _listDemandTypeId == null )
         {
-            _listDemandTypeId = DemandTypeHome.getDemandTypesReferenceList( );
+            _listDemandTypeId = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypesReferenceList( );
         }
 
         // initial call (no pagination)
-        if ( request.getParameter( AbstractPaginator.PARAMETER_PAGE_INDEX ) == null || _listDemanId.isEmpty( ) )
+        if ( request.getParameter( AbstractPaginator.PARAMETER_PAGE_INDEX ) == null || _currentFilter == null )
         {
             _currentFilter = new NotificationFilter( );
 
@@ -148,15 +145,16 @@ public class DemandJspBean extends AbstractManageDemandJspBean<Integer, Demand>
                 }
             }
 
+            _nItemsCount = 0;
             if ( _currentFilter.containsDemandId( ) || _currentFilter.containsDemandTypeId( ) || _currentFilter.containsStartDate( )
                     || _currentFilter.containsEndDate( ) || _currentFilter.containsCustomerId( ) )
             {
                 // search demands
-                _listDemanId = DemandHome.searchIdsByFilter( _currentFilter );
+                _nItemsCount = DemandHome.countByFilter( _currentFilter );
             }
         }
 
-        Map<String, Object> model = getPaginatedListModel( request, MARK_DEMAND_LIST, _listDemanId, JSP_MANAGE_DEMANDS );
+        Map<String, Object> model = getPaginatedListModel( request, MARK_DEMAND_LIST, _nItemsCount, JSP_MANAGE_DEMANDS );
 
         model.put( MARK_DEMAND_TYPE_ID_LIST, _listDemandTypeId );
         if ( !StringUtils.isEmpty( _currentFilter.getDemandId( ) ) )
@@ -184,14 +182,8 @@ public class DemandJspBean extends AbstractManageDemandJspBean<Integer, Demand>
     }
 
     @Override
-    List<Demand> getItemsFromIds( List<Integer> listIds )
+    List<Demand> getItems( int nOffset, int nLimit )
     {
-
-        List<Demand> listDemand = DemandHome.getByIds( listIds );
-
-        // keep original order
-        return listDemand.stream( ).sorted( Comparator.comparingInt( notif -> listIds.indexOf( notif.getUID( ) ) ) )
-                .collect( Collectors.toList( ) );
-
+        return DemandHome.searchByFilter( _currentFilter, nOffset, nLimit );
     }
 }
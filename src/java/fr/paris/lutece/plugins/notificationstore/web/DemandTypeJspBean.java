@@ -35,8 +35,8 @@ package fr.paris.lutece.plugins.notificationstore.web;
 
 import com.google.common.html.HtmlEscapers;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
-import fr.paris.lutece.plugins.notificationstore.business.DemandCategoryHome;
 import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.message.AdminMessage;
@@ -169,7 +169,7 @@ public class DemandTypeJspBean extends AbstractJspBean<Integer, DemandType>
         if(Objects.nonNull(_demandtype.getMetaData())) {
             model.put( MARK_DEMANDTYPE_METADATA_JSON, NotificationStoreUtils.hashMapToJson(_demandtype.getMetaData()));
         }
-        model.put( MARK_DEMANDCATEGORIES, DemandCategoryHome.getDemandCategoriesReferenceList( ) );
+        model.put( MARK_DEMANDCATEGORIES, ReferenceDataService.getInstance( ).getSnapshot( ).getDemandCategoriesReferenceList( ) );
         model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_CREATE_DEMANDTYPE ) );
 
         return getPage( PROPERTY_PAGE_TITLE_CREATE_DEMANDTYPE, TEMPLATE_CREATE_DEMANDTYPE, model );
@@ -269,7 +269,7 @@ public class DemandTypeJspBean extends AbstractJspBean<Integer, DemandType>
         if(Objects.nonNull(_demandtype.getMetaData())) {
             model.put(MARK_DEMANDTYPE_METADATA_JSON, NotificationStoreUtils.hashMapToJson(_demandtype.getMetaData()));
         }
-        model.put( MARK_DEMANDCATEGORIES, DemandCategoryHome.getDemandCategoriesReferenceList( ) );
+        model.put( MARK_DEMANDCATEGORIES, ReferenceDataService.getInstance( ).getSnapshot( ).getDemandCategoriesReferenceList( ) );
         model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_MODIFY_DEMANDTYPE ) );
 
         return getPage( PROPERTY_PAGE_TITLE_MODIFY_DEMANDTYPE, TEMPLATE_MODIFY_DEMANDTYPE, model );
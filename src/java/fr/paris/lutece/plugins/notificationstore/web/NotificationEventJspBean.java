@@ -34,11 +34,9 @@
 package fr.paris.lutece.plugins.notificationstore.web;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -46,8 +44,10 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationEvent;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventDailyCount;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventDailyCountHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationEventHome;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
 import fr.paris.lutece.util.ReferenceList;
@@ -55,7 +55,7 @@ import fr.paris.lutece.util.date.DateUtil;
 import fr.paris.lutece.util.html.AbstractPaginator;
 
 @Controller( controllerJsp = "ManageNotificationEvent.jsp", controllerPath = "jsp/admin/plugins/notificationstore/", right = "DEMAND_MANAGEMENT" )
-public class NotificationEventJspBean extends AbstractManageDemandJspBean<Integer, NotificationEvent>
+public class NotificationEventJspBean extends AbstractManageDemandJspBean<NotificationEvent>
 {
 
     // Templates
@@ -67,6 +67,8 @@ public class NotificationEventJspBean extends AbstractManageDemandJspBean<Intege
     private static final String MARK_DEMAND_TYPE_ID = "demand_type_id";
     private static final String MARK_START_DATE = "start_date";
     private static final String MARK_END_DATE = "end_date";
+    private static final String MARK_DAILY_COUNT_LIST = "daily_count_list";
+    private static final String MARK_DAILY_COUNT_MAX = "daily_count_max";
 
     private static final String JSP_MANAGE_EVENTS = "jsp/admin/plugins/notificationstore/ManageNotificationEvent.jsp";
 
@@ -86,7 +88,9 @@ public class NotificationEventJspBean extends AbstractManageDemandJspBean<Intege
 
     // instance variables
     private ReferenceList _listDemandTypeId;
-    private List<Integer> _listNotificationEventId = new ArrayList<>( );
+    private int _nItemsCount;
+    private List<NotificationEvent> _listNotificationEvent;
+    private List<NotificationEventDailyCount> _listDailyCounts;
     private NotificationFilter _currentFilter;
 
     /**
@@ -103,11 +107,11 @@ public class NotificationEventJspBean extends AbstractManageDemandJspBean<Intege
 
         if ( _listDemandTypeId == null )
         {
-            _listDemandTypeId = DemandTypeHome.getDemandTypesReferenceList( );
+            _listDemandTypeId = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypesReferenceList( );
         }
 
         // initial call (no pagination)
-        if ( request.getParameter( AbstractPaginator.PARAMETER_PAGE_INDEX ) == null || _listNotificationEventId.isEmpty( ) )
+        if ( request.getParameter( AbstractPaginator.PARAMETER_PAGE_INDEX ) == null || _currentFilter == null )
         {
             // new search...
             _currentFilter = new NotificationFilter( );
@@ -153,27 +157,36 @@ public class NotificationEventJspBean extends AbstractManageDemandJspBean<Intege
             }
 
             // search
+            _listNotificationEvent = null;
+            _listDailyCounts = null;
+            _nItemsCount = 0;
             if ( _currentFilter.containsDemandId( ) && _currentFilter.containsDemandTypeId( ) && lNotificationDate > 0 )
             {
-                List<NotificationEvent> listNotificationEvent = NotificationEventHome.findByNotification( _currentFilter.getDemandId( ),
-                        _currentFilter.getDemandTypeId( ), lNotificationDate );
-                _listNotificationEventId = new ArrayList<>( );
-                if ( listNotificationEvent != null )
+                // the events of a single notification are few, they are kept for the pagination
+                _listNotificationEvent = NotificationEventHome.findByNotification( _currentFilter.getDemandId( ), _currentFilter.getDemandTypeId( ),
+                        lNotificationDate );
+                if ( _listNotificationEvent == null )
                 {
-                    for ( NotificationEvent event : listNotificationEvent )
-                    {
-                        _listNotificationEventId.add( event.getId( ) );
-                    }
+                    _listNotificationEvent = new ArrayList<>( );
                 }
+                _nItemsCount = _listNotificationEvent.size( );
             }
             else if ( _currentFilter.containsDemandId( ) || _currentFilter.containsDemandTypeId( ) || _currentFilter.containsStartDate( )
                     || _currentFilter.containsEndDate( ) )
             {
-                _listNotificationEventId = NotificationEventHome.findIdsByFilter( _currentFilter );
+                _nItemsCount = NotificationEventHome.countByFilter( _currentFilter );
+            }
+
+            if ( !_currentFilter.containsDemandId( ) && ( _currentFilter.containsDemandTypeId( ) || _currentFilter.containsStartDate( )
+                    || _currentFilter.containsEndDate( ) ) )
+            {
+                // the daily counts are read from the rollup, whatever the number of events of the period
+                _listDailyCounts = NotificationEventDailyCountHome.findByFilter( _currentFilter.getStartDate( ), _currentFilter.getEndDate( ),
+                        _currentFilter.getDemandTypeId( ), _currentFilter.getEventStatus( ) );
             }
         }
 
-        Map<String, Object> model = getPaginatedListModel( request, MARK_EVENT_LIST, _listNotificationEventId, JSP_MANAGE_EVENTS );
+        Map<String, Object> model = getPaginatedListModel( request, MARK_EVENT_LIST, _nItemsCount, JSP_MANAGE_EVENTS );
 
         model.put( MARK_DEMAND_TYPE_ID_LIST, _listDemandTypeId );
         if ( !StringUtils.isEmpty( _currentFilter.getDemandId( ) ) )
@@ -193,15 +206,24 @@ public class NotificationEventJspBean extends AbstractManageDemandJspBean<Intege
             model.put( MARK_END_DATE, new Date( _currentFilter.getEndDate( ) ) );
         }
 
+        if ( _listDailyCounts != null )
+        {
+            model.put( MARK_DAILY_COUNT_LIST, _listDailyCounts );
+            model.put( MARK_DAILY_COUNT_MAX, _listDailyCounts.stream( ).mapToInt( NotificationEventDailyCount::getCount ).max( ).orElse( 0 ) );
+        }
+
         return getPage( PROPERTY_PAGE_TITLE_MANAGE_EVENT, TEMPLATE_MANAGE_EVENT, model );
     }
 
     @Override
-    List<NotificationEvent> getItemsFromIds( List<Integer> listIds )
+    List<NotificationEvent> getItems( int nOffset, int nLimit )
     {
-        List<NotificationEvent> listNotificationEvent = NotificationEventHome.getByIds( listIds );
+        if ( _listNotificationEvent != null )
+        {
+            return _listNotificationEvent.subList( Math.min( nOffset, _listNotificationEvent.size( ) ),
+                    Math.min( nOffset + nLimit, _listNotificationEvent.size( ) ) );
+        }
 
-        // keep original order
-        return listNotificationEvent.stream( ).sorted( Comparator.comparingInt( notif -> listIds.indexOf( notif.getId( ) ) ) ).collect( Collectors.toList( ) );
+        return NotificationEventHome.findByFilter( _currentFilter, nOffset, nLimit );
     }
 }
@@ -33,13 +33,9 @@
  */
 package fr.paris.lutece.plugins.notificationstore.web;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -47,16 +43,23 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.grubusiness.business.notification.Notification;
 import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.service.ContentMigrationService;
+import fr.paris.lutece.plugins.notificationstore.service.IdempotencyService;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.security.SecurityTokenService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.date.DateUtil;
 import fr.paris.lutece.util.html.AbstractPaginator;
 
 @Controller( controllerJsp = "ManageNotification.jsp", controllerPath = "jsp/admin/plugins/notificationstore/", right = "DEMAND_MANAGEMENT" )
-public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, Notification>
+public class NotificationJspBean extends AbstractManageDemandJspBean<Notification>
 {
 
     private static final long serialVersionUID = 1L;
@@ -70,6 +73,9 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
     private static final String MARK_DEMAND_TYPE_ID = "demand_type_id";
     private static final String MARK_START_DATE = "start_date";
     private static final String MARK_END_DATE = "end_date";
+    private static final String MARK_CONTENT_MIGRATION = "content_migration";
+    private static final String MARK_COMPRESS_NOTIFICATION = "compress_notification";
+    private static final String MARK_IDEMPOTENCY = "idempotency";
 
     private static final String JSP_MANAGE_NOTIFICATIONS = "jsp/admin/plugins/notificationstore/ManageNotification.jsp";
 
@@ -78,7 +84,12 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
 
     // Views
     private static final String VIEW_MANAGE_NOTIFICATION = "manageNotification";
-    private static final String VIEW_COMPRESS_NOTIFICATION = "compressNotificationWithCare";
+
+    // Actions
+    private static final String ACTION_MIGRATE_CONTENTS = "migrateContents";
+
+    // Infos
+    private static final String INFO_CONTENT_MIGRATION_UPDATED = "notificationstore.info.contentMigration.updated";
 
     // Parameters
     private static final String PARAMETER_DEMAND_ID = "demand_id";
@@ -86,10 +97,16 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
     private static final String PARAMETER_NOTIFICATION_DATE = "notification_date";
     private static final String PARAMETER_START_DATE = "start_date";
     private static final String PARAMETER_END_DATE = "end_date";
+    private static final String PARAMETER_MIGRATION_COMMAND = "migration_command";
+
+    // Migration commands
+    private static final String COMMAND_START = "start";
+    private static final String COMMAND_PAUSE = "pause";
+    private static final String COMMAND_RESUME = "resume";
 
     // instance variables
     private ReferenceList _listDemandTypeId;
-    private List<Integer> _listNotificationId = new ArrayList<>( );
+    private int _nItemsCount;
     private NotificationFilter _currentFilter;
 
     /**
@@ -105,11 +122,11 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
         // init demand type Ids for select
         if ( _listDemandTypeId == null )
         {
-            _listDemandTypeId = DemandTypeHome.getDemandTypesReferenceList( );
+            _listDemandTypeId = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypesReferenceList( );
         }
 
         // initial call (no pagination)
-        if ( request.getParameter( AbstractPaginator.PARAMETER_PAGE_INDEX ) == null || _listNotificationId.isEmpty( ) )
+        if ( request.getParameter( AbstractPaginator.PARAMETER_PAGE_INDEX ) == null || _currentFilter == null )
         {
             // new search...
             _currentFilter = new NotificationFilter( );
@@ -152,20 +169,20 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
 
             if ( _currentFilter.containsDemandId( ) && _currentFilter.containsDemandTypeId( ) && lNotificationDate > 0 )
             {
-                List<Notification> listNotification = NotificationHome.findByNotification( _currentFilter.getDemandId( ), _currentFilter.getDemandTypeId( ),
-                        lNotificationDate );
-
-                _listNotificationId = listNotification.stream( ).map( Notification::getId ).collect( Collectors.toList( ) );
-
+                // notifications of the demand at the given date
+                _currentFilter.setStartDate( lNotificationDate );
+                _currentFilter.setEndDate( lNotificationDate );
             }
-            else if ( _currentFilter.containsDemandId( ) || _currentFilter.containsDemandTypeId( ) || _currentFilter.containsStartDate( )
+
+            _nItemsCount = 0;
+            if ( _currentFilter.containsDemandId( ) || _currentFilter.containsDemandTypeId( ) || _currentFilter.containsStartDate( )
                     || _currentFilter.containsEndDate( ) )
             {
-                _listNotificationId = NotificationHome.findIdsByFilter( _currentFilter );
+                _nItemsCount = NotificationHome.countByFilter( _currentFilter );
             }
         }
 
-        Map<String, Object> model = getPaginatedListModel( request, MARK_NOTIFICATION_LIST, _listNotificationId, JSP_MANAGE_NOTIFICATIONS );
+        Map<String, Object> model = getPaginatedListModel( request, MARK_NOTIFICATION_LIST, _nItemsCount, JSP_MANAGE_NOTIFICATIONS );
 
         model.put( MARK_DEMAND_TYPE_ID_LIST, _listDemandTypeId );
 
@@ -186,43 +203,62 @@ public class NotificationJspBean extends AbstractManageDemandJspBean<Integer, No
             model.put( MARK_END_DATE, new Date( _currentFilter.getEndDate( ) ) );
         }
 
+        model.put( MARK_CONTENT_MIGRATION, ContentMigrationService.getInstance( ).getProgress( ) );
+        model.put( MARK_COMPRESS_NOTIFICATION, AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_COMPRESS_NOTIFICATION, false ) );
+        if ( IdempotencyService.getInstance( ).isEnabled( ) )
+        {
+            model.put( MARK_IDEMPOTENCY, IdempotencyService.getInstance( ).getCounters( ) );
+        }
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_MIGRATE_CONTENTS ) );
+
         return getPage( PROPERTY_PAGE_TITLE_MANAGE_NOTIFICATION, TEMPLATE_MANAGE_NOTIFICATION, model );
     }
 
     /**
-     * compress data can be used to compress existing data (or decompress) by setting the properties compress=true / decompress=false !!! warning : call it with
-     * care !!!
+     * Start, pause or resume the migration of the existing notification contents to the codec set by the compress property. The migration itself is
+     * processed by the ContentMigrationDaemon.
      * 
      * @param request
      *            The HTTP request
      * @return The page
+     * @throws AccessDeniedException
+     *             if the security token is invalid
      */
-    @View( value = VIEW_COMPRESS_NOTIFICATION )
-    public String getCompressNotification( HttpServletRequest request )
+    @Action( ACTION_MIGRATE_CONTENTS )
+    public String doMigrateContents( HttpServletRequest request ) throws AccessDeniedException
     {
-        List<Integer> listNotificationId = NotificationHome.findIdsByFilter( _currentFilter );
+        if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_MIGRATE_CONTENTS ) )
+        {
+            throw new AccessDeniedException( "Invalid security token" );
+        }
+
+        ContentMigrationService migrationService = ContentMigrationService.getInstance( );
+        String strCommand = request.getParameter( PARAMETER_MIGRATION_COMMAND );
 
-        for ( Integer id : listNotificationId )
+        if ( COMMAND_START.equals( strCommand ) && !ContentMigrationService.STATUS_RUNNING.equals( migrationService.getStatus( ) ) )
         {
-            Optional<Notification> optNotif = NotificationHome.getById( id );
-            if ( optNotif.isPresent( ) )
+            migrationService.start( AppPropertiesService.getPropertyBoolean( NotificationStoreConstants.PROPERTY_COMPRESS_NOTIFICATION, false ) );
+        }
+        else
+            if ( COMMAND_PAUSE.equals( strCommand ) )
             {
-                NotificationHome.remove( optNotif.get( ).getId( ) );
-                NotificationHome.create( optNotif.get( ) );
+                migrationService.pause( );
             }
-        }
+            else
+                if ( COMMAND_RESUME.equals( strCommand ) )
+                {
+                    migrationService.resume( );
+                }
+
+        addInfo( INFO_CONTENT_MIGRATION_UPDATED, getLocale( ) );
 
-        return getManageNotification( request );
+        return redirectView( request, VIEW_MANAGE_NOTIFICATION );
     }
 
     @Override
-    List<Notification> getItemsFromIds( List<Integer> listIds )
+    List<Notification> getItems( int nOffset, int nLimit )
     {
-
-        List<Notification> listNotification = NotificationHome.getByIds( listIds );
-
-        // keep original order
-        return listNotification.stream( ).sorted( Comparator.comparingInt( notif -> listIds.indexOf( notif.getId( ) ) ) ).collect( Collectors.toList( ) );
+        return NotificationHome.findByFilter( _currentFilter, nOffset, nLimit );
     }
 
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.web.rs;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import fr.paris.lutece.plugins.notificationstore.business.CustomerVersion;
+import fr.paris.lutece.plugins.notificationstore.business.CustomerVersionHome;
+
+/**
+ * Conditional GET of the lists of a customer : the entity tag is the version of the customer, incremented by each write of its demands and notifications.
+ * It is checked by a single primary key lookup, before the queries of the list.
+ */
+final class ConditionalGet
+{
+    private static final String TAG_SEPARATOR = "-";
+
+    /**
+     * Private constructor
+     */
+    private ConditionalGet( )
+    {
+    }
+
+    /**
+     * Get the entity tag of the lists of a customer
+     * 
+     * @param strCustomerId
+     *            the customer id
+     * @return the entity tag, or null if the customer has no version yet
+     */
+    static EntityTag getEntityTag( String strCustomerId )
+    {
+        CustomerVersion customerVersion = CustomerVersionHome.findByCustomerId( strCustomerId );
+
+        if ( customerVersion == null )
+        {
+            return null;
+        }
+
+        // weak : the same data may be encoded differently
+        return new EntityTag( Long.toString( customerVersion.getVersion( ), Character.MAX_RADIX ) + TAG_SEPARATOR
+                + Long.toString( customerVersion.getModifyDate( ), Character.MAX_RADIX ), true );
+    }
+
+    /**
+     * Get the Not Modified response if the client already has the current list
+     * 
+     * @param request
+     *            the request, with its If-None-Match header
+     * @param entityTag
+     *            the current entity tag, or null
+     * @return the 304 response, or null if the list must be sent
+     */
+    static Response getNotModified( Request request, EntityTag entityTag )
+    {
+        if ( entityTag == null )
+        {
+            return null;
+        }
+
+        ResponseBuilder builder = request.evaluatePreconditions( entityTag );
+
+        return builder != null ? tag( builder, entityTag ).build( ) : null;
+    }
+
+    /**
+     * Set the entity tag of a response
+     * 
+     * @param builder
+     *            the response builder
+     * @param entityTag
+     *            the entity tag, or null
+     * @return the response builder
+     */
+    static ResponseBuilder tag( ResponseBuilder builder, EntityTag entityTag )
+    {
+        if ( entityTag != null )
+        {
+            // the clients keep the list, but check it at each use
+            CacheControl cacheControl = new CacheControl( );
+            cacheControl.setPrivate( true );
+            cacheControl.setNoCache( true );
+
+            builder.tag( entityTag ).cacheControl( cacheControl );
+        }
+
+        return builder;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.web.rs;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
+import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
+
+/**
+ * Content negotiation of the lists : the internal clients may ask for the Smile format (binary JSON) instead of JSON, which stays the default. The error
+ * responses are always sent as JSON.
+ */
+final class ContentNegotiation
+{
+    static final MediaType APPLICATION_SMILE_TYPE = MediaType.valueOf( NotificationStoreConstants.MEDIA_TYPE_SMILE );
+
+    /**
+     * Private constructor
+     */
+    private ContentNegotiation( )
+    {
+    }
+
+    /**
+     * Check if the client prefers the Smile format
+     * 
+     * @param headers
+     *            the headers of the request
+     * @return true if the Smile format is accepted before JSON
+     */
+    static boolean isSmileAccepted( HttpHeaders headers )
+    {
+        // sorted by quality, then by specificity
+        for ( MediaType mediaType : headers.getAcceptableMediaTypes( ) )
+        {
+            if ( mediaType.isCompatible( MediaType.APPLICATION_JSON_TYPE ) )
+            {
+                return false;
+            }
+            if ( mediaType.isCompatible( APPLICATION_SMILE_TYPE ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Set the Smile content of a response
+     * 
+     * @param builder
+     *            the response builder
+     * @param result
+     *            the result
+     * @param bProjected
+     *            true to omit the channels excluded by the projection
+     * @return the response builder
+     */
+    static ResponseBuilder smile( ResponseBuilder builder, Object result, boolean bProjected )
+    {
+        return builder.entity( NotificationStoreUtils.convertToSmile( result, bProjected ) ).type( APPLICATION_SMILE_TYPE );
+    }
+
+    /**
+     * Tell the caches that the response depends on the Accept header
+     * 
+     * @param builder
+     *            the response builder
+     * @return the response builder
+     */
+    static ResponseBuilder vary( ResponseBuilder builder )
+    {
+        return builder.header( HttpHeaders.VARY, HttpHeaders.ACCEPT );
+    }
+}
@@ -51,6 +51,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandCategory;
 import fr.paris.lutece.plugins.notificationstore.business.DemandCategoryHome;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.web.rs.swagger.SwaggerConstants;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
@@ -91,7 +92,7 @@ public class DemandCategoryRestService
     } )
     public Response getDemandCategoryList( )
     {
-        List<DemandCategory> listDemandCategorys = DemandCategoryHome.getDemandCategoriesList( );
+        List<DemandCategory> listDemandCategorys = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandCategories( );
 
         if ( listDemandCategorys.isEmpty( ) )
         {
@@ -229,7 +230,7 @@ public class DemandCategoryRestService
     public Response getDemandCategory(
             @ApiParam( name = NotificationStoreConstants.ID, value = SwaggerConstants.QUERY_PARAM_ID_CATEGORY_DESCRIPTION ) @PathParam( NotificationStoreConstants.ID ) Integer id )
     {
-        Optional<DemandCategory> optDemandCategory = DemandCategoryHome.findByPrimaryKey( id );
+        Optional<DemandCategory> optDemandCategory = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandCategory( id );
         if ( !optDemandCategory.isPresent( ) )
         {
             return Response.status( Response.Status.NOT_FOUND )
@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.notificationstore.web.rs;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -49,8 +50,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -58,18 +64,16 @@ import fr.paris.lutece.plugins.grubusiness.business.demand.Demand;
 import fr.paris.lutece.plugins.grubusiness.business.demand.IDemandServiceProvider;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.DemandDisplay;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.DemandResult;
-import fr.paris.lutece.plugins.grubusiness.business.web.rs.EnumGenericStatus;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.SearchResult;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.responseStatus.ResponseStatusFactory;
 import fr.paris.lutece.plugins.notificationstore.business.DemandHome;
-import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataSnapshot;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
 import fr.paris.lutece.plugins.notificationstore.web.rs.swagger.SwaggerConstants;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
-import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
-import fr.paris.lutece.portal.web.l10n.LocaleService;
 import fr.paris.lutece.util.html.Paginator;
 import fr.paris.lutece.util.json.ErrorJsonResponse;
 import fr.paris.lutece.util.json.JsonResponse;
@@ -95,14 +99,16 @@ public class DemandRestService
     private IDemandServiceProvider _demandService;
 
     /**
-     * Return list of demand
+     * Return list of demand, as JSON or Smile according to the Accept header
      * 
      * @param strDemandType
      * @param strPage
      */
     @GET
     @Path( NotificationStoreConstants.PATH_LIST )
-    @Produces( MediaType.APPLICATION_JSON )
+    @Produces( {
+            MediaType.APPLICATION_JSON, NotificationStoreConstants.MEDIA_TYPE_SMILE
+    } )
     @ApiOperation( value = "Get demand list for a customer Id", response = DemandResult.class )
     @ApiResponses( value = {
             @ApiResponse( code = 200, message = "Success" ), @ApiResponse( code = 400, message = "Bad request or missing mandatory parameters" ),
@@ -114,7 +120,9 @@ public class DemandRestService
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_LIMIT, value = SwaggerConstants.QUERY_PARAM_LIMIT_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_LIMIT ) String strLimitResult,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID, value = SwaggerConstants.QUERY_PARAM_CUSTOMER_ID_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE, value = SwaggerConstants.QUERY_PARAM_NOTIFICATION_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType,
-            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_DIRECTION_DATE_ORDER_BY, value = SwaggerConstants.QUERY_PARAM_DIRECTION_DATE_ORDER_BY_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_DIRECTION_DATE_ORDER_BY ) @DefaultValue( "" ) String strDirectionDateOrderBy )
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_DIRECTION_DATE_ORDER_BY, value = SwaggerConstants.QUERY_PARAM_DIRECTION_DATE_ORDER_BY_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_DIRECTION_DATE_ORDER_BY ) @DefaultValue( "" ) String strDirectionDateOrderBy,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_INCLUDE_ARCHIVED, value = SwaggerConstants.QUERY_PARAM_INCLUDE_ARCHIVED_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_INCLUDE_ARCHIVED ) @DefaultValue( "false" ) boolean bIncludeArchived,
+            @Context Request request, @Context HttpHeaders headers )
     {
         int nIndex = StringUtils.isEmpty( strIndex ) ? 1 : Integer.parseInt( strIndex );
         int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( NotificationStoreConstants.LIMIT_DEMAND_API_REST, 10 );
@@ -128,21 +136,36 @@ public class DemandRestService
         {
             result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_DEMAND )
                     .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
-            return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                    .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
         }
         if ( StringUtils.isNotEmpty( strDirectionDateOrderBy ) && !List.of( "ASC", "DESC" ).contains( strDirectionDateOrderBy ) )
         {
             result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_DIRECTION_DATE_ORDER_BY_WRONG_VALUE )
                     .setMessageKey( SearchResult.ERROR_FIELD_WRONG_VALUE ) );
-            return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                    .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+        }
+
+        EntityTag entityTag = ConditionalGet.getEntityTag( strCustomerId );
+        Response notModified = ConditionalGet.getNotModified( request, entityTag );
+        if ( notModified != null )
+        {
+            return ContentNegotiation.vary( Response.fromResponse( notModified ) ).build( );
         }
 
         List<Integer> listIds = DemandHome.getIdsByCustomerIdAndDemandTypeId( strCustomerId, strNotificationType, strIdDemandType, strDirectionDateOrderBy );
-        return getResponse( result, nIndex, nDefaultItemsPerPage, listIds );
+        if ( bIncludeArchived )
+        {
+            listIds.addAll( DemandHome.getArchivedIds( strCustomerId, Collections.emptyList( ), strNotificationType,
+                    StringUtils.isNotEmpty( strIdDemandType ) ? Collections.singletonList( strIdDemandType ) : Collections.emptyList( ) ) );
+        }
+        return getResponse( result, nIndex, nDefaultItemsPerPage, listIds, strCustomerId, bIncludeArchived, entityTag,
+                ContentNegotiation.isSmileAccepted( headers ) );
     }
 
     /**
-     * Get list by status
+     * Get list by status, as JSON or Smile according to the Accept header
      * 
      * @param strlistIdsDemandType
      * @param strIndex
@@ -151,7 +174,9 @@ public class DemandRestService
      */
     @GET
     @Path( NotificationStoreConstants.PATH_DEMAND_STATUS )
-    @Produces( MediaType.APPLICATION_JSON )
+    @Produces( {
+            MediaType.APPLICATION_JSON, NotificationStoreConstants.MEDIA_TYPE_SMILE
+    } )
     @ApiOperation( value = "Get demand list for a customer Id by status", response = DemandResult.class )
     @ApiResponses( value = {
             @ApiResponse( code = 200, message = "Success (with or without result)" ),
@@ -164,7 +189,9 @@ public class DemandRestService
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID, value = SwaggerConstants.QUERY_PARAM_CUSTOMER_ID_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_LIST_STATUS, value = SwaggerConstants.QUERY_PARAM_LIST_STATUS_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_LIST_STATUS ) String strListStatus,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE, value = SwaggerConstants.QUERY_PARAM_NOTIFICATION_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType,
-            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_CATEGORY_CODE, value = SwaggerConstants.QUERY_PARAM_CATEGORY_CODE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_CATEGORY_CODE ) String strCategoryCode )
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_CATEGORY_CODE, value = SwaggerConstants.QUERY_PARAM_CATEGORY_CODE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_CATEGORY_CODE ) String strCategoryCode,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_INCLUDE_ARCHIVED, value = SwaggerConstants.QUERY_PARAM_INCLUDE_ARCHIVED_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_INCLUDE_ARCHIVED ) @DefaultValue( "false" ) boolean bIncludeArchived,
+            @Context Request request, @Context HttpHeaders headers )
     {
         int nIndex = StringUtils.isEmpty( strIndex ) ? 1 : Integer.parseInt( strIndex );
         int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( NotificationStoreConstants.LIMIT_DEMAND_API_REST, 10 );
@@ -183,14 +210,15 @@ public class DemandRestService
         }
         if ( StringUtils.isNotEmpty( strCategoryCode ) )
         {
-            DemandTypeHome.getDemandTypesListByCategoryCode( strCategoryCode ).stream( ).forEach( dt -> sbIdsTypeDemand.append( dt.getIdDemandType( ) + "," ) );
+            ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypesByCategoryCode( strCategoryCode ).stream( )
+                    .forEach( dt -> sbIdsTypeDemand.append( dt.getIdDemandType( ) + "," ) );
         }
 
         // If no request type is found for the parameter category
         if ( StringUtils.isNotEmpty( strCategoryCode ) && sbIdsTypeDemand.length( ) < 1 )
         {
             result.setStatus( ResponseStatusFactory.noResult( ).setMessageKey( "no_result" ) );
-            return Response.status( result.getStatus( ).getHttpCode( ) ).entity( result ).build( );
+            return Response.status( result.getStatus( ).getHttpCode( ) ).type( MediaType.APPLICATION_JSON ).entity( result ).build( );
         }
 
         if ( StringUtils.isEmpty( strCustomerId ) || StringUtils.isEmpty( strListStatus ) )
@@ -200,13 +228,28 @@ public class DemandRestService
             result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_STATUS )
                     .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
 
-            return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                    .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+        }
+
+        EntityTag entityTag = ConditionalGet.getEntityTag( strCustomerId );
+        Response notModified = ConditionalGet.getNotModified( request, entityTag );
+        if ( notModified != null )
+        {
+            return ContentNegotiation.vary( Response.fromResponse( notModified ) ).build( );
         }
 
         List<String> listStatus = Arrays.asList( strListStatus.split( "," ) );
         List<Integer> listIds = DemandHome.getIdsByStatus( strCustomerId, listStatus, strNotificationType, sbIdsTypeDemand.toString( ) );
+        if ( bIncludeArchived )
+        {
+            List<String> listIdsDemandType = Arrays.stream( sbIdsTypeDemand.toString( ).split( "," ) ).filter( StringUtils::isNotEmpty )
+                    .collect( Collectors.toList( ) );
+            listIds.addAll( DemandHome.getArchivedIds( strCustomerId, listStatus, strNotificationType, listIdsDemandType ) );
+        }
 
-        return getResponse( result, nIndex, nDefaultItemsPerPage, listIds );
+        return getResponse( result, nIndex, nDefaultItemsPerPage, listIds, strCustomerId, bIncludeArchived, entityTag,
+                ContentNegotiation.isSmileAccepted( headers ) );
     }
 
     @DELETE
@@ -238,16 +281,23 @@ public class DemandRestService
      * @param nIndex
      * @param nDefaultItemsPerPage
      * @param listIds
+     * @param strCustomerId
+     * @param bIncludeArchived
+     * @param entityTag
+     *            the entity tag of the demands of the customer, or null
+     * @param bSmile
+     *            true to send the result in the Smile format, false for JSON
      * @return
      */
-    private Response getResponse( DemandResult result, int nIndex, int nDefaultItemsPerPage, List<Integer> listIds )
+    private Response getResponse( DemandResult result, int nIndex, int nDefaultItemsPerPage, List<Integer> listIds, String strCustomerId,
+            boolean bIncludeArchived, EntityTag entityTag, boolean bSmile )
     {
 
         if ( !listIds.isEmpty( ) )
         {
             Paginator<Integer> paginator = new Paginator<>( listIds, nDefaultItemsPerPage, StringUtils.EMPTY, StringUtils.EMPTY, String.valueOf( nIndex ) );
 
-            result.setListDemandDisplay( getListDemandDisplay( paginator.getPageItems( ) ) );
+            result.setListDemandDisplay( getListDemandDisplay( paginator.getPageItems( ), strCustomerId, bIncludeArchived ) );
             result.setIndex( String.valueOf( nIndex ) );
             result.setPaginator( nIndex + "/" + paginator.getPagesCount( ) );
             result.setNumberResult( listIds.size( ) );
@@ -259,24 +309,42 @@ public class DemandRestService
             result.setStatus( ResponseStatusFactory.noResult( ).setMessageKey( "no_result" ) );
         }
 
-        return Response.status( result.getStatus( ).getHttpCode( ) ).entity( result ).build( );
+        ResponseBuilder builder = ContentNegotiation.vary( Response.status( result.getStatus( ).getHttpCode( ) ) );
+        if ( bSmile )
+        {
+            ContentNegotiation.smile( builder, result, false );
+        }
+        else
+        {
+            builder.entity( result ).type( MediaType.APPLICATION_JSON );
+        }
+
+        return ConditionalGet.tag( builder, entityTag ).build( );
     }
 
     /**
      * 
      * @param listIds
+     * @param strCustomerId
+     * @param bIncludeArchived
      * @return list of demand display
      */
-    private List<DemandDisplay> getListDemandDisplay( List<Integer> listIds )
+    private List<DemandDisplay> getListDemandDisplay( List<Integer> listIds, String strCustomerId, boolean bIncludeArchived )
     {
         List<DemandDisplay> listDemandDisplay = new ArrayList<>( );
-        List<Demand> listDemand = DemandHome.getByIds( listIds );
+        ReferenceDataSnapshot referenceData = ReferenceDataService.getInstance( ).getSnapshot( );
+        List<Demand> listDemand = DemandHome.getByIds( listIds, strCustomerId );
+
+        if ( bIncludeArchived && listDemand.size( ) < listIds.size( ) )
+        {
+            listDemand.addAll( DemandHome.getArchivedByIds( listIds, strCustomerId ) );
+        }
 
         for ( Demand demand : listDemand )
         {
             DemandDisplay demandDisplay = new DemandDisplay( );
             demandDisplay.setDemand( demand );
-            demandDisplay.setStatus( getLabelStatus( demand ) );
+            demandDisplay.setStatus( referenceData.getGenericStatusLabel( demand.getStatusId( ) ) );
 
             listDemandDisplay.add( demandDisplay );
         }
@@ -286,20 +354,4 @@ public class DemandRestService
                 .collect( Collectors.toList( ) );
     }
 
-    /**
-     * Get status label by demand status id
-     * 
-     * @param demand
-     * @return Generic status label
-     */
-    private String getLabelStatus( Demand demand )
-    {
-        EnumGenericStatus enumGenericStatus = EnumGenericStatus.getByStatusId( demand.getStatusId( ) );
-        if ( enumGenericStatus != null )
-        {
-            return I18nService.getLocalizedString( enumGenericStatus.getLabel( ), LocaleService.getDefault( ) );
-        }
-        return StringUtils.EMPTY;
-    }
-
 }
@@ -56,6 +56,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
 import fr.paris.lutece.plugins.notificationstore.business.DemandTypeHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.service.ReferenceDataService;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.web.rs.swagger.SwaggerConstants;
 import fr.paris.lutece.plugins.rest.service.RestConstants;
@@ -97,7 +98,7 @@ public class DemandTypeRestService
     public Response getDemandTypeList(
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_DIRECT_MODE, value = SwaggerConstants.QUERY_PARAM_DIRECT_MODE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_DIRECT_MODE ) String strDirectMode )
     {
-        List<DemandType> listDemandTypes = DemandTypeHome.getDemandTypesList( );
+        List<DemandType> listDemandTypes = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypes( );
 
         if ( listDemandTypes.isEmpty( ) )
         {
@@ -286,7 +287,7 @@ public class DemandTypeRestService
     public Response getDemandType(
             @ApiParam( name = NotificationStoreConstants.ID, value = SwaggerConstants.QUERY_PARAM_ID_DEMAND_TYPE_DESCRIPTION ) @PathParam( NotificationStoreConstants.ID ) Integer nId )
     {
-        Optional<DemandType> optDemandType = DemandTypeHome.findByPrimaryKey( nId );
+        Optional<DemandType> optDemandType = ReferenceDataService.getInstance( ).getSnapshot( ).getDemandTypeById( nId );
         if ( !optDemandType.isPresent( ) )
         {
             return Response.status( Response.Status.NOT_FOUND )
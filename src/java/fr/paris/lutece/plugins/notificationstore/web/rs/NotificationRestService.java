@@ -33,9 +33,12 @@
  */
 package fr.paris.lutece.plugins.notificationstore.web.rs;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -44,8 +47,14 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -55,7 +64,10 @@ import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFil
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.NotificationResult;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.SearchResult;
 import fr.paris.lutece.plugins.grubusiness.business.web.rs.responseStatus.ResponseStatusFactory;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventDailyCount;
+import fr.paris.lutece.plugins.notificationstore.business.NotificationEventDailyCountHome;
 import fr.paris.lutece.plugins.notificationstore.business.NotificationHome;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationExportService;
 import fr.paris.lutece.plugins.notificationstore.service.NotificationService;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreConstants;
 import fr.paris.lutece.plugins.notificationstore.utils.NotificationStoreUtils;
@@ -71,6 +83,8 @@ import io.swagger.annotations.ApiResponses;
 @Api( RestConstants.BASE_PATH + NotificationStoreConstants.PLUGIN_NAME + NotificationStoreConstants.VERSION_PATH_V3 )
 public class NotificationRestService
 {
+    private static final String CONTENT_ENCODING_GZIP = "gzip";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Gets notification by parameters
@@ -139,7 +153,23 @@ public class NotificationRestService
     }
 
     /**
-     * store the notification event
+     * process the notification sent in the Smile format (binary JSON) by the internal clients
+     * 
+     * @param smile
+     *            The Smile content
+     * @return The response
+     */
+    @POST
+    @Path( NotificationStoreConstants.PATH_NOTIFICATION )
+    @Consumes( NotificationStoreConstants.MEDIA_TYPE_SMILE )
+    @Produces( MediaType.APPLICATION_JSON )
+    public Response notificationSmile( byte [ ] smile )
+    {
+        return NotificationService.instance( ).newNotification( smile );
+    }
+
+    /**
+     * store the notification event, or an array of notification events
      * 
      * @param strJson
      *            The JSON flow
@@ -155,13 +185,46 @@ public class NotificationRestService
     }
 
     /**
-     * Gets list of notification
+     * Gets the daily counts of the notification events, by demand type, event type and status
+     * 
+     * @param strIdDemandType
+     *            the demand type id, or null for all the demand types
+     * @param strStatus
+     *            the event status, or null for all the statuses
+     * @param lStartDate
+     *            a date of the first day, or 0 for no lower bound
+     * @param lEndDate
+     *            a date of the last day, or 0 for no upper bound
+     * @return the daily counts, ordered by day
+     */
+    @GET
+    @Path( NotificationStoreConstants.PATH_NOTIFICATION_EVENT + NotificationStoreConstants.PATH_REPORT )
+    @Produces( MediaType.APPLICATION_JSON )
+    @ApiOperation( value = "Get the daily counts of the notification events", response = NotificationEventDailyCount.class, responseContainer = "List" )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "Success" )
+    } )
+    public Response getNotificationEventReport(
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE, value = SwaggerConstants.QUERY_PARAM_ID_DEMAND_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE ) String strIdDemandType,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_EVENT_STATUS, value = SwaggerConstants.QUERY_PARAM_EVENT_STATUS_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_EVENT_STATUS ) String strStatus,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_START_DATE, value = SwaggerConstants.QUERY_PARAM_START_DATE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_START_DATE ) long lStartDate,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_END_DATE, value = SwaggerConstants.QUERY_PARAM_END_DATE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_END_DATE ) long lEndDate )
+    {
+        List<NotificationEventDailyCount> listDailyCounts = NotificationEventDailyCountHome.findByFilter( lStartDate, lEndDate, strIdDemandType, strStatus );
+
+        return Response.status( Response.Status.OK ).entity( NotificationStoreUtils.convertToJsonString( listDailyCounts ) ).build( );
+    }
+
+    /**
+     * Gets list of notification, as JSON or Smile according to the Accept header
      * 
      * @param strIdDemand
      */
     @GET
     @Path( NotificationStoreConstants.PATH_NOTIFICATION + NotificationStoreConstants.PATH_LIST )
-    @Produces( MediaType.APPLICATION_JSON )
+    @Produces( {
+            MediaType.APPLICATION_JSON, NotificationStoreConstants.MEDIA_TYPE_SMILE
+    } )
     @ApiOperation( value = "Get the notifications of a demand", response = NotificationResult.class )
     @ApiResponses( value = {
             @ApiResponse( code = 200, message = "Success" ), @ApiResponse( code = 400, message = "Bad request or missing mandatory parameters" ),
@@ -171,37 +234,150 @@ public class NotificationRestService
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_ID_DEMAND, value = SwaggerConstants.QUERY_PARAM_ID_DEMAND_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_ID_DEMAND ) String strIdDemand,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE, value = SwaggerConstants.QUERY_PARAM_ID_DEMAND_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE ) String strIdDemandType,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID, value = SwaggerConstants.QUERY_PARAM_CUSTOMER_ID_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
-            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE, value = SwaggerConstants.QUERY_PARAM_NOTIFICATION_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType )
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE, value = SwaggerConstants.QUERY_PARAM_NOTIFICATION_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_FIELDS, value = SwaggerConstants.QUERY_PARAM_FIELDS_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_FIELDS ) String strFields,
+            @Context Request request, @Context HttpHeaders headers )
     {
         NotificationResult result = new NotificationResult( );
 
         if ( StringUtils.isNotEmpty( strIdDemand ) && StringUtils.isNotEmpty( strIdDemandType ) && StringUtils.isNotEmpty( strCustomerId ) )
         {
+            Set<EnumNotificationType> setChannels;
+            try
+            {
+                setChannels = getChannels( strFields );
+            }
+            catch( IllegalArgumentException e )
+            {
+                result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_FIELDS_WRONG_VALUE )
+                        .setMessageKey( SearchResult.ERROR_FIELD_WRONG_VALUE ) );
+                return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                        .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            }
+
+            EntityTag entityTag = ConditionalGet.getEntityTag( strCustomerId );
+            Response notModified = ConditionalGet.getNotModified( request, entityTag );
+            if ( notModified != null )
+            {
+                return ContentNegotiation.vary( Response.fromResponse( notModified ) ).build( );
+            }
+
             NotificationFilter filter = new NotificationFilter( );
             if ( StringUtils.isNotEmpty( strNotificationType ) )
             {
                 filter.getListNotificationType( ).add( EnumNotificationType.valueOf( strNotificationType ) );
             }
 
-            List<Notification> notifications = NotificationHome.getByDemandIdTypeIdCustomerId( strIdDemand, strIdDemandType, strCustomerId, filter );
+            List<Notification> notifications = NotificationHome.getByDemandIdTypeIdCustomerId( strIdDemand, strIdDemandType, strCustomerId, filter,
+                    setChannels );
 
             result.setNotifications( notifications );
             result.setStatus( ResponseStatusFactory.ok( ) );
             result.setNumberResult( notifications.size( ) );
 
-            return Response.status( Response.Status.OK ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            ResponseBuilder builder = ContentNegotiation.vary( Response.status( Response.Status.OK ) );
+
+            // the channels excluded by the projection are omitted, instead of being written as null
+            if ( ContentNegotiation.isSmileAccepted( headers ) )
+            {
+                ContentNegotiation.smile( builder, result, setChannels != null );
+            }
+            else
+            {
+                String strJson = setChannels == null ? NotificationStoreUtils.convertToJsonString( result )
+                        : NotificationStoreUtils.convertToProjectedJsonString( result );
+                builder.entity( strJson ).type( MediaType.APPLICATION_JSON );
+            }
+
+            return ConditionalGet.tag( builder, entityTag ).build( );
         }
         else
         {
             result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_NOTIF )
                     .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
 
-            return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                    .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+        }
+    }
+
+    /**
+     * Get the channels of the projection
+     * 
+     * @param strFields
+     *            the fields parameter : header, or notification types separated by ,
+     * @return the notification types whose contents are read, an empty set for the headers only, or null for all the contents
+     * @throws IllegalArgumentException
+     *             if a field is not a notification type
+     */
+    private static Set<EnumNotificationType> getChannels( String strFields )
+    {
+        if ( StringUtils.isBlank( strFields ) )
+        {
+            return null;
+        }
+
+        Set<EnumNotificationType> setChannels = EnumSet.noneOf( EnumNotificationType.class );
+        for ( String strField : StringUtils.split( strFields, ',' ) )
+        {
+            String strChannel = strField.trim( );
+            if ( !NotificationStoreConstants.FIELDS_HEADER.equals( strChannel ) )
+            {
+                setChannels.add( EnumNotificationType.valueOf( strChannel ) );
+            }
+        }
+
+        return setChannels;
+    }
+
+    /**
+     * Export the notifications of a demand type in a time window, as gzip compressed NDJSON (one notification per line, in id order). The response
+     * is streamed while the notifications are read.
+     * 
+     * @param strIdDemandType
+     *            the demand type id
+     * @param lStartDate
+     *            the start of the time window
+     * @param lEndDate
+     *            the end of the time window, 0 for now
+     * @param nAfterId
+     *            the id of the last notification already exported, to resume an interrupted export
+     * @return the response
+     */
+    @GET
+    @Path( NotificationStoreConstants.PATH_NOTIFICATION + NotificationStoreConstants.PATH_EXPORT )
+    @Produces( NotificationStoreConstants.MEDIA_TYPE_NDJSON )
+    @ApiOperation( value = "Export the notifications of a demand type as gzip compressed NDJSON" )
+    @ApiResponses( value = {
+            @ApiResponse( code = 200, message = "Success" ), @ApiResponse( code = 400, message = "Bad request or missing mandatory parameters" )
+    } )
+    public Response exportNotifications(
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE, value = SwaggerConstants.QUERY_PARAM_ID_DEMAND_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_ID_DEMAND_TYPE ) String strIdDemandType,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_START_DATE, value = SwaggerConstants.QUERY_PARAM_START_DATE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_START_DATE ) long lStartDate,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_END_DATE, value = SwaggerConstants.QUERY_PARAM_END_DATE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_END_DATE ) long lEndDate,
+            @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_AFTER_ID, value = SwaggerConstants.QUERY_PARAM_AFTER_ID_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_AFTER_ID ) int nAfterId )
+    {
+        if ( StringUtils.isEmpty( strIdDemandType ) )
+        {
+            NotificationResult result = new NotificationResult( );
+            result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_EXPORT )
+                    .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
+            return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                    .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
         }
+
+        long lEnd = lEndDate > 0 ? lEndDate : System.currentTimeMillis( );
+        StreamingOutput stream = output -> {
+            GZIPOutputStream gzip = new GZIPOutputStream( output, EXPORT_BUFFER_SIZE );
+            NotificationExportService.getInstance( ).export( strIdDemandType, lStartDate, lEnd, nAfterId, gzip );
+            gzip.finish( );
+        };
+
+        return Response.ok( stream ).header( HttpHeaders.CONTENT_ENCODING, CONTENT_ENCODING_GZIP ).build( );
     }
 
     /**
-     * Gets notifications for a list of demands (POST with JSON body)
+     * Gets notifications for a list of demands (POST with JSON body), as JSON or Smile according to the Accept header
      *
      * @param strCustomerId
      *            the customer id (query parameter)
@@ -209,12 +385,16 @@ public class NotificationRestService
      *            optional notification type filter (query parameter)
      * @param listDemandPairs
      *            JSON body: list of objects with "demandId" and "demandTypeId" keys
+     * @param headers
+     *            the headers of the request
      * @return notifications matching the demands and customer
      */
     @POST
     @Path( NotificationStoreConstants.PATH_NOTIFICATION + NotificationStoreConstants.PATH_LIST )
     @Consumes( MediaType.APPLICATION_JSON )
-    @Produces( MediaType.APPLICATION_JSON )
+    @Produces( {
+            MediaType.APPLICATION_JSON, NotificationStoreConstants.MEDIA_TYPE_SMILE
+    } )
     @ApiOperation( value = "Get notifications for a list of demands", response = NotificationResult.class )
     @ApiResponses( value = {
             @ApiResponse( code = 200, message = "Success" ), @ApiResponse( code = 400, message = "Bad request or missing mandatory parameters" ),
@@ -223,7 +403,8 @@ public class NotificationRestService
     public Response getNotificationsByDemandList(
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID, value = SwaggerConstants.QUERY_PARAM_CUSTOMER_ID_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_CUSTOMER_ID ) String strCustomerId,
             @ApiParam( name = NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE, value = SwaggerConstants.QUERY_PARAM_NOTIFICATION_TYPE_DESCRIPTION ) @QueryParam( NotificationStoreConstants.QUERY_PARAM_NOTIFICATION_TYPE ) String strNotificationType,
-            @ApiParam( name = "demandList", value = SwaggerConstants.QUERY_PARAM_LIST_IDS_DEMAND_DESCRIPTION ) List<Map<String, String>> listDemandPairs )
+            @ApiParam( name = "demandList", value = SwaggerConstants.QUERY_PARAM_LIST_IDS_DEMAND_DESCRIPTION ) List<Map<String, String>> listDemandPairs,
+            @Context HttpHeaders headers )
     {
         NotificationResult result = new NotificationResult( );
 
@@ -231,7 +412,8 @@ public class NotificationRestService
         {
             result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_NOTIF )
                     .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
-            return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+            return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                    .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
         }
 
         // Validate that each entry contains the required keys
@@ -241,7 +423,8 @@ public class NotificationRestService
             {
                 result.setStatus( ResponseStatusFactory.badRequest( ).setMessage( NotificationStoreConstants.MESSAGE_ERROR_NOTIF )
                         .setMessageKey( SearchResult.ERROR_FIELD_MANDATORY ) );
-                return Response.status( Response.Status.BAD_REQUEST ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+                return Response.status( Response.Status.BAD_REQUEST ).type( MediaType.APPLICATION_JSON )
+                        .entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
             }
         }
 
@@ -257,7 +440,13 @@ public class NotificationRestService
         result.setStatus( ResponseStatusFactory.ok( ) );
         result.setNumberResult( notifications.size( ) );
 
-        return Response.status( Response.Status.OK ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
+        ResponseBuilder builder = ContentNegotiation.vary( Response.status( Response.Status.OK ) );
+        if ( ContentNegotiation.isSmileAccepted( headers ) )
+        {
+            return ContentNegotiation.smile( builder, result, false ).build( );
+        }
+
+        return builder.type( MediaType.APPLICATION_JSON ).entity( NotificationStoreUtils.convertToJsonString( result ) ).build( );
     }
 
     /**
@@ -69,6 +69,12 @@ public final class SwaggerConstants
     public static final String QUERY_PARAM_DIRECT_MODE_DESCRIPTION = "(Deprecated)";
     public static final String QUERY_PARAM_ID_CATEGORY_DESCRIPTION = "Category id";
     public static final String QUERY_PARAM_DIRECTION_DATE_ORDER_BY_DESCRIPTION = "Direction date order by (ASC or DESC)";
+    public static final String QUERY_PARAM_INCLUDE_ARCHIVED_DESCRIPTION = "Include the archived demands, listed after the active ones (default false)";
+    public static final String QUERY_PARAM_START_DATE_DESCRIPTION = "Start of the time window, in ms (default 0)";
+    public static final String QUERY_PARAM_END_DATE_DESCRIPTION = "End of the time window, in ms (default now)";
+    public static final String QUERY_PARAM_AFTER_ID_DESCRIPTION = "Id of the last notification already exported, to resume an export (default 0)";
+    public static final String QUERY_PARAM_EVENT_STATUS_DESCRIPTION = "Status of the notification events, FAILED for instance (default all)";
+    public static final String QUERY_PARAM_FIELDS_DESCRIPTION = "header, or comma separated notification types to read (default all)";
 
     /**
      * private constructor
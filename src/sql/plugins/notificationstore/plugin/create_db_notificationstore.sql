@@ -16,6 +16,7 @@ max_steps int NULL,
 current_step int NULL,
 modify_date timestamp NULL,
 meta_data long varchar,
+channel_mask int default 0 NOT NULL,
 PRIMARY KEY ( uid ),
 UNIQUE( demand_type_id,customer_id,id )
 );
@@ -23,6 +24,9 @@ UNIQUE( demand_type_id,customer_id,id )
 CREATE INDEX notificationstore_demand_u_index on notificationstore_demand ( demand_type_id,customer_id,id);
 CREATE INDEX notificationstore_demand_id_index on notificationstore_demand ( id );
 CREATE INDEX notificationstore_demand_customer_index ON notificationstore_demand (customer_id);
+CREATE INDEX notificationstore_demand_reference_index ON notificationstore_demand (reference);
+CREATE INDEX notificationstore_demand_creation_date_index ON notificationstore_demand (creation_date);
+CREATE INDEX notificationstore_demand_closure_date_index ON notificationstore_demand (closure_date);
 
 --
 -- Structure for table notificationstore_notification
@@ -34,10 +38,14 @@ demand_id varchar(100) NOT NULL,
 demand_type_id varchar(50) NOT NULL,
 customer_id varchar(100) NULL,
 date timestamp NOT NULL,
+channel_mask int default 0 NOT NULL,
 PRIMARY KEY (id)
 );
 CREATE INDEX notificationstore_notification_index on notificationstore_notification ( demand_type_id, customer_id,demand_id );
 CREATE INDEX idx_notificationstore_notification_date on notificationstore_notification (date ASC, demand_type_id ASC) ;
+CREATE INDEX idx_notificationstore_notification_customer on notificationstore_notification (customer_id) ;
+CREATE INDEX idx_notificationstore_notification_demand_date on notificationstore_notification (demand_id, demand_type_id, date) ;
+CREATE INDEX idx_notificationstore_notification_type_id on notificationstore_notification (demand_type_id, id) ;
 
 DROP TABLE IF EXISTS notificationstore_notification_event;
 CREATE TABLE notificationstore_notification_event (
@@ -47,7 +55,7 @@ demand_id varchar(100) NOT NULL,
 demand_type_id varchar(50) NOT NULL,
 customer_id varchar(100) NULL,                    -- ?
 notification_date timestamp NOT NULL,
-msg_id varchar(255) ,
+msg_id varchar(255) ,                            -- NULL for the internal events, not deduplicated
 type varchar(255) default '' NOT NULL,
 status varchar(255) default '' NOT NULL,
 redelivry int default '0',
@@ -57,6 +65,8 @@ PRIMARY KEY (id)
 
 CREATE INDEX IDX_NOTIFICATION_EVENT_DEMAND_ID on  notificationstore_notification_event (demand_id, demand_type_id) ;
 CREATE INDEX IDX_NOTIFICATION_EVENT_DATE on notificationstore_notification_event (event_date ASC, demand_type_id ASC) ;
+CREATE INDEX IDX_NOTIFICATION_EVENT_CUSTOMER_ID on notificationstore_notification_event (customer_id) ;
+CREATE UNIQUE INDEX IDX_NOTIFICATION_EVENT_MSG_ID on notificationstore_notification_event (msg_id, status, demand_id, demand_type_id) ;
 
    
 --
@@ -119,9 +129,113 @@ id_temporary_status int default -1,
 status_id int default -1,
 file_key VARCHAR(255) DEFAULT NULL,
 file_store VARCHAR(255) DEFAULT NULL,
+content_hash char(64) DEFAULT NULL,    -- hash of the shared file, see notificationstore_content_blob
 PRIMARY KEY (id_notification_content)
 );
 
 CREATE UNIQUE INDEX index_notification_id ON notificationstore_notification_content (notification_id, notification_type);
 CREATE INDEX index_notificationstore_notification_content_id_temporary_status ON notificationstore_notification_content ( id_temporary_status );
 
+--
+-- Structure for table notificationstore_content_blob : the notification content files shared by their content hash
+--
+DROP TABLE IF EXISTS notificationstore_content_blob;
+CREATE TABLE notificationstore_content_blob (
+content_hash char(64) NOT NULL,        -- SHA-256 of the file content
+file_key VARCHAR(255) NOT NULL,
+file_store VARCHAR(255) NOT NULL,
+ref_count int default 0 NOT NULL,
+PRIMARY KEY ( content_hash )
+);
+
+CREATE INDEX idx_notificationstore_content_blob_ref_count ON notificationstore_content_blob (ref_count);
+
+--
+-- Structure for table notificationstore_archive
+--
+DROP TABLE IF EXISTS notificationstore_archive;
+CREATE TABLE notificationstore_archive (
+id_archive int AUTO_INCREMENT,
+customer_id varchar(100) NOT NULL,
+archive_date timestamp NOT NULL DEFAULT current_timestamp(),
+file_key VARCHAR(255) DEFAULT NULL,
+file_store VARCHAR(255) DEFAULT NULL,
+PRIMARY KEY (id_archive)
+);
+
+CREATE INDEX idx_notificationstore_archive_customer ON notificationstore_archive (customer_id);
+
+--
+-- Structure for table notificationstore_demand_archive
+--
+DROP TABLE IF EXISTS notificationstore_demand_archive;
+CREATE TABLE notificationstore_demand_archive (
+uid int NOT NULL,                      -- uid of the archived demand
+id varchar(100) NOT NULL,
+demand_type_id varchar(50) NOT NULL,
+subtype_id varchar(50) NULL,
+reference varchar(50) NOT NULL,
+status_id int default -1 NOT NULL ,
+customer_id varchar(100) NOT NULL,
+creation_date timestamp NULL,
+closure_date timestamp NULL,
+max_steps int NULL,
+current_step int NULL,
+modify_date timestamp NULL,
+meta_data long varchar,
+notification_types varchar(255) default '' NOT NULL,
+id_archive int NOT NULL,
+PRIMARY KEY ( uid )
+);
+
+CREATE INDEX idx_notificationstore_demand_archive_customer ON notificationstore_demand_archive (customer_id);
+
+--
+-- Structure for table notificationstore_notification_fingerprint
+--
+DROP TABLE IF EXISTS notificationstore_notification_fingerprint;
+CREATE TABLE notificationstore_notification_fingerprint (
+fingerprint char(64) NOT NULL,         -- SHA-256 of the demand key, date and channel payloads
+demand_type_id varchar(50) NOT NULL,
+fingerprint_date timestamp NOT NULL,
+PRIMARY KEY ( fingerprint )
+);
+
+CREATE INDEX idx_notificationstore_fingerprint_date ON notificationstore_notification_fingerprint (fingerprint_date);
+
+--
+-- Structure for table notificationstore_customer_version
+--
+DROP TABLE IF EXISTS notificationstore_customer_version;
+CREATE TABLE notificationstore_customer_version (
+customer_id varchar(100) NOT NULL,
+version bigint default 0 NOT NULL,
+modify_date timestamp NOT NULL,
+PRIMARY KEY ( customer_id )
+);
+
+--
+-- Structure for table notificationstore_cache_event
+--
+DROP TABLE IF EXISTS notificationstore_cache_event;
+CREATE TABLE notificationstore_cache_event (
+id bigint AUTO_INCREMENT,
+cache_name varchar(50) NOT NULL,
+event_date timestamp NOT NULL,
+PRIMARY KEY ( id )
+);
+
+CREATE INDEX idx_notificationstore_cache_event_date ON notificationstore_cache_event (event_date);
+
+--
+-- Structure for table notificationstore_notification_event_daily
+--
+DROP TABLE IF EXISTS notificationstore_notification_event_daily;
+CREATE TABLE notificationstore_notification_event_daily (
+event_day date NOT NULL,
+demand_type_id varchar(50) NOT NULL,
+type varchar(255) NOT NULL,
+status varchar(255) NOT NULL,
+event_count int default 0 NOT NULL,
+PRIMARY KEY ( event_day, demand_type_id, type, status )
+);
@@ -0,0 +1,158 @@
+--
+-- Indexes for the lookups by reference, creation date and customer
+--
+CREATE INDEX notificationstore_demand_reference_index ON notificationstore_demand (reference);
+CREATE INDEX notificationstore_demand_creation_date_index ON notificationstore_demand (creation_date);
+CREATE INDEX idx_notificationstore_notification_customer on notificationstore_notification (customer_id) ;
+CREATE INDEX idx_notificationstore_notification_demand_date on notificationstore_notification (demand_id, demand_type_id, date) ;
+CREATE INDEX IDX_NOTIFICATION_EVENT_CUSTOMER_ID on notificationstore_notification_event (customer_id) ;
+
+--
+-- Archive of the closed demands
+--
+CREATE INDEX notificationstore_demand_closure_date_index ON notificationstore_demand (closure_date);
+
+--
+-- Structure for table notificationstore_archive
+--
+DROP TABLE IF EXISTS notificationstore_archive;
+CREATE TABLE notificationstore_archive (
+id_archive int AUTO_INCREMENT,
+customer_id varchar(100) NOT NULL,
+archive_date timestamp NOT NULL DEFAULT current_timestamp(),
+file_key VARCHAR(255) DEFAULT NULL,
+file_store VARCHAR(255) DEFAULT NULL,
+PRIMARY KEY (id_archive)
+);
+
+CREATE INDEX idx_notificationstore_archive_customer ON notificationstore_archive (customer_id);
+
+--
+-- Structure for table notificationstore_demand_archive
+--
+DROP TABLE IF EXISTS notificationstore_demand_archive;
+CREATE TABLE notificationstore_demand_archive (
+uid int NOT NULL,                      -- uid of the archived demand
+id varchar(100) NOT NULL,
+demand_type_id varchar(50) NOT NULL,
+subtype_id varchar(50) NULL,
+reference varchar(50) NOT NULL,
+status_id int default -1 NOT NULL ,
+customer_id varchar(100) NOT NULL,
+creation_date timestamp NULL,
+closure_date timestamp NULL,
+max_steps int NULL,
+current_step int NULL,
+modify_date timestamp NULL,
+meta_data long varchar,
+notification_types varchar(255) default '' NOT NULL,
+id_archive int NOT NULL,
+PRIMARY KEY ( uid )
+);
+
+CREATE INDEX idx_notificationstore_demand_archive_customer ON notificationstore_demand_archive (customer_id);
+
+--
+-- Deduplication of the notification events replayed with the same msg_id, status and demand
+-- The internal events have no msg_id : they are stored with a NULL msg_id, which the unique index does not deduplicate
+--
+UPDATE notificationstore_notification_event SET msg_id = NULL WHERE msg_id = '';
+DELETE e1 FROM notificationstore_notification_event e1
+JOIN notificationstore_notification_event e2 ON e1.msg_id = e2.msg_id AND e1.status = e2.status AND e1.demand_id = e2.demand_id AND e1.demand_type_id = e2.demand_type_id AND e1.id > e2.id
+WHERE e1.msg_id <> '';
+CREATE UNIQUE INDEX IDX_NOTIFICATION_EVENT_MSG_ID on notificationstore_notification_event (msg_id, status, demand_id, demand_type_id) ;
+
+--
+-- Structure for table notificationstore_notification_fingerprint
+--
+DROP TABLE IF EXISTS notificationstore_notification_fingerprint;
+CREATE TABLE notificationstore_notification_fingerprint (
+fingerprint char(64) NOT NULL,         -- SHA-256 of the demand key, date and channel payloads
+demand_type_id varchar(50) NOT NULL,
+fingerprint_date timestamp NOT NULL,
+PRIMARY KEY ( fingerprint )
+);
+
+CREATE INDEX idx_notificationstore_fingerprint_date ON notificationstore_notification_fingerprint (fingerprint_date);
+
+--
+-- Structure for table notificationstore_customer_version
+--
+DROP TABLE IF EXISTS notificationstore_customer_version;
+CREATE TABLE notificationstore_customer_version (
+customer_id varchar(100) NOT NULL,
+version bigint default 0 NOT NULL,
+modify_date timestamp NOT NULL,
+PRIMARY KEY ( customer_id )
+);
+
+--
+-- Structure for table notificationstore_cache_event
+--
+DROP TABLE IF EXISTS notificationstore_cache_event;
+CREATE TABLE notificationstore_cache_event (
+id bigint AUTO_INCREMENT,
+cache_name varchar(50) NOT NULL,
+event_date timestamp NOT NULL,
+PRIMARY KEY ( id )
+);
+
+CREATE INDEX idx_notificationstore_cache_event_date ON notificationstore_cache_event (event_date);
+
+--
+-- Index for the export of the notifications of a demand type
+--
+CREATE INDEX idx_notificationstore_notification_type_id on notificationstore_notification (demand_type_id, id) ;
+
+--
+-- Structure for table notificationstore_notification_event_daily
+--
+DROP TABLE IF EXISTS notificationstore_notification_event_daily;
+CREATE TABLE notificationstore_notification_event_daily (
+event_day date NOT NULL,
+demand_type_id varchar(50) NOT NULL,
+type varchar(255) NOT NULL,
+status varchar(255) NOT NULL,
+event_count int default 0 NOT NULL,
+PRIMARY KEY ( event_day, demand_type_id, type, status )
+);
+
+--
+-- Daily counts of the existing notification events
+--
+INSERT INTO notificationstore_notification_event_daily ( event_day, demand_type_id, type, status, event_count )
+SELECT DATE( event_date ), demand_type_id, COALESCE( type, '' ), COALESCE( status, '' ), COUNT(*)
+FROM notificationstore_notification_event
+WHERE event_date IS NOT NULL
+GROUP BY DATE( event_date ), demand_type_id, COALESCE( type, '' ), COALESCE( status, '' );
+
+--
+-- Channel masks of the notifications and of the demands
+-- (BACKOFFICE = 1, SMS = 2, CUSTOMER_EMAIL = 4, MYDASHBOARD = 8, BROADCAST_EMAIL = 16)
+--
+ALTER TABLE notificationstore_notification ADD COLUMN channel_mask int default 0 NOT NULL;
+ALTER TABLE notificationstore_demand ADD COLUMN channel_mask int default 0 NOT NULL;
+
+UPDATE notificationstore_notification n SET channel_mask = (
+SELECT COALESCE( BIT_OR( CASE c.notification_type WHEN 'BACKOFFICE' THEN 1 WHEN 'SMS' THEN 2 WHEN 'CUSTOMER_EMAIL' THEN 4 WHEN 'MYDASHBOARD' THEN 8 WHEN 'BROADCAST_EMAIL' THEN 16 ELSE 0 END ), 0 )
+FROM notificationstore_notification_content c WHERE c.notification_id = n.id );
+
+UPDATE notificationstore_demand d SET channel_mask = (
+SELECT COALESCE( BIT_OR( n.channel_mask ), 0 )
+FROM notificationstore_notification n WHERE n.demand_id = d.id AND n.demand_type_id = d.demand_type_id AND n.customer_id = d.customer_id );
+
+--
+-- Structure for table notificationstore_content_blob : the notification content files shared by their content hash
+--
+DROP TABLE IF EXISTS notificationstore_content_blob;
+CREATE TABLE notificationstore_content_blob (
+content_hash char(64) NOT NULL,        -- SHA-256 of the file content
+file_key VARCHAR(255) NOT NULL,
+file_store VARCHAR(255) NOT NULL,
+ref_count int default 0 NOT NULL,
+PRIMARY KEY ( content_hash )
+);
+
+CREATE INDEX idx_notificationstore_content_blob_ref_count ON notificationstore_content_blob (ref_count);
+
+ALTER TABLE notificationstore_notification_content ADD COLUMN content_hash char(64) DEFAULT NULL;
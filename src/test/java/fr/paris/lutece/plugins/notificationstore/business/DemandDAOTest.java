@@ -41,6 +41,7 @@ import fr.paris.lutece.test.LuteceTestCase;
 import static org.hamcrest.CoreMatchers.nullValue;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 
 /**
@@ -67,6 +68,8 @@ public class DemandDAOTest extends LuteceTestCase
     private static final int DEMAND_MAX_STEPS_2 = 2;
     private static final int DEMAND_CURRENT_STEP_1 = 1;
     private static final int DEMAND_CURRENT_STEP_2 = 2;
+    private static final String META_DATA_KEY = "key";
+    private static final String META_DATA_VALUE = "value";
     private final IDemandDAO _demandDao;
 
     /**
@@ -173,4 +176,32 @@ public class DemandDAOTest extends LuteceTestCase
         demandStored = _demandDao.loadByDemandIdAndTypeIdAndCustomerId( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
         assertEquals( demandStored, nullValue( ) );
     }
+
+    /**
+     * Test that the meta data of a loaded demand survive an update which does not read them
+     */
+    public void testMetaData( )
+    {
+        Demand demand = new Demand( );
+        demand.setId( DEMAND_ID_1 );
+        demand.setTypeId( DEMAND_TYPE_ID_1 );
+        demand.setStatusId( EnumGenericStatus.ONGOING.getStatusId( ) );
+        demand.setMetaData( Collections.singletonMap( META_DATA_KEY, META_DATA_VALUE ) );
+
+        Customer customer = new Customer( );
+        customer.setCustomerId( CUSTOMER_ID_1 );
+        demand.setCustomer( customer );
+
+        _demandDao.insert( demand );
+
+        Demand demandStored = _demandDao.loadByDemandIdAndTypeIdAndCustomerId( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
+        demandStored.setStatusId( EnumGenericStatus.CLOSED.getStatusId( ) );
+        _demandDao.store( demandStored );
+
+        demandStored = _demandDao.loadByDemandIdAndTypeIdAndCustomerId( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
+        assertEquals( EnumGenericStatus.CLOSED.getStatusId( ), demandStored.getStatusId( ) );
+        assertEquals( META_DATA_VALUE, demandStored.getMetaData( ).get( META_DATA_KEY ) );
+
+        _demandDao.delete( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
+    }
 }
@@ -51,8 +51,10 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Test class for the NotificatinoDAO
@@ -105,6 +107,9 @@ public class NotificationDAOTest extends LuteceTestCase
     private static final String EMAIL_ADDRESS_COPY_2 = "EmailAddressRecipient2";
     private static final String EMAIL_ADDRESS_BLIND_COPY_1 = "EmailAddressRecipient1";
     private static final String EMAIL_ADDRESS_BLIND_COPY_2 = "EmailAddressRecipient2";
+    private static final int [ ] LARGE_LIST_SIZES = {
+            10, 100, 1000, 10000
+    };
     private final IDemandDAO _demandDAO;
     private final INotificationDAO _notificationDAO;
     private final NotificationFilter _filterSMS;
@@ -488,4 +493,60 @@ public class NotificationDAOTest extends LuteceTestCase
         _demandDAO.delete( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
         _demandDAO.delete( DEMAND_ID_2, DEMAND_TYPE_ID_2, CUSTOMER_ID_2 );
     }
+
+    /**
+     * Test the lookups by large lists of ids and demand pairs
+     */
+    public void test3LargeLists( )
+    {
+        Demand demand = new Demand( );
+        demand.setId( DEMAND_ID_1 );
+        demand.setTypeId( DEMAND_TYPE_ID_1 );
+        demand.setReference( DEMAND_REFERENCE_1 );
+        demand.setStatusId( DEMAND_STATUS_ID_1 );
+
+        Customer customer = new Customer( );
+        customer.setCustomerId( CUSTOMER_ID_1 );
+        demand.setCustomer( customer );
+
+        _demandDAO.insert( demand );
+
+        Notification notification = new Notification( );
+        notification.setDemand( demand );
+        notification.setDate( NOTIFICATION_DATE_1 );
+
+        BackofficeNotification backofficeNotification = new BackofficeNotification( );
+        backofficeNotification.setMessage( BACKOFFICE_NOTIFICATION_MESSAGE_1 );
+        notification.setBackofficeNotification( backofficeNotification );
+        _notificationDAO.insert( notification );
+
+        NotificationDAO notificationDAO = (NotificationDAO) _notificationDAO;
+
+        for ( int nSize : LARGE_LIST_SIZES )
+        {
+            List<Map<String, String>> listDemandPairs = new ArrayList<>( );
+            List<Integer> listIds = new ArrayList<>( );
+            listIds.add( notification.getId( ) );
+
+            Map<String, String> pair = new HashMap<>( );
+            pair.put( "demandId", DEMAND_ID_1 );
+            pair.put( "demandTypeId", DEMAND_TYPE_ID_1 );
+            listDemandPairs.add( pair );
+
+            for ( int i = 1; i < nSize; i++ )
+            {
+                pair = new HashMap<>( );
+                pair.put( "demandId", "unknown" + i );
+                pair.put( "demandTypeId", DEMAND_TYPE_ID_1 );
+                listDemandPairs.add( pair );
+                listIds.add( -i );
+            }
+
+            assertEquals( 1, notificationDAO.loadByDemandListAndCustomerId( listDemandPairs, CUSTOMER_ID_1, null ).size( ) );
+            assertEquals( 1, _notificationDAO.loadByIds( listIds ).size( ) );
+        }
+
+        _notificationDAO.deleteByDemand( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
+        _demandDAO.delete( DEMAND_ID_1, DEMAND_TYPE_ID_1, CUSTOMER_ID_1 );
+    }
 }
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import fr.paris.lutece.plugins.grubusiness.business.notification.EnumNotificationType;
+import fr.paris.lutece.plugins.grubusiness.business.notification.NotificationFilter;
+import fr.paris.lutece.plugins.notificationstore.service.NotificationStorePlugin;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs EXPLAIN on the DAO statements, built from the DAO constants and query builders, against a seeded database and fails if one of the large tables
+ * must be fully scanned because no index can serve the statement
+ */
+public class QueryPlanTest extends LuteceTestCase
+{
+    private static final int SEED_SIZE = 200;
+    private static final String SEED_PREFIX = "QueryPlanTest";
+    private static final String VALUE = "QueryPlanTest1";
+
+    private static final String [ ] LARGE_TABLES = {
+            "notificationstore_demand", "notificationstore_notification", "notificationstore_notification_event", "notificationstore_notification_content"
+    };
+
+    private static final String SQL_INSERT_DEMAND = "INSERT INTO notificationstore_demand ( id, demand_type_id, reference, customer_id ) VALUES ( ?, ?, ?, ? )";
+    private static final String SQL_INSERT_NOTIFICATION = "INSERT INTO notificationstore_notification ( demand_id, demand_type_id, customer_id, date ) VALUES ( ?, ?, ?, ? )";
+    private static final String SQL_INSERT_EVENT = "INSERT INTO notificationstore_notification_event ( event_date, demand_id, demand_type_id, customer_id, notification_date ) VALUES ( ?, ?, ?, ?, ? )";
+    private static final String SQL_DELETE_DEMANDS = "DELETE FROM notificationstore_demand WHERE customer_id LIKE ?";
+    private static final String SQL_DELETE_NOTIFICATIONS = "DELETE FROM notificationstore_notification WHERE customer_id LIKE ?";
+    private static final String SQL_DELETE_EVENTS = "DELETE FROM notificationstore_notification_event WHERE customer_id LIKE ?";
+
+    private static final String COLUMN_TABLE = "table";
+    private static final String COLUMN_TYPE = "type";
+    private static final String COLUMN_POSSIBLE_KEYS = "possible_keys";
+    private static final String TYPE_FULL_SCAN = "ALL";
+    private static final String PLACEHOLDER = "?";
+    private static final String [ ] INT_PLACEHOLDER_PREFIXES = {
+            "LIMIT", "OFFSET"
+    };
+    private static final int INT_VALUE = 10;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp( ) throws Exception
+    {
+        super.setUp( );
+
+        Timestamp date = new Timestamp( System.currentTimeMillis( ) );
+
+        for ( int i = 0; i < SEED_SIZE; i++ )
+        {
+            String strKey = SEED_PREFIX + i;
+
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_INSERT_DEMAND, NotificationStorePlugin.getPlugin( ) ) )
+            {
+                daoUtil.setString( 1, strKey );
+                daoUtil.setString( 2, strKey );
+                daoUtil.setString( 3, strKey );
+                daoUtil.setString( 4, strKey );
+                daoUtil.executeUpdate( );
+            }
+
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_INSERT_NOTIFICATION, NotificationStorePlugin.getPlugin( ) ) )
+            {
+                daoUtil.setString( 1, strKey );
+                daoUtil.setString( 2, strKey );
+                daoUtil.setString( 3, strKey );
+                daoUtil.setTimestamp( 4, date );
+                daoUtil.executeUpdate( );
+            }
+
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_INSERT_EVENT, NotificationStorePlugin.getPlugin( ) ) )
+            {
+                daoUtil.setTimestamp( 1, date );
+                daoUtil.setString( 2, strKey );
+                daoUtil.setString( 3, strKey );
+                daoUtil.setString( 4, strKey );
+                daoUtil.setTimestamp( 5, date );
+                daoUtil.executeUpdate( );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void tearDown( ) throws Exception
+    {
+        for ( String strSql : new String [ ] {
+                SQL_DELETE_EVENTS, SQL_DELETE_NOTIFICATIONS, SQL_DELETE_DEMANDS
+        } )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( strSql, NotificationStorePlugin.getPlugin( ) ) )
+            {
+                daoUtil.setString( 1, SEED_PREFIX + "%" );
+                daoUtil.executeUpdate( );
+            }
+        }
+
+        super.tearDown( );
+    }
+
+    /**
+     * Test that every DAO statement can use an index on the large tables
+     */
+    public void testStatementsUseIndexes( )
+    {
+        for ( String strStatement : getStatements( ) )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( "EXPLAIN " + strStatement, NotificationStorePlugin.getPlugin( ) ) )
+            {
+                bindParameters( daoUtil, strStatement );
+
+                daoUtil.executeQuery( );
+
+                while ( daoUtil.next( ) )
+                {
+                    String strTable = daoUtil.getString( COLUMN_TABLE );
+                    boolean bFullScan = TYPE_FULL_SCAN.equals( daoUtil.getString( COLUMN_TYPE ) ) && daoUtil.getString( COLUMN_POSSIBLE_KEYS ) == null;
+
+                    assertFalse( "Full scan of " + strTable + " : " + strStatement, bFullScan && isLargeTable( strTable ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the statements executed by the DAOs, built from their constants and query builders
+     * 
+     * @return the statements
+     */
+    private static List<String> getStatements( )
+    {
+        List<String> listStatements = new ArrayList<>( );
+
+        // DemandDAO
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_SELECT_BY_ID );
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID );
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_SELECT_BY_DEMAND_ID_AND_TYPE_ID );
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_SELECT_BY_CUSTOMER_ID );
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_SELECT_BY_REFERENCE );
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_UPDATE_LINK );
+        listStatements.add( DemandDAO.SQL_QUERY_DEMAND_DELETE );
+        listStatements.add( String.format( DemandDAO.SQL_QUERY_DEMAND_SELECT_CLOSED_FOR_UPDATE, QueryShapeCache.getPlaceholders( 2 ) ) );
+        listStatements.add( DemandDAO.buildIdsByCustomerIdQuery( false, false, null ) );
+        listStatements.add( DemandDAO.buildIdsByCustomerIdQuery( true, true, "ASC" ) );
+        listStatements.add( DemandDAO.buildIdsByStatusQuery( 2, 0, false ) );
+        listStatements.add( DemandDAO.buildIdsByStatusQuery( 2, 2, true ) );
+        for ( NotificationFilter filter : getDemandFilters( ) )
+        {
+            long lCriteria = DemandDAO.getFilterCriteria( filter );
+            listStatements.add( DemandDAO.getFilterQuery( DemandDAO.QUERY_SELECT, lCriteria ) );
+            listStatements.add( DemandDAO.getFilterQuery( DemandDAO.QUERY_SELECT_PAGE, lCriteria ) );
+            listStatements.add( DemandDAO.getFilterQuery( DemandDAO.QUERY_COUNT, lCriteria ) );
+            listStatements.add( DemandDAO.getFilterQuery( DemandDAO.QUERY_SELECT_IDS, lCriteria ) );
+        }
+
+        // NotificationDAO
+        listStatements.add( NotificationDAO.SQL_QUERY_SELECT_LAST_NOTIFICATION );
+        listStatements.add( NotificationDAO.SQL_QUERY_SELECT_EXPORT );
+        listStatements.add( NotificationDAO.SQL_QUERY_UPDATE_NOTIFICATIONS_TO_LINK );
+        listStatements.add( NotificationDAO.SQL_QUERY_DELETE_BY_DEMAND );
+        listStatements.add( NotificationDAO.buildSelectByDemandQuery( 0 ) );
+        listStatements.add( NotificationDAO.buildSelectByDemandQuery( 2 ) );
+        listStatements.add( NotificationDAO.buildSelectByDemandListQuery( 3, 0 ) );
+        listStatements.add( NotificationDAO.buildSelectByDemandListQuery( 3, 2 ) );
+        for ( NotificationFilter filter : getNotificationFilters( ) )
+        {
+            long lCriteria = NotificationDAO.getFilterCriteria( filter );
+            listStatements.add( NotificationDAO.getFilterQuery( NotificationDAO.QUERY_SELECT, lCriteria ) );
+            listStatements.add( NotificationDAO.getFilterQuery( NotificationDAO.QUERY_SELECT_PAGE, lCriteria ) );
+            listStatements.add( NotificationDAO.getFilterQuery( NotificationDAO.QUERY_COUNT, lCriteria ) );
+            listStatements.add( NotificationDAO.getFilterQuery( NotificationDAO.QUERY_SELECT_IDS, lCriteria ) );
+        }
+
+        // NotificationContentDAO
+        listStatements.add( NotificationContentDAO.SQL_QUERY_SELECT_BY_ID_NOTIF );
+        listStatements.add( NotificationContentDAO.SQL_QUERY_SELECT_AFTER_ID );
+        listStatements.add( NotificationContentDAO.buildSelectExpiredQuery( false, 0 ) );
+        listStatements.add( NotificationContentDAO.buildSelectExpiredQuery( true, 2 ) );
+
+        // NotificationEventDAO
+        listStatements.add( NotificationEventDAO.SQL_QUERY_SELECT_BY_DEMAND );
+        listStatements.add( NotificationEventDAO.SQL_QUERY_SELECT_BY_DEMAND_CUSTOMER );
+        listStatements.add( NotificationEventDAO.SQL_QUERY_SELECT_BY_NOTIFICATION );
+        listStatements.add( NotificationEventDAO.SQL_QUERY_DELETE_BY_CUSTOMER_ID );
+        listStatements.add( NotificationEventDAO.SQL_QUERY_DELETE_BY_DEMAND );
+        listStatements.add( NotificationEventDAO.SQL_QUERY_DELETE_BY_DATE );
+        for ( NotificationFilter filter : getEventFilters( ) )
+        {
+            long lCriteria = NotificationEventDAO.getFilterCriteria( filter );
+            listStatements.add( NotificationEventDAO.getFilterQuery( NotificationEventDAO.QUERY_SELECT, lCriteria ) );
+            listStatements.add( NotificationEventDAO.getFilterQuery( NotificationEventDAO.QUERY_SELECT_PAGE, lCriteria ) );
+            listStatements.add( NotificationEventDAO.getFilterQuery( NotificationEventDAO.QUERY_COUNT, lCriteria ) );
+        }
+
+        return listStatements;
+    }
+
+    /**
+     * Get the filters of the demands used by the back office and the REST API
+     * 
+     * @return the filters
+     */
+    private static List<NotificationFilter> getDemandFilters( )
+    {
+        NotificationFilter filterCustomer = new NotificationFilter( );
+        filterCustomer.setCustomerId( VALUE );
+
+        NotificationFilter filterDemand = new NotificationFilter( );
+        filterDemand.setDemandId( VALUE );
+        filterDemand.setDemandTypeId( VALUE );
+
+        NotificationFilter filterDates = new NotificationFilter( );
+        filterDates.setStartDate( System.currentTimeMillis( ) );
+        filterDates.setEndDate( System.currentTimeMillis( ) );
+
+        NotificationFilter filterDemandType = new NotificationFilter( );
+        filterDemandType.setDemandTypeId( VALUE );
+        filterDemandType.setStartDate( System.currentTimeMillis( ) );
+
+        return Arrays.asList( filterCustomer, filterDemand, filterDates, filterDemandType );
+    }
+
+    /**
+     * Get the filters of the notifications used by the back office and the REST API
+     * 
+     * @return the filters
+     */
+    private static List<NotificationFilter> getNotificationFilters( )
+    {
+        NotificationFilter filterIds = new NotificationFilter( );
+        filterIds.setIds( Arrays.asList( 1, 2, 3 ) );
+
+        NotificationFilter filterChannel = new NotificationFilter( );
+        filterChannel.setCustomerId( VALUE );
+        filterChannel.getListNotificationType( ).add( EnumNotificationType.MYDASHBOARD );
+
+        List<NotificationFilter> listFilters = new ArrayList<>( getDemandFilters( ) );
+        listFilters.add( filterIds );
+        listFilters.add( filterChannel );
+
+        return listFilters;
+    }
+
+    /**
+     * Get the filters of the notification events used by the back office and the REST API
+     * 
+     * @return the filters
+     */
+    private static List<NotificationFilter> getEventFilters( )
+    {
+        NotificationFilter filterDemand = new NotificationFilter( );
+        filterDemand.setDemandId( VALUE );
+        filterDemand.setDemandTypeId( VALUE );
+
+        NotificationFilter filterDates = new NotificationFilter( );
+        filterDates.setStartDate( System.currentTimeMillis( ) );
+        filterDates.setEndDate( System.currentTimeMillis( ) );
+
+        return Arrays.asList( filterDemand, filterDates );
+    }
+
+    /**
+     * Bind the parameters of a statement : VALUE, or an int for the LIMIT and OFFSET clauses
+     * 
+     * @param daoUtil
+     *            the daoUtil
+     * @param strStatement
+     *            the statement
+     */
+    private static void bindParameters( DAOUtil daoUtil, String strStatement )
+    {
+        int nIndex = 0;
+        int nPosition = strStatement.indexOf( PLACEHOLDER );
+
+        while ( nPosition >= 0 )
+        {
+            String strBefore = strStatement.substring( 0, nPosition ).trim( ).toUpperCase( );
+            boolean bInt = false;
+            for ( String strPrefix : INT_PLACEHOLDER_PREFIXES )
+            {
+                bInt = bInt || strBefore.endsWith( strPrefix );
+            }
+
+            if ( bInt )
+            {
+                daoUtil.setInt( ++nIndex, INT_VALUE );
+            }
+            else
+            {
+                daoUtil.setString( ++nIndex, VALUE );
+            }
+
+            nPosition = strStatement.indexOf( PLACEHOLDER, nPosition + 1 );
+        }
+    }
+
+    /**
+     * Check if a table is one of the large tables
+     * 
+     * @param strTable
+     *            the table name
+     * @return true if the table is large
+     */
+    private static boolean isLargeTable( String strTable )
+    {
+        for ( String strLargeTable : LARGE_TABLES )
+        {
+            if ( strLargeTable.equalsIgnoreCase( strTable ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.business;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * QueryShapeCache Test
+ */
+public class QueryShapeCacheTest extends TestCase
+{
+    private static final int SHIFT = 16;
+
+    @Test
+    public void testArityBucket( )
+    {
+        assertEquals( 1, QueryShapeCache.getArityBucket( 0 ) );
+        assertEquals( 1, QueryShapeCache.getArityBucket( 1 ) );
+        assertEquals( 2, QueryShapeCache.getArityBucket( 2 ) );
+        assertEquals( 4, QueryShapeCache.getArityBucket( 3 ) );
+        assertEquals( 8, QueryShapeCache.getArityBucket( 5 ) );
+        assertEquals( 1024, QueryShapeCache.getArityBucket( 1000 ) );
+
+        for ( int nSize = 1; nSize < 5000; nSize++ )
+        {
+            long lShape = QueryShapeCache.arity( nSize, SHIFT );
+            assertEquals( QueryShapeCache.getArityBucket( nSize ), QueryShapeCache.getArity( lShape | 0xffL, SHIFT ) );
+        }
+    }
+
+    @Test
+    public void testPlaceholders( )
+    {
+        assertEquals( "?", QueryShapeCache.getPlaceholders( 1 ) );
+        assertEquals( "?, ?, ?, ?", QueryShapeCache.getPlaceholders( 4 ) );
+    }
+
+    @Test
+    public void testQueryIsBuiltOncePerShape( )
+    {
+        QueryShapeCache<Long> cache = new QueryShapeCache<>( 2 );
+        int [ ] nBuilds = {
+                0
+        };
+
+        long lShape = QueryShapeCache.shape( 1, 5L | QueryShapeCache.arity( 3, SHIFT ) );
+        String strQuery = cache.getQuery( lShape, ( ) -> "SELECT " + ++nBuilds [0] );
+
+        assertEquals( strQuery, cache.getQuery( lShape, ( ) -> "SELECT " + ++nBuilds [0] ) );
+        assertEquals( strQuery, cache.getQuery( QueryShapeCache.shape( 1, 5L | QueryShapeCache.arity( 4, SHIFT ) ), ( ) -> "SELECT " + ++nBuilds [0] ) );
+        assertEquals( 1, nBuilds [0] );
+
+        // other kind of statement
+        cache.getQuery( QueryShapeCache.shape( 2, 5L | QueryShapeCache.arity( 3, SHIFT ) ), ( ) -> "SELECT " + ++nBuilds [0] );
+        assertEquals( 2, nBuilds [0] );
+
+        // the cache is bounded
+        cache.getQuery( 42L, ( ) -> "SELECT " + ++nBuilds [0] );
+        assertEquals( 2, cache.size( ) );
+    }
+}
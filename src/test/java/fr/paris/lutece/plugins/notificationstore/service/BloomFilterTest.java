@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * BloomFilter Test
+ */
+public class BloomFilterTest extends TestCase
+{
+    private static final int NB_HASHES = 10000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    public void testMightContain( ) throws NoSuchAlgorithmException
+    {
+        BloomFilter filter = new BloomFilter( NB_HASHES, FALSE_POSITIVE_RATE );
+
+        for ( int i = 0; i < NB_HASHES; i++ )
+        {
+            filter.put( hash( "put" + i ) );
+        }
+
+        int nFalsePositives = 0;
+        for ( int i = 0; i < NB_HASHES; i++ )
+        {
+            // no false negative
+            assertTrue( filter.mightContain( hash( "put" + i ) ) );
+
+            if ( filter.mightContain( hash( "other" + i ) ) )
+            {
+                nFalsePositives++;
+            }
+        }
+
+        assertTrue( nFalsePositives < NB_HASHES * FALSE_POSITIVE_RATE * 2 );
+    }
+
+    private static byte [ ] hash( String strValue ) throws NoSuchAlgorithmException
+    {
+        return MessageDigest.getInstance( "SHA-256" ).digest( strValue.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.notificationstore.business.CacheEvent;
+import fr.paris.lutece.plugins.notificationstore.business.ICacheEventDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import junit.framework.TestCase;
+
+/**
+ * CacheInvalidationService Test, with two webapps sharing a change log in memory
+ */
+public class CacheInvalidationServiceTest extends TestCase
+{
+    private static final String CACHE_NAME = "test";
+
+    @Test
+    public void testInvalidation( )
+    {
+        MemoryCacheEventDAO dao = new MemoryCacheEventDAO( );
+        dao.insert( CACHE_NAME, null );
+
+        AtomicInteger nInvalidations1 = new AtomicInteger( );
+        AtomicInteger nInvalidations2 = new AtomicInteger( );
+        CacheInvalidationService webapp1 = new CacheInvalidationService( dao, null, 60000 );
+        CacheInvalidationService webapp2 = new CacheInvalidationService( dao, null, 60000 );
+        webapp1.register( CACHE_NAME, nInvalidations1::incrementAndGet );
+        webapp2.register( CACHE_NAME, nInvalidations2::incrementAndGet );
+
+        // the events published before the start are ignored
+        assertEquals( 0, webapp2.poll( ) );
+
+        webapp1.publish( CACHE_NAME );
+        webapp1.publish( CACHE_NAME );
+
+        assertEquals( 0, webapp1.poll( ) );
+        assertEquals( 1, webapp2.poll( ) );
+        assertEquals( 0, webapp2.poll( ) );
+        assertEquals( 0, nInvalidations1.get( ) );
+        assertEquals( 1, nInvalidations2.get( ) );
+    }
+
+    @Test
+    public void testUncommittedEvent( )
+    {
+        MemoryCacheEventDAO dao = new MemoryCacheEventDAO( );
+        AtomicInteger nInvalidations = new AtomicInteger( );
+        CacheInvalidationService webapp1 = new CacheInvalidationService( dao, null, 60000 );
+        CacheInvalidationService webapp2 = new CacheInvalidationService( dao, null, 60000 );
+        webapp2.register( CACHE_NAME, nInvalidations::incrementAndGet );
+
+        // the first event is committed after the second one
+        dao._bCommit = false;
+        webapp1.publish( CACHE_NAME );
+        dao._bCommit = true;
+        webapp1.publish( CACHE_NAME );
+
+        assertEquals( 1, webapp2.poll( ) );
+        dao.commitAll( );
+        assertEquals( 1, webapp2.poll( ) );
+        assertEquals( 0, webapp2.poll( ) );
+        assertEquals( 2, nInvalidations.get( ) );
+    }
+
+    @Test
+    public void testGapTimeout( )
+    {
+        MemoryCacheEventDAO dao = new MemoryCacheEventDAO( );
+        AtomicInteger nInvalidations = new AtomicInteger( );
+        CacheInvalidationService webapp1 = new CacheInvalidationService( dao, null, 60000 );
+        CacheInvalidationService webapp2 = new CacheInvalidationService( dao, null, -1 );
+        webapp2.register( CACHE_NAME, nInvalidations::incrementAndGet );
+
+        // the first event is rolled back
+        dao._bCommit = false;
+        webapp1.publish( CACHE_NAME );
+        dao._bCommit = true;
+        webapp1.publish( CACHE_NAME );
+
+        assertEquals( 1, webapp2.poll( ) );
+        dao.commitAll( );
+        assertEquals( 0, webapp2.poll( ) );
+        assertEquals( 1, nInvalidations.get( ) );
+    }
+
+    /**
+     * Change log in memory, whose events may be inserted without being committed
+     */
+    private static class MemoryCacheEventDAO implements ICacheEventDAO
+    {
+        private final TreeMap<Long, CacheEvent> _mapEvents = new TreeMap<>( );
+        private final TreeMap<Long, CacheEvent> _mapUncommittedEvents = new TreeMap<>( );
+        private long _lLastId;
+        private boolean _bCommit = true;
+
+        @Override
+        public long insert( String strCacheName, Plugin plugin )
+        {
+            CacheEvent event = new CacheEvent( );
+            event.setId( ++_lLastId );
+            event.setCacheName( strCacheName );
+            ( _bCommit ? _mapEvents : _mapUncommittedEvents ).put( event.getId( ), event );
+            return event.getId( );
+        }
+
+        /**
+         * Commit the uncommitted events
+         */
+        void commitAll( )
+        {
+            _mapEvents.putAll( _mapUncommittedEvents );
+            _mapUncommittedEvents.clear( );
+        }
+
+        @Override
+        public List<CacheEvent> selectAfter( long lIdEvent, Plugin plugin )
+        {
+            return _mapEvents.tailMap( lIdEvent, false ).values( ).stream( ).collect( Collectors.toList( ) );
+        }
+
+        @Override
+        public long selectLastId( Plugin plugin )
+        {
+            return _mapEvents.isEmpty( ) ? 0 : _mapEvents.lastKey( );
+        }
+
+        @Override
+        public int deleteBefore( long lDate, Plugin plugin )
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * ReadReplicaService Test
+ */
+public class ReadReplicaServiceTest extends TestCase
+{
+    private static final String POOL = "replica";
+    private static final long MAX_LAG = 5000L;
+    private static final String CUSTOMER_ID_1 = "CustomerId1";
+    private static final String CUSTOMER_ID_2 = "CustomerId2";
+
+    @Test
+    public void testReadYourWrites( )
+    {
+        ReadReplicaService service = new ReadReplicaService( POOL, MAX_LAG );
+        long lNow = 1000000L;
+
+        assertFalse( service.isReadFromPrimary( CUSTOMER_ID_1, lNow ) );
+
+        service.markWrite( CUSTOMER_ID_1, lNow );
+
+        assertTrue( service.isReadFromPrimary( CUSTOMER_ID_1, lNow ) );
+        assertTrue( service.isReadFromPrimary( CUSTOMER_ID_1, lNow + MAX_LAG - 1 ) );
+        assertFalse( service.isReadFromPrimary( CUSTOMER_ID_1, lNow + MAX_LAG ) );
+        assertFalse( service.isReadFromPrimary( CUSTOMER_ID_2, lNow ) );
+        assertFalse( service.isReadFromPrimary( null, lNow ) );
+    }
+
+    @Test
+    public void testNoLagTolerance( )
+    {
+        ReadReplicaService service = new ReadReplicaService( POOL, 0 );
+
+        service.markWrite( CUSTOMER_ID_1, 0 );
+
+        assertFalse( service.isReadFromPrimary( CUSTOMER_ID_1, 0 ) );
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.grubusiness.business.demand.DemandCategory;
+import fr.paris.lutece.plugins.grubusiness.business.demand.DemandType;
+import junit.framework.TestCase;
+
+/**
+ * ReferenceDataSnapshot Test
+ */
+public class ReferenceDataSnapshotTest extends TestCase
+{
+    @Test
+    public void testDemandTypes( )
+    {
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot( 1, Arrays.asList( getDemandType( 1, 101, "CAT1" ), getDemandType( 2, 102, "CAT1" ),
+                getDemandType( 3, 103, null ) ), Collections.emptyList( ), Collections.emptyList( ), Collections.emptyMap( ) );
+
+        assertEquals( 2, snapshot.getDemandType( "102" ).get( ).getId( ) );
+        assertEquals( 2, snapshot.getDemandType( " 102 " ).get( ).getId( ) );
+        assertFalse( snapshot.getDemandType( "104" ).isPresent( ) );
+        assertFalse( snapshot.getDemandType( "abc" ).isPresent( ) );
+        assertFalse( snapshot.getDemandType( null ).isPresent( ) );
+        assertEquals( 103, snapshot.getDemandTypeById( 3 ).get( ).getIdDemandType( ) );
+        assertEquals( 2, snapshot.getDemandTypesByCategoryCode( "CAT1" ).size( ) );
+        assertTrue( snapshot.getDemandTypesByCategoryCode( "CAT2" ).isEmpty( ) );
+    }
+
+    @Test
+    public void testImmutable( )
+    {
+        List<DemandType> listDemandTypes = new ArrayList<>( );
+        listDemandTypes.add( getDemandType( 1, 101, "CAT1" ) );
+
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot( 1, listDemandTypes, Collections.emptyList( ), Collections.emptyList( ),
+                Collections.emptyMap( ) );
+        listDemandTypes.add( getDemandType( 2, 102, "CAT1" ) );
+
+        assertEquals( 1, snapshot.getDemandTypes( ).size( ) );
+        try
+        {
+            snapshot.getDemandTypes( ).add( getDemandType( 3, 103, "CAT1" ) );
+            fail( "The demand types of a snapshot must not be modified" );
+        }
+        catch( UnsupportedOperationException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCategoriesAndLabels( )
+    {
+        DemandCategory category = new DemandCategory( );
+        category.setId( 5 );
+        category.setCode( "CAT1" );
+
+        ReferenceDataSnapshot snapshot = new ReferenceDataSnapshot( 2, Collections.emptyList( ), Arrays.asList( category ), Collections.emptyList( ),
+                Collections.singletonMap( 1, "En cours" ) );
+
+        assertEquals( 2, snapshot.getVersion( ) );
+        assertEquals( 5, snapshot.getDemandCategoryByCode( "CAT1" ).get( ).getId( ) );
+        assertTrue( snapshot.getDemandCategory( 5 ).isPresent( ) );
+        assertEquals( "En cours", snapshot.getGenericStatusLabel( 1 ) );
+        assertEquals( "", snapshot.getGenericStatusLabel( 9 ) );
+        assertEquals( "", snapshot.getGenericStatusLabel( null ) );
+    }
+
+    /**
+     * Build a demand type
+     * 
+     * @param nId
+     *            the primary key
+     * @param nIdDemandType
+     *            the demand type id
+     * @param strCategory
+     *            the category code
+     * @return the demand type
+     */
+    private static DemandType getDemandType( int nId, int nIdDemandType, String strCategory )
+    {
+        DemandType demandType = new DemandType( );
+        demandType.setId( nId );
+        demandType.setIdDemandType( nIdDemandType );
+        demandType.setCategory( strCategory );
+        return demandType;
+    }
+}
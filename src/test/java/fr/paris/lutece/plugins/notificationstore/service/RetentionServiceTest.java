@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import fr.paris.lutece.plugins.notificationstore.service.RetentionService.RetentionRule;
+import junit.framework.TestCase;
+
+/**
+ * RetentionService Test
+ */
+public class RetentionServiceTest extends TestCase
+{
+    @Test
+    public void testGetRules( )
+    {
+        Map<String, String> mapProperties = new HashMap<>( );
+        mapProperties.put( "SMS", "90" );
+        mapProperties.put( "MYDASHBOARD.101", " 730 " );
+        mapProperties.put( "BACKOFFICE", "" );
+        mapProperties.put( "CUSTOMER_EMAIL", "-1" );
+        mapProperties.put( "BROADCAST_EMAIL", "abc" );
+
+        List<RetentionRule> listRules = RetentionService.getRules( mapProperties );
+
+        assertEquals( 2, listRules.size( ) );
+        assertEquals( "MYDASHBOARD", listRules.get( 0 ).getNotificationType( ) );
+        assertEquals( "101", listRules.get( 0 ).getDemandTypeId( ) );
+        assertEquals( 730, listRules.get( 0 ).getNbDays( ) );
+        assertEquals( "SMS", listRules.get( 1 ).getNotificationType( ) );
+        assertNull( listRules.get( 1 ).getDemandTypeId( ) );
+        assertEquals( 90, listRules.get( 1 ).getNbDays( ) );
+    }
+
+    @Test
+    public void testGetExcludedDemandTypes( )
+    {
+        Map<String, String> mapProperties = new HashMap<>( );
+        mapProperties.put( "MYDASHBOARD", "365" );
+        mapProperties.put( "MYDASHBOARD.101", "730" );
+        mapProperties.put( "MYDASHBOARD.102", "30" );
+        mapProperties.put( "SMS.103", "30" );
+
+        List<RetentionRule> listRules = RetentionService.getRules( mapProperties );
+
+        // the channel rule skips the demand types having their own rule for this channel
+        assertEquals( 2, RetentionService.getExcludedDemandTypes( listRules.get( 0 ), listRules ).size( ) );
+        assertFalse( RetentionService.getExcludedDemandTypes( listRules.get( 0 ), listRules ).contains( "103" ) );
+        assertTrue( RetentionService.getExcludedDemandTypes( listRules.get( 1 ), listRules ).isEmpty( ) );
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * ShardRouter Test
+ */
+public class ShardRouterTest extends TestCase
+{
+    private static final int VIRTUAL_NODES = 64;
+    private static final int NB_CUSTOMERS = 10000;
+    private static final String CUSTOMER_ID = "CustomerId";
+
+    @Test
+    public void testSingleShard( )
+    {
+        ShardRouter router = new ShardRouter( Collections.emptyList( ), VIRTUAL_NODES );
+
+        assertFalse( router.isSharded( ) );
+        assertEquals( 0, router.getShard( CUSTOMER_ID ) );
+        assertEquals( 0, router.getShard( null ) );
+        assertTrue( router.isSameShard( CUSTOMER_ID, CUSTOMER_ID + 1 ) );
+
+        // the plugin pool alone is a single shard
+        router = new ShardRouter( Collections.singletonList( "notificationstore" ), VIRTUAL_NODES );
+
+        assertFalse( router.isSharded( ) );
+        assertEquals( 0, router.getShard( CUSTOMER_ID ) );
+    }
+
+    @Test
+    public void testSpread( )
+    {
+        ShardRouter router = new ShardRouter( Arrays.asList( "shard1", "shard2", "shard3" ), VIRTUAL_NODES );
+        int [ ] counts = new int [ 3];
+
+        for ( int i = 0; i < NB_CUSTOMERS; i++ )
+        {
+            int nShard = router.getShard( CUSTOMER_ID + i );
+            assertEquals( nShard, router.getShard( CUSTOMER_ID + i ) );
+            counts [nShard]++;
+        }
+
+        for ( int nCount : counts )
+        {
+            // each shard gets a third of the customers, give or take
+            assertTrue( nCount > NB_CUSTOMERS / 5 );
+            assertTrue( nCount < NB_CUSTOMERS / 2 );
+        }
+    }
+
+    @Test
+    public void testAddShard( )
+    {
+        ShardRouter router = new ShardRouter( Arrays.asList( "shard1", "shard2", "shard3" ), VIRTUAL_NODES );
+        ShardRouter newRouter = new ShardRouter( Arrays.asList( "shard1", "shard2", "shard3", "shard4" ), VIRTUAL_NODES );
+        int nMoved = 0;
+
+        for ( int i = 0; i < NB_CUSTOMERS; i++ )
+        {
+            int nNewShard = newRouter.getShard( CUSTOMER_ID + i );
+            if ( nNewShard != router.getShard( CUSTOMER_ID + i ) )
+            {
+                // customers only move to the new shard
+                assertEquals( 3, nNewShard );
+                nMoved++;
+            }
+        }
+
+        assertTrue( nMoved > NB_CUSTOMERS / 8 );
+        assertTrue( nMoved < NB_CUSTOMERS / 2 );
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2002-2025, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.notificationstore.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.paris.lutece.util.string.StringUtil;
+import junit.framework.TestCase;
+
+/**
+ * NotificationContentWriter Test
+ */
+public class NotificationContentWriterTest extends TestCase
+{
+    private static final String CONTENT = "Votre demande était \u0001 acceptée 😀 € 100 \uD800 \t fin";
+
+    private final ObjectMapper _mapper = new ObjectMapper( );
+
+    @Test
+    public void testWriteIsSameAsRegexpFilter( ) throws Exception
+    {
+        Map<String, String> content = new HashMap<>( );
+        content.put( "message", CONTENT );
+
+        String strExpected = _mapper.writeValueAsString( content ).replaceAll( NotificationStoreConstants.CHARECTER_REGEXP_FILTER, "" );
+
+        byte [ ] bytes = NotificationContentWriter.write( _mapper, content, false );
+        assertEquals( new String( strExpected.getBytes( StandardCharsets.UTF_8 ), StandardCharsets.UTF_8 ), new String( bytes, StandardCharsets.UTF_8 ) );
+
+        byte [ ] compressed = NotificationContentWriter.write( _mapper, content, true );
+        assertEquals( new String( strExpected.getBytes( StandardCharsets.UTF_8 ), StandardCharsets.UTF_8 ), StringUtil.decompress( compressed ) );
+    }
+
+    @Test
+    public void testSmileRoundTrip( ) throws Exception
+    {
+        Map<String, String> content = new HashMap<>( );
+        content.put( "message", CONTENT );
+
+        String strExpected = CONTENT.replaceAll( NotificationStoreConstants.CHARECTER_REGEXP_FILTER, "" );
+        TypeReference<Map<String, String>> typeReference = new TypeReference<Map<String, String>>( )
+        {
+        };
+
+        for ( boolean bCompress : new boolean [ ] {
+                false, true
+        } )
+        {
+            byte [ ] bytes = NotificationContentWriter.write( NotificationStoreUtils.getSmileMapper( ), content, bCompress );
+            assertEquals( bCompress, NotificationContentReader.isCompressed( bytes ) );
+
+            Map<String, String> read = NotificationContentReader.read( _mapper, bytes, typeReference );
+            assertEquals( strExpected, read.get( "message" ) );
+        }
+    }
+
+    @Test
+    public void testJsonStillReadable( ) throws Exception
+    {
+        Map<String, String> content = new HashMap<>( );
+        content.put( "message", "Votre demande est acceptée" );
+
+        byte [ ] bytes = NotificationContentWriter.write( _mapper, content, false );
+        Map<String, String> read = NotificationContentReader.read( _mapper, bytes, new TypeReference<Map<String, String>>( )
+        {
+        } );
+
+        assertEquals( content, read );
+    }
+}